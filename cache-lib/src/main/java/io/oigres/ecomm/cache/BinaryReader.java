@@ -0,0 +1,124 @@
+/**********
+ This project is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the
+ Free Software Foundation; either version 3.0 of the License, or (at your
+ option) any later version. (See <https://www.gnu.org/licenses/gpl-3.0.html>.)
+
+ This project is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this project; if not, write to the Free Software Foundation, Inc.,
+ 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301  USA
+ **********/
+// Copyright (c) 2024-2025 Sergio Exposito.  All rights reserved.              
+
+package io.oigres.ecomm.cache;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads a binary stream which was written by {@link BinaryWriter}.
+ *
+ * @author sergio.exposito (sjexpos@gmail.com)
+ */
+public class BinaryReader {
+  private static final int NULL = 0;
+  private static final int NEW_ENTRY = 1;
+  private static final int FIRST_ENTRY = 2;
+
+  private final byte[] buffer;
+  private int position;
+  private final int limit;
+  private List<String> dictionary;
+
+  public BinaryReader(byte[] buffer) {
+    this(buffer, 0, buffer.length);
+  }
+
+  public BinaryReader(byte[] buffer, int offset, int length) {
+    this.buffer = buffer;
+    this.position = offset;
+    this.limit = offset + length;
+  }
+
+  private void require(int count) {
+    if (this.position + count > this.limit) {
+      throw new IllegalStateException("Unexpected end of binary data");
+    }
+  }
+
+  public int readByte() {
+    require(1);
+    return this.buffer[this.position++] & 0xFF;
+  }
+
+  public boolean readBoolean() {
+    return readByte() != 0;
+  }
+
+  public int readVarInt() {
+    int value = 0;
+    for (int shift = 0; shift < 35; shift += 7) {
+      int b = readByte();
+      value |= (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) {
+        return value;
+      }
+    }
+    throw new IllegalStateException("Malformed varint");
+  }
+
+  public long readVarLong() {
+    long value = 0;
+    for (int shift = 0; shift < 70; shift += 7) {
+      int b = readByte();
+      value |= (long) (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) {
+        return value;
+      }
+    }
+    throw new IllegalStateException("Malformed varlong");
+  }
+
+  public long readSignedVarLong() {
+    long value = readVarLong();
+    return (value >>> 1) ^ -(value & 1);
+  }
+
+  public String readString() {
+    int length = readVarInt();
+    if (length == 0) {
+      return null;
+    }
+    length--;
+    require(length);
+    String value = new String(this.buffer, this.position, length, StandardCharsets.UTF_8);
+    this.position += length;
+    return value;
+  }
+
+  public String readDictionaryString() {
+    int index = readVarInt();
+    if (index == NULL) {
+      return null;
+    }
+    if (this.dictionary == null) {
+      this.dictionary = new ArrayList<>();
+    }
+    if (index == NEW_ENTRY) {
+      String value = readString();
+      this.dictionary.add(value);
+      return value;
+    }
+    index -= FIRST_ENTRY;
+    if (index >= this.dictionary.size()) {
+      throw new IllegalStateException("Unknown dictionary entry " + index);
+    }
+    return this.dictionary.get(index);
+  }
+}
@@ -0,0 +1,95 @@
+/**********
+ This project is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the
+ Free Software Foundation; either version 3.0 of the License, or (at your
+ option) any later version. (See <https://www.gnu.org/licenses/gpl-3.0.html>.)
+
+ This project is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this project; if not, write to the Free Software Foundation, Inc.,
+ 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301  USA
+ **********/
+// Copyright (c) 2024-2025 Sergio Exposito.  All rights reserved.              
+
+package io.oigres.ecomm.cache;
+
+import java.util.Arrays;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+/**
+ * This redis serializer writes values using a compact binary codec. Data is prefixed with a
+ * format byte, so values which were written by another serializer can still be read through the
+ * fallback serializer while they expire.
+ *
+ * @author sergio.exposito (sjexpos@gmail.com)
+ */
+@Slf4j
+public class BinaryRedisSerializer<T> implements BufferedRedisSerializer<T> {
+  public static final byte FORMAT = (byte) 0xB1;
+
+  private final BinaryCodec<T> codec;
+  private final RedisSerializer<T> fallbackSerializer;
+
+  public BinaryRedisSerializer(BinaryCodec<T> codec) {
+    this(codec, null);
+  }
+
+  public BinaryRedisSerializer(BinaryCodec<T> codec, RedisSerializer<T> fallbackSerializer) {
+    this.codec = codec;
+    this.fallbackSerializer = fallbackSerializer;
+  }
+
+  @Override
+  public byte[] serialize(T value) throws SerializationException {
+    if (value == null) return new byte[0];
+    BinaryWriter writer = new BinaryWriter();
+    serialize(value, writer);
+    return writer.toByteArray();
+  }
+
+  @Override
+  public void serialize(T value, BinaryWriter writer) throws SerializationException {
+    int start = writer.size();
+    try {
+      writer.writeByte(FORMAT);
+      this.codec.write(value, writer);
+    } catch (Exception e) {
+      throw new SerializationException("Binary codec error", e);
+    }
+    if (log.isTraceEnabled()) log.trace("Data was written in {} bytes.", writer.size() - start);
+  }
+
+  @Override
+  public T deserialize(byte[] bytes) throws SerializationException {
+    if (bytes == null || bytes.length == 0) return null;
+    return deserialize(bytes, 0, bytes.length);
+  }
+
+  @Override
+  public T deserialize(byte[] bytes, int offset, int length) throws SerializationException {
+    if (length == 0) return null;
+    if (bytes[offset] != FORMAT) {
+      if (this.fallbackSerializer == null) {
+        throw new SerializationException("Data was not written by binary codec");
+      }
+      if (this.fallbackSerializer instanceof BufferedRedisSerializer<T> buffered) {
+        return buffered.deserialize(bytes, offset, length);
+      }
+      return this.fallbackSerializer.deserialize(
+          offset == 0 && length == bytes.length
+              ? bytes
+              : Arrays.copyOfRange(bytes, offset, offset + length));
+    }
+    try {
+      return this.codec.read(new BinaryReader(bytes, offset + 1, length - 1));
+    } catch (Exception e) {
+      throw new SerializationException("Binary codec error", e);
+    }
+  }
+}
@@ -0,0 +1,163 @@
+/**********
+ This project is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the
+ Free Software Foundation; either version 3.0 of the License, or (at your
+ option) any later version. (See <https://www.gnu.org/licenses/gpl-3.0.html>.)
+
+ This project is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this project; if not, write to the Free Software Foundation, Inc.,
+ 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301  USA
+ **********/
+// Copyright (c) 2024-2025 Sergio Exposito.  All rights reserved.              
+
+package io.oigres.ecomm.cache;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Writes a binary stream. Numbers are written as varints, and strings which repeat a lot (header
+ * names, methods, paths, ...) can be written through a dictionary, so each distinct string is
+ * written only once per stream. It is an output stream too, so other serializers can write on it,
+ * and it can be reset to be reused.
+ *
+ * @author sergio.exposito (sjexpos@gmail.com)
+ */
+public class BinaryWriter extends OutputStream {
+  private static final int NULL = 0;
+  private static final int NEW_ENTRY = 1;
+  private static final int FIRST_ENTRY = 2;
+
+  private byte[] buffer;
+  private int size;
+  private Map<String, Integer> dictionary;
+
+  public BinaryWriter() {
+    this(256);
+  }
+
+  public BinaryWriter(int capacity) {
+    this.buffer = new byte[capacity];
+  }
+
+  private void ensureCapacity(int extra) {
+    if (this.size + extra > this.buffer.length) {
+      this.buffer = Arrays.copyOf(this.buffer, Math.max(this.buffer.length * 2, this.size + extra));
+    }
+  }
+
+  public void writeByte(int value) {
+    ensureCapacity(1);
+    this.buffer[this.size++] = (byte) value;
+  }
+
+  public void writeBytes(byte[] bytes) {
+    ensureCapacity(bytes.length);
+    System.arraycopy(bytes, 0, this.buffer, this.size, bytes.length);
+    this.size += bytes.length;
+  }
+
+  @Override
+  public void write(int value) {
+    writeByte(value);
+  }
+
+  @Override
+  public void write(byte[] bytes, int offset, int length) {
+    ensureCapacity(length);
+    System.arraycopy(bytes, offset, this.buffer, this.size, length);
+    this.size += length;
+  }
+
+  public void writeBoolean(boolean value) {
+    writeByte(value ? 1 : 0);
+  }
+
+  /** Writes an unsigned varint, negative values take 5 bytes. */
+  public void writeVarInt(int value) {
+    ensureCapacity(5);
+    while ((value & ~0x7F) != 0) {
+      this.buffer[this.size++] = (byte) ((value & 0x7F) | 0x80);
+      value >>>= 7;
+    }
+    this.buffer[this.size++] = (byte) value;
+  }
+
+  /** Writes an unsigned varlong, negative values take 10 bytes. */
+  public void writeVarLong(long value) {
+    ensureCapacity(10);
+    while ((value & ~0x7FL) != 0) {
+      this.buffer[this.size++] = (byte) ((value & 0x7F) | 0x80);
+      value >>>= 7;
+    }
+    this.buffer[this.size++] = (byte) value;
+  }
+
+  /** Writes a varlong using zigzag encoding, so small negative values are also short. */
+  public void writeSignedVarLong(long value) {
+    writeVarLong((value << 1) ^ (value >> 63));
+  }
+
+  public void writeString(String value) {
+    if (value == null) {
+      writeVarInt(0);
+      return;
+    }
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    writeVarInt(bytes.length + 1);
+    writeBytes(bytes);
+  }
+
+  /** Writes a string which is expected to repeat on the stream. */
+  public void writeDictionaryString(String value) {
+    if (value == null) {
+      writeVarInt(NULL);
+      return;
+    }
+    if (this.dictionary == null) {
+      this.dictionary = new HashMap<>();
+    }
+    Integer index = this.dictionary.get(value);
+    if (index != null) {
+      writeVarInt(index + FIRST_ENTRY);
+      return;
+    }
+    this.dictionary.put(value, this.dictionary.size());
+    writeVarInt(NEW_ENTRY);
+    writeString(value);
+  }
+
+  public int size() {
+    return this.size;
+  }
+
+  public int capacity() {
+    return this.buffer.length;
+  }
+
+  /**
+   * Buffer which holds the written bytes, from 0 to size. It is valid until the next write or
+   * reset.
+   */
+  public byte[] buffer() {
+    return this.buffer;
+  }
+
+  /** Forget the written bytes and the dictionary, keeping the buffer. */
+  public void reset() {
+    this.size = 0;
+    this.dictionary = null;
+  }
+
+  public byte[] toByteArray() {
+    return Arrays.copyOf(this.buffer, this.size);
+  }
+}
@@ -0,0 +1,37 @@
+/**********
+ This project is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the
+ Free Software Foundation; either version 3.0 of the License, or (at your
+ option) any later version. (See <https://www.gnu.org/licenses/gpl-3.0.html>.)
+
+ This project is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this project; if not, write to the Free Software Foundation, Inc.,
+ 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301  USA
+ **********/
+// Copyright (c) 2024-2025 Sergio Exposito.  All rights reserved.              
+
+package io.oigres.ecomm.cache;
+
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+/**
+ * Redis serializer which writes values at the end of a writer and reads them from a range of a
+ * buffer, so serializers which frame or compress its values write them on a reused buffer and read
+ * them where they are, instead of copying them on intermediate arrays.
+ *
+ * @author sergio.exposito (sjexpos@gmail.com)
+ */
+public interface BufferedRedisSerializer<T> extends RedisSerializer<T> {
+
+  /** Write a value, which is not null, at the end of the writer. */
+  void serialize(T value, BinaryWriter writer) throws SerializationException;
+
+  /** Read a value from length bytes of the buffer, from offset. */
+  T deserialize(byte[] bytes, int offset, int length) throws SerializationException;
+}
@@ -17,47 +17,370 @@
 
 package io.oigres.ecomm.cache;
 
+import io.oigres.ecomm.cache.annotations.CacheLock;
+import io.oigres.ecomm.cache.annotations.LockMode;
+import io.oigres.ecomm.cache.annotations.LockTimeoutPolicy;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
-import java.util.concurrent.locks.Lock;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
 import lombok.extern.slf4j.Slf4j;
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.context.expression.MethodBasedEvaluationContext;
+import org.springframework.core.DefaultParameterNameDiscoverer;
+import org.springframework.core.ParameterNameDiscoverer;
+import org.springframework.expression.Expression;
+import org.springframework.expression.ExpressionParser;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.util.ObjectUtils;
+import org.springframework.util.ReflectionUtils;
+import org.springframework.util.StringUtils;
 
 /**
- * Aspect class to process @CacheLock annotation
+ * Aspect class to process @CacheLock annotation. Keys are locked as they are accessed, unless the
+ * method runs on optimistic mode, where it is retried while its writes conflict, and it falls back
+ * to locking when every attempt conflicted. Side effects which are registered with
+ * CacheLockManager.runAfterCommit run once, after the writes of the attempt which was committed. Keys which are declared on the annotation are locked
+ * together before the method runs. Locks are acquired within the wait timeout of the method, and
+ * its timeout policy is applied when they are not. Methods which return a CompletionStage are run
+ * once their declared keys are locked without blocking the caller, and their locks are released
+ * when the returned stage completes.
  *
  * @author sergio.exposito (sjexpos@gmail.com)
  */
 @Slf4j
 @Aspect
 public class CacheLockAspect {
+  private static final ExpressionParser parser = new SpelExpressionParser();
+  private static final ParameterNameDiscoverer parameterNameDiscoverer =
+      new DefaultParameterNameDiscoverer();
+  private static final ExecutorService asyncExecutor =
+      Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("cache-lock-", 0).factory());
+  // thread ids are positive, so negative ids never own the lock of a thread
+  private static final AtomicLong asyncOwners = new AtomicLong();
 
-  @Around("@annotation(io.oigres.ecomm.cache.annotations.CacheLock)")
-  public Object cacheLock(ProceedingJoinPoint joinPoint) throws Throwable {
+  private final CacheLockFactory cacheLockFactory;
+  private final CacheVersionStore versionStore;
+  private final LockMode defaultMode;
+  private final int optimisticAttempts;
+  private final CacheLockOptions defaultOptions;
+  private final Map<Method, LockedMethod> lockedMethods = new ConcurrentHashMap<>();
+
+  public CacheLockAspect() {
+    this(null, null, LockMode.PESSIMISTIC, 0, CacheLockOptions.UNBOUNDED);
+  }
+
+  /**
+   * @param cacheLockFactory factory of the locks of keys which are declared on annotations
+   * @param versionStore store where optimistic writes are committed
+   * @param defaultMode mode of methods whose annotation has default mode
+   * @param optimisticAttempts how many times an optimistic method is run before locking
+   * @param defaultOptions lock bounds of methods whose annotation does not set them
+   */
+  public CacheLockAspect(
+      CacheLockFactory cacheLockFactory,
+      CacheVersionStore versionStore,
+      LockMode defaultMode,
+      int optimisticAttempts,
+      CacheLockOptions defaultOptions) {
+    this.cacheLockFactory = cacheLockFactory;
+    this.versionStore = versionStore;
+    this.defaultMode = defaultMode == LockMode.DEFAULT ? LockMode.PESSIMISTIC : defaultMode;
+    this.optimisticAttempts = optimisticAttempts;
+    this.defaultOptions =
+        defaultOptions.getOnTimeout() == null
+                || defaultOptions.getOnTimeout() == LockTimeoutPolicy.DEFAULT
+            ? defaultOptions.toBuilder().onTimeout(LockTimeoutPolicy.FAIL_FAST).build()
+            : defaultOptions;
+  }
+
+  /** Lock options, key expressions and fallback method which are resolved once per method. */
+  private record LockedMethod(
+      String name,
+      CacheLockOptions options,
+      List<Expression> keys,
+      Method fallback,
+      boolean async) {}
+
+  @Around("@annotation(cacheLock)")
+  public Object cacheLock(ProceedingJoinPoint joinPoint, CacheLock cacheLock) throws Throwable {
     log.debug("Processing cache lock");
-    boolean startLocking = !CacheLockManager.isSynchronizationActive();
-    if (startLocking) { // if there is more than one aspect in the calls chain, only the first one
+    if (CacheLockManager.isSynchronizationActive()) {
+      // if there is more than one aspect in the calls chain, only the first one
       // initializes and unlock all locks which were created.
-      CacheLockManager.initSynchronization();
+      return joinPoint.proceed();
+    }
+    LockMode mode = cacheLock.mode() == LockMode.DEFAULT ? this.defaultMode : cacheLock.mode();
+    if (mode == LockMode.OPTIMISTIC
+        && this.versionStore != null
+        && !lockedMethod(joinPoint, cacheLock).async()) {
+      for (int attempt = 1; attempt <= this.optimisticAttempts; attempt++) {
+        CacheLockManager.initSynchronization(true);
+        Object result;
+        List<Runnable> afterCommit;
+        try {
+          result = joinPoint.proceed();
+          afterCommit =
+              this.versionStore.compareAndSet(CacheLockManager.getPendingWrites())
+                  ? CacheLockManager.getAfterCommitActions()
+                  : null;
+        } finally {
+          CacheLockManager.clearLocks();
+        }
+        if (afterCommit != null) {
+          // side effects of the attempts which conflicted were dropped with their writes
+          afterCommit.forEach(Runnable::run);
+          return result;
+        }
+        log.debug(
+            "Cache writes of '{}' conflicted on attempt {}",
+            joinPoint.getSignature().toShortString(),
+            attempt);
+      }
+    }
+    LockedMethod lockedMethod = lockedMethod(joinPoint, cacheLock);
+    if (lockedMethod.async()) {
+      return proceedAsync(joinPoint, lockedMethod);
+    }
+    try {
+      return proceedLocked(joinPoint, lockedMethod);
+    } catch (CacheLockTimeoutException e) {
+      if (lockedMethod.fallback() == null) {
+        throw e;
+      }
+      log.warn(
+          "{}, calling fallback of '{}'", e.getMessage(), joinPoint.getSignature().toShortString());
+      return invoke(lockedMethod.fallback(), joinPoint.getTarget(), joinPoint.getArgs());
     }
+  }
+
+  private Object proceedLocked(ProceedingJoinPoint joinPoint, LockedMethod lockedMethod)
+      throws Throwable {
+    CacheLockManager.initSynchronization(false, lockedMethod.options());
     try {
+      if (!lockedMethod.keys().isEmpty()) {
+        CacheLockManager.lockAllIfNeeded(
+            lockedMethod.name(), keys(joinPoint, lockedMethod), this.cacheLockFactory);
+      }
       return joinPoint.proceed();
     } finally {
-      if (startLocking) {
-        List<Lock> locks = CacheLockManager.getLocks();
-        locks.forEach(
-            lock -> {
-              try {
-                lock.unlock();
-              } catch (Throwable t) {
-                log.warn(
-                    String.format(
-                        "Cache lock '%s' release failed: %s", lock.toString(), t.getMessage()));
-              }
-            });
-        CacheLockManager.clearLocks();
+      CacheLockManager.unlockAll();
+      CacheLockManager.clearLocks();
+    }
+  }
+
+  /**
+   * Lock the declared keys asynchronously, run the method on a virtual thread once they are held,
+   * and release every lock of the method when its stage completes.
+   */
+  private CompletableFuture<Object> proceedAsync(
+      ProceedingJoinPoint joinPoint, LockedMethod lockedMethod) {
+    long ownerId = -asyncOwners.incrementAndGet();
+    List<String> keys = lockedMethod.keys().isEmpty() ? List.of() : keys(joinPoint, lockedMethod);
+    CacheLockManager.initAsyncSynchronization(lockedMethod.options(), ownerId);
+    CompletableFuture<Void> locked;
+    CacheLockContext context;
+    try {
+      locked =
+          CacheLockManager.lockAllIfNeededAsync(lockedMethod.name(), keys, this.cacheLockFactory);
+    } finally {
+      context = CacheLockManager.suspend();
+    }
+    CompletableFuture<Object> result =
+        locked.thenComposeAsync(v -> invokeAsync(joinPoint, context), asyncExecutor);
+    CompletableFuture<Object> released =
+        result
+            .handle((value, error) -> null)
+            .thenCompose(v -> unlockAsync(context))
+            .thenCompose(v -> result);
+    if (lockedMethod.fallback() == null) {
+      return released;
+    }
+    return released.exceptionallyComposeAsync(
+        error -> {
+          Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+          if (!(cause instanceof CacheLockTimeoutException)) {
+            return CompletableFuture.failedFuture(error);
+          }
+          log.warn(
+              "{}, calling fallback of '{}'",
+              cause.getMessage(),
+              joinPoint.getSignature().toShortString());
+          try {
+            return toFuture(
+                invoke(lockedMethod.fallback(), joinPoint.getTarget(), joinPoint.getArgs()));
+          } catch (Throwable t) {
+            return CompletableFuture.failedFuture(t);
+          }
+        },
+        asyncExecutor);
+  }
+
+  private static CompletableFuture<Object> invokeAsync(
+      ProceedingJoinPoint joinPoint, CacheLockContext context) {
+    CacheLockManager.resume(context);
+    try {
+      return toFuture(joinPoint.proceed());
+    } catch (Throwable t) {
+      return CompletableFuture.failedFuture(t);
+    } finally {
+      CacheLockManager.suspend();
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private static CompletableFuture<Object> toFuture(Object stage) {
+    return stage != null
+        ? ((CompletionStage<Object>) stage).toCompletableFuture()
+        : CompletableFuture.completedFuture(null);
+  }
+
+  /**
+   * Release the locks of an asynchronous context which were acquired, from any thread, recording
+   * how long each one was held.
+   */
+  private static CompletableFuture<Void> unlockAsync(CacheLockContext context) {
+    CacheLockListener listener = context.options.getListener();
+    return CompletableFuture.allOf(
+            context.asyncLocks.stream()
+                .map(
+                    lock ->
+                        lock.acquired
+                            .handle((acquired, error) -> error == null && acquired)
+                            .thenCompose(
+                                acquired ->
+                                    acquired
+                                        ? lock.factory
+                                            .unlockAsync(lock.lock, context.ownerId)
+                                            .thenRun(
+                                                () ->
+                                                    listener.lockReleased(
+                                                        lock.cacheName,
+                                                        lock.name,
+                                                        System.nanoTime() - lock.acquiredAt))
+                                        : CompletableFuture.<Void>completedFuture(null))
+                            .exceptionally(
+                                error -> {
+                                  log.warn(
+                                      "Cache lock '{}' release failed: {}",
+                                      lock.lock,
+                                      error.getMessage());
+                                  return null;
+                                }))
+                .toArray(CompletableFuture[]::new))
+        .whenComplete((v, error) -> context.release());
+  }
+
+  private LockedMethod lockedMethod(ProceedingJoinPoint joinPoint, CacheLock cacheLock) {
+    Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+    LockedMethod lockedMethod = this.lockedMethods.get(method);
+    if (lockedMethod != null) {
+      return lockedMethod;
+    }
+    return this.lockedMethods.computeIfAbsent(
+        method,
+        key -> {
+          CacheLockOptions options = options(cacheLock);
+          Method fallback = null;
+          if (options.getOnTimeout() == LockTimeoutPolicy.FALLBACK) {
+            fallback = fallback(AopUtils.getTargetClass(joinPoint.getTarget()), method, cacheLock);
+          }
+          if (cacheLock.keys().length > 0 && this.cacheLockFactory == null) {
+            throw new IllegalStateException("Cache lock keys need a cache lock factory");
+          }
+          List<Expression> keys =
+              Arrays.stream(cacheLock.keys()).map(parser::parseExpression).toList();
+          return new LockedMethod(
+              StringUtils.hasText(cacheLock.cacheName())
+                  ? cacheLock.cacheName()
+                  : joinPoint.getSignature().toShortString(),
+              options,
+              keys,
+              fallback,
+              CompletionStage.class.isAssignableFrom(method.getReturnType()));
+        });
+  }
+
+  /** Evaluate the declared keys of a method call, sorted and without duplicates or blanks. */
+  private static List<String> keys(ProceedingJoinPoint joinPoint, LockedMethod lockedMethod) {
+    MethodBasedEvaluationContext context =
+        new MethodBasedEvaluationContext(
+            joinPoint.getTarget(),
+            ((MethodSignature) joinPoint.getSignature()).getMethod(),
+            joinPoint.getArgs(),
+            parameterNameDiscoverer);
+    TreeSet<String> keys = new TreeSet<>();
+    for (Expression expression : lockedMethod.keys()) {
+      Object value = expression.getValue(context);
+      if (value instanceof Collection<?> values) {
+        values.forEach(key -> addKey(keys, key));
+      } else if (ObjectUtils.isArray(value)) {
+        Arrays.stream(ObjectUtils.toObjectArray(value)).forEach(key -> addKey(keys, key));
+      } else {
+        addKey(keys, value);
       }
     }
+    return List.copyOf(keys);
+  }
+
+  /** Add a declared key, unless it is null or blank, which is never locked. */
+  private static void addKey(TreeSet<String> keys, Object key) {
+    if (key != null && StringUtils.hasText(key.toString())) {
+      keys.add(key.toString());
+    }
+  }
+
+  private CacheLockOptions options(CacheLock cacheLock) {
+    CacheLockOptions.CacheLockOptionsBuilder options = this.defaultOptions.toBuilder();
+    if (cacheLock.waitTimeout() >= 0) {
+      options.waitTimeout(
+          Duration.of(cacheLock.waitTimeout(), cacheLock.timeUnit().toChronoUnit()));
+    }
+    if (cacheLock.leaseTime() >= 0) {
+      options.leaseTime(Duration.of(cacheLock.leaseTime(), cacheLock.timeUnit().toChronoUnit()));
+    }
+    if (cacheLock.onTimeout() != LockTimeoutPolicy.DEFAULT) {
+      options.onTimeout(cacheLock.onTimeout());
+    }
+    return options.readOnly(cacheLock.readOnly()).build();
+  }
+
+  private static Method fallback(Class<?> targetClass, Method method, CacheLock cacheLock) {
+    Method fallback =
+        StringUtils.hasText(cacheLock.fallback())
+            ? ReflectionUtils.findMethod(
+                targetClass, cacheLock.fallback(), method.getParameterTypes())
+            : null;
+    if (fallback == null) {
+      throw new IllegalStateException(
+          String.format(
+              "Cache lock fallback '%s' of '%s' was not found on %s",
+              cacheLock.fallback(), method.getName(), targetClass.getName()));
+    }
+    ReflectionUtils.makeAccessible(fallback);
+    return fallback;
+  }
+
+  private static Object invoke(Method method, Object target, Object[] args) throws Throwable {
+    try {
+      return method.invoke(target, args);
+    } catch (InvocationTargetException e) {
+      throw e.getTargetException();
+    }
   }
 }
@@ -0,0 +1,220 @@
+/**********
+ This project is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the
+ Free Software Foundation; either version 3.0 of the License, or (at your
+ option) any later version. (See <https://www.gnu.org/licenses/gpl-3.0.html>.)
+
+ This project is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this project; if not, write to the Free Software Foundation, Inc.,
+ 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301  USA
+ **********/
+// Copyright (c) 2024-2025 Sergio Exposito.  All rights reserved.              
+
+package io.oigres.ecomm.cache;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Lock state of one @CacheLock call. Contexts are pooled and cleared when the call ends, so short
+ * lived virtual threads do not allocate their own collections. Lock names are kept on arrays which
+ * are searched linearly, since a call only touches a few keys. Contexts of asynchronous calls
+ * move between the threads which run the call, and their locks are owned by an id instead.
+ *
+ * @author sergio.exposito (sjexpos@gmail.com)
+ */
+final class CacheLockContext {
+  private static final int POOL_SIZE = 256;
+  private static final int POOL_PROBES = 8;
+
+  /** contexts whose collections grew over this size are not pooled, so they do not retain memory */
+  private static final int MAX_POOLED_SIZE = 64;
+
+  private static final AtomicReferenceArray<CacheLockContext> pool =
+      new AtomicReferenceArray<>(POOL_SIZE);
+
+  /** distinct locks which were acquired, in acquisition order */
+  final List<Lock> locks = new ArrayList<>(4);
+
+  /** cache name, lock name and acquisition time of each lock, at the same index as locks */
+  private String[] lockCaches = new String[4];
+
+  private String[] lockLabels = new String[4];
+  private long[] lockAcquiredAt = new long[4];
+
+  private String[] names = new String[4];
+  private Lock[] namedLocks = new Lock[4];
+  private int namesSize;
+
+  /** versions which were read on optimistic synchronization */
+  final Map<String, String> versions = new HashMap<>();
+
+  /** writes which are kept until optimistic synchronization is committed */
+  final Map<String, VersionedWrite> pendingWrites = new LinkedHashMap<>();
+
+  /** actions which run when optimistic synchronization is committed */
+  final List<Runnable> afterCommit = new ArrayList<>(2);
+
+  /** locks of asynchronous synchronization, with the future of their acquisition */
+  final List<AsyncLock> asyncLocks = new ArrayList<>(4);
+
+  boolean optimistic;
+  CacheLockOptions options;
+
+  /** id which owns the locks of asynchronous synchronization, or zero when threads own them */
+  long ownerId;
+
+  /** Lock which is acquired asynchronously. */
+  static final class AsyncLock {
+    final Lock lock;
+    final CacheLockFactory factory;
+    final String cacheName;
+    final String name;
+
+    /** completes with whether the lock is held, or fails when it was not acquired */
+    CompletableFuture<Boolean> acquired;
+
+    volatile long acquiredAt;
+
+    AsyncLock(Lock lock, CacheLockFactory factory, String cacheName, String name) {
+      this.lock = lock;
+      this.factory = factory;
+      this.cacheName = cacheName;
+      this.name = name;
+    }
+  }
+
+  private CacheLockContext() {}
+
+  /** Take a context from the pool, or create one when the pool has none near this thread. */
+  static CacheLockContext acquire(boolean optimistic, CacheLockOptions options, long ownerId) {
+    CacheLockContext context = null;
+    int start = (int) Thread.currentThread().threadId();
+    for (int i = 0; i < POOL_PROBES && context == null; i++) {
+      int index = (start + i) & (POOL_SIZE - 1);
+      CacheLockContext pooled = pool.get(index);
+      if (pooled != null && pool.compareAndSet(index, pooled, null)) {
+        context = pooled;
+      }
+    }
+    if (context == null) {
+      context = new CacheLockContext();
+    }
+    context.optimistic = optimistic;
+    context.options = options;
+    context.ownerId = ownerId;
+    return context;
+  }
+
+  /** Clear this context and give it back to the pool. */
+  void release() {
+    boolean pooled =
+        this.namesSize <= MAX_POOLED_SIZE
+            && this.locks.size() <= MAX_POOLED_SIZE
+            && this.asyncLocks.size() <= MAX_POOLED_SIZE
+            && this.versions.size() <= MAX_POOLED_SIZE
+            && this.pendingWrites.size() <= MAX_POOLED_SIZE
+            && this.afterCommit.size() <= MAX_POOLED_SIZE;
+    Arrays.fill(this.lockCaches, 0, this.locks.size(), null);
+    Arrays.fill(this.lockLabels, 0, this.locks.size(), null);
+    this.locks.clear();
+    Arrays.fill(this.names, 0, this.namesSize, null);
+    Arrays.fill(this.namedLocks, 0, this.namesSize, null);
+    this.namesSize = 0;
+    this.asyncLocks.clear();
+    this.versions.clear();
+    this.pendingWrites.clear();
+    this.afterCommit.clear();
+    this.optimistic = false;
+    this.options = null;
+    this.ownerId = 0;
+    if (!pooled) {
+      return;
+    }
+    int start = (int) Thread.currentThread().threadId();
+    for (int i = 0; i < POOL_PROBES; i++) {
+      int index = (start + i) & (POOL_SIZE - 1);
+      if (pool.get(index) == null && pool.compareAndSet(index, null, this)) {
+        return;
+      }
+    }
+  }
+
+  /** Return the lock which was registered with the given name, or null. */
+  Lock lockOf(String name) {
+    for (int i = 0; i < this.namesSize; i++) {
+      if (this.names[i].equals(name)) {
+        return this.namedLocks[i];
+      }
+    }
+    return null;
+  }
+
+  /** Register the lock of a name, which is released only when it is also added to locks. */
+  void putName(String name, Lock lock) {
+    for (int i = 0; i < this.namesSize; i++) {
+      if (this.names[i].equals(name)) {
+        this.namedLocks[i] = lock;
+        return;
+      }
+    }
+    if (this.namesSize == this.names.length) {
+      this.names = Arrays.copyOf(this.names, this.namesSize * 2);
+      this.namedLocks = Arrays.copyOf(this.namedLocks, this.namesSize * 2);
+    }
+    this.names[this.namesSize] = name;
+    this.namedLocks[this.namesSize] = lock;
+    this.namesSize++;
+  }
+
+  /** Add a lock which is released when the call ends, unless it was added before. */
+  void addLock(Lock lock, String cacheName, String name, long acquiredAt) {
+    if (this.locks.contains(lock)) {
+      return;
+    }
+    int index = this.locks.size();
+    if (index == this.lockCaches.length) {
+      this.lockCaches = Arrays.copyOf(this.lockCaches, index * 2);
+      this.lockLabels = Arrays.copyOf(this.lockLabels, index * 2);
+      this.lockAcquiredAt = Arrays.copyOf(this.lockAcquiredAt, index * 2);
+    }
+    this.locks.add(lock);
+    this.lockCaches[index] = cacheName;
+    this.lockLabels[index] = name;
+    this.lockAcquiredAt[index] = acquiredAt;
+  }
+
+  String lockCache(int index) {
+    return this.lockCaches[index];
+  }
+
+  String lockLabel(int index) {
+    return this.lockLabels[index];
+  }
+
+  long lockAcquiredAt(int index) {
+    return this.lockAcquiredAt[index];
+  }
+
+  /** Return the future of the acquisition of an asynchronous lock, or null. */
+  CompletableFuture<Boolean> acquisitionOf(Lock lock) {
+    for (AsyncLock asyncLock : this.asyncLocks) {
+      if (asyncLock.lock == lock) {
+        return asyncLock.acquired;
+      }
+    }
+    return null;
+  }
+}
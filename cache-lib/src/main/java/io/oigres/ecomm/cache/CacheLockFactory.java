@@ -17,6 +17,10 @@
 
 package io.oigres.ecomm.cache;
 
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Lock;
 
 /**
@@ -27,4 +31,71 @@ import java.util.concurrent.locks.Lock;
 public interface CacheLockFactory {
 
   Lock create(String name);
+
+  /**
+   * Create one lock which holds the locks of all the given names, which are acquired in the given
+   * order.
+   */
+  default Lock create(List<String> names) {
+    return new MultiLock(names.stream().map(this::create).toList());
+  }
+
+  /**
+   * Create a lock which is held together with the shared locks of the same name, and excludes the
+   * locks which are created by create. Providers without shared locks return an exclusive lock.
+   */
+  default Lock createShared(String name) {
+    return create(name);
+  }
+
+  /**
+   * Create one lock which holds the shared locks of all the given names, which are acquired in the
+   * given order.
+   */
+  default Lock createShared(List<String> names) {
+    return new MultiLock(names.stream().map(this::createShared).toList());
+  }
+
+  /**
+   * Acquire a lock which was created by this factory. Lease time is ignored by providers whose
+   * locks cannot expire.
+   * @param waitTimeout how long to wait for the lock, or null to wait as long as needed
+   * @param leaseTime how long the lock is held before it is released, or null to hold it
+   * @return whether the lock was acquired
+   */
+  default boolean tryLock(Lock lock, Duration waitTimeout, Duration leaseTime)
+      throws InterruptedException {
+    if (waitTimeout == null) {
+      lock.lock();
+      return true;
+    }
+    return lock.tryLock(waitTimeout.toMillis(), TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Acquire a lock without blocking the calling thread. The lock is owned by the given owner id
+   * instead of the calling thread, so it can be released from any thread by unlockAsync. Providers
+   * whose locks are owned by threads acquire it on the calling thread, and it must be released on
+   * that thread too.
+   * @return future which completes with whether the lock was acquired
+   */
+  default CompletableFuture<Boolean> tryLockAsync(
+      Lock lock, Duration waitTimeout, Duration leaseTime, long ownerId) {
+    try {
+      return CompletableFuture.completedFuture(tryLock(lock, waitTimeout, leaseTime));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return CompletableFuture.failedFuture(e);
+    }
+  }
+
+  /** Release a lock which was acquired by tryLockAsync with the same owner id. */
+  default CompletableFuture<Void> unlockAsync(Lock lock, long ownerId) {
+    try {
+      lock.unlock();
+      return CompletableFuture.completedFuture(null);
+    } catch (RuntimeException e) {
+      return CompletableFuture.failedFuture(e);
+    }
+  }
 }
@@ -0,0 +1,36 @@
+/**********
+ This project is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the
+ Free Software Foundation; either version 3.0 of the License, or (at your
+ option) any later version. (See <https://www.gnu.org/licenses/gpl-3.0.html>.)
+
+ This project is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this project; if not, write to the Free Software Foundation, Inc.,
+ 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301  USA
+ **********/
+// Copyright (c) 2024-2025 Sergio Exposito.  All rights reserved.              
+
+package io.oigres.ecomm.cache;
+
+/**
+ * Receives the lock events of @CacheLock calls, to measure how long locks are waited for and held.
+ * Cache name is the name of the cache whose key is locked, or the method name for keys which are
+ * declared on the annotation.
+ *
+ * @author sergio.exposito (sjexpos@gmail.com)
+ */
+public interface CacheLockListener {
+
+  CacheLockListener NONE = new CacheLockListener() {};
+
+  default void lockAcquired(String cacheName, String lockName, long waitNanos) {}
+
+  default void lockTimedOut(String cacheName, String lockName, long waitNanos) {}
+
+  default void lockReleased(String cacheName, String lockName, long holdNanos) {}
+}
@@ -17,21 +17,30 @@
 
 package io.oigres.ecomm.cache;
 
+import io.oigres.ecomm.cache.annotations.LockTimeoutPolicy;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.locks.Lock;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.core.NamedThreadLocal;
 import org.springframework.util.Assert;
 
 /**
- * This class stores lock state which is attached to each thread.
+ * This class stores lock state which is attached to each thread. State is kept on one pooled
+ * context per thread, so calls on short lived virtual threads allocate as little as possible.
+ * Contexts are still attached through a thread local, so each thread allocates its entry once:
+ * virtual threads which run a single call allocate it on every call. ScopedValue would avoid it,
+ * but it is a preview API on Java 21.
  *
  * @author sergio.exposito (sjexpos@gmail.com)
  */
+@Slf4j
 public class CacheLockManager {
 
-  private static final ThreadLocal<Set<Lock>> locks = new NamedThreadLocal<>("Cache locks");
-  private static final ThreadLocal<Map<String, Lock>> lockNames =
-      new NamedThreadLocal<>("Cache locks names");
+  private static final ThreadLocal<CacheLockContext> context =
+      new NamedThreadLocal<>("Cache lock context");
 
   /**
    * Return if cache synchronization is active for the current thread.
@@ -39,7 +48,7 @@ public class CacheLockManager {
    * @see #registerLock
    */
   public static boolean isSynchronizationActive() {
-    return (locks.get() != null);
+    return (context.get() != null);
   }
 
   /**
@@ -48,11 +57,181 @@ public class CacheLockManager {
    * @throws IllegalStateException if synchronization is already active
    */
   public static void initSynchronization() throws IllegalStateException {
+    initSynchronization(false);
+  }
+
+  /**
+   * Activate cache synchronization for the current thread.
+   * Called by a cache aspect on synchronization begin.
+   * @param optimistic whether keys are not locked, and writes are kept until they are committed
+   * @throws IllegalStateException if synchronization is already active
+   */
+  public static void initSynchronization(boolean optimistic) throws IllegalStateException {
+    initSynchronization(optimistic, CacheLockOptions.UNBOUNDED);
+  }
+
+  /**
+   * Activate cache synchronization for the current thread.
+   * Called by a cache aspect on synchronization begin.
+   * @param optimistic whether keys are not locked, and writes are kept until they are committed
+   * @param lockOptions bounds which are used to acquire locks
+   * @throws IllegalStateException if synchronization is already active
+   */
+  public static void initSynchronization(boolean optimistic, CacheLockOptions lockOptions)
+      throws IllegalStateException {
+    Assert.notNull(lockOptions, "Lock options must not be null");
     if (isSynchronizationActive()) {
       throw new IllegalStateException("Cannot activate cache synchronization - already active");
     }
-    locks.set(new LinkedHashSet<>());
-    lockNames.set(new LinkedHashMap<>());
+    context.set(CacheLockContext.acquire(optimistic, lockOptions, 0));
+  }
+
+  /**
+   * Activate asynchronous cache synchronization for the current thread. Locks are owned by the
+   * given id instead of the thread, so they can be released from any thread when the future of
+   * the method completes.
+   * Called by a cache aspect on synchronization begin.
+   * @param lockOptions bounds which are used to acquire locks
+   * @param ownerId id which owns the locks, which must not be zero
+   * @throws IllegalStateException if synchronization is already active
+   */
+  public static void initAsyncSynchronization(CacheLockOptions lockOptions, long ownerId)
+      throws IllegalStateException {
+    Assert.notNull(lockOptions, "Lock options must not be null");
+    Assert.isTrue(ownerId != 0, "Lock owner id must not be zero");
+    if (isSynchronizationActive()) {
+      throw new IllegalStateException("Cannot activate cache synchronization - already active");
+    }
+    context.set(CacheLockContext.acquire(false, lockOptions, ownerId));
+  }
+
+  /**
+   * Return if cache synchronization of the current thread is asynchronous.
+   */
+  public static boolean isAsync() {
+    CacheLockContext current = context.get();
+    return (current != null && current.ownerId != 0);
+  }
+
+  /**
+   * Detach the synchronization of the current thread, so it can be resumed on another thread.
+   * @throws IllegalStateException if synchronization is not active
+   */
+  static CacheLockContext suspend() throws IllegalStateException {
+    CacheLockContext current = context.get();
+    if (current == null) {
+      throw new IllegalStateException("Cache synchronization is not active");
+    }
+    context.set(null);
+    return current;
+  }
+
+  /**
+   * Attach a synchronization which was suspended on another thread to the current thread.
+   * @throws IllegalStateException if synchronization is already active
+   */
+  static void resume(CacheLockContext suspended) throws IllegalStateException {
+    if (isSynchronizationActive()) {
+      throw new IllegalStateException("Cannot resume cache synchronization - already active");
+    }
+    context.set(suspended);
+  }
+
+  /**
+   * Return if cache synchronization of the current thread is optimistic.
+   */
+  public static boolean isOptimistic() {
+    CacheLockContext current = context.get();
+    return (current != null && current.optimistic);
+  }
+
+  /**
+   * Return if cache synchronization of the current thread takes shared locks, so keys must not be
+   * written.
+   */
+  public static boolean isReadOnly() {
+    CacheLockContext current = context.get();
+    return (current != null && current.options.isReadOnly());
+  }
+
+  /**
+   * Record the version of a value read on optimistic synchronization. Only the first read of each
+   * key is recorded, since later reads may see the pending write of the key.
+   * @param key the redis key
+   * @param value the bytes which were read, or null when the key does not exist
+   */
+  public static void recordVersion(String key, byte[] value) {
+    if (isOptimistic()) {
+      context.get().versions.computeIfAbsent(key, k -> VersionedWrite.versionOf(value));
+    }
+  }
+
+  /**
+   * Keep a write until optimistic synchronization is committed.
+   * @param key the redis key
+   * @param lockName name of the lock which protects the key on pessimistic synchronization
+   * @throws IllegalStateException if synchronization is not optimistic
+   */
+  public static void addPendingWrite(String key, String lockName, byte[] value, Duration ttl) {
+    if (!isOptimistic()) {
+      throw new IllegalStateException("Cache synchronization is not optimistic");
+    }
+    context
+        .get()
+        .pendingWrites
+        .put(
+            key,
+            VersionedWrite.builder().key(key).lockName(lockName).value(value).ttl(ttl).build());
+  }
+
+  /**
+   * Return the value which is pending to be written on a key, or null when it was not written.
+   */
+  public static byte[] getPendingWrite(String key) {
+    VersionedWrite write = isOptimistic() ? context.get().pendingWrites.get(key) : null;
+    return write != null ? write.getValue() : null;
+  }
+
+  /**
+   * Return pending writes with the version which was read of each key.
+   * @throws IllegalStateException if synchronization is not optimistic
+   */
+  public static List<VersionedWrite> getPendingWrites() {
+    if (!isOptimistic()) {
+      throw new IllegalStateException("Cache synchronization is not optimistic");
+    }
+    Map<String, String> read = context.get().versions;
+    return context.get().pendingWrites.values().stream()
+        .map(write -> write.toBuilder().expectedVersion(read.get(write.getKey())).build())
+        .toList();
+  }
+
+  /**
+   * Run an action once the cache writes of the current call are committed. On optimistic
+   * synchronization the action is kept until the writes are committed, and it is dropped when they
+   * conflict, so it is not repeated when the call is run again. Otherwise it runs at once.
+   * Typically used for side effects of @CacheLock methods, like publishing messages.
+   * @param action the action to run
+   */
+  public static void runAfterCommit(Runnable action) {
+    Assert.notNull(action, "Action must not be null");
+    if (isOptimistic()) {
+      context.get().afterCommit.add(action);
+    } else {
+      action.run();
+    }
+  }
+
+  /**
+   * Return the actions which wait for the writes of optimistic synchronization to be committed.
+   * Called by the cache aspect when the writes were committed.
+   * @throws IllegalStateException if synchronization is not optimistic
+   */
+  public static List<Runnable> getAfterCommitActions() {
+    if (!isOptimistic()) {
+      throw new IllegalStateException("Cache synchronization is not optimistic");
+    }
+    return List.copyOf(context.get().afterCommit);
   }
 
   /**
@@ -62,21 +241,307 @@ public class CacheLockManager {
    * @throws IllegalStateException if cache synchronization is not active
    */
   public static void registerLock(Lock lock, String name) throws IllegalStateException {
+    registerLock(lock, null, name, System.nanoTime());
+  }
+
+  private static void registerLock(Lock lock, String cacheName, String name, long acquiredAt)
+      throws IllegalStateException {
     Assert.notNull(lock, "Lock must not be null");
-    Set<Lock> synchs = locks.get();
-    Map<String, Lock> names = lockNames.get();
-    if (synchs == null) {
+    CacheLockContext current = context.get();
+    if (current == null) {
       throw new IllegalStateException("Cache synchronization is not active");
     }
-    synchs.add(lock);
-    names.put(name, lock);
+    current.addLock(lock, cacheName, name, acquiredAt);
+    current.putName(name, lock);
   }
 
   public static Lock getLocks(String name) throws IllegalStateException {
     if (!isSynchronizationActive()) {
       throw new IllegalStateException("Cache synchronization is not active");
     }
-    return lockNames.get().get(name);
+    return context.get().lockOf(name);
+  }
+
+  /**
+   * Take the lock with the given name when pessimistic cache synchronization is active for the
+   * current thread and the lock was not taken yet. Locks are released by the cache aspect.
+   * @param name the lock name, which is the cache key
+   * @param cacheLockFactory factory to create the lock
+   * @see #lockIfNeeded(String, String, CacheLockFactory)
+   */
+  public static void lockIfNeeded(String name, CacheLockFactory cacheLockFactory) {
+    lockIfNeeded(null, name, cacheLockFactory);
+  }
+
+  /**
+   * Take the lock with the given name when pessimistic cache synchronization is active for the
+   * current thread and the lock was not taken yet. Locks are released by the cache aspect.
+   * Typically called by LockAwareCacheDecorator, or by repositories which access redis directly.
+   * @param cacheName name of the cache of the key, which tags lock metrics
+   * @param name the lock name, which is the cache key
+   * @param cacheLockFactory factory to create the lock
+   * @throws CacheLockTimeoutException if the lock is not acquired within the wait timeout, unless
+   *     the timeout policy is to proceed unlocked
+   */
+  public static void lockIfNeeded(
+      String cacheName, String name, CacheLockFactory cacheLockFactory) {
+    if (isAsync()) {
+      join(lockIfNeededAsync(cacheName, name, cacheLockFactory));
+    } else if (isSynchronizationActive() && !isOptimistic()) {
+      Lock lock = getLocks(name);
+      if (lock == null) {
+        lock = create(cacheLockFactory, List.of(name));
+        if (acquire(cacheName, name, lock, cacheLockFactory)) {
+          registerLock(lock, cacheName, name, System.nanoTime());
+        } else {
+          // remembered by name only, so it is neither waited for again nor released
+          context.get().putName(name, lock);
+        }
+      }
+    }
+  }
+
+  /**
+   * Take the lock of a key which is going to be written, as lockIfNeeded does.
+   * @throws IllegalStateException if cache synchronization of the current thread is read only
+   */
+  public static void lockForWriteIfNeeded(
+      String cacheName, String name, CacheLockFactory cacheLockFactory)
+      throws IllegalStateException {
+    if (isReadOnly()) {
+      throw new IllegalStateException(
+          String.format("Cache key '%s' cannot be written by a read only cache lock", name));
+    }
+    lockIfNeeded(cacheName, name, cacheLockFactory);
+  }
+
+  /**
+   * Take the locks of all the given names which were not taken yet, as one lock which acquires
+   * them in the given order. Called by the cache aspect with the keys which are declared on
+   * @CacheLock, so they are locked together and always in the same order.
+   * @param cacheName name which tags lock metrics
+   * @param names the lock names, which are the cache keys
+   * @param cacheLockFactory factory to create the lock
+   * @throws CacheLockTimeoutException if the locks are not acquired within the wait timeout,
+   *     unless the timeout policy is to proceed unlocked
+   */
+  public static void lockAllIfNeeded(
+      String cacheName, List<String> names, CacheLockFactory cacheLockFactory) {
+    if (isAsync()) {
+      join(lockAllIfNeededAsync(cacheName, names, cacheLockFactory));
+      return;
+    }
+    if (!isSynchronizationActive() || isOptimistic()) {
+      return;
+    }
+    List<String> missing = names.stream().filter(name -> getLocks(name) == null).toList();
+    if (missing.size() <= 1) {
+      missing.forEach(name -> lockIfNeeded(cacheName, name, cacheLockFactory));
+      return;
+    }
+    Lock lock = create(cacheLockFactory, missing);
+    CacheLockContext current = context.get();
+    String name = missing.toString();
+    if (acquire(cacheName, name, lock, cacheLockFactory)) {
+      current.addLock(lock, cacheName, name, System.nanoTime());
+    }
+    missing.forEach(lockName -> current.putName(lockName, lock));
+  }
+
+  /**
+   * Take the locks of keys which are going to be written, as lockAllIfNeeded does.
+   * @throws IllegalStateException if cache synchronization of the current thread is read only
+   */
+  public static void lockAllForWriteIfNeeded(
+      String cacheName, List<String> names, CacheLockFactory cacheLockFactory)
+      throws IllegalStateException {
+    if (isReadOnly()) {
+      throw new IllegalStateException(
+          String.format("Cache keys %s cannot be written by a read only cache lock", names));
+    }
+    lockAllIfNeeded(cacheName, names, cacheLockFactory);
+  }
+
+  /**
+   * Take the lock with the given name without blocking the current thread, when asynchronous
+   * cache synchronization is active and the lock was not taken yet. On other synchronizations the
+   * lock is taken as lockIfNeeded does.
+   * Typically called by LockAwareCacheDecorator on retrieve.
+   * @param cacheName name of the cache of the key, which tags lock metrics
+   * @param name the lock name, which is the cache key
+   * @param cacheLockFactory factory to create the lock
+   * @return future which completes when the lock is held, or fails with CacheLockTimeoutException
+   */
+  public static CompletableFuture<Void> lockIfNeededAsync(
+      String cacheName, String name, CacheLockFactory cacheLockFactory) {
+    if (!isAsync()) {
+      try {
+        lockIfNeeded(cacheName, name, cacheLockFactory);
+        return CompletableFuture.completedFuture(null);
+      } catch (RuntimeException e) {
+        return CompletableFuture.failedFuture(e);
+      }
+    }
+    CacheLockContext current = context.get();
+    Lock lock = current.lockOf(name);
+    if (lock != null) {
+      CompletableFuture<Boolean> acquired = current.acquisitionOf(lock);
+      return acquired != null
+          ? acquired.thenApply(locked -> null)
+          : CompletableFuture.completedFuture(null);
+    }
+    return lockAsync(
+        current,
+        cacheName,
+        List.of(name),
+        create(cacheLockFactory, List.of(name)),
+        cacheLockFactory);
+  }
+
+  /**
+   * Take the locks of all the given names which were not taken yet without blocking the current
+   * thread, as one lock which acquires them in the given order.
+   * @see #lockAllIfNeeded
+   */
+  public static CompletableFuture<Void> lockAllIfNeededAsync(
+      String cacheName, List<String> names, CacheLockFactory cacheLockFactory) {
+    if (!isAsync()) {
+      try {
+        lockAllIfNeeded(cacheName, names, cacheLockFactory);
+        return CompletableFuture.completedFuture(null);
+      } catch (RuntimeException e) {
+        return CompletableFuture.failedFuture(e);
+      }
+    }
+    CacheLockContext current = context.get();
+    List<String> missing = names.stream().filter(name -> current.lockOf(name) == null).toList();
+    if (missing.isEmpty()) {
+      return CompletableFuture.completedFuture(null);
+    }
+    Lock lock = create(cacheLockFactory, missing);
+    return lockAsync(current, cacheName, missing, lock, cacheLockFactory);
+  }
+
+  /**
+   * Create the lock of the given names, which is shared when the current method is read only.
+   */
+  private static Lock create(CacheLockFactory cacheLockFactory, List<String> names) {
+    boolean shared = context.get().options.isReadOnly();
+    if (names.size() == 1) {
+      return shared
+          ? cacheLockFactory.createShared(names.get(0))
+          : cacheLockFactory.create(names.get(0));
+    }
+    return shared ? cacheLockFactory.createShared(names) : cacheLockFactory.create(names);
+  }
+
+  private static CompletableFuture<Void> lockAsync(
+      CacheLockContext current,
+      String cacheName,
+      List<String> names,
+      Lock lock,
+      CacheLockFactory cacheLockFactory) {
+    CacheLockOptions lockOptions = current.options;
+    String name = names.size() == 1 ? names.get(0) : names.toString();
+    CacheLockContext.AsyncLock asyncLock =
+        new CacheLockContext.AsyncLock(lock, cacheLockFactory, cacheName, name);
+    long start = System.nanoTime();
+    asyncLock.acquired =
+        cacheLockFactory
+            .tryLockAsync(
+                lock, lockOptions.getWaitTimeout(), lockOptions.getLeaseTime(), current.ownerId)
+            .thenApply(
+                locked -> {
+                  long now = System.nanoTime();
+                  if (locked) {
+                    asyncLock.acquiredAt = now;
+                    lockOptions.getListener().lockAcquired(cacheName, name, now - start);
+                    return true;
+                  }
+                  lockOptions.getListener().lockTimedOut(cacheName, name, now - start);
+                  return proceedUnlocked(name, lockOptions);
+                });
+    names.forEach(lockName -> current.putName(lockName, lock));
+    current.asyncLocks.add(asyncLock);
+    return asyncLock.acquired.thenApply(locked -> null);
+  }
+
+  /** Wait for an asynchronous lock, throwing the exception which failed it. */
+  private static void join(CompletableFuture<Void> locked) {
+    try {
+      locked.join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException cause) {
+        throw cause;
+      }
+      throw e;
+    }
+  }
+
+  private static boolean acquire(
+      String cacheName, String name, Lock lock, CacheLockFactory cacheLockFactory) {
+    CacheLockOptions lockOptions = context.get().options;
+    long start = System.nanoTime();
+    boolean acquired;
+    try {
+      acquired =
+          cacheLockFactory.tryLock(lock, lockOptions.getWaitTimeout(), lockOptions.getLeaseTime());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new CacheLockTimeoutException(name, lockOptions.getWaitTimeout(), e);
+    }
+    if (acquired) {
+      lockOptions.getListener().lockAcquired(cacheName, name, System.nanoTime() - start);
+      return true;
+    }
+    lockOptions.getListener().lockTimedOut(cacheName, name, System.nanoTime() - start);
+    return proceedUnlocked(name, lockOptions);
+  }
+
+  /**
+   * Apply the timeout policy to a lock which was not acquired.
+   * @return false when the lock is skipped
+   * @throws CacheLockTimeoutException when the policy is not to proceed unlocked
+   */
+  private static boolean proceedUnlocked(String name, CacheLockOptions lockOptions) {
+    if (lockOptions.getOnTimeout() == LockTimeoutPolicy.PROCEED_UNLOCKED) {
+      log.warn(
+          "Cache lock '{}' was not acquired within {}, proceeding unlocked",
+          name,
+          lockOptions.getWaitTimeout());
+      return false;
+    }
+    throw new CacheLockTimeoutException(name, lockOptions.getWaitTimeout());
+  }
+
+  /**
+   * Release every lock of the current thread, recording how long each one was held. Locks whose
+   * release fails are logged, so the rest are still released.
+   * Called by the cache aspect when the method returns.
+   * @throws IllegalStateException if synchronization is not active
+   */
+  public static void unlockAll() throws IllegalStateException {
+    if (!isSynchronizationActive()) {
+      throw new IllegalStateException("Cache synchronization is not active");
+    }
+    CacheLockContext current = context.get();
+    List<Lock> synchs = current.locks;
+    for (int i = 0; i < synchs.size(); i++) {
+      Lock lock = synchs.get(i);
+      try {
+        lock.unlock();
+        current
+            .options
+            .getListener()
+            .lockReleased(
+                current.lockCache(i),
+                current.lockLabel(i),
+                System.nanoTime() - current.lockAcquiredAt(i));
+      } catch (Throwable t) {
+        log.warn(
+            String.format("Cache lock '%s' release failed: %s", lock.toString(), t.getMessage()));
+      }
+    }
   }
 
   /**
@@ -89,14 +554,14 @@ public class CacheLockManager {
     if (!isSynchronizationActive()) {
       throw new IllegalStateException("Cache synchronization is not active");
     }
-    Set<Lock> synchs = locks.get();
+    List<Lock> synchs = context.get().locks;
     // Return unmodifiable snapshot, to avoid ConcurrentModificationExceptions
     // while iterating and invoking synchronization callbacks that in turn
     // might register further synchronizations.
     if (synchs.isEmpty()) {
       return Collections.emptyList();
     } else if (synchs.size() == 1) {
-      return Collections.singletonList(synchs.iterator().next());
+      return Collections.singletonList(synchs.get(0));
     } else {
       return List.copyOf(synchs);
     }
@@ -111,7 +576,9 @@ public class CacheLockManager {
     if (!isSynchronizationActive()) {
       throw new IllegalStateException("Cannot deactivate cache synchronization - not active");
     }
-    locks.remove();
-    lockNames.remove();
+    CacheLockContext current = context.get();
+    // the entry is kept, so threads which run many calls do not allocate it again
+    context.set(null);
+    current.release();
   }
 }
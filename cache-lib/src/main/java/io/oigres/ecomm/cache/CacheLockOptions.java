@@ -0,0 +1,51 @@
+/**********
+ This project is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the
+ Free Software Foundation; either version 3.0 of the License, or (at your
+ option) any later version. (See <https://www.gnu.org/licenses/gpl-3.0.html>.)
+
+ This project is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this project; if not, write to the Free Software Foundation, Inc.,
+ 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301  USA
+ **********/
+// Copyright (c) 2024-2025 Sergio Exposito.  All rights reserved.              
+
+package io.oigres.ecomm.cache;
+
+import io.oigres.ecomm.cache.annotations.LockTimeoutPolicy;
+import java.time.Duration;
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * Bounds which are used to acquire the key locks of a @CacheLock method, and the listener which
+ * measures them.
+ *
+ * @author sergio.exposito (sjexpos@gmail.com)
+ */
+@Value
+@Builder(toBuilder = true)
+public class CacheLockOptions {
+  /** locks are waited for as long as needed and held until they are released */
+  public static final CacheLockOptions UNBOUNDED =
+      CacheLockOptions.builder().onTimeout(LockTimeoutPolicy.FAIL_FAST).build();
+
+  /** how long to wait for each lock, or null to wait as long as needed */
+  Duration waitTimeout;
+
+  /** how long locks are held before the cache provider releases them, or null to hold them */
+  Duration leaseTime;
+
+  LockTimeoutPolicy onTimeout;
+
+  /** keys are locked with shared locks, and they cannot be written */
+  boolean readOnly;
+
+  /** receives how long locks are waited for and held */
+  @Builder.Default CacheLockListener listener = CacheLockListener.NONE;
+}
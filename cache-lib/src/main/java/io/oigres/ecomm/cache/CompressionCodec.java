@@ -0,0 +1,42 @@
+/**********
+ This project is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the
+ Free Software Foundation; either version 3.0 of the License, or (at your
+ option) any later version. (See <https://www.gnu.org/licenses/gpl-3.0.html>.)
+
+ This project is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this project; if not, write to the Free Software Foundation, Inc.,
+ 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301  USA
+ **********/
+// Copyright (c) 2024-2025 Sergio Exposito.  All rights reserved.              
+
+package io.oigres.ecomm.cache;
+
+import java.io.IOException;
+
+/**
+ * Compresses and decompresses the serialized values of a cache.
+ *
+ * @author sergio.exposito (sjexpos@gmail.com)
+ */
+public interface CompressionCodec {
+
+  default byte[] compress(byte[] data) throws IOException {
+    return compress(data, 0, data.length);
+  }
+
+  /** Compress length bytes of data, from offset. */
+  byte[] compress(byte[] data, int offset, int length) throws IOException;
+
+  /**
+   * Decompress length bytes of data, from offset, which were compressed from size bytes.
+   *
+   * @return the decompressed bytes, which are exactly size bytes
+   */
+  byte[] decompress(byte[] data, int offset, int length, int size) throws IOException;
+}
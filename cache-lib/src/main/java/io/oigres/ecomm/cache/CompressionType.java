@@ -0,0 +1,66 @@
+/**********
+ This project is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the
+ Free Software Foundation; either version 3.0 of the License, or (at your
+ option) any later version. (See <https://www.gnu.org/licenses/gpl-3.0.html>.)
+
+ This project is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this project; if not, write to the Free Software Foundation, Inc.,
+ 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301  USA
+ **********/
+// Copyright (c) 2024-2025 Sergio Exposito.  All rights reserved.              
+
+package io.oigres.ecomm.cache;
+
+import lombok.Getter;
+
+/**
+ * Compression codecs of the framed redis serializer. The id of each codec is written on the
+ * values it compresses, so ids must never change. Codecs are created only when they are used, so
+ * only the libraries of the codecs which are used must be on the classpath. Codecs which need
+ * settings, like zstd dictionaries, are given to the serializer.
+ *
+ * @author sergio.exposito (sjexpos@gmail.com)
+ */
+@Getter
+public enum CompressionType {
+  NONE((byte) 0),
+  LZ4((byte) 1),
+  ZSTD((byte) 2),
+  SNAPPY((byte) 3),
+  ZSTD_DICTIONARY((byte) 4);
+
+  private final byte id;
+
+  CompressionType(byte id) {
+    this.id = id;
+  }
+
+  /** Codec which is written with the given id, or null when it is unknown. */
+  public static CompressionType of(byte id) {
+    for (CompressionType type : values()) {
+      if (type.id == id) {
+        return type;
+      }
+    }
+    return null;
+  }
+
+  /** Create the codec of this type, or null for values which are not compressed. */
+  public CompressionCodec createCodec() {
+    return switch (this) {
+      case NONE -> null;
+      case LZ4 -> new Lz4CompressionCodec();
+      case ZSTD -> new ZstdCompressionCodec();
+      case SNAPPY -> new SnappyCompressionCodec();
+      case ZSTD_DICTIONARY ->
+          throw new IllegalStateException(
+              "Zstd dictionary codec must be created with dictionaries");
+    };
+  }
+}
@@ -0,0 +1,193 @@
+/**********
+ This project is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the
+ Free Software Foundation; either version 3.0 of the License, or (at your
+ option) any later version. (See <https://www.gnu.org/licenses/gpl-3.0.html>.)
+
+ This project is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this project; if not, write to the Free Software Foundation, Inc.,
+ 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301  USA
+ **********/
+// Copyright (c) 2024-2025 Sergio Exposito.  All rights reserved.              
+
+package io.oigres.ecomm.cache;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+/**
+ * This redis serializer compresses values with the selected codec, and writes them on a frame:
+ * a magic byte, the id of the codec and, when the value is compressed, its uncompressed size.
+ * Values under the minimum size, or which do not get smaller, are written with no compression.
+ * Values of every codec are read, so the codec of a cache can be changed while its values expire,
+ * and values without a frame, which were written by previous versions, are read through the
+ * fallback serializer. Buffered serializers write values on buffers which are pooled, and read
+ * uncompressed values where they are in the frame. The pool is bounded by the number of
+ * processors instead of threads, so virtual threads share buffers instead of keeping one each.
+ *
+ * @author sergio.exposito (sjexpos@gmail.com)
+ */
+@Slf4j
+public class FramedRedisSerializer<T> implements RedisSerializer<T> {
+  public static final byte MAGIC = (byte) 0xC5;
+  public static final int DEFAULT_MIN_SIZE = 64;
+  private static final int HEADER_SIZE = 2;
+  private static final int COMPRESSED_HEADER_SIZE = 6;
+  private static final int INITIAL_BUFFER_SIZE = 4096;
+  private static final int MAX_RETAINED_BUFFER_SIZE = 256 * 1024;
+  private static final int POOL_SIZE = 2 * Runtime.getRuntime().availableProcessors();
+  private static final BlockingQueue<BinaryWriter> WRITERS = new ArrayBlockingQueue<>(POOL_SIZE);
+
+  private final RedisSerializer<T> innerSerializer;
+  private final CompressionType compressionType;
+  private final int minSize;
+  private final RedisSerializer<T> fallbackSerializer;
+  private final Map<CompressionType, CompressionCodec> codecs = new ConcurrentHashMap<>();
+
+  public FramedRedisSerializer(
+      RedisSerializer<T> innerSerializer, CompressionType compressionType) {
+    this(innerSerializer, compressionType, DEFAULT_MIN_SIZE, innerSerializer);
+  }
+
+  /**
+   * @param innerSerializer serializer of the values
+   * @param compressionType codec of the values which are written
+   * @param minSize size in bytes below which values are not compressed
+   * @param fallbackSerializer serializer of the values without a frame, or null to reject them
+   */
+  public FramedRedisSerializer(
+      RedisSerializer<T> innerSerializer,
+      CompressionType compressionType,
+      int minSize,
+      RedisSerializer<T> fallbackSerializer) {
+    this(innerSerializer, compressionType, minSize, fallbackSerializer, Map.of());
+  }
+
+  /**
+   * @param codecs codecs which are not created by their type, like zstd dictionary codecs
+   */
+  public FramedRedisSerializer(
+      RedisSerializer<T> innerSerializer,
+      CompressionType compressionType,
+      int minSize,
+      RedisSerializer<T> fallbackSerializer,
+      Map<CompressionType, CompressionCodec> codecs) {
+    this.innerSerializer = innerSerializer;
+    this.compressionType = compressionType;
+    this.minSize = minSize;
+    this.fallbackSerializer = fallbackSerializer;
+    this.codecs.putAll(codecs);
+  }
+
+  private CompressionCodec codec(CompressionType type) {
+    return this.codecs.computeIfAbsent(type, CompressionType::createCodec);
+  }
+
+  @Override
+  public byte[] serialize(T value) throws SerializationException {
+    if (value == null) return new byte[0];
+    if (!(this.innerSerializer instanceof BufferedRedisSerializer<T> bufferedSerializer)) {
+      byte[] bytes = this.innerSerializer.serialize(value);
+      if (bytes == null) bytes = new byte[0];
+      return frame(bytes, 0, bytes.length);
+    }
+    // values are written on a pooled buffer, which is compressed or copied to the frame
+    BinaryWriter writer = WRITERS.poll();
+    if (writer == null) {
+      writer = new BinaryWriter(INITIAL_BUFFER_SIZE);
+    }
+    try {
+      bufferedSerializer.serialize(value, writer);
+      return frame(writer.buffer(), 0, writer.size());
+    } finally {
+      writer.reset();
+      if ((writer.capacity() > MAX_RETAINED_BUFFER_SIZE || !WRITERS.offer(writer))
+          && log.isTraceEnabled())
+        log.trace("Buffer of {} bytes was not pooled.", writer.capacity());
+    }
+  }
+
+  private byte[] frame(byte[] bytes, int offset, int length) {
+    try {
+      byte[] result = null;
+      if (this.compressionType != CompressionType.NONE && length >= this.minSize) {
+        byte[] compressed = codec(this.compressionType).compress(bytes, offset, length);
+        if (compressed.length + COMPRESSED_HEADER_SIZE < length + HEADER_SIZE) {
+          result = new byte[compressed.length + COMPRESSED_HEADER_SIZE];
+          result[0] = MAGIC;
+          result[1] = this.compressionType.getId();
+          result[2] = (byte) (length >>> 24);
+          result[3] = (byte) (length >>> 16);
+          result[4] = (byte) (length >>> 8);
+          result[5] = (byte) length;
+          System.arraycopy(compressed, 0, result, COMPRESSED_HEADER_SIZE, compressed.length);
+        }
+      }
+      if (result == null) {
+        result = new byte[length + HEADER_SIZE];
+        result[0] = MAGIC;
+        result[1] = CompressionType.NONE.getId();
+        System.arraycopy(bytes, offset, result, HEADER_SIZE, length);
+      }
+      if (log.isTraceEnabled())
+        log.trace("Data size {} was framed in {} bytes.", length, result.length);
+      return result;
+    } catch (Exception | LinkageError e) {
+      throw new SerializationException(this.compressionType + " compression error", e);
+    }
+  }
+
+  @Override
+  public T deserialize(byte[] bytes) throws SerializationException {
+    if (bytes == null || bytes.length == 0) return null;
+    if (bytes[0] != MAGIC) {
+      if (this.fallbackSerializer == null) {
+        throw new SerializationException("Data was not written by framed serializer");
+      }
+      return this.fallbackSerializer.deserialize(bytes);
+    }
+    CompressionType type = bytes.length >= HEADER_SIZE ? CompressionType.of(bytes[1]) : null;
+    if (type == null) {
+      throw new SerializationException("Data was written by an unknown codec");
+    }
+    byte[] data;
+    if (type == CompressionType.NONE) {
+      if (this.innerSerializer instanceof BufferedRedisSerializer<T> bufferedSerializer) {
+        return bufferedSerializer.deserialize(bytes, HEADER_SIZE, bytes.length - HEADER_SIZE);
+      }
+      data = Arrays.copyOfRange(bytes, HEADER_SIZE, bytes.length);
+    } else {
+      if (bytes.length < COMPRESSED_HEADER_SIZE) {
+        throw new SerializationException(type + " data is truncated");
+      }
+      int size =
+          (bytes[2] & 0xFF) << 24
+              | (bytes[3] & 0xFF) << 16
+              | (bytes[4] & 0xFF) << 8
+              | bytes[5] & 0xFF;
+      if (size < 0) {
+        throw new SerializationException(type + " data has an invalid size");
+      }
+      try {
+        data =
+            codec(type)
+                .decompress(
+                    bytes, COMPRESSED_HEADER_SIZE, bytes.length - COMPRESSED_HEADER_SIZE, size);
+      } catch (Exception | LinkageError e) {
+        throw new SerializationException(type + " decompression error", e);
+      }
+    }
+    return this.innerSerializer.deserialize(data);
+  }
+}
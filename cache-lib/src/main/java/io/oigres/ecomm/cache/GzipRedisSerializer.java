@@ -18,56 +18,106 @@
 package io.oigres.ecomm.cache;
 
 import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
 import java.util.zip.GZIPInputStream;
-import java.util.zip.GZIPOutputStream;
+import java.util.zip.Inflater;
 import lombok.Cleanup;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.data.redis.serializer.SerializationException;
 
 /**
- * This redis serializer compress the data using gzip.
+ * This redis serializer compress the data using deflate. Data is prefixed with a format byte:
+ * values which are smaller than the minimum size, or which do not get smaller, are stored raw, and
+ * the rest are stored deflated after their uncompressed size. Deflaters and inflaters are pooled,
+ * so their native state is not allocated on every call. Values which were written as gzip by
+ * previous versions are still read.
  *
  * @author sergio.exposito (sjexpos@gmail.com)
  */
 @Slf4j
 public class GzipRedisSerializer<T> implements RedisSerializer<T> {
+  public static final byte RAW = (byte) 0xD0;
+  public static final byte DEFLATED = (byte) 0xD1;
+  public static final int DEFAULT_MIN_SIZE = 256;
+  private static final int HEADER_SIZE = 5;
+  private static final int POOL_SIZE = 2 * Runtime.getRuntime().availableProcessors();
 
-  private RedisSerializer<T> innerSerializer;
+  private final RedisSerializer<T> innerSerializer;
+  private final int minSize;
+  private final BlockingQueue<Deflater> deflaters = new ArrayBlockingQueue<>(POOL_SIZE);
+  private final BlockingQueue<Inflater> inflaters = new ArrayBlockingQueue<>(POOL_SIZE);
 
   public GzipRedisSerializer(RedisSerializer<T> innerSerializer) {
-    this.innerSerializer = innerSerializer;
+    this(innerSerializer, DEFAULT_MIN_SIZE);
   }
 
-  public static final int BUFFER_SIZE = 4096;
+  /**
+   * @param innerSerializer serializer of the values
+   * @param minSize size in bytes below which values are stored raw
+   */
+  public GzipRedisSerializer(RedisSerializer<T> innerSerializer, int minSize) {
+    this.innerSerializer = innerSerializer;
+    this.minSize = minSize;
+  }
 
   @Override
   public byte[] serialize(T graph) throws SerializationException {
 
     if (GzipRedisSerializer.log.isTraceEnabled())
-      GzipRedisSerializer.log.trace("Serializing data to gzip");
+      GzipRedisSerializer.log.trace("Serializing data to deflate");
 
     if (graph == null) return new byte[0];
 
-    try {
-      byte[] bytes = innerSerializer.serialize(graph);
-      @Cleanup ByteArrayOutputStream bos = new ByteArrayOutputStream();
-      @Cleanup GZIPOutputStream gzip = new GZIPOutputStream(bos);
+    byte[] bytes = innerSerializer.serialize(graph);
+    if (bytes == null) bytes = new byte[0];
 
-      if (bytes != null) {
-        gzip.write(bytes);
-      }
-      gzip.close();
-      byte[] result = bos.toByteArray();
+    byte[] result = bytes.length >= this.minSize ? deflate(bytes) : null;
+    if (result == null) {
+      result = new byte[bytes.length + 1];
+      result[0] = RAW;
+      System.arraycopy(bytes, 0, result, 1, bytes.length);
+    }
 
-      if (GzipRedisSerializer.log.isTraceEnabled())
-        GzipRedisSerializer.log.trace(
-            "Data size {} was compressed to {} bytes.", bytes.length, result.length);
+    if (GzipRedisSerializer.log.isTraceEnabled())
+      GzipRedisSerializer.log.trace(
+          "Data size {} was compressed to {} bytes.", bytes.length, result.length);
 
-      return result;
-    } catch (Exception e) {
-      throw new SerializationException("Gzip error", e);
+    return result;
+  }
+
+  /** Deflate the bytes, or return null when they do not get smaller. */
+  private byte[] deflate(byte[] bytes) {
+    Deflater deflater = this.deflaters.poll();
+    if (deflater == null) {
+      deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+    }
+    try {
+      byte[] out = new byte[bytes.length];
+      deflater.setInput(bytes);
+      deflater.finish();
+      int size = HEADER_SIZE;
+      while (!deflater.finished() && size < out.length) {
+        size += deflater.deflate(out, size, out.length - size);
+      }
+      if (!deflater.finished()) {
+        return null;
+      }
+      out[0] = DEFLATED;
+      out[1] = (byte) (bytes.length >>> 24);
+      out[2] = (byte) (bytes.length >>> 16);
+      out[3] = (byte) (bytes.length >>> 8);
+      out[4] = (byte) bytes.length;
+      return Arrays.copyOf(out, size);
+    } finally {
+      deflater.reset();
+      if (!this.deflaters.offer(deflater)) {
+        deflater.end();
+      }
     }
   }
 
@@ -79,24 +129,69 @@ public class GzipRedisSerializer<T> implements RedisSerializer<T> {
 
     if (bytes == null || bytes.length == 0) return null;
 
+    if (bytes[0] == RAW && innerSerializer instanceof BufferedRedisSerializer<T> buffered) {
+      return buffered.deserialize(bytes, 1, bytes.length - 1);
+    }
+
+    byte[] data;
     try {
-      @Cleanup ByteArrayOutputStream bos = new ByteArrayOutputStream();
-      @Cleanup ByteArrayInputStream bis = new ByteArrayInputStream(bytes);
-      @Cleanup GZIPInputStream gzip = new GZIPInputStream(bis);
-
-      byte[] buff = new byte[BUFFER_SIZE];
-      int n;
-      while ((n = gzip.read(buff, 0, BUFFER_SIZE)) > 0) {
-        bos.write(buff, 0, n);
-      }
-      T result = (T) innerSerializer.deserialize(bos.toByteArray());
+      data =
+          switch (bytes[0]) {
+            case RAW -> Arrays.copyOfRange(bytes, 1, bytes.length);
+            case DEFLATED -> inflate(bytes);
+            default -> gunzip(bytes);
+          };
+    } catch (Exception e) {
+      throw new SerializationException("Gzip error", e);
+    }
+    T result = innerSerializer.deserialize(data);
 
-      if (GzipRedisSerializer.log.isTraceEnabled())
-        GzipRedisSerializer.log.trace("result=[{}]", result);
+    if (GzipRedisSerializer.log.isTraceEnabled())
+      GzipRedisSerializer.log.trace("result=[{}]", result);
+
+    return result;
+  }
 
+  private byte[] inflate(byte[] bytes) throws DataFormatException {
+    if (bytes.length < HEADER_SIZE) {
+      throw new DataFormatException("Deflated data is truncated");
+    }
+    int length =
+        (bytes[1] & 0xFF) << 24
+            | (bytes[2] & 0xFF) << 16
+            | (bytes[3] & 0xFF) << 8
+            | bytes[4] & 0xFF;
+    Inflater inflater = this.inflaters.poll();
+    if (inflater == null) {
+      inflater = new Inflater(true);
+    }
+    try {
+      byte[] result = new byte[length];
+      inflater.setInput(bytes, HEADER_SIZE, bytes.length - HEADER_SIZE);
+      int size = 0;
+      while (size < length) {
+        int n = inflater.inflate(result, size, length - size);
+        if (n == 0
+            && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary())) {
+          throw new DataFormatException("Deflated data is truncated");
+        }
+        size += n;
+      }
       return result;
-    } catch (Exception e) {
-      throw new SerializationException("Gzip error", e);
+    } finally {
+      inflater.reset();
+      if (!this.inflaters.offer(inflater)) {
+        inflater.end();
+      }
+    }
+  }
+
+  private static byte[] gunzip(byte[] bytes) throws Exception {
+    if (bytes.length < 2
+        || (bytes[0] & 0xFF | (bytes[1] & 0xFF) << 8) != GZIPInputStream.GZIP_MAGIC) {
+      throw new SerializationException("Data was not written by gzip serializer");
     }
+    @Cleanup GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(bytes));
+    return gzip.readAllBytes();
   }
 }
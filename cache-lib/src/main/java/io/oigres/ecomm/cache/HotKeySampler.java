@@ -0,0 +1,130 @@
+/**********
+ This project is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the
+ Free Software Foundation; either version 3.0 of the License, or (at your
+ option) any later version. (See <https://www.gnu.org/licenses/gpl-3.0.html>.)
+
+ This project is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this project; if not, write to the Free Software Foundation, Inc.,
+ 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301  USA
+ **********/
+// Copyright (c) 2024-2025 Sergio Exposito.  All rights reserved.              
+
+package io.oigres.ecomm.cache;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReentrantLock;
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * Keeps the keys with the highest weight of a sample of events, using the space saving algorithm:
+ * at most capacity keys are counted, and a new key replaces the key with the lowest weight,
+ * starting from its weight. Weights of rare keys are over estimated by at most the lowest weight.
+ *
+ * @author sergio.exposito (sjexpos@gmail.com)
+ */
+public class HotKeySampler {
+  private final int capacity;
+  private final double sampleRate;
+  private final Map<String, Counter> counters = new HashMap<>();
+  private final ReentrantLock lock = new ReentrantLock();
+
+  /** Key which was sampled, with its sampled events and their total weight. */
+  @Value
+  @Builder
+  public static class HotKey {
+    String key;
+    long samples;
+    long weight;
+  }
+
+  private static class Counter {
+    private long samples;
+    private long weight;
+  }
+
+  /**
+   * @param capacity how many keys are counted
+   * @param sampleRate rate of events which are counted, from 0 to 1
+   */
+  public HotKeySampler(int capacity, double sampleRate) {
+    this.capacity = capacity;
+    this.sampleRate = sampleRate;
+  }
+
+  /** Count an event of a key, if it is sampled. */
+  public void record(String key, long weight) {
+    if (this.capacity <= 0 || ThreadLocalRandom.current().nextDouble() >= this.sampleRate) {
+      return;
+    }
+    this.lock.lock();
+    try {
+      Counter counter = this.counters.get(key);
+      if (counter == null) {
+        counter = new Counter();
+        if (this.counters.size() >= this.capacity) {
+          Map.Entry<String, Counter> lowest = lowest();
+          this.counters.remove(lowest.getKey());
+          counter.samples = lowest.getValue().samples;
+          counter.weight = lowest.getValue().weight;
+        }
+        this.counters.put(key, counter);
+      }
+      counter.samples++;
+      counter.weight += weight;
+    } finally {
+      this.lock.unlock();
+    }
+  }
+
+  private Map.Entry<String, Counter> lowest() {
+    Map.Entry<String, Counter> lowest = null;
+    for (Map.Entry<String, Counter> entry : this.counters.entrySet()) {
+      if (lowest == null || entry.getValue().weight < lowest.getValue().weight) {
+        lowest = entry;
+      }
+    }
+    return lowest;
+  }
+
+  /** Return the sampled keys with the highest weight, from highest to lowest. */
+  public List<HotKey> top(int count) {
+    List<HotKey> keys = new ArrayList<>();
+    this.lock.lock();
+    try {
+      this.counters.forEach(
+          (key, counter) ->
+              keys.add(
+                  HotKey.builder()
+                      .key(key)
+                      .samples(counter.samples)
+                      .weight(counter.weight)
+                      .build()));
+    } finally {
+      this.lock.unlock();
+    }
+    keys.sort(Comparator.comparingLong(HotKey::getWeight).reversed());
+    return keys.size() > count ? List.copyOf(keys.subList(0, count)) : keys;
+  }
+
+  /** Forget every sampled key. */
+  public void reset() {
+    this.lock.lock();
+    try {
+      this.counters.clear();
+    } finally {
+      this.lock.unlock();
+    }
+  }
+}
@@ -0,0 +1,80 @@
+/**********
+ This project is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the
+ Free Software Foundation; either version 3.0 of the License, or (at your
+ option) any later version. (See <https://www.gnu.org/licenses/gpl-3.0.html>.)
+
+ This project is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this project; if not, write to the Free Software Foundation, Inc.,
+ 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301  USA
+ **********/
+// Copyright (c) 2024-2025 Sergio Exposito.  All rights reserved.              
+
+package io.oigres.ecomm.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import java.io.IOException;
+import org.springframework.data.redis.serializer.SerializationException;
+
+/**
+ * This redis serializer writes values as json with a reader and a writer which are resolved for
+ * the type of the values once. Values are written straight on the writer of the serializer which
+ * frames them, and read from the range of the buffer where they are.
+ *
+ * @author sergio.exposito (sjexpos@gmail.com)
+ */
+public class JacksonRedisSerializer<T> implements BufferedRedisSerializer<T> {
+  private final ObjectReader reader;
+  private final ObjectWriter writer;
+
+  public JacksonRedisSerializer(ObjectMapper objectMapper, Class<T> type) {
+    this(objectMapper.readerFor(type), objectMapper.writerFor(type));
+  }
+
+  public JacksonRedisSerializer(ObjectReader reader, ObjectWriter writer) {
+    this.reader = reader;
+    this.writer = writer;
+  }
+
+  @Override
+  public byte[] serialize(T value) throws SerializationException {
+    if (value == null) return new byte[0];
+    try {
+      return this.writer.writeValueAsBytes(value);
+    } catch (IOException e) {
+      throw new SerializationException("Could not write JSON: " + e.getMessage(), e);
+    }
+  }
+
+  @Override
+  public void serialize(T value, BinaryWriter writer) throws SerializationException {
+    try {
+      this.writer.writeValue(writer, value);
+    } catch (IOException e) {
+      throw new SerializationException("Could not write JSON: " + e.getMessage(), e);
+    }
+  }
+
+  @Override
+  public T deserialize(byte[] bytes) throws SerializationException {
+    if (bytes == null || bytes.length == 0) return null;
+    return deserialize(bytes, 0, bytes.length);
+  }
+
+  @Override
+  public T deserialize(byte[] bytes, int offset, int length) throws SerializationException {
+    if (length == 0) return null;
+    try {
+      return this.reader.readValue(bytes, offset, length);
+    } catch (IOException e) {
+      throw new SerializationException("Could not read JSON: " + e.getMessage(), e);
+    }
+  }
+}
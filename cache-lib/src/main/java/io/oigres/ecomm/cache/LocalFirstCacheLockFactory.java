@@ -0,0 +1,247 @@
+/**********
+ This project is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the
+ Free Software Foundation; either version 3.0 of the License, or (at your
+ option) any later version. (See <https://www.gnu.org/licenses/gpl-3.0.html>.)
+
+ This project is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this project; if not, write to the Free Software Foundation, Inc.,
+ 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301  USA
+ **********/
+// Copyright (c) 2024-2025 Sergio Exposito.  All rights reserved.              
+
+package io.oigres.ecomm.cache;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Lock factory which serializes callers of the same lock name inside the JVM before they contend
+ * on the locks of its delegate, so only one thread per name and node waits on the cache provider.
+ * Local locks are kept per name while they are held or waited for, so different names never wait
+ * on each other locally. Locks of many names take their local locks in the given order. Shared
+ * locks take the read lock of the local lock, so local readers of a name do not wait on each other.
+ * Local locks are owned by threads, so asynchronous locks only take the lock of the delegate.
+ *
+ * @author sergio.exposito (sjexpos@gmail.com)
+ */
+public class LocalFirstCacheLockFactory implements CacheLockFactory {
+  private final CacheLockFactory delegate;
+  private final Map<String, LocalLock> localLocks = new ConcurrentHashMap<>();
+
+  public LocalFirstCacheLockFactory(CacheLockFactory delegate) {
+    this.delegate = delegate;
+  }
+
+  @Override
+  public Lock create(String name) {
+    return new LocalFirstLock(List.of(name), this.delegate.create(name), false);
+  }
+
+  @Override
+  public Lock create(List<String> names) {
+    return new LocalFirstLock(List.copyOf(names), this.delegate.create(names), false);
+  }
+
+  @Override
+  public Lock createShared(String name) {
+    return new LocalFirstLock(List.of(name), this.delegate.createShared(name), true);
+  }
+
+  @Override
+  public Lock createShared(List<String> names) {
+    return new LocalFirstLock(List.copyOf(names), this.delegate.createShared(names), true);
+  }
+
+  @Override
+  public boolean tryLock(Lock lock, Duration waitTimeout, Duration leaseTime)
+      throws InterruptedException {
+    if (lock instanceof LocalFirstLock localFirstLock) {
+      return localFirstLock.acquire(waitTimeout, leaseTime);
+    }
+    return this.delegate.tryLock(lock, waitTimeout, leaseTime);
+  }
+
+  @Override
+  public CompletableFuture<Boolean> tryLockAsync(
+      Lock lock, Duration waitTimeout, Duration leaseTime, long ownerId) {
+    Lock remote = lock instanceof LocalFirstLock localFirstLock ? localFirstLock.remote : lock;
+    return this.delegate.tryLockAsync(remote, waitTimeout, leaseTime, ownerId);
+  }
+
+  @Override
+  public CompletableFuture<Void> unlockAsync(Lock lock, long ownerId) {
+    Lock remote = lock instanceof LocalFirstLock localFirstLock ? localFirstLock.remote : lock;
+    return this.delegate.unlockAsync(remote, ownerId);
+  }
+
+  /** Number of names whose local lock is held or waited for. */
+  public int getLocalLockCount() {
+    return this.localLocks.size();
+  }
+
+  private LocalLock retain(String name) {
+    return this.localLocks.compute(
+        name,
+        (key, local) -> {
+          LocalLock retained = local != null ? local : new LocalLock();
+          retained.references++;
+          return retained;
+        });
+  }
+
+  private void release(String name) {
+    this.localLocks.computeIfPresent(name, (key, local) -> --local.references == 0 ? null : local);
+  }
+
+  /** Local lock of a name, with the number of threads which hold it or wait for it. */
+  private static class LocalLock {
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private int references;
+  }
+
+  private class LocalFirstLock implements Lock {
+    private final List<String> names;
+    private final Lock remote;
+    private final boolean shared;
+    private List<LocalLock> held;
+
+    LocalFirstLock(List<String> names, Lock remote, boolean shared) {
+      this.names = names;
+      this.remote = remote;
+      this.shared = shared;
+    }
+
+    private Lock local(LocalLock local) {
+      return this.shared ? local.lock.readLock() : local.lock.writeLock();
+    }
+
+    /**
+     * Acquire the local locks and then the remote one, all within the wait timeout.
+     * @param waitTimeout how long to wait for all locks, or null to wait as long as needed
+     * @param leaseTime lease time of the remote lock, or null to hold it
+     */
+    boolean acquire(Duration waitTimeout, Duration leaseTime) throws InterruptedException {
+      long start = System.nanoTime();
+      List<LocalLock> locked = new ArrayList<>(this.names.size());
+      boolean acquired = false;
+      try {
+        for (String name : this.names) {
+          LocalLock local = retain(name);
+          boolean localAcquired = false;
+          try {
+            if (waitTimeout == null) {
+              local(local).lock();
+              localAcquired = true;
+            } else {
+              localAcquired =
+                  local(local).tryLock(remaining(waitTimeout, start), TimeUnit.NANOSECONDS);
+            }
+          } finally {
+            if (!localAcquired) {
+              release(name);
+            }
+          }
+          if (!localAcquired) {
+            return false;
+          }
+          locked.add(local);
+        }
+        acquired =
+            LocalFirstCacheLockFactory.this.delegate.tryLock(
+                this.remote,
+                waitTimeout != null ? Duration.ofNanos(remaining(waitTimeout, start)) : null,
+                leaseTime);
+      } finally {
+        if (acquired) {
+          this.held = locked;
+        } else {
+          unlockLocal(locked);
+        }
+      }
+      return acquired;
+    }
+
+    private static long remaining(Duration waitTimeout, long start) {
+      return Math.max(0, waitTimeout.toNanos() - (System.nanoTime() - start));
+    }
+
+    /** Release the given local locks, which belong to the first names of this lock. */
+    private void unlockLocal(List<LocalLock> locked) {
+      for (int i = locked.size() - 1; i >= 0; i--) {
+        local(locked.get(i)).unlock();
+        release(this.names.get(i));
+      }
+    }
+
+    @Override
+    public void lock() {
+      try {
+        acquire(null, null);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException("Interrupted while acquiring lock " + this.names, e);
+      }
+    }
+
+    @Override
+    public void lockInterruptibly() throws InterruptedException {
+      if (Thread.interrupted()) {
+        throw new InterruptedException();
+      }
+      lock();
+    }
+
+    @Override
+    public boolean tryLock() {
+      try {
+        return acquire(Duration.ZERO, null);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return false;
+      }
+    }
+
+    @Override
+    public boolean tryLock(long time, TimeUnit unit) throws InterruptedException {
+      return acquire(Duration.of(time, unit.toChronoUnit()), null);
+    }
+
+    @Override
+    public void unlock() {
+      List<LocalLock> locked = this.held;
+      if (locked == null) {
+        throw new IllegalMonitorStateException("Lock " + this.names + " is not held");
+      }
+      try {
+        this.remote.unlock();
+      } finally {
+        this.held = null;
+        unlockLocal(locked);
+      }
+    }
+
+    @Override
+    public Condition newCondition() {
+      throw new UnsupportedOperationException("Conditions are not supported by cache locks");
+    }
+
+    @Override
+    public String toString() {
+      return this.remote.toString();
+    }
+  }
+}
@@ -17,6 +17,10 @@
 
 package io.oigres.ecomm.cache;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.locks.Lock;
@@ -40,15 +44,20 @@ public class LockAwareCacheDecorator implements LockableCache {
   }
 
   private void createLockIfItIsNeeded(Object key) {
-    String lockName = String.valueOf(key);
-    if (CacheLockManager.isSynchronizationActive()) {
-      Lock lock = CacheLockManager.getLocks(lockName);
-      if (lock == null) {
-        lock = this.cacheLockFactory.create(lockName);
-        CacheLockManager.registerLock(lock, lockName);
-        lock.lock();
-      }
-    }
+    CacheLockManager.lockIfNeeded(
+        this.delegate.getName(), String.valueOf(key), this.cacheLockFactory);
+  }
+
+  /** Lock names of many keys, sorted so they are always locked in the same order. */
+  private static List<String> lockNames(Collection<?> keys) {
+    TreeSet<String> names = new TreeSet<>();
+    keys.forEach(key -> names.add(String.valueOf(key)));
+    return List.copyOf(names);
+  }
+
+  private void createWriteLockIfItIsNeeded(Object key) {
+    CacheLockManager.lockForWriteIfNeeded(
+        this.delegate.getName(), String.valueOf(key), this.cacheLockFactory);
   }
 
   @Override
@@ -79,27 +88,63 @@ public class LockAwareCacheDecorator implements LockableCache {
     return delegate.get(key, valueLoader);
   }
 
+  /** Lock a key without blocking when the cache lock of the current call is asynchronous. */
+  private CompletableFuture<Void> createLockIfItIsNeededAsync(Object key) {
+    return CacheLockManager.lockIfNeededAsync(
+        this.delegate.getName(), String.valueOf(key), this.cacheLockFactory);
+  }
+
   @Override
   @Nullable public CompletableFuture<?> retrieve(Object key) {
-    createLockIfItIsNeeded(key);
-    return delegate.retrieve(key);
+    CompletableFuture<Void> locked = createLockIfItIsNeededAsync(key);
+    if (locked.isDone() && !locked.isCompletedExceptionally()) {
+      return delegate.retrieve(key);
+    }
+    return locked.thenCompose(
+        v -> {
+          CompletableFuture<?> value = delegate.retrieve(key);
+          return value != null ? value : CompletableFuture.completedFuture(null);
+        });
   }
 
   @Override
   public <T> CompletableFuture<T> retrieve(Object key, Supplier<CompletableFuture<T>> valueLoader) {
-    createLockIfItIsNeeded(key);
-    return delegate.retrieve(key, valueLoader);
+    CompletableFuture<Void> locked = createLockIfItIsNeededAsync(key);
+    if (locked.isDone() && !locked.isCompletedExceptionally()) {
+      return delegate.retrieve(key, valueLoader);
+    }
+    return locked.thenCompose(v -> delegate.retrieve(key, valueLoader));
+  }
+
+  @Override
+  public Map<Object, ValueWrapper> getAll(Collection<?> keys) {
+    CacheLockManager.lockAllIfNeeded(
+        this.delegate.getName(), lockNames(keys), this.cacheLockFactory);
+    return this.delegate instanceof MultiKeyCache multiKeyCache
+        ? multiKeyCache.getAll(keys)
+        : LockableCache.super.getAll(keys);
+  }
+
+  @Override
+  public void putAll(Map<?, ?> values) {
+    CacheLockManager.lockAllForWriteIfNeeded(
+        this.delegate.getName(), lockNames(values.keySet()), this.cacheLockFactory);
+    if (this.delegate instanceof MultiKeyCache multiKeyCache) {
+      multiKeyCache.putAll(values);
+    } else {
+      LockableCache.super.putAll(values);
+    }
   }
 
   @Override
   public void put(Object key, Object value) {
-    createLockIfItIsNeeded(key);
+    createWriteLockIfItIsNeeded(key);
     delegate.put(key, value);
   }
 
   @Override
   @Nullable public ValueWrapper putIfAbsent(Object key, Object value) {
-    createLockIfItIsNeeded(key);
+    createWriteLockIfItIsNeeded(key);
     return delegate.putIfAbsent(key, value);
   }
 
@@ -18,14 +18,14 @@
 package io.oigres.ecomm.cache;
 
 import java.util.concurrent.locks.Lock;
-import org.springframework.cache.Cache;
 
 /**
- * Defines a spring cache which can be locked.
+ * Defines a spring cache which can be locked. Many keys which are read or written at once are
+ * locked together.
  *
  * @author sergio.exposito (sjexpos@gmail.com)
  */
-public interface LockableCache extends Cache {
+public interface LockableCache extends MultiKeyCache {
 
   Lock getLock(Object key);
 }
@@ -0,0 +1,55 @@
+/**********
+ This project is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the
+ Free Software Foundation; either version 3.0 of the License, or (at your
+ option) any later version. (See <https://www.gnu.org/licenses/gpl-3.0.html>.)
+
+ This project is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this project; if not, write to the Free Software Foundation, Inc.,
+ 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301  USA
+ **********/
+// Copyright (c) 2024-2025 Sergio Exposito.  All rights reserved.              
+
+package io.oigres.ecomm.cache;
+
+import java.io.IOException;
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4SafeDecompressor;
+
+/**
+ * Compresses values using lz4, which trades compression ratio for speed. It needs lz4-java on
+ * the classpath.
+ *
+ * @author sergio.exposito (sjexpos@gmail.com)
+ */
+public class Lz4CompressionCodec implements CompressionCodec {
+  private final LZ4Compressor compressor;
+  private final LZ4SafeDecompressor decompressor;
+
+  public Lz4CompressionCodec() {
+    LZ4Factory factory = LZ4Factory.fastestInstance();
+    this.compressor = factory.fastCompressor();
+    this.decompressor = factory.safeDecompressor();
+  }
+
+  @Override
+  public byte[] compress(byte[] data, int offset, int length) {
+    return this.compressor.compress(data, offset, length);
+  }
+
+  @Override
+  public byte[] decompress(byte[] data, int offset, int length, int size) throws IOException {
+    byte[] result = new byte[size];
+    int n = this.decompressor.decompress(data, offset, length, result, 0, size);
+    if (n != size) {
+      throw new IOException("Lz4 data was decompressed to " + n + " bytes instead of " + size);
+    }
+    return result;
+  }
+}
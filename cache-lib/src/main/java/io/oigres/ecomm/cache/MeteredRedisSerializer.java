@@ -0,0 +1,99 @@
+/**********
+ This project is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the
+ Free Software Foundation; either version 3.0 of the License, or (at your
+ option) any later version. (See <https://www.gnu.org/licenses/gpl-3.0.html>.)
+
+ This project is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this project; if not, write to the Free Software Foundation, Inc.,
+ 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301  USA
+ **********/
+// Copyright (c) 2024-2025 Sergio Exposito.  All rights reserved.              
+
+package io.oigres.ecomm.cache;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.concurrent.TimeUnit;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+/**
+ * This redis serializer records the size of the values of a cache and the time spent serializing
+ * them on Micrometer meters, which are tagged with the cache name and the operation.
+ *
+ * <ul>
+ *   <li>cache.serialization - time to serialize or deserialize a value
+ *   <li>cache.serialized.bytes - size of serialized values
+ * </ul>
+ *
+ * @author sergio.exposito (sjexpos@gmail.com)
+ */
+public class MeteredRedisSerializer<T> implements RedisSerializer<T> {
+  private final RedisSerializer<T> innerSerializer;
+  private final Timer serializeTime;
+  private final Timer deserializeTime;
+  private final DistributionSummary serializeBytes;
+  private final DistributionSummary deserializeBytes;
+
+  public MeteredRedisSerializer(
+      String cacheName, RedisSerializer<T> innerSerializer, MeterRegistry registry) {
+    this.innerSerializer = innerSerializer;
+    this.serializeTime = timer(cacheName, "serialize", registry);
+    this.deserializeTime = timer(cacheName, "deserialize", registry);
+    this.serializeBytes = bytes(cacheName, "serialize", registry);
+    this.deserializeBytes = bytes(cacheName, "deserialize", registry);
+  }
+
+  private static Timer timer(String cacheName, String operation, MeterRegistry registry) {
+    return Timer.builder("cache.serialization")
+        .description("Time to serialize cache values")
+        .tag("cache", cacheName)
+        .tag("operation", operation)
+        .register(registry);
+  }
+
+  private static DistributionSummary bytes(
+      String cacheName, String operation, MeterRegistry registry) {
+    return DistributionSummary.builder("cache.serialized.bytes")
+        .description("Size of serialized cache values")
+        .baseUnit("bytes")
+        .tag("cache", cacheName)
+        .tag("operation", operation)
+        .register(registry);
+  }
+
+  @Override
+  public byte[] serialize(T value) throws SerializationException {
+    long start = System.nanoTime();
+    byte[] bytes = this.innerSerializer.serialize(value);
+    this.serializeTime.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    if (bytes != null) {
+      this.serializeBytes.record(bytes.length);
+    }
+    return bytes;
+  }
+
+  @Override
+  public T deserialize(byte[] bytes) throws SerializationException {
+    if (bytes == null || bytes.length == 0) {
+      return this.innerSerializer.deserialize(bytes);
+    }
+    long start = System.nanoTime();
+    T value = this.innerSerializer.deserialize(bytes);
+    this.deserializeTime.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    this.deserializeBytes.record(bytes.length);
+    return value;
+  }
+
+  @Override
+  public Class<?> getTargetType() {
+    return this.innerSerializer.getTargetType();
+  }
+}
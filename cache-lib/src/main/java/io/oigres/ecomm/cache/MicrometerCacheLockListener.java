@@ -0,0 +1,104 @@
+/**********
+ This project is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the
+ Free Software Foundation; either version 3.0 of the License, or (at your
+ option) any later version. (See <https://www.gnu.org/licenses/gpl-3.0.html>.)
+
+ This project is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this project; if not, write to the Free Software Foundation, Inc.,
+ 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301  USA
+ **********/
+// Copyright (c) 2024-2025 Sergio Exposito.  All rights reserved.              
+
+package io.oigres.ecomm.cache;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records how long cache locks are waited for and held on Micrometer timers, which are tagged by
+ * cache name only, so their cardinality does not grow with keys. Keys which are waited for the
+ * most are kept by a hot key sampler instead.
+ *
+ * <ul>
+ *   <li>cache.lock.wait - time to acquire a lock, tagged with outcome acquired or timeout
+ *   <li>cache.lock.hold - time a lock was held until it was released
+ * </ul>
+ *
+ * @author sergio.exposito (sjexpos@gmail.com)
+ */
+public class MicrometerCacheLockListener implements CacheLockListener {
+  private static final String UNKNOWN_CACHE = "unknown";
+  private static final int WAIT_ACQUIRED = 0;
+  private static final int WAIT_TIMEOUT = 1;
+  private static final int HOLD = 2;
+
+  private final MeterRegistry registry;
+  private final HotKeySampler hotKeys;
+  private final Map<String, Timer[]> timers = new ConcurrentHashMap<>();
+
+  public MicrometerCacheLockListener(MeterRegistry registry, HotKeySampler hotKeys) {
+    this.registry = registry;
+    this.hotKeys = hotKeys;
+  }
+
+  public HotKeySampler getHotKeys() {
+    return this.hotKeys;
+  }
+
+  private Timer[] timers(String cacheName) {
+    String cache = cacheName != null ? cacheName : UNKNOWN_CACHE;
+    Timer[] cacheTimers = this.timers.get(cache);
+    if (cacheTimers == null) {
+      cacheTimers = this.timers.computeIfAbsent(cache, this::register);
+    }
+    return cacheTimers;
+  }
+
+  private Timer[] register(String cache) {
+    Timer[] cacheTimers = new Timer[3];
+    cacheTimers[WAIT_ACQUIRED] =
+        Timer.builder("cache.lock.wait")
+            .description("Time to acquire cache locks")
+            .tag("cache", cache)
+            .tag("outcome", "acquired")
+            .register(this.registry);
+    cacheTimers[WAIT_TIMEOUT] =
+        Timer.builder("cache.lock.wait")
+            .description("Time to acquire cache locks")
+            .tag("cache", cache)
+            .tag("outcome", "timeout")
+            .register(this.registry);
+    cacheTimers[HOLD] =
+        Timer.builder("cache.lock.hold")
+            .description("Time cache locks are held")
+            .tag("cache", cache)
+            .register(this.registry);
+    return cacheTimers;
+  }
+
+  @Override
+  public void lockAcquired(String cacheName, String lockName, long waitNanos) {
+    timers(cacheName)[WAIT_ACQUIRED].record(waitNanos, TimeUnit.NANOSECONDS);
+    this.hotKeys.record(lockName, waitNanos);
+  }
+
+  @Override
+  public void lockTimedOut(String cacheName, String lockName, long waitNanos) {
+    timers(cacheName)[WAIT_TIMEOUT].record(waitNanos, TimeUnit.NANOSECONDS);
+    this.hotKeys.record(lockName, waitNanos);
+  }
+
+  @Override
+  public void lockReleased(String cacheName, String lockName, long holdNanos) {
+    timers(cacheName)[HOLD].record(holdNanos, TimeUnit.NANOSECONDS);
+  }
+}
@@ -0,0 +1,52 @@
+/**********
+ This project is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the
+ Free Software Foundation; either version 3.0 of the License, or (at your
+ option) any later version. (See <https://www.gnu.org/licenses/gpl-3.0.html>.)
+
+ This project is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this project; if not, write to the Free Software Foundation, Inc.,
+ 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301  USA
+ **********/
+// Copyright (c) 2024-2025 Sergio Exposito.  All rights reserved.              
+
+package io.oigres.ecomm.cache;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.springframework.cache.Cache;
+
+/**
+ * Defines a spring cache which reads and writes many keys at once. Default methods access one key
+ * at a time, so caches override them when their provider has bulk operations.
+ *
+ * @author sergio.exposito (sjexpos@gmail.com)
+ */
+public interface MultiKeyCache extends Cache {
+
+  /**
+   * Return the values of the given keys.
+   * @return values by key, in the order of the given keys, without the keys which are not cached
+   */
+  default Map<Object, ValueWrapper> getAll(Collection<?> keys) {
+    Map<Object, ValueWrapper> values = new LinkedHashMap<>();
+    for (Object key : keys) {
+      ValueWrapper value = get(key);
+      if (value != null) {
+        values.put(key, value);
+      }
+    }
+    return values;
+  }
+
+  /** Write the given values by key. */
+  default void putAll(Map<?, ?> values) {
+    values.forEach(this::put);
+  }
+}
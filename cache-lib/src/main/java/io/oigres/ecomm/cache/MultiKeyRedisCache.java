@@ -0,0 +1,86 @@
+/**********
+ This project is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the
+ Free Software Foundation; either version 3.0 of the License, or (at your
+ option) any later version. (See <https://www.gnu.org/licenses/gpl-3.0.html>.)
+
+ This project is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this project; if not, write to the Free Software Foundation, Inc.,
+ 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301  USA
+ **********/
+// Copyright (c) 2024-2025 Sergio Exposito.  All rights reserved.              
+
+package io.oigres.ecomm.cache;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.springframework.data.redis.cache.RedisCache;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+import org.springframework.data.redis.cache.RedisCacheWriter;
+
+/**
+ * Redis cache which reads and writes many keys with one call of its cache writer, when the writer
+ * supports it. Caches with time to idle expiration read one key at a time, since reads must
+ * extend the expiration of each key.
+ *
+ * @author sergio.exposito (sjexpos@gmail.com)
+ */
+public class MultiKeyRedisCache extends RedisCache implements MultiKeyCache {
+
+  protected MultiKeyRedisCache(
+      String name, RedisCacheWriter cacheWriter, RedisCacheConfiguration cacheConfiguration) {
+    super(name, cacheWriter, cacheConfiguration);
+  }
+
+  @Override
+  public Map<Object, ValueWrapper> getAll(Collection<?> keys) {
+    if (!(getCacheWriter() instanceof MultiKeyRedisCacheWriter cacheWriter)
+        || getCacheConfiguration().isTimeToIdleEnabled()) {
+      return MultiKeyCache.super.getAll(keys);
+    }
+    List<Object> cacheKeys = List.copyOf(keys);
+    List<byte[]> redisKeys = new ArrayList<>(cacheKeys.size());
+    cacheKeys.forEach(key -> redisKeys.add(serializeCacheKey(createCacheKey(key))));
+    List<byte[]> values = cacheWriter.getAll(getName(), redisKeys);
+    Map<Object, ValueWrapper> found = new LinkedHashMap<>();
+    for (int i = 0; i < cacheKeys.size(); i++) {
+      byte[] value = values.get(i);
+      if (value != null) {
+        found.put(cacheKeys.get(i), toValueWrapper(deserializeCacheValue(value)));
+      }
+    }
+    return found;
+  }
+
+  @Override
+  public void putAll(Map<?, ?> values) {
+    if (!(getCacheWriter() instanceof MultiKeyRedisCacheWriter cacheWriter)) {
+      MultiKeyCache.super.putAll(values);
+      return;
+    }
+    List<CacheWrite> writes = new ArrayList<>(values.size());
+    values.forEach(
+        (key, value) -> {
+          Object cacheValue = preProcessCacheValue(value);
+          if (cacheValue == null) {
+            throw new IllegalArgumentException(
+                String.format("Cache '%s' does not allow 'null' values", getName()));
+          }
+          writes.add(
+              CacheWrite.builder()
+                  .key(serializeCacheKey(createCacheKey(key)))
+                  .value(serializeCacheValue(cacheValue))
+                  .ttl(getCacheConfiguration().getTtlFunction().getTimeToLive(key, value))
+                  .build());
+        });
+    cacheWriter.putAll(getName(), writes);
+  }
+}
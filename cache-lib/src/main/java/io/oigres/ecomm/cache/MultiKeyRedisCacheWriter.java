@@ -0,0 +1,38 @@
+/**********
+ This project is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the
+ Free Software Foundation; either version 3.0 of the License, or (at your
+ option) any later version. (See <https://www.gnu.org/licenses/gpl-3.0.html>.)
+
+ This project is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this project; if not, write to the Free Software Foundation, Inc.,
+ 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301  USA
+ **********/
+// Copyright (c) 2024-2025 Sergio Exposito.  All rights reserved.              
+
+package io.oigres.ecomm.cache;
+
+import java.util.List;
+import org.springframework.data.redis.cache.RedisCacheWriter;
+
+/**
+ * Redis cache writer which reads and writes many keys with one call.
+ *
+ * @author sergio.exposito (sjexpos@gmail.com)
+ */
+public interface MultiKeyRedisCacheWriter extends RedisCacheWriter {
+
+  /**
+   * Read the values of many keys of a cache.
+   * @return values in the order of the keys, with null for keys which do not exist
+   */
+  List<byte[]> getAll(String name, List<byte[]> keys);
+
+  /** Write values of many keys of a cache, each one with its own time to live. */
+  void putAll(String name, List<CacheWrite> writes);
+}
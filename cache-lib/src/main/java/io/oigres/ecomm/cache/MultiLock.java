@@ -0,0 +1,122 @@
+/**********
+ This project is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the
+ Free Software Foundation; either version 3.0 of the License, or (at your
+ option) any later version. (See <https://www.gnu.org/licenses/gpl-3.0.html>.)
+
+ This project is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this project; if not, write to the Free Software Foundation, Inc.,
+ 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301  USA
+ **********/
+// Copyright (c) 2024-2025 Sergio Exposito.  All rights reserved.              
+
+package io.oigres.ecomm.cache;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Lock which holds many locks. They are acquired in the given order and released in reverse
+ * order, and if any of them is not acquired, the ones which were acquired are released.
+ *
+ * @author sergio.exposito (sjexpos@gmail.com)
+ */
+public class MultiLock implements Lock {
+  private final List<Lock> locks;
+
+  public MultiLock(List<Lock> locks) {
+    this.locks = List.copyOf(locks);
+  }
+
+  @Override
+  public void lock() {
+    for (int i = 0; i < this.locks.size(); i++) {
+      try {
+        this.locks.get(i).lock();
+      } catch (RuntimeException e) {
+        unlock(i);
+        throw e;
+      }
+    }
+  }
+
+  @Override
+  public void lockInterruptibly() throws InterruptedException {
+    for (int i = 0; i < this.locks.size(); i++) {
+      try {
+        this.locks.get(i).lockInterruptibly();
+      } catch (InterruptedException | RuntimeException e) {
+        unlock(i);
+        throw e;
+      }
+    }
+  }
+
+  @Override
+  public boolean tryLock() {
+    for (int i = 0; i < this.locks.size(); i++) {
+      if (!this.locks.get(i).tryLock()) {
+        unlock(i);
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public boolean tryLock(long time, TimeUnit unit) throws InterruptedException {
+    long deadline = System.nanoTime() + unit.toNanos(time);
+    for (int i = 0; i < this.locks.size(); i++) {
+      boolean acquired = false;
+      try {
+        long remaining = Math.max(0, deadline - System.nanoTime());
+        acquired = this.locks.get(i).tryLock(remaining, TimeUnit.NANOSECONDS);
+      } finally {
+        if (!acquired) {
+          unlock(i);
+        }
+      }
+      if (!acquired) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public void unlock() {
+    unlock(this.locks.size());
+  }
+
+  /** Release the first count locks in reverse order. */
+  private void unlock(int count) {
+    RuntimeException failure = null;
+    for (int i = count - 1; i >= 0; i--) {
+      try {
+        this.locks.get(i).unlock();
+      } catch (RuntimeException e) {
+        failure = failure != null ? failure : e;
+      }
+    }
+    if (failure != null) {
+      throw failure;
+    }
+  }
+
+  @Override
+  public Condition newCondition() {
+    throw new UnsupportedOperationException("Conditions are not supported by cache locks");
+  }
+
+  @Override
+  public String toString() {
+    return this.locks.toString();
+  }
+}
@@ -0,0 +1,262 @@
+/**********
+ This project is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the
+ Free Software Foundation; either version 3.0 of the License, or (at your
+ option) any later version. (See <https://www.gnu.org/licenses/gpl-3.0.html>.)
+
+ This project is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this project; if not, write to the Free Software Foundation, Inc.,
+ 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301  USA
+ **********/
+// Copyright (c) 2024-2025 Sergio Exposito.  All rights reserved.              
+
+package io.oigres.ecomm.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.SimpleValueWrapper;
+import org.springframework.lang.Nullable;
+
+/**
+ * Keeps a size bounded copy of a cache in memory. Values which are read or written on this node
+ * are kept until they expire, and values which are changed on other nodes are evicted by the
+ * invalidator. Values are copied when they are read from the delegated cache only when no key of
+ * the cache was invalidated meanwhile, so a late read never overwrites a newer invalidation.
+ *
+ * @author sergio.exposito (sjexpos@gmail.com)
+ */
+public class NearCacheDecorator implements MultiKeyCache {
+  private final Cache delegate;
+  private final NearCacheInvalidator invalidator;
+  private final com.github.benmanes.caffeine.cache.Cache<String, ValueWrapper> nearCache;
+  private final AtomicLong invalidations = new AtomicLong();
+
+  protected NearCacheDecorator(
+      Cache delegate, NearCacheSettings settings, NearCacheInvalidator invalidator) {
+    this.delegate = delegate;
+    this.invalidator = invalidator;
+    this.nearCache =
+        Caffeine.newBuilder()
+            .maximumSize(settings.getMaximumSize())
+            .expireAfterWrite(settings.getTimeToLive())
+            .build();
+  }
+
+  private static String nearKey(Object key) {
+    return String.valueOf(key);
+  }
+
+  /** Evict a key which was changed on another node, or every key when it is null. */
+  void evictLocal(@Nullable String key) {
+    this.invalidations.incrementAndGet();
+    if (key != null) {
+      this.nearCache.invalidate(key);
+    } else {
+      this.nearCache.invalidateAll();
+    }
+  }
+
+  /** Keep a value which was read before the given invalidation count. */
+  private void keep(Object key, @Nullable ValueWrapper value, long seen) {
+    if (value != null && this.invalidations.get() == seen) {
+      this.nearCache.put(nearKey(key), value);
+    }
+  }
+
+  /** Forget a key which is changed on this node, and tell the other nodes. */
+  private void changed(@Nullable Object key) {
+    this.invalidations.incrementAndGet();
+    if (key != null) {
+      this.nearCache.invalidate(nearKey(key));
+    } else {
+      this.nearCache.invalidateAll();
+    }
+    this.invalidator.invalidate(getName(), key != null ? nearKey(key) : null);
+  }
+
+  @Override
+  public String getName() {
+    return this.delegate.getName();
+  }
+
+  @Override
+  public Object getNativeCache() {
+    return this.delegate.getNativeCache();
+  }
+
+  @Override
+  @Nullable public ValueWrapper get(Object key) {
+    ValueWrapper value = this.nearCache.getIfPresent(nearKey(key));
+    if (value == null) {
+      long seen = this.invalidations.get();
+      value = this.delegate.get(key);
+      keep(key, value, seen);
+    }
+    return value;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  @Nullable public <T> T get(Object key, @Nullable Class<T> type) {
+    ValueWrapper value = get(key);
+    Object found = value != null ? value.get() : null;
+    if (found != null && type != null && !type.isInstance(found)) {
+      throw new IllegalStateException(
+          "Cached value is not of required type [" + type.getName() + "]: " + found);
+    }
+    return (T) found;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  @Nullable public <T> T get(Object key, Callable<T> valueLoader) {
+    ValueWrapper value = this.nearCache.getIfPresent(nearKey(key));
+    if (value != null) {
+      return (T) value.get();
+    }
+    long seen = this.invalidations.get();
+    T loaded = this.delegate.get(key, valueLoader);
+    keep(key, new SimpleValueWrapper(loaded), seen);
+    return loaded;
+  }
+
+  @Override
+  @Nullable public CompletableFuture<?> retrieve(Object key) {
+    ValueWrapper value = this.nearCache.getIfPresent(nearKey(key));
+    if (value != null) {
+      return CompletableFuture.completedFuture(value);
+    }
+    long seen = this.invalidations.get();
+    CompletableFuture<?> retrieved = this.delegate.retrieve(key);
+    if (retrieved == null) {
+      return null;
+    }
+    return retrieved.thenApply(
+        found -> {
+          if (found instanceof ValueWrapper wrapper) {
+            keep(key, wrapper, seen);
+          } else if (found != null) {
+            keep(key, new SimpleValueWrapper(found), seen);
+          }
+          return found;
+        });
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public <T> CompletableFuture<T> retrieve(Object key, Supplier<CompletableFuture<T>> valueLoader) {
+    ValueWrapper value = this.nearCache.getIfPresent(nearKey(key));
+    if (value != null) {
+      return CompletableFuture.completedFuture((T) value.get());
+    }
+    long seen = this.invalidations.get();
+    return this.delegate
+        .retrieve(key, valueLoader)
+        .thenApply(
+            loaded -> {
+              keep(key, new SimpleValueWrapper(loaded), seen);
+              return loaded;
+            });
+  }
+
+  @Override
+  public Map<Object, ValueWrapper> getAll(Collection<?> keys) {
+    Map<Object, ValueWrapper> values = new LinkedHashMap<>();
+    List<Object> missing = new ArrayList<>();
+    for (Object key : keys) {
+      ValueWrapper value = this.nearCache.getIfPresent(nearKey(key));
+      if (value != null) {
+        values.put(key, value);
+      } else {
+        missing.add(key);
+      }
+    }
+    if (missing.isEmpty()) {
+      return values;
+    }
+    long seen = this.invalidations.get();
+    Map<Object, ValueWrapper> found =
+        this.delegate instanceof MultiKeyCache multiKeyCache
+            ? multiKeyCache.getAll(missing)
+            : MultiKeyCache.super.getAll(missing);
+    found.forEach((key, value) -> keep(key, value, seen));
+    Map<Object, ValueWrapper> ordered = new LinkedHashMap<>();
+    for (Object key : keys) {
+      ValueWrapper value = values.containsKey(key) ? values.get(key) : found.get(key);
+      if (value != null) {
+        ordered.put(key, value);
+      }
+    }
+    return ordered;
+  }
+
+  @Override
+  public void putAll(Map<?, ?> values) {
+    if (this.delegate instanceof MultiKeyCache multiKeyCache) {
+      multiKeyCache.putAll(values);
+    } else {
+      values.forEach(this.delegate::put);
+    }
+    values.forEach(
+        (key, value) -> {
+          changed(key);
+          this.nearCache.put(nearKey(key), new SimpleValueWrapper(value));
+        });
+  }
+
+  @Override
+  public void put(Object key, @Nullable Object value) {
+    this.delegate.put(key, value);
+    changed(key);
+    this.nearCache.put(nearKey(key), new SimpleValueWrapper(value));
+  }
+
+  @Override
+  @Nullable public ValueWrapper putIfAbsent(Object key, @Nullable Object value) {
+    ValueWrapper previous = this.delegate.putIfAbsent(key, value);
+    if (previous == null) {
+      changed(key);
+    }
+    return previous;
+  }
+
+  @Override
+  public void evict(Object key) {
+    this.delegate.evict(key);
+    changed(key);
+  }
+
+  @Override
+  public boolean evictIfPresent(Object key) {
+    boolean evicted = this.delegate.evictIfPresent(key);
+    changed(key);
+    return evicted;
+  }
+
+  @Override
+  public void clear() {
+    this.delegate.clear();
+    changed(null);
+  }
+
+  @Override
+  public boolean invalidate() {
+    boolean invalidated = this.delegate.invalidate();
+    changed(null);
+    return invalidated;
+  }
+}
@@ -0,0 +1,40 @@
+/**********
+ This project is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the
+ Free Software Foundation; either version 3.0 of the License, or (at your
+ option) any later version. (See <https://www.gnu.org/licenses/gpl-3.0.html>.)
+
+ This project is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this project; if not, write to the Free Software Foundation, Inc.,
+ 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301  USA
+ **********/
+// Copyright (c) 2024-2025 Sergio Exposito.  All rights reserved.              
+
+package io.oigres.ecomm.cache;
+
+import java.util.function.BiConsumer;
+
+/**
+ * Broadcasts that keys of near caches changed, so every node evicts its local copy.
+ *
+ * @author sergio.exposito (sjexpos@gmail.com)
+ */
+public interface NearCacheInvalidator {
+
+  /**
+   * Tell the other nodes that a key of a cache changed.
+   * @param key the key which changed, or null when the whole cache was cleared
+   */
+  void invalidate(String cacheName, String key);
+
+  /**
+   * Receive the keys which were changed by other nodes. A null key means the whole cache, and a
+   * null cache name means every cache, which is sent when messages may have been lost.
+   */
+  void subscribe(BiConsumer<String, String> listener);
+}
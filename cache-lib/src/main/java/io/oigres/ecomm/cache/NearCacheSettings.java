@@ -0,0 +1,40 @@
+/**********
+ This project is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the
+ Free Software Foundation; either version 3.0 of the License, or (at your
+ option) any later version. (See <https://www.gnu.org/licenses/gpl-3.0.html>.)
+
+ This project is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this project; if not, write to the Free Software Foundation, Inc.,
+ 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301  USA
+ **********/
+// Copyright (c) 2024-2025 Sergio Exposito.  All rights reserved.              
+
+package io.oigres.ecomm.cache;
+
+import java.time.Duration;
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * Bounds of the in memory copy of a cache.
+ *
+ * @author sergio.exposito (sjexpos@gmail.com)
+ */
+@Value
+@Builder
+public class NearCacheSettings {
+  /** how many keys are kept in memory */
+  @Builder.Default long maximumSize = 10000;
+
+  /**
+   * how long a value is kept in memory after it was read from the cache, which bounds how stale it
+   * is when an invalidation is lost
+   */
+  @Builder.Default Duration timeToLive = Duration.ofMinutes(1);
+}
@@ -0,0 +1,192 @@
+/**********
+ This project is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the
+ Free Software Foundation; either version 3.0 of the License, or (at your
+ option) any later version. (See <https://www.gnu.org/licenses/gpl-3.0.html>.)
+
+ This project is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this project; if not, write to the Free Software Foundation, Inc.,
+ 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301  USA
+ **********/
+// Copyright (c) 2024-2025 Sergio Exposito.  All rights reserved.              
+
+package io.oigres.ecomm.cache;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import org.springframework.data.redis.cache.CacheKeyPrefix;
+import org.springframework.data.redis.cache.CacheStatistics;
+import org.springframework.data.redis.cache.CacheStatisticsCollector;
+import org.springframework.data.redis.cache.RedisCacheWriter;
+
+/**
+ * Cache writer which records the version of values read and keeps writes when an optimistic
+ * @CacheLock method is running. Otherwise every call goes to the delegated writer, and calls on
+ * many keys are split in single key calls when the delegated writer does not support them.
+ *
+ * @author sergio.exposito (sjexpos@gmail.com)
+ */
+public class OptimisticRedisCacheWriter implements MultiKeyRedisCacheWriter {
+  private final RedisCacheWriter delegate;
+  private final CacheKeyPrefix keyPrefix;
+
+  public OptimisticRedisCacheWriter(RedisCacheWriter delegate) {
+    this(delegate, CacheKeyPrefix.simple());
+  }
+
+  /**
+   * @param keyPrefix prefix of cache keys, which is removed from redis keys to get lock names
+   */
+  public OptimisticRedisCacheWriter(RedisCacheWriter delegate, CacheKeyPrefix keyPrefix) {
+    this.delegate = delegate;
+    this.keyPrefix = keyPrefix;
+  }
+
+  private String lockName(String name, String key) {
+    String prefix = this.keyPrefix.compute(name);
+    return key.startsWith(prefix) ? key.substring(prefix.length()) : key;
+  }
+
+  private static String toString(byte[] key) {
+    return new String(key, StandardCharsets.UTF_8);
+  }
+
+  @Override
+  public byte[] get(String name, byte[] key) {
+    return get(name, key, null);
+  }
+
+  @Override
+  public byte[] get(String name, byte[] key, Duration ttl) {
+    if (!CacheLockManager.isOptimistic()) {
+      return ttl != null ? this.delegate.get(name, key, ttl) : this.delegate.get(name, key);
+    }
+    String redisKey = toString(key);
+    byte[] pending = CacheLockManager.getPendingWrite(redisKey);
+    if (pending != null) {
+      return pending;
+    }
+    byte[] value = ttl != null ? this.delegate.get(name, key, ttl) : this.delegate.get(name, key);
+    CacheLockManager.recordVersion(redisKey, value);
+    return value;
+  }
+
+  @Override
+  public List<byte[]> getAll(String name, List<byte[]> keys) {
+    if (!CacheLockManager.isOptimistic()) {
+      return getAllFromDelegate(name, keys);
+    }
+    List<byte[]> values = new ArrayList<>(keys.size());
+    List<byte[]> unread = new ArrayList<>();
+    for (byte[] key : keys) {
+      byte[] pending = CacheLockManager.getPendingWrite(toString(key));
+      values.add(pending);
+      if (pending == null) {
+        unread.add(key);
+      }
+    }
+    List<byte[]> read = getAllFromDelegate(name, unread);
+    for (int i = 0, r = 0; i < keys.size(); i++) {
+      if (values.get(i) == null) {
+        byte[] value = read.get(r++);
+        CacheLockManager.recordVersion(toString(keys.get(i)), value);
+        values.set(i, value);
+      }
+    }
+    return values;
+  }
+
+  private List<byte[]> getAllFromDelegate(String name, List<byte[]> keys) {
+    if (this.delegate instanceof MultiKeyRedisCacheWriter multiKeyWriter) {
+      return multiKeyWriter.getAll(name, keys);
+    }
+    List<byte[]> values = new ArrayList<>(keys.size());
+    keys.forEach(key -> values.add(this.delegate.get(name, key)));
+    return values;
+  }
+
+  @Override
+  public void putAll(String name, List<CacheWrite> writes) {
+    if (CacheLockManager.isOptimistic()) {
+      writes.forEach(write -> put(name, write.getKey(), write.getValue(), write.getTtl()));
+    } else if (this.delegate instanceof MultiKeyRedisCacheWriter multiKeyWriter) {
+      multiKeyWriter.putAll(name, writes);
+    } else {
+      writes.forEach(
+          write -> this.delegate.put(name, write.getKey(), write.getValue(), write.getTtl()));
+    }
+  }
+
+  @Override
+  public boolean supportsAsyncRetrieve() {
+    return this.delegate.supportsAsyncRetrieve();
+  }
+
+  @Override
+  public CompletableFuture<byte[]> retrieve(String name, byte[] key, Duration ttl) {
+    if (CacheLockManager.isOptimistic()) {
+      // versions are kept by thread, so they can not be recorded on completion
+      return CompletableFuture.completedFuture(get(name, key, ttl));
+    }
+    return this.delegate.retrieve(name, key, ttl);
+  }
+
+  @Override
+  public void put(String name, byte[] key, byte[] value, Duration ttl) {
+    if (CacheLockManager.isOptimistic()) {
+      String redisKey = toString(key);
+      CacheLockManager.addPendingWrite(redisKey, lockName(name, redisKey), value, ttl);
+      return;
+    }
+    this.delegate.put(name, key, value, ttl);
+  }
+
+  @Override
+  public CompletableFuture<Void> store(String name, byte[] key, byte[] value, Duration ttl) {
+    if (CacheLockManager.isOptimistic()) {
+      put(name, key, value, ttl);
+      return CompletableFuture.completedFuture(null);
+    }
+    return this.delegate.store(name, key, value, ttl);
+  }
+
+  @Override
+  public byte[] putIfAbsent(String name, byte[] key, byte[] value, Duration ttl) {
+    return this.delegate.putIfAbsent(name, key, value, ttl);
+  }
+
+  @Override
+  public void remove(String name, byte[] key) {
+    this.delegate.remove(name, key);
+  }
+
+  @Override
+  public void clean(String name, byte[] pattern) {
+    this.delegate.clean(name, pattern);
+  }
+
+  @Override
+  public void clearStatistics(String name) {
+    this.delegate.clearStatistics(name);
+  }
+
+  @Override
+  public RedisCacheWriter withStatisticsCollector(
+      CacheStatisticsCollector cacheStatisticsCollector) {
+    return new OptimisticRedisCacheWriter(
+        this.delegate.withStatisticsCollector(cacheStatisticsCollector), this.keyPrefix);
+  }
+
+  @Override
+  public CacheStatistics getCacheStatistics(String cacheName) {
+    return this.delegate.getCacheStatistics(cacheName);
+  }
+}
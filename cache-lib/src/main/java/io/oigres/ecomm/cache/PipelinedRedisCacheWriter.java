@@ -0,0 +1,174 @@
+/**********
+ This project is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the
+ Free Software Foundation; either version 3.0 of the License, or (at your
+ option) any later version. (See <https://www.gnu.org/licenses/gpl-3.0.html>.)
+
+ This project is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this project; if not, write to the Free Software Foundation, Inc.,
+ 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301  USA
+ **********/
+// Copyright (c) 2024-2025 Sergio Exposito.  All rights reserved.              
+
+package io.oigres.ecomm.cache;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import org.springframework.data.redis.cache.CacheStatistics;
+import org.springframework.data.redis.cache.CacheStatisticsCollector;
+import org.springframework.data.redis.cache.RedisCacheWriter;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.RedisStringCommands.SetOption;
+import org.springframework.data.redis.core.types.Expiration;
+
+/**
+ * Cache writer which reads many keys with one MGET and writes them with one pipeline of SET
+ * commands, each one with its own time to live. Single key calls go to the delegated writer. On
+ * redis cluster every key of a call must be on the same slot.
+ *
+ * @author sergio.exposito (sjexpos@gmail.com)
+ */
+public class PipelinedRedisCacheWriter implements MultiKeyRedisCacheWriter {
+  private final RedisConnectionFactory connectionFactory;
+  private final RedisCacheWriter delegate;
+  private final CacheStatisticsCollector statistics;
+
+  public PipelinedRedisCacheWriter(
+      RedisConnectionFactory connectionFactory, RedisCacheWriter delegate) {
+    this(connectionFactory, delegate, CacheStatisticsCollector.none());
+  }
+
+  private PipelinedRedisCacheWriter(
+      RedisConnectionFactory connectionFactory,
+      RedisCacheWriter delegate,
+      CacheStatisticsCollector statistics) {
+    this.connectionFactory = connectionFactory;
+    this.delegate = delegate;
+    this.statistics = statistics;
+  }
+
+  @Override
+  public List<byte[]> getAll(String name, List<byte[]> keys) {
+    if (keys.isEmpty()) {
+      return List.of();
+    }
+    List<byte[]> values;
+    try (RedisConnection connection = this.connectionFactory.getConnection()) {
+      values = connection.stringCommands().mGet(keys.toArray(byte[][]::new));
+    }
+    if (values == null) {
+      values = new ArrayList<>(keys.size());
+      for (int i = 0; i < keys.size(); i++) {
+        values.add(null);
+      }
+    }
+    for (byte[] value : values) {
+      this.statistics.incGets(name);
+      if (value != null) {
+        this.statistics.incHits(name);
+      } else {
+        this.statistics.incMisses(name);
+      }
+    }
+    return values;
+  }
+
+  @Override
+  public void putAll(String name, List<CacheWrite> writes) {
+    if (writes.isEmpty()) {
+      return;
+    }
+    try (RedisConnection connection = this.connectionFactory.getConnection()) {
+      connection.openPipeline();
+      try {
+        for (CacheWrite write : writes) {
+          connection
+              .stringCommands()
+              .set(
+                  write.getKey(), write.getValue(), expiration(write.getTtl()), SetOption.upsert());
+        }
+      } finally {
+        connection.closePipeline();
+      }
+    }
+    writes.forEach(write -> this.statistics.incPuts(name));
+  }
+
+  private static Expiration expiration(Duration ttl) {
+    return ttl != null && !ttl.isZero() && !ttl.isNegative()
+        ? Expiration.from(ttl)
+        : Expiration.persistent();
+  }
+
+  @Override
+  public byte[] get(String name, byte[] key) {
+    return this.delegate.get(name, key);
+  }
+
+  @Override
+  public byte[] get(String name, byte[] key, Duration ttl) {
+    return this.delegate.get(name, key, ttl);
+  }
+
+  @Override
+  public boolean supportsAsyncRetrieve() {
+    return this.delegate.supportsAsyncRetrieve();
+  }
+
+  @Override
+  public CompletableFuture<byte[]> retrieve(String name, byte[] key, Duration ttl) {
+    return this.delegate.retrieve(name, key, ttl);
+  }
+
+  @Override
+  public void put(String name, byte[] key, byte[] value, Duration ttl) {
+    this.delegate.put(name, key, value, ttl);
+  }
+
+  @Override
+  public CompletableFuture<Void> store(String name, byte[] key, byte[] value, Duration ttl) {
+    return this.delegate.store(name, key, value, ttl);
+  }
+
+  @Override
+  public byte[] putIfAbsent(String name, byte[] key, byte[] value, Duration ttl) {
+    return this.delegate.putIfAbsent(name, key, value, ttl);
+  }
+
+  @Override
+  public void remove(String name, byte[] key) {
+    this.delegate.remove(name, key);
+  }
+
+  @Override
+  public void clean(String name, byte[] pattern) {
+    this.delegate.clean(name, pattern);
+  }
+
+  @Override
+  public void clearStatistics(String name) {
+    this.delegate.clearStatistics(name);
+  }
+
+  @Override
+  public RedisCacheWriter withStatisticsCollector(
+      CacheStatisticsCollector cacheStatisticsCollector) {
+    return new PipelinedRedisCacheWriter(
+        this.connectionFactory,
+        this.delegate.withStatisticsCollector(cacheStatisticsCollector),
+        cacheStatisticsCollector);
+  }
+
+  @Override
+  public CacheStatistics getCacheStatistics(String cacheName) {
+    return this.delegate.getCacheStatistics(cacheName);
+  }
+}
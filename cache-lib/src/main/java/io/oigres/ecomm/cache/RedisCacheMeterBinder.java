@@ -0,0 +1,175 @@
+/**********
+ This project is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the
+ Free Software Foundation; either version 3.0 of the License, or (at your
+ option) any later version. (See <https://www.gnu.org/licenses/gpl-3.0.html>.)
+
+ This project is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this project; if not, write to the Free Software Foundation, Inc.,
+ 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301  USA
+ **********/
+// Copyright (c) 2024-2025 Sergio Exposito.  All rights reserved.              
+
+package io.oigres.ecomm.cache;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleFunction;
+import lombok.Builder;
+import lombok.Value;
+import org.springframework.data.redis.cache.CacheStatistics;
+import org.springframework.data.redis.cache.RedisCacheWriter;
+
+/**
+ * Publishes the statistics which a redis cache writer collects for each cache as Micrometer
+ * counters, tagged with the cache name:
+ *
+ * <ul>
+ *   <li>cache.gets - reads, tagged with result hit or miss
+ *   <li>cache.puts - writes
+ *   <li>cache.removals - deletes
+ * </ul>
+ *
+ * Together with cache lock and serialization meters of the same caches, they are summarized by
+ * {@link #statistics()}. The writer must have been created with a statistics collector.
+ *
+ * @author sergio.exposito (sjexpos@gmail.com)
+ */
+public class RedisCacheMeterBinder implements MeterBinder {
+  private final RedisCacheWriter cacheWriter;
+  private final List<String> cacheNames;
+  private volatile MeterRegistry registry;
+
+  /** Summary of the meters of a cache, where times are in milliseconds. */
+  @Value
+  @Builder
+  public static class CacheMetrics {
+    String cache;
+    long hits;
+    long misses;
+    long puts;
+    long deletes;
+    long lockWaits;
+    double lockWaitTime;
+    long lockTimeouts;
+    long serializations;
+    double serializedBytes;
+    double serializationTime;
+    long deserializations;
+    double deserializedBytes;
+    double deserializationTime;
+  }
+
+  public RedisCacheMeterBinder(RedisCacheWriter cacheWriter, Collection<String> cacheNames) {
+    this.cacheWriter = cacheWriter;
+    this.cacheNames = List.copyOf(cacheNames);
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    for (String cacheName : this.cacheNames) {
+      counter("cache.gets", cacheName, CacheStatistics::getHits)
+          .tag("result", "hit")
+          .description("Cache reads which found a value")
+          .register(registry);
+      counter("cache.gets", cacheName, CacheStatistics::getMisses)
+          .tag("result", "miss")
+          .description("Cache reads which did not find a value")
+          .register(registry);
+      counter("cache.puts", cacheName, CacheStatistics::getPuts)
+          .description("Cache writes")
+          .register(registry);
+      counter("cache.removals", cacheName, CacheStatistics::getDeletes)
+          .description("Cache deletes")
+          .register(registry);
+    }
+    this.registry = registry;
+  }
+
+  private FunctionCounter.Builder<RedisCacheWriter> counter(
+      String name, String cacheName, ToDoubleFunction<CacheStatistics> statistic) {
+    return FunctionCounter.builder(
+            name,
+            this.cacheWriter,
+            writer -> statistic.applyAsDouble(writer.getCacheStatistics(cacheName)))
+        .tag("cache", cacheName);
+  }
+
+  /** Return the summary of the meters of every cache. */
+  public List<CacheMetrics> statistics() {
+    List<CacheMetrics> statistics = new ArrayList<>();
+    for (String cacheName : this.cacheNames) {
+      CacheStatistics cacheStatistics = this.cacheWriter.getCacheStatistics(cacheName);
+      CacheMetrics.CacheMetricsBuilder metrics =
+          CacheMetrics.builder()
+              .cache(cacheName)
+              .hits(cacheStatistics.getHits())
+              .misses(cacheStatistics.getMisses())
+              .puts(cacheStatistics.getPuts())
+              .deletes(cacheStatistics.getDeletes());
+      MeterRegistry meters = this.registry;
+      if (meters != null) {
+        Timer acquired = waitTimer(meters, cacheName, "acquired");
+        Timer timeout = waitTimer(meters, cacheName, "timeout");
+        Timer serialize = serializationTimer(meters, cacheName, "serialize");
+        Timer deserialize = serializationTimer(meters, cacheName, "deserialize");
+        DistributionSummary serialized = serializedBytes(meters, cacheName, "serialize");
+        DistributionSummary deserialized = serializedBytes(meters, cacheName, "deserialize");
+        metrics
+            .lockWaits(count(acquired) + count(timeout))
+            .lockWaitTime(totalTime(acquired) + totalTime(timeout))
+            .lockTimeouts(count(timeout))
+            .serializations(count(serialize))
+            .serializationTime(totalTime(serialize))
+            .serializedBytes(serialized != null ? serialized.totalAmount() : 0)
+            .deserializations(count(deserialize))
+            .deserializationTime(totalTime(deserialize))
+            .deserializedBytes(deserialized != null ? deserialized.totalAmount() : 0);
+      }
+      statistics.add(metrics.build());
+    }
+    return statistics;
+  }
+
+  private static Timer waitTimer(MeterRegistry registry, String cacheName, String outcome) {
+    return registry.find("cache.lock.wait").tag("cache", cacheName).tag("outcome", outcome).timer();
+  }
+
+  private static Timer serializationTimer(
+      MeterRegistry registry, String cacheName, String operation) {
+    return registry
+        .find("cache.serialization")
+        .tag("cache", cacheName)
+        .tag("operation", operation)
+        .timer();
+  }
+
+  private static DistributionSummary serializedBytes(
+      MeterRegistry registry, String cacheName, String operation) {
+    return registry
+        .find("cache.serialized.bytes")
+        .tag("cache", cacheName)
+        .tag("operation", operation)
+        .summary();
+  }
+
+  private static long count(Timer timer) {
+    return timer != null ? timer.count() : 0;
+  }
+
+  private static double totalTime(Timer timer) {
+    return timer != null ? timer.totalTime(TimeUnit.MILLISECONDS) : 0;
+  }
+}
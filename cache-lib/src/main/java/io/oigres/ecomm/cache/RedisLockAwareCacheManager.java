@@ -18,13 +18,29 @@
 package io.oigres.ecomm.cache;
 
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import org.springframework.cache.Cache;
+import org.springframework.data.redis.cache.RedisCache;
 import org.springframework.data.redis.cache.RedisCacheConfiguration;
 import org.springframework.data.redis.cache.RedisCacheManager;
 import org.springframework.data.redis.cache.RedisCacheWriter;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
 
+/**
+ * Redis cache manager whose caches take the cache locks of the keys they touch, and read and
+ * write many keys at once when the cache writer supports it. Caches with near
+ * cache settings keep a copy of their values in memory too, which is invalidated on every node
+ * when a key changes. Near caches fit caches which are read much more than they are written, since
+ * reads of other nodes may see a stale value until the invalidation arrives.
+ *
+ * @author sergio.exposito (sjexpos@gmail.com)
+ */
 public class RedisLockAwareCacheManager extends RedisCacheManager {
   private CacheLockFactory cacheLockFactory;
+  private Map<String, NearCacheSettings> nearCacheSettings;
+  private NearCacheInvalidator nearCacheInvalidator;
+  private final Map<String, NearCacheDecorator> nearCaches = new ConcurrentHashMap<>();
 
   public RedisLockAwareCacheManager(
       RedisCacheWriter cacheWriter,
@@ -32,16 +48,77 @@ public class RedisLockAwareCacheManager extends RedisCacheManager {
       boolean allowRuntimeCacheCreation,
       Map<String, RedisCacheConfiguration> initialCacheConfigurations,
       CacheLockFactory cacheLockFactory) {
+    this(
+        cacheWriter,
+        defaultCacheConfiguration,
+        allowRuntimeCacheCreation,
+        initialCacheConfigurations,
+        cacheLockFactory,
+        Map.of(),
+        null);
+  }
+
+  /**
+   * @param nearCacheSettings near cache settings of the caches which are kept in memory
+   * @param nearCacheInvalidator invalidator of near caches, needed when there are near caches
+   */
+  public RedisLockAwareCacheManager(
+      RedisCacheWriter cacheWriter,
+      RedisCacheConfiguration defaultCacheConfiguration,
+      boolean allowRuntimeCacheCreation,
+      Map<String, RedisCacheConfiguration> initialCacheConfigurations,
+      CacheLockFactory cacheLockFactory,
+      Map<String, NearCacheSettings> nearCacheSettings,
+      NearCacheInvalidator nearCacheInvalidator) {
     super(
         cacheWriter,
         defaultCacheConfiguration,
         allowRuntimeCacheCreation,
         initialCacheConfigurations);
     this.cacheLockFactory = cacheLockFactory;
+    this.nearCacheSettings = Map.copyOf(nearCacheSettings);
+    this.nearCacheInvalidator = nearCacheInvalidator;
+  }
+
+  @Override
+  public void afterPropertiesSet() {
+    if (!this.nearCacheSettings.isEmpty()) {
+      Assert.state(this.nearCacheInvalidator != null, "Near caches need a near cache invalidator");
+      this.nearCacheInvalidator.subscribe(this::evictNear);
+    }
+    super.afterPropertiesSet();
+  }
+
+  /** Evict keys which were changed on another node from the near caches. */
+  private void evictNear(String cacheName, String key) {
+    if (cacheName == null) {
+      this.nearCaches.values().forEach(nearCache -> nearCache.evictLocal(null));
+      return;
+    }
+    NearCacheDecorator nearCache = this.nearCaches.get(cacheName);
+    if (nearCache != null) {
+      nearCache.evictLocal(key);
+    }
+  }
+
+  @Override
+  protected RedisCache createRedisCache(
+      String name, @Nullable RedisCacheConfiguration cacheConfiguration) {
+    return new MultiKeyRedisCache(
+        name,
+        getCacheWriter(),
+        cacheConfiguration != null ? cacheConfiguration : getDefaultCacheConfiguration());
   }
 
   @Override
   protected Cache decorateCache(Cache cache) {
+    NearCacheSettings settings = this.nearCacheSettings.get(cache.getName());
+    if (settings != null) {
+      NearCacheDecorator nearCache =
+          new NearCacheDecorator(cache, settings, this.nearCacheInvalidator);
+      this.nearCaches.put(cache.getName(), nearCache);
+      cache = nearCache;
+    }
     return new LockAwareCacheDecorator(this.cacheLockFactory, cache);
   }
 }
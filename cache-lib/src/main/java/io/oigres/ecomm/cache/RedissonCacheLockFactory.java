@@ -17,18 +17,103 @@
 
 package io.oigres.ecomm.cache;
 
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Lock;
+import org.redisson.api.RLock;
 import org.redisson.api.RedissonClient;
 
+/**
+ * Lock factory of redisson locks. With read-write locks, exclusive locks are the write locks of a
+ * redisson read-write lock and shared locks are its read locks, otherwise every lock is an
+ * exclusive redisson lock. Both kinds use the same redis key, so every node which locks the same
+ * keys must use the same kind.
+ *
+ * @author sergio.exposito (sjexpos@gmail.com)
+ */
 public class RedissonCacheLockFactory implements CacheLockFactory {
   private RedissonClient redissonClient;
+  private boolean readWrite;
 
   public RedissonCacheLockFactory(RedissonClient redissonClient) {
+    this(redissonClient, false);
+  }
+
+  public RedissonCacheLockFactory(RedissonClient redissonClient, boolean readWrite) {
     this.redissonClient = redissonClient;
+    this.readWrite = readWrite;
+  }
+
+  private RLock exclusive(String name) {
+    return readWrite
+        ? redissonClient.getReadWriteLock(name).writeLock()
+        : redissonClient.getLock(name);
+  }
+
+  private RLock shared(String name) {
+    return readWrite
+        ? redissonClient.getReadWriteLock(name).readLock()
+        : redissonClient.getLock(name);
   }
 
   @Override
   public Lock create(String name) {
-    return redissonClient.getLock(name);
+    return exclusive(name);
+  }
+
+  @Override
+  public Lock create(List<String> names) {
+    return redissonClient.getMultiLock(names.stream().map(this::exclusive).toArray(RLock[]::new));
+  }
+
+  @Override
+  public Lock createShared(String name) {
+    return shared(name);
+  }
+
+  @Override
+  public Lock createShared(List<String> names) {
+    return redissonClient.getMultiLock(names.stream().map(this::shared).toArray(RLock[]::new));
+  }
+
+  @Override
+  public boolean tryLock(Lock lock, Duration waitTimeout, Duration leaseTime)
+      throws InterruptedException {
+    if (leaseTime == null || !(lock instanceof RLock rlock)) {
+      return CacheLockFactory.super.tryLock(lock, waitTimeout, leaseTime);
+    }
+    if (waitTimeout == null) {
+      rlock.lock(leaseTime.toMillis(), TimeUnit.MILLISECONDS);
+      return true;
+    }
+    return rlock.tryLock(waitTimeout.toMillis(), leaseTime.toMillis(), TimeUnit.MILLISECONDS);
+  }
+
+  @Override
+  public CompletableFuture<Boolean> tryLockAsync(
+      Lock lock, Duration waitTimeout, Duration leaseTime, long ownerId) {
+    if (!(lock instanceof RLock rlock)) {
+      return CacheLockFactory.super.tryLockAsync(lock, waitTimeout, leaseTime, ownerId);
+    }
+    long leaseMillis = leaseTime != null ? leaseTime.toMillis() : -1;
+    if (waitTimeout == null) {
+      return rlock
+          .lockAsync(leaseMillis, TimeUnit.MILLISECONDS, ownerId)
+          .toCompletableFuture()
+          .thenApply(locked -> true);
+    }
+    return rlock
+        .tryLockAsync(waitTimeout.toMillis(), leaseMillis, TimeUnit.MILLISECONDS, ownerId)
+        .toCompletableFuture();
+  }
+
+  @Override
+  public CompletableFuture<Void> unlockAsync(Lock lock, long ownerId) {
+    if (!(lock instanceof RLock rlock)) {
+      return CacheLockFactory.super.unlockAsync(lock, ownerId);
+    }
+    return rlock.unlockAsync(ownerId).toCompletableFuture();
   }
 }
@@ -0,0 +1,116 @@
+/**********
+ This project is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the
+ Free Software Foundation; either version 3.0 of the License, or (at your
+ option) any later version. (See <https://www.gnu.org/licenses/gpl-3.0.html>.)
+
+ This project is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this project; if not, write to the Free Software Foundation, Inc.,
+ 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301  USA
+ **********/
+// Copyright (c) 2024-2025 Sergio Exposito.  All rights reserved.              
+
+package io.oigres.ecomm.cache;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import org.redisson.api.RScript;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.RedisException;
+import org.redisson.client.codec.ByteArrayCodec;
+
+/**
+ * Version store which checks and writes every value with one lua script. Values are rejected when
+ * the redisson lock of their key is taken, so optimistic writers never overwrite a value which is
+ * being changed under a lock. On redis cluster every key of a call must be on the same slot.
+ *
+ * @author sergio.exposito (sjexpos@gmail.com)
+ */
+public class RedissonCacheVersionStore implements CacheVersionStore {
+  private static final String UNCHECKED = "-";
+  // KEYS: value keys followed by their lock keys
+  // ARGV: number of values, then expected version, value and ttl in millis of each value
+  private static final String SCRIPT =
+      """
+      local n = tonumber(ARGV[1])
+      for i = 1, n do
+        if redis.call('EXISTS', KEYS[n + i]) == 1 then
+          return 0
+        end
+        local expected = ARGV[2 + (i - 1) * 3]
+        if expected ~= '-' then
+          local current = redis.call('GET', KEYS[i])
+          if current then
+            if redis.sha1hex(current) ~= expected then
+              return 0
+            end
+          elseif expected ~= '' then
+            return 0
+          end
+        end
+      end
+      for i = 1, n do
+        local base = 2 + (i - 1) * 3
+        local ttl = tonumber(ARGV[base + 2])
+        if ttl > 0 then
+          redis.call('SET', KEYS[i], ARGV[base + 1], 'PX', ttl)
+        else
+          redis.call('SET', KEYS[i], ARGV[base + 1])
+        end
+      end
+      return 1
+      """;
+
+  private final RScript script;
+  private final String sha;
+
+  public RedissonCacheVersionStore(RedissonClient redissonClient) {
+    this.script = redissonClient.getScript(ByteArrayCodec.INSTANCE);
+    this.sha = VersionedWrite.versionOf(SCRIPT.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static byte[] bytes(Object value) {
+    return String.valueOf(value).getBytes(StandardCharsets.UTF_8);
+  }
+
+  @Override
+  public boolean compareAndSet(Collection<VersionedWrite> writes) {
+    if (writes.isEmpty()) {
+      return true;
+    }
+    List<Object> keys = new ArrayList<>(writes.size() * 2);
+    writes.forEach(write -> keys.add(write.getKey()));
+    writes.forEach(write -> keys.add(write.getLockName()));
+    List<Object> args = new ArrayList<>(writes.size() * 3 + 1);
+    args.add(bytes(writes.size()));
+    for (VersionedWrite write : writes) {
+      args.add(bytes(write.getExpectedVersion() != null ? write.getExpectedVersion() : UNCHECKED));
+      args.add(write.getValue());
+      long ttl =
+          write.getTtl() != null && write.getTtl().isPositive() ? write.getTtl().toMillis() : 0;
+      args.add(bytes(ttl));
+    }
+    Object[] values = args.toArray();
+    Long result;
+    try {
+      result =
+          this.script.evalSha(
+              RScript.Mode.READ_WRITE, this.sha, RScript.ReturnType.INTEGER, keys, values);
+    } catch (RedisException e) {
+      if (e.getMessage() == null || !e.getMessage().startsWith("NOSCRIPT")) {
+        throw e;
+      }
+      result =
+          this.script.eval(
+              RScript.Mode.READ_WRITE, SCRIPT, RScript.ReturnType.INTEGER, keys, values);
+    }
+    return result != null && result == 1;
+  }
+}
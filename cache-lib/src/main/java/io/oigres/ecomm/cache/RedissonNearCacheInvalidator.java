@@ -0,0 +1,76 @@
+/**********
+ This project is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the
+ Free Software Foundation; either version 3.0 of the License, or (at your
+ option) any later version. (See <https://www.gnu.org/licenses/gpl-3.0.html>.)
+
+ This project is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this project; if not, write to the Free Software Foundation, Inc.,
+ 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301  USA
+ **********/
+// Copyright (c) 2024-2025 Sergio Exposito.  All rights reserved.              
+
+package io.oigres.ecomm.cache;
+
+import java.util.UUID;
+import java.util.function.BiConsumer;
+import org.redisson.api.RTopic;
+import org.redisson.api.RedissonClient;
+import org.redisson.api.listener.BaseStatusListener;
+import org.redisson.client.codec.StringCodec;
+
+/**
+ * Near cache invalidator which publishes changed keys on a redis pub/sub topic. Messages which
+ * were published by this node are skipped, and every near cache is cleared when the topic is
+ * subscribed again after a disconnection, since messages may have been lost meanwhile.
+ *
+ * @author sergio.exposito (sjexpos@gmail.com)
+ */
+public class RedissonNearCacheInvalidator implements NearCacheInvalidator {
+  public static final String DEFAULT_TOPIC = "near-cache-invalidation";
+  private static final String CLEAR = "C";
+  private static final String EVICT = "E";
+
+  private final RTopic topic;
+  private final String nodeId = UUID.randomUUID().toString();
+
+  public RedissonNearCacheInvalidator(RedissonClient redissonClient) {
+    this(redissonClient, DEFAULT_TOPIC);
+  }
+
+  public RedissonNearCacheInvalidator(RedissonClient redissonClient, String topicName) {
+    this.topic = redissonClient.getTopic(topicName, StringCodec.INSTANCE);
+  }
+
+  @Override
+  public void invalidate(String cacheName, String key) {
+    // node id, operation and cache name are one line each, and the key is the rest
+    this.topic.publishAsync(
+        String.join(
+            "\n", this.nodeId, key != null ? EVICT : CLEAR, cacheName, key != null ? key : ""));
+  }
+
+  @Override
+  public void subscribe(BiConsumer<String, String> listener) {
+    this.topic.addListener(
+        String.class,
+        (channel, message) -> {
+          String[] fields = message.split("\n", 4);
+          if (fields.length == 4 && !this.nodeId.equals(fields[0])) {
+            listener.accept(fields[2], EVICT.equals(fields[1]) ? fields[3] : null);
+          }
+        });
+    this.topic.addListener(
+        new BaseStatusListener() {
+          @Override
+          public void onSubscribe(String channel) {
+            listener.accept(null, null);
+          }
+        });
+  }
+}
@@ -0,0 +1,52 @@
+/**********
+ This project is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the
+ Free Software Foundation; either version 3.0 of the License, or (at your
+ option) any later version. (See <https://www.gnu.org/licenses/gpl-3.0.html>.)
+
+ This project is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this project; if not, write to the Free Software Foundation, Inc.,
+ 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301  USA
+ **********/
+// Copyright (c) 2024-2025 Sergio Exposito.  All rights reserved.              
+
+package io.oigres.ecomm.cache;
+
+import java.io.IOException;
+import java.util.Arrays;
+import org.xerial.snappy.Snappy;
+
+/**
+ * Compresses values using snappy. It needs snappy-java on the classpath.
+ *
+ * @author sergio.exposito (sjexpos@gmail.com)
+ */
+public class SnappyCompressionCodec implements CompressionCodec {
+
+  @Override
+  public byte[] compress(byte[] data, int offset, int length) throws IOException {
+    byte[] result = new byte[Snappy.maxCompressedLength(length)];
+    int n = Snappy.compress(data, offset, length, result, 0);
+    return Arrays.copyOf(result, n);
+  }
+
+  @Override
+  public byte[] decompress(byte[] data, int offset, int length, int size) throws IOException {
+    // the output array is not bounds checked, so the stored size must match
+    int n = Snappy.uncompressedLength(data, offset, length);
+    if (n != size) {
+      throw new IOException("Snappy data holds " + n + " bytes instead of " + size);
+    }
+    byte[] result = new byte[size];
+    n = Snappy.uncompress(data, offset, length, result, 0);
+    if (n != size) {
+      throw new IOException("Snappy data was decompressed to " + n + " bytes instead of " + size);
+    }
+    return result;
+  }
+}
@@ -0,0 +1,57 @@
+/**********
+ This project is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the
+ Free Software Foundation; either version 3.0 of the License, or (at your
+ option) any later version. (See <https://www.gnu.org/licenses/gpl-3.0.html>.)
+
+ This project is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this project; if not, write to the Free Software Foundation, Inc.,
+ 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301  USA
+ **********/
+// Copyright (c) 2024-2025 Sergio Exposito.  All rights reserved.              
+
+package io.oigres.ecomm.cache;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * Cache write which is kept until an optimistic @CacheLock method returns. The version of a value
+ * is the sha1 of its bytes, so values do not need to change their format to carry it.
+ *
+ * @author sergio.exposito (sjexpos@gmail.com)
+ */
+@Value
+@Builder(toBuilder = true)
+public class VersionedWrite {
+  /** version of keys which did not exist when they were read */
+  public static final String ABSENT = "";
+
+  String key;
+  String lockName;
+  byte[] value;
+  Duration ttl;
+
+  /** version which was read, or null when the key was not read before writing it */
+  String expectedVersion;
+
+  public static String versionOf(byte[] value) {
+    if (value == null) {
+      return ABSENT;
+    }
+    try {
+      return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-1").digest(value));
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
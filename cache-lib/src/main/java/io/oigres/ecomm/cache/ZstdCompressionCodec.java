@@ -0,0 +1,65 @@
+/**********
+ This project is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the
+ Free Software Foundation; either version 3.0 of the License, or (at your
+ option) any later version. (See <https://www.gnu.org/licenses/gpl-3.0.html>.)
+
+ This project is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this project; if not, write to the Free Software Foundation, Inc.,
+ 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301  USA
+ **********/
+// Copyright (c) 2024-2025 Sergio Exposito.  All rights reserved.              
+
+package io.oigres.ecomm.cache;
+
+import com.github.luben.zstd.Zstd;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Compresses values using zstandard, which compresses better than lz4 at a higher cost. It needs
+ * zstd-jni on the classpath.
+ *
+ * @author sergio.exposito (sjexpos@gmail.com)
+ */
+public class ZstdCompressionCodec implements CompressionCodec {
+  public static final int DEFAULT_LEVEL = 3;
+
+  private final int level;
+
+  public ZstdCompressionCodec() {
+    this(DEFAULT_LEVEL);
+  }
+
+  public ZstdCompressionCodec(int level) {
+    this.level = level;
+  }
+
+  @Override
+  public byte[] compress(byte[] data, int offset, int length) throws IOException {
+    byte[] result = new byte[(int) Zstd.compressBound(length)];
+    long n = Zstd.compressByteArray(result, 0, result.length, data, offset, length, this.level);
+    if (Zstd.isError(n)) {
+      throw new IOException("Zstd error: " + Zstd.getErrorName(n));
+    }
+    return Arrays.copyOf(result, (int) n);
+  }
+
+  @Override
+  public byte[] decompress(byte[] data, int offset, int length, int size) throws IOException {
+    byte[] result = new byte[size];
+    long n = Zstd.decompressByteArray(result, 0, size, data, offset, length);
+    if (Zstd.isError(n)) {
+      throw new IOException("Zstd error: " + Zstd.getErrorName(n));
+    }
+    if (n != size) {
+      throw new IOException("Zstd data was decompressed to " + n + " bytes instead of " + size);
+    }
+    return result;
+  }
+}
@@ -0,0 +1,114 @@
+/**********
+ This project is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the
+ Free Software Foundation; either version 3.0 of the License, or (at your
+ option) any later version. (See <https://www.gnu.org/licenses/gpl-3.0.html>.)
+
+ This project is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this project; if not, write to the Free Software Foundation, Inc.,
+ 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301  USA
+ **********/
+// Copyright (c) 2024-2025 Sergio Exposito.  All rights reserved.              
+
+package io.oigres.ecomm.cache;
+
+import com.github.luben.zstd.Zstd;
+import com.github.luben.zstd.ZstdDictCompress;
+import com.github.luben.zstd.ZstdDictDecompress;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compresses values using zstandard with a trained dictionary, which holds the strings that
+ * values share, so small values are compressed much better than without it. Compressed values
+ * start with the id of their dictionary. Values are written with the first dictionary and read
+ * with any of them, so a new dictionary can be rolled out while values of the previous one
+ * expire. It needs zstd-jni on the classpath.
+ *
+ * @author sergio.exposito (sjexpos@gmail.com)
+ * @see ZstdDictionaryTrainer
+ */
+public final class ZstdDictionaryCompressionCodec implements CompressionCodec {
+  private static final int ID_SIZE = 4;
+
+  private final int dictionaryId;
+  private final ZstdDictCompress compressDictionary;
+  private final Map<Integer, ZstdDictDecompress> decompressDictionaries = new HashMap<>();
+
+  public ZstdDictionaryCompressionCodec(List<byte[]> dictionaries) {
+    this(dictionaries, ZstdCompressionCodec.DEFAULT_LEVEL);
+  }
+
+  /**
+   * @param dictionaries trained dictionaries, the first one is used to compress
+   * @param level compression level
+   */
+  public ZstdDictionaryCompressionCodec(List<byte[]> dictionaries, int level) {
+    if (dictionaries.isEmpty()) {
+      throw new IllegalArgumentException("At least one zstd dictionary is needed");
+    }
+    for (byte[] dictionary : dictionaries) {
+      this.decompressDictionaries.putIfAbsent(
+          dictionaryId(dictionary), new ZstdDictDecompress(dictionary));
+    }
+    this.dictionaryId = dictionaryId(dictionaries.getFirst());
+    this.compressDictionary = new ZstdDictCompress(dictionaries.getFirst(), level);
+  }
+
+  /** Id of a trained dictionary, which is written on its header. */
+  public static int dictionaryId(byte[] dictionary) {
+    int id = (int) Zstd.getDictIdFromDict(dictionary);
+    if (id == 0) {
+      throw new IllegalArgumentException("Zstd dictionary has no id");
+    }
+    return id;
+  }
+
+  @Override
+  public byte[] compress(byte[] data, int offset, int length) throws IOException {
+    byte[] result = new byte[ID_SIZE + (int) Zstd.compressBound(length)];
+    result[0] = (byte) (this.dictionaryId >>> 24);
+    result[1] = (byte) (this.dictionaryId >>> 16);
+    result[2] = (byte) (this.dictionaryId >>> 8);
+    result[3] = (byte) this.dictionaryId;
+    long n = Zstd.compressFastDict(result, ID_SIZE, data, offset, length, this.compressDictionary);
+    if (Zstd.isError(n)) {
+      throw new IOException("Zstd error: " + Zstd.getErrorName(n));
+    }
+    return Arrays.copyOf(result, ID_SIZE + (int) n);
+  }
+
+  @Override
+  public byte[] decompress(byte[] data, int offset, int length, int size) throws IOException {
+    if (length < ID_SIZE) {
+      throw new IOException("Zstd dictionary data is truncated");
+    }
+    int id =
+        (data[offset] & 0xFF) << 24
+            | (data[offset + 1] & 0xFF) << 16
+            | (data[offset + 2] & 0xFF) << 8
+            | data[offset + 3] & 0xFF;
+    ZstdDictDecompress dictionary = this.decompressDictionaries.get(id);
+    if (dictionary == null) {
+      throw new IOException("Zstd dictionary " + Integer.toUnsignedString(id) + " is unknown");
+    }
+    byte[] result = new byte[size];
+    long n =
+        Zstd.decompressFastDict(result, 0, data, offset + ID_SIZE, length - ID_SIZE, dictionary);
+    if (Zstd.isError(n)) {
+      throw new IOException("Zstd error: " + Zstd.getErrorName(n));
+    }
+    if (n != size) {
+      throw new IOException("Zstd data was decompressed to " + n + " bytes instead of " + size);
+    }
+    return result;
+  }
+}
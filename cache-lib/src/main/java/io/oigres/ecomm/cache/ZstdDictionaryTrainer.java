@@ -0,0 +1,67 @@
+/**********
+ This project is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the
+ Free Software Foundation; either version 3.0 of the License, or (at your
+ option) any later version. (See <https://www.gnu.org/licenses/gpl-3.0.html>.)
+
+ This project is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this project; if not, write to the Free Software Foundation, Inc.,
+ 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301  USA
+ **********/
+// Copyright (c) 2024-2025 Sergio Exposito.  All rights reserved.              
+
+package io.oigres.ecomm.cache;
+
+import com.github.luben.zstd.ZstdDictTrainer;
+import com.github.luben.zstd.ZstdException;
+
+/**
+ * Trains a zstd dictionary from sample values, which should be serialized values of the cache as
+ * they are given to the codec, taken from real traffic. Zstd needs many samples, usually a
+ * hundred times the size of the dictionary, to find the strings which values share.
+ *
+ * @author sergio.exposito (sjexpos@gmail.com)
+ * @see ZstdDictionaryCompressionCodec
+ */
+public class ZstdDictionaryTrainer {
+  public static final int DEFAULT_DICTIONARY_SIZE = 16 * 1024;
+
+  private final ZstdDictTrainer trainer;
+  private int samples;
+
+  /**
+   * @param samplesSize maximum total size in bytes of the samples
+   * @param dictionarySize maximum size in bytes of the dictionary
+   */
+  public ZstdDictionaryTrainer(int samplesSize, int dictionarySize) {
+    this.trainer = new ZstdDictTrainer(samplesSize, dictionarySize);
+  }
+
+  /** Add a sample, and return false when the samples are full. */
+  public synchronized boolean addSample(byte[] sample) {
+    if (!this.trainer.addSample(sample)) {
+      return false;
+    }
+    this.samples++;
+    return true;
+  }
+
+  public synchronized int getSamples() {
+    return this.samples;
+  }
+
+  /** Train the dictionary, which fails when there are not enough samples. */
+  public synchronized byte[] train() {
+    try {
+      return this.trainer.trainSamples();
+    } catch (ZstdException e) {
+      throw new IllegalStateException(
+          "Zstd dictionary could not be trained from " + this.samples + " samples", e);
+    }
+  }
+}
@@ -18,8 +18,56 @@
 package io.oigres.ecomm.cache.annotations;
 
 import java.lang.annotation.*;
+import java.util.concurrent.TimeUnit;
 
 @Target(ElementType.METHOD)
 @Retention(RetentionPolicy.RUNTIME)
 @Documented
-public @interface CacheLock {}
+public @interface CacheLock {
+
+  LockMode mode() default LockMode.DEFAULT;
+
+  /**
+   * SpEL expressions on the method parameters which resolve the cache keys to lock before the
+   * method runs. An expression can resolve a single key or a collection of keys, and keys which
+   * are null or blank are not locked. Declared keys are locked together in sorted order, and keys
+   * which are not declared are still locked when they are accessed.
+   */
+  String[] keys() default {};
+
+  /**
+   * Cache name which tags lock metrics of the declared keys, or empty to tag them with the method
+   * signature.
+   */
+  String cacheName() default "";
+
+  /**
+   * How long to wait for each key lock, zero to try once, or negative to use the wait timeout
+   * configured on the cache lock aspect.
+   */
+  long waitTimeout() default -1;
+
+  /**
+   * How long key locks are held before they are released by the cache provider, or negative to
+   * use the lease time configured on the cache lock aspect.
+   */
+  long leaseTime() default -1;
+
+  TimeUnit timeUnit() default TimeUnit.MILLISECONDS;
+
+  /**
+   * Whether the method only reads the cache, so keys are locked with shared locks which are held
+   * together by other read only methods and exclude writers. Writing a key throws
+   * IllegalStateException. Without shared locks in the cache lock factory, keys are locked
+   * exclusively.
+   */
+  boolean readOnly() default false;
+
+  LockTimeoutPolicy onTimeout() default LockTimeoutPolicy.DEFAULT;
+
+  /**
+   * Name of the method which is called on FALLBACK policy. It must be declared on the same class
+   * and take the same parameters, and it runs without any lock.
+   */
+  String fallback() default "";
+}
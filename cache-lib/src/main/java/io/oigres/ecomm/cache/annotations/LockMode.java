@@ -0,0 +1,35 @@
+/**********
+ This project is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the
+ Free Software Foundation; either version 3.0 of the License, or (at your
+ option) any later version. (See <https://www.gnu.org/licenses/gpl-3.0.html>.)
+
+ This project is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this project; if not, write to the Free Software Foundation, Inc.,
+ 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301  USA
+ **********/
+// Copyright (c) 2024-2025 Sergio Exposito.  All rights reserved.              
+
+package io.oigres.ecomm.cache.annotations;
+
+/**
+ * How the cache keys which are touched by a @CacheLock method are protected.
+ *
+ * @author sergio.exposito (sjexpos@gmail.com)
+ */
+public enum LockMode {
+  /** mode configured on the cache lock aspect */
+  DEFAULT,
+  /** every key is locked when it is accessed, until the method returns */
+  PESSIMISTIC,
+  /**
+   * no lock is taken, writes are kept until the method returns and then compared and set against
+   * the values which were read, retrying the method on conflicts
+   */
+  OPTIMISTIC
+}
@@ -0,0 +1,210 @@
+/**********
+ This project is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the
+ Free Software Foundation; either version 3.0 of the License, or (at your
+ option) any later version. (See <https://www.gnu.org/licenses/gpl-3.0.html>.)
+
+ This project is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this project; if not, write to the Free Software Foundation, Inc.,
+ 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301  USA
+ **********/
+// Copyright (c) 2024-2025 Sergio Exposito.  All rights reserved.              
+
+package io.oigres.ecomm.cache;
+
+import io.oigres.ecomm.cache.annotations.CacheLock;
+import io.oigres.ecomm.cache.annotations.LockMode;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+
+public class AsyncCacheLockTests {
+
+  /** Lock factory whose locks are owned by owner ids, so they are released from any thread. */
+  private static class OwnedCacheLockFactory implements CacheLockFactory {
+    private final Map<String, Semaphore> permits = new ConcurrentHashMap<>();
+    private final List<String> acquired = new CopyOnWriteArrayList<>();
+    private final List<String> released = new CopyOnWriteArrayList<>();
+
+    @Override
+    public Lock create(String name) {
+      return new OwnedLock(name);
+    }
+
+    Semaphore permitsOf(String name) {
+      return this.permits.computeIfAbsent(name, key -> new Semaphore(1));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> tryLockAsync(
+        Lock lock, Duration waitTimeout, Duration leaseTime, long ownerId) {
+      String name = ((OwnedLock) lock).name;
+      return CompletableFuture.supplyAsync(
+          () -> {
+            try {
+              long wait = waitTimeout != null ? waitTimeout.toMillis() : Long.MAX_VALUE;
+              boolean locked = permitsOf(name).tryAcquire(wait, TimeUnit.MILLISECONDS);
+              if (locked) {
+                this.acquired.add(name + "@" + ownerId);
+              }
+              return locked;
+            } catch (InterruptedException e) {
+              Thread.currentThread().interrupt();
+              throw new IllegalStateException(e);
+            }
+          });
+    }
+
+    @Override
+    public CompletableFuture<Void> unlockAsync(Lock lock, long ownerId) {
+      String name = ((OwnedLock) lock).name;
+      this.released.add(name + "@" + ownerId);
+      permitsOf(name).release();
+      return CompletableFuture.completedFuture(null);
+    }
+
+    private record OwnedLock(String name) implements Lock {
+      @Override
+      public void lock() {
+        throw new UnsupportedOperationException();
+      }
+
+      @Override
+      public void lockInterruptibly() {
+        throw new UnsupportedOperationException();
+      }
+
+      @Override
+      public boolean tryLock() {
+        throw new UnsupportedOperationException();
+      }
+
+      @Override
+      public boolean tryLock(long time, TimeUnit unit) {
+        throw new UnsupportedOperationException();
+      }
+
+      @Override
+      public void unlock() {
+        throw new UnsupportedOperationException();
+      }
+
+      @Override
+      public Condition newCondition() {
+        throw new UnsupportedOperationException();
+      }
+    }
+  }
+
+  /** Service whose calls complete when the stage they are given completes. */
+  public static class Service {
+    private final List<String> calls = new CopyOnWriteArrayList<>();
+
+    @CacheLock(keys = "#p0", waitTimeout = 50)
+    public CompletableFuture<String> call(String key, CompletableFuture<String> body) {
+      this.calls.add(key);
+      return body;
+    }
+
+    @CacheLock(keys = "#p0", waitTimeout = 50)
+    public CompletableFuture<String> fail(String key) {
+      this.calls.add(key);
+      throw new IllegalStateException("failed");
+    }
+  }
+
+  private static Service service(Service target, CacheLockFactory cacheLockFactory) {
+    AspectJProxyFactory proxyFactory = new AspectJProxyFactory(target);
+    proxyFactory.setProxyTargetClass(true);
+    proxyFactory.addAspect(
+        new CacheLockAspect(
+            cacheLockFactory, null, LockMode.PESSIMISTIC, 1, CacheLockOptions.UNBOUNDED));
+    return proxyFactory.getProxy();
+  }
+
+  private static Throwable causeOf(CompletableFuture<?> future) {
+    ExecutionException e =
+        Assertions.assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+    return e.getCause();
+  }
+
+  @Test
+  void test_locks_are_held_until_the_stage_completes() throws Exception {
+    // given
+    Service target = new Service();
+    OwnedCacheLockFactory cacheLockFactory = new OwnedCacheLockFactory();
+    CompletableFuture<String> body = new CompletableFuture<>();
+
+    // when
+    CompletableFuture<String> result = service(target, cacheLockFactory).call("a", body);
+    while (target.calls.isEmpty()) {
+      Thread.onSpinWait();
+    }
+    boolean heldWhileRunning = cacheLockFactory.permitsOf("a").availablePermits() == 0;
+    body.complete("done");
+
+    // then
+    Assertions.assertEquals("done", result.get(5, TimeUnit.SECONDS));
+    Assertions.assertTrue(heldWhileRunning);
+    Assertions.assertEquals(1, cacheLockFactory.permitsOf("a").availablePermits());
+    Assertions.assertEquals(cacheLockFactory.acquired, cacheLockFactory.released);
+    Assertions.assertFalse(CacheLockManager.isSynchronizationActive());
+  }
+
+  @Test
+  void test_locks_are_released_when_the_stage_fails() {
+    // given
+    Service target = new Service();
+    OwnedCacheLockFactory cacheLockFactory = new OwnedCacheLockFactory();
+    Service service = service(target, cacheLockFactory);
+
+    // when
+    CompletableFuture<String> failed =
+        service.call("a", CompletableFuture.failedFuture(new IllegalArgumentException("failed")));
+    Throwable failedCause = causeOf(failed);
+    CompletableFuture<String> thrown = service.fail("b");
+    Throwable thrownCause = causeOf(thrown);
+
+    // then
+    Assertions.assertInstanceOf(IllegalArgumentException.class, failedCause);
+    Assertions.assertInstanceOf(IllegalStateException.class, thrownCause);
+    Assertions.assertEquals(List.of("a", "b"), target.calls);
+    Assertions.assertEquals(1, cacheLockFactory.permitsOf("a").availablePermits());
+    Assertions.assertEquals(1, cacheLockFactory.permitsOf("b").availablePermits());
+    Assertions.assertEquals(2, cacheLockFactory.released.size());
+  }
+
+  @Test
+  void test_timed_out_locks_fail_the_stage_without_calling() throws Exception {
+    // given
+    Service target = new Service();
+    OwnedCacheLockFactory cacheLockFactory = new OwnedCacheLockFactory();
+    cacheLockFactory.permitsOf("a").acquire();
+
+    // when
+    CompletableFuture<String> result =
+        service(target, cacheLockFactory).call("a", CompletableFuture.completedFuture("done"));
+
+    // then
+    Assertions.assertInstanceOf(CacheLockTimeoutException.class, causeOf(result));
+    Assertions.assertEquals(List.of(), target.calls);
+    Assertions.assertEquals(List.of(), cacheLockFactory.released);
+    Assertions.assertEquals(0, cacheLockFactory.permitsOf("a").availablePermits());
+  }
+}
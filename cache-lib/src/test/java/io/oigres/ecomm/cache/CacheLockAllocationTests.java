@@ -0,0 +1,122 @@
+/**********
+ This project is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the
+ Free Software Foundation; either version 3.0 of the License, or (at your
+ option) any later version. (See <https://www.gnu.org/licenses/gpl-3.0.html>.)
+
+ This project is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this project; if not, write to the Free Software Foundation, Inc.,
+ 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301  USA
+ **********/
+// Copyright (c) 2024-2025 Sergio Exposito.  All rights reserved.              
+
+package io.oigres.ecomm.cache;
+
+import com.sun.management.ThreadMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class CacheLockAllocationTests {
+  private static final int CALLS = 20000;
+
+  /** Lock factory which returns the same lock for each name, so only lock state is allocated. */
+  private static final class SharedLockFactory implements CacheLockFactory {
+    private final Lock a = new ReentrantLock();
+    private final Lock b = new ReentrantLock();
+
+    @Override
+    public Lock create(String name) {
+      return "a".equals(name) ? this.a : this.b;
+    }
+
+    @Override
+    public Lock create(List<String> names) {
+      return this.a;
+    }
+  }
+
+  private final SharedLockFactory cacheLockFactory = new SharedLockFactory();
+  private ThreadMXBean threads;
+
+  @BeforeEach
+  void setup() {
+    this.threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+    Assumptions.assumeTrue(this.threads.isThreadAllocatedMemoryEnabled());
+  }
+
+  /** Lock two keys as a @CacheLock call whose method reads two cache keys does. */
+  private void call() {
+    CacheLockManager.initSynchronization(false);
+    try {
+      CacheLockManager.lockIfNeeded("cache", "a", this.cacheLockFactory);
+      CacheLockManager.lockIfNeeded("cache", "b", this.cacheLockFactory);
+      CacheLockManager.lockIfNeeded("cache", "a", this.cacheLockFactory);
+    } finally {
+      CacheLockManager.unlockAll();
+      CacheLockManager.clearLocks();
+    }
+  }
+
+  private long allocatedByCalls() {
+    long start = this.threads.getCurrentThreadAllocatedBytes();
+    for (int i = 0; i < CALLS; i++) {
+      call();
+    }
+    return this.threads.getCurrentThreadAllocatedBytes() - start;
+  }
+
+  /** Heap allocated by running a task on each of many virtual threads, the least of a few runs. */
+  private long allocatedOnVirtualThreads(Runnable task) {
+    long least = Long.MAX_VALUE;
+    for (int run = 0; run < 3; run++) {
+      long start = this.threads.getTotalThreadAllocatedBytes();
+      try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+        for (int i = 0; i < CALLS / 10; i++) {
+          executor.execute(task);
+        }
+      }
+      least = Math.min(least, this.threads.getTotalThreadAllocatedBytes() - start);
+    }
+    return least;
+  }
+
+  @Test
+  void test_calls_of_a_thread_reuse_pooled_lock_state() {
+    // given
+    allocatedByCalls();
+
+    // when
+    long perCall = allocatedByCalls() / CALLS;
+
+    // then
+    Assertions.assertTrue(perCall < 64, String.format("%d bytes allocated per call", perCall));
+  }
+
+  @Test
+  void test_calls_on_virtual_threads_reuse_pooled_lock_state() {
+    // given
+    allocatedOnVirtualThreads(this::call);
+
+    // when
+    long idle = allocatedOnVirtualThreads(() -> {});
+    long locking = allocatedOnVirtualThreads(this::call);
+
+    // then
+    // each thread still allocates its thread local entry, but not the lock state
+    long perCall = (locking - idle) / (CALLS / 10);
+    Assertions.assertTrue(perCall < 384, String.format("%d bytes allocated per call", perCall));
+  }
+}
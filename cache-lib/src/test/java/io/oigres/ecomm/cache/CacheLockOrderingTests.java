@@ -0,0 +1,153 @@
+/**********
+ This project is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the
+ Free Software Foundation; either version 3.0 of the License, or (at your
+ option) any later version. (See <https://www.gnu.org/licenses/gpl-3.0.html>.)
+
+ This project is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this project; if not, write to the Free Software Foundation, Inc.,
+ 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301  USA
+ **********/
+// Copyright (c) 2024-2025 Sergio Exposito.  All rights reserved.              
+
+package io.oigres.ecomm.cache;
+
+import io.oigres.ecomm.cache.annotations.CacheLock;
+import io.oigres.ecomm.cache.annotations.LockMode;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+
+public class CacheLockOrderingTests {
+
+  /** Service which locks two keys, in the order they are given. */
+  public static class Transfer {
+    private final List<String> runs = new ArrayList<>();
+
+    @CacheLock(
+        keys = {"#p0", "#p1"},
+        cacheName = "transfers")
+    public void transfer(String from, String to) {
+      this.runs.add(from + "->" + to);
+    }
+
+    @CacheLock(keys = "#p0", cacheName = "transfers")
+    public void relock(String key, CacheLockFactory cacheLockFactory) {
+      CacheLockManager.lockIfNeeded("transfers", key, cacheLockFactory);
+      this.runs.add(key);
+    }
+  }
+
+  private static Transfer transfer(Transfer target, CacheLockFactory cacheLockFactory) {
+    AspectJProxyFactory proxyFactory = new AspectJProxyFactory(target);
+    proxyFactory.setProxyTargetClass(true);
+    proxyFactory.addAspect(
+        new CacheLockAspect(
+            cacheLockFactory, null, LockMode.PESSIMISTIC, 1, CacheLockOptions.UNBOUNDED));
+    return proxyFactory.getProxy();
+  }
+
+  @Test
+  void test_declared_keys_are_locked_sorted() {
+    // given
+    Transfer target = new Transfer();
+    RecordingCacheLockFactory cacheLockFactory = new RecordingCacheLockFactory();
+
+    // when
+    transfer(target, cacheLockFactory).transfer("b", "a");
+
+    // then
+    Assertions.assertEquals(List.of("b->a"), target.runs);
+    Assertions.assertEquals(List.of("a", "b"), cacheLockFactory.acquired);
+    Assertions.assertEquals(List.of("b", "a"), cacheLockFactory.released);
+  }
+
+  @Test
+  void test_null_blank_and_repeated_keys_are_skipped() {
+    // given
+    Transfer target = new Transfer();
+    RecordingCacheLockFactory cacheLockFactory = new RecordingCacheLockFactory();
+    Transfer transfer = transfer(target, cacheLockFactory);
+
+    // when
+    transfer.transfer(null, " ");
+    transfer.transfer("a", "a");
+
+    // then
+    Assertions.assertEquals(List.of("null-> ", "a->a"), target.runs);
+    Assertions.assertEquals(List.of("a"), cacheLockFactory.acquired);
+    Assertions.assertEquals(List.of("a"), cacheLockFactory.released);
+  }
+
+  @Test
+  void test_keys_held_by_the_call_are_not_locked_again() {
+    // given
+    Transfer target = new Transfer();
+    RecordingCacheLockFactory cacheLockFactory = new RecordingCacheLockFactory();
+
+    // when
+    transfer(target, cacheLockFactory).relock("a", cacheLockFactory);
+
+    // then
+    Assertions.assertEquals(List.of("a"), target.runs);
+    Assertions.assertEquals(List.of("a"), cacheLockFactory.acquired);
+    Assertions.assertEquals(List.of("a"), cacheLockFactory.released);
+    Assertions.assertFalse(cacheLockFactory.lockOf("a").isLocked());
+  }
+
+  @Test
+  void test_keys_declared_in_opposite_orders_do_not_deadlock() throws InterruptedException {
+    // given
+    Transfer target = new Transfer();
+    RecordingCacheLockFactory cacheLockFactory = new RecordingCacheLockFactory();
+    Transfer transfer = transfer(target, cacheLockFactory);
+    Runnable forward = () -> repeat(() -> transfer.transfer("a", "b"));
+    Runnable backward = () -> repeat(() -> transfer.transfer("b", "a"));
+
+    // when
+    Thread first = Thread.ofPlatform().start(forward);
+    Thread second = Thread.ofPlatform().start(backward);
+    boolean finished = first.join(Duration.ofSeconds(10)) && second.join(Duration.ofSeconds(10));
+
+    // then
+    Assertions.assertTrue(finished);
+    Assertions.assertFalse(cacheLockFactory.lockOf("a").isLocked());
+    Assertions.assertFalse(cacheLockFactory.lockOf("b").isLocked());
+  }
+
+  private static void repeat(Runnable call) {
+    for (int i = 0; i < 500; i++) {
+      call.run();
+    }
+  }
+
+  @Test
+  void test_multi_lock_releases_acquired_locks_on_timeout() throws InterruptedException {
+    // given
+    RecordingCacheLockFactory cacheLockFactory = new RecordingCacheLockFactory();
+    Lock lock = cacheLockFactory.create(List.of("a", "b", "c"));
+
+    // when
+    boolean acquired;
+    try (RecordingCacheLockFactory.Hold hold = cacheLockFactory.hold("c")) {
+      acquired = lock.tryLock(50, TimeUnit.MILLISECONDS);
+    }
+
+    // then
+    Assertions.assertFalse(acquired);
+    Assertions.assertEquals(List.of("a", "b"), cacheLockFactory.acquired);
+    Assertions.assertEquals(List.of("b", "a"), cacheLockFactory.released);
+    Assertions.assertFalse(cacheLockFactory.lockOf("a").isLocked());
+    Assertions.assertFalse(cacheLockFactory.lockOf("b").isLocked());
+  }
+}
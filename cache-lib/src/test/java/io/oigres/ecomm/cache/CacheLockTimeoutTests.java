@@ -0,0 +1,181 @@
+/**********
+ This project is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the
+ Free Software Foundation; either version 3.0 of the License, or (at your
+ option) any later version. (See <https://www.gnu.org/licenses/gpl-3.0.html>.)
+
+ This project is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this project; if not, write to the Free Software Foundation, Inc.,
+ 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301  USA
+ **********/
+// Copyright (c) 2024-2025 Sergio Exposito.  All rights reserved.              
+
+package io.oigres.ecomm.cache;
+
+import io.oigres.ecomm.cache.annotations.CacheLock;
+import io.oigres.ecomm.cache.annotations.LockMode;
+import io.oigres.ecomm.cache.annotations.LockTimeoutPolicy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.redisson.api.RedissonClient;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+
+public class CacheLockTimeoutTests {
+
+  /** Service whose methods lock the key of their argument, with each timeout policy. */
+  public static class Service {
+    private final List<String> calls = new ArrayList<>();
+
+    @CacheLock(keys = "#p0", waitTimeout = 50)
+    public void failFast(String key) {
+      this.calls.add("failFast:" + key);
+    }
+
+    @CacheLock(keys = "#p0", waitTimeout = 50, onTimeout = LockTimeoutPolicy.PROCEED_UNLOCKED)
+    public void proceedUnlocked(String key) {
+      this.calls.add("proceedUnlocked:" + key);
+    }
+
+    @CacheLock(
+        keys = "#p0",
+        waitTimeout = 50,
+        onTimeout = LockTimeoutPolicy.FALLBACK,
+        fallback = "fallback")
+    public void withFallback(String key) {
+      this.calls.add("withFallback:" + key);
+    }
+
+    public void fallback(String key) {
+      this.calls.add("fallback:" + key);
+    }
+
+    @CacheLock(keys = "#p0")
+    public void configured(String key) {
+      this.calls.add("configured:" + key);
+    }
+  }
+
+  private static Service service(
+      Service target, RecordingCacheLockFactory cacheLockFactory, CacheLockOptions options) {
+    AspectJProxyFactory proxyFactory = new AspectJProxyFactory(target);
+    proxyFactory.setProxyTargetClass(true);
+    proxyFactory.addAspect(
+        new CacheLockAspect(cacheLockFactory, null, LockMode.PESSIMISTIC, 0, options));
+    return proxyFactory.getProxy();
+  }
+
+  @Test
+  void test_timeout_policies() throws InterruptedException {
+    // given
+    Service target = new Service();
+    RecordingCacheLockFactory cacheLockFactory = new RecordingCacheLockFactory();
+    Service service = service(target, cacheLockFactory, CacheLockOptions.UNBOUNDED);
+
+    // when
+    long start = System.nanoTime();
+    CacheLockTimeoutException timeout;
+    try (RecordingCacheLockFactory.Hold hold = cacheLockFactory.hold("a")) {
+      timeout =
+          Assertions.assertThrows(CacheLockTimeoutException.class, () -> service.failFast("a"));
+      service.proceedUnlocked("a");
+      service.withFallback("a");
+    }
+    long elapsed = System.nanoTime() - start;
+    service.failFast("a");
+
+    // then
+    Assertions.assertEquals("a", timeout.getLockName());
+    Assertions.assertEquals(Duration.ofMillis(50), timeout.getWaitTimeout());
+    Assertions.assertTrue(elapsed < TimeUnit.SECONDS.toNanos(5), "locks were waited for too long");
+    Assertions.assertEquals(List.of("proceedUnlocked:a", "fallback:a", "failFast:a"), target.calls);
+    // only the call after the lock was released acquired it
+    Assertions.assertEquals(List.of("a"), cacheLockFactory.acquired);
+    Assertions.assertEquals(List.of("a"), cacheLockFactory.released);
+    Assertions.assertFalse(CacheLockManager.isSynchronizationActive());
+  }
+
+  @Test
+  void test_methods_without_bounds_use_the_configured_ones() throws InterruptedException {
+    // given
+    Service target = new Service();
+    RecordingCacheLockFactory cacheLockFactory = new RecordingCacheLockFactory();
+    Service service =
+        service(
+            target,
+            cacheLockFactory,
+            CacheLockOptions.builder()
+                .waitTimeout(Duration.ofMillis(20))
+                .onTimeout(LockTimeoutPolicy.PROCEED_UNLOCKED)
+                .build());
+
+    // when
+    try (RecordingCacheLockFactory.Hold hold = cacheLockFactory.hold("a")) {
+      service.configured("a");
+    }
+
+    // then
+    Assertions.assertEquals(List.of("configured:a"), target.calls);
+    Assertions.assertEquals(List.of(), cacheLockFactory.acquired);
+  }
+
+  @Test
+  void test_redisson_locks_expire_after_their_lease_time() throws InterruptedException {
+    // given
+    RedissonClient redissonClient = RedisTestSupport.redissonClient();
+    try {
+      CacheLockFactory cacheLockFactory = new RedissonCacheLockFactory(redissonClient);
+      String name = RedisTestSupport.keyPrefix() + "leased";
+      Lock leased = cacheLockFactory.create(name);
+
+      // when
+      boolean acquired = cacheLockFactory.tryLock(leased, null, Duration.ofMillis(200));
+      // redisson locks are owned by threads, so other owners try them on their own threads
+      Boolean[] results = new Boolean[2];
+      Thread before =
+          Thread.ofPlatform()
+              .start(
+                  () -> {
+                    try {
+                      results[0] =
+                          cacheLockFactory.tryLock(
+                              cacheLockFactory.create(name), Duration.ZERO, Duration.ofSeconds(1));
+                    } catch (InterruptedException e) {
+                      Thread.currentThread().interrupt();
+                    }
+                  });
+      before.join();
+      Thread after =
+          Thread.ofPlatform()
+              .start(
+                  () -> {
+                    try {
+                      Lock lock = cacheLockFactory.create(name);
+                      results[1] =
+                          cacheLockFactory.tryLock(
+                              lock, Duration.ofSeconds(5), Duration.ofSeconds(1));
+                      lock.unlock();
+                    } catch (InterruptedException e) {
+                      Thread.currentThread().interrupt();
+                    }
+                  });
+      after.join();
+
+      // then
+      Assertions.assertTrue(acquired);
+      Assertions.assertFalse(results[0]);
+      Assertions.assertTrue(results[1]);
+    } finally {
+      redissonClient.shutdown();
+    }
+  }
+}
@@ -0,0 +1,248 @@
+/**********
+ This project is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the
+ Free Software Foundation; either version 3.0 of the License, or (at your
+ option) any later version. (See <https://www.gnu.org/licenses/gpl-3.0.html>.)
+
+ This project is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this project; if not, write to the Free Software Foundation, Inc.,
+ 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301  USA
+ **********/
+// Copyright (c) 2024-2025 Sergio Exposito.  All rights reserved.              
+
+package io.oigres.ecomm.cache;
+
+import com.sun.management.ThreadMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+public class FramedRedisSerializerTests {
+  private static final List<CompressionType> CODECS =
+      List.of(
+          CompressionType.NONE, CompressionType.LZ4, CompressionType.ZSTD, CompressionType.SNAPPY);
+
+  private final BinaryRedisSerializer<SampleValue> binarySerializer =
+      SampleValue.binarySerializer();
+
+  @Test
+  void test_values_are_framed_with_their_codec() {
+    // given
+    SampleValue value = SampleValue.of("large", 15);
+    int binary = this.binarySerializer.serialize(value).length;
+
+    for (CompressionType type : CODECS) {
+      FramedRedisSerializer<SampleValue> serializer =
+          new FramedRedisSerializer<>(this.binarySerializer, type);
+
+      // when
+      byte[] serialized = serializer.serialize(value);
+      SampleValue deserialized = serializer.deserialize(serialized);
+
+      // then
+      Assertions.assertEquals(FramedRedisSerializer.MAGIC, serialized[0]);
+      Assertions.assertEquals(type.getId(), serialized[1]);
+      if (type != CompressionType.NONE) {
+        Assertions.assertTrue(
+            serialized.length < binary,
+            String.format("%s %d, binary %d", type, serialized.length, binary));
+      }
+      Assertions.assertEquals(value, deserialized);
+    }
+  }
+
+  @Test
+  void test_small_values_are_not_compressed() {
+    // given
+    FramedRedisSerializer<SampleValue> serializer =
+        new FramedRedisSerializer<>(this.binarySerializer, CompressionType.LZ4);
+    SampleValue value = SampleValue.of("small", 0);
+
+    // when
+    byte[] serialized = serializer.serialize(value);
+
+    // then
+    Assertions.assertEquals(CompressionType.NONE.getId(), serialized[1]);
+    Assertions.assertEquals(this.binarySerializer.serialize(value).length + 2, serialized.length);
+    Assertions.assertEquals(value, serializer.deserialize(serialized));
+  }
+
+  @Test
+  void test_values_of_other_codecs_and_unframed_values_are_read() {
+    // given
+    GzipRedisSerializer<SampleValue> gzipSerializer =
+        new GzipRedisSerializer<>(SampleValue.jsonSerializer());
+    BinaryRedisSerializer<SampleValue> binaryWithFallback =
+        new BinaryRedisSerializer<>(SampleValue.CODEC, gzipSerializer);
+    FramedRedisSerializer<SampleValue> lz4 =
+        new FramedRedisSerializer<>(binaryWithFallback, CompressionType.LZ4);
+    FramedRedisSerializer<SampleValue> zstd =
+        new FramedRedisSerializer<>(binaryWithFallback, CompressionType.ZSTD);
+    SampleValue value = SampleValue.of("other", 3);
+
+    // when
+    SampleValue fromZstd = lz4.deserialize(zstd.serialize(value));
+    SampleValue fromBinary = lz4.deserialize(binaryWithFallback.serialize(value));
+    SampleValue fromGzip = lz4.deserialize(gzipSerializer.serialize(value));
+
+    // then
+    Assertions.assertEquals(value, fromZstd);
+    Assertions.assertEquals(value, fromBinary);
+    Assertions.assertEquals(value, fromGzip);
+  }
+
+  @Test
+  void test_unframed_values_are_rejected_without_fallback() {
+    // given
+    FramedRedisSerializer<SampleValue> serializer =
+        new FramedRedisSerializer<>(
+            this.binarySerializer,
+            CompressionType.LZ4,
+            FramedRedisSerializer.DEFAULT_MIN_SIZE,
+            null);
+    byte[] unframed = this.binarySerializer.serialize(SampleValue.of("unframed", 3));
+
+    // when / then
+    Assertions.assertThrows(SerializationException.class, () -> serializer.deserialize(unframed));
+    Assertions.assertNull(serializer.deserialize(new byte[0]));
+  }
+
+  @Test
+  void test_unknown_codecs_are_rejected() {
+    // given
+    FramedRedisSerializer<SampleValue> serializer =
+        new FramedRedisSerializer<>(this.binarySerializer, CompressionType.LZ4);
+    byte[] serialized = serializer.serialize(SampleValue.of("large", 15));
+    byte[] unknown = serialized.clone();
+    unknown[1] = 99;
+
+    // when
+    SerializationException e =
+        Assertions.assertThrows(
+            SerializationException.class, () -> serializer.deserialize(unknown));
+
+    // then
+    Assertions.assertTrue(e.getMessage().contains("unknown codec"));
+    Assertions.assertThrows(
+        SerializationException.class,
+        () -> serializer.deserialize(new byte[] {FramedRedisSerializer.MAGIC}));
+  }
+
+  @Test
+  void test_truncated_frames_are_rejected() {
+    for (CompressionType type : CODECS) {
+      // given
+      FramedRedisSerializer<SampleValue> serializer =
+          new FramedRedisSerializer<>(this.binarySerializer, type);
+      byte[] serialized = serializer.serialize(SampleValue.of("large", 15));
+
+      for (int length : new int[] {3, 6, serialized.length / 2, serialized.length - 1}) {
+        byte[] truncated = Arrays.copyOf(serialized, length);
+
+        // when / then
+        Assertions.assertThrows(
+            SerializationException.class,
+            () -> serializer.deserialize(truncated),
+            String.format("%s truncated to %d bytes", type, length));
+      }
+    }
+  }
+
+  @Test
+  void test_frames_with_wrong_size_are_rejected() {
+    // given
+    FramedRedisSerializer<SampleValue> serializer =
+        new FramedRedisSerializer<>(this.binarySerializer, CompressionType.LZ4);
+    byte[] serialized = serializer.serialize(SampleValue.of("large", 15));
+    byte[] negative = serialized.clone();
+    negative[2] = (byte) 0x80;
+    byte[] smaller = serialized.clone();
+    smaller[5] = (byte) (smaller[5] - 1);
+
+    // when / then
+    Assertions.assertThrows(SerializationException.class, () -> serializer.deserialize(negative));
+    Assertions.assertThrows(SerializationException.class, () -> serializer.deserialize(smaller));
+  }
+
+  @Test
+  void test_buffered_serializers_write_the_same_frames() {
+    // given
+    RedisSerializer<SampleValue> copyingSerializer =
+        new RedisSerializer<>() {
+          @Override
+          public byte[] serialize(SampleValue value) {
+            return binarySerializer.serialize(value);
+          }
+
+          @Override
+          public SampleValue deserialize(byte[] bytes) {
+            return binarySerializer.deserialize(bytes);
+          }
+        };
+
+    for (CompressionType type : List.of(CompressionType.NONE, CompressionType.LZ4)) {
+      for (SampleValue value : List.of(SampleValue.of("small", 1), SampleValue.of("large", 15))) {
+        // when
+        byte[] buffered = new FramedRedisSerializer<>(this.binarySerializer, type).serialize(value);
+        byte[] copied = new FramedRedisSerializer<>(copyingSerializer, type).serialize(value);
+        FramedRedisSerializer<SampleValue> json =
+            new FramedRedisSerializer<>(SampleValue.jsonSerializer(), type);
+        SampleValue fromJson = json.deserialize(json.serialize(value));
+
+        // then
+        Assertions.assertArrayEquals(copied, buffered);
+        Assertions.assertEquals(
+            value, new FramedRedisSerializer<>(this.binarySerializer, type).deserialize(buffered));
+        Assertions.assertEquals(value, fromJson);
+      }
+    }
+  }
+
+  /** Heap allocated by running a task on each of many virtual threads, the least of a few runs. */
+  private static long allocatedOnVirtualThreads(ThreadMXBean threads, int tasks, Runnable task) {
+    long least = Long.MAX_VALUE;
+    for (int run = 0; run < 3; run++) {
+      long start = threads.getTotalThreadAllocatedBytes();
+      try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+        for (int i = 0; i < tasks; i++) {
+          executor.execute(task);
+        }
+      }
+      least = Math.min(least, threads.getTotalThreadAllocatedBytes() - start);
+    }
+    return least;
+  }
+
+  @Test
+  void test_virtual_threads_do_not_keep_a_buffer_each() {
+    // given
+    ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+    Assumptions.assumeTrue(threads.isThreadAllocatedMemoryEnabled());
+    FramedRedisSerializer<SampleValue> serializer =
+        new FramedRedisSerializer<>(this.binarySerializer, CompressionType.NONE);
+    SampleValue value = SampleValue.of("small", 1);
+    int tasks = 2000;
+    allocatedOnVirtualThreads(threads, tasks, () -> serializer.serialize(value));
+
+    // when
+    long idle = allocatedOnVirtualThreads(threads, tasks, value::hashCode);
+    long serializing = allocatedOnVirtualThreads(threads, tasks, () -> serializer.serialize(value));
+
+    // then
+    long perTask = (serializing - idle) / tasks;
+    Assertions.assertTrue(
+        perTask < 2048, String.format("%d bytes allocated per serialization", perTask));
+  }
+}
@@ -0,0 +1,113 @@
+/**********
+ This project is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the
+ Free Software Foundation; either version 3.0 of the License, or (at your
+ option) any later version. (See <https://www.gnu.org/licenses/gpl-3.0.html>.)
+
+ This project is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this project; if not, write to the Free Software Foundation, Inc.,
+ 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301  USA
+ **********/
+// Copyright (c) 2024-2025 Sergio Exposito.  All rights reserved.              
+
+package io.oigres.ecomm.cache;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.GZIPOutputStream;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.serializer.SerializationException;
+
+public class GzipRedisSerializerTests {
+  private final JacksonRedisSerializer<SampleValue> jsonSerializer = SampleValue.jsonSerializer();
+  private final GzipRedisSerializer<SampleValue> gzipSerializer =
+      new GzipRedisSerializer<>(this.jsonSerializer);
+
+  @Test
+  void test_small_values_are_stored_raw_and_the_rest_deflated() {
+    // given
+    SampleValue small = SampleValue.of("small", 0);
+    SampleValue large = SampleValue.of("large", 15);
+
+    // when
+    byte[] raw = this.gzipSerializer.serialize(small);
+    byte[] deflated = this.gzipSerializer.serialize(large);
+
+    // then
+    Assertions.assertEquals(GzipRedisSerializer.RAW, raw[0]);
+    Assertions.assertEquals(this.jsonSerializer.serialize(small).length + 1, raw.length);
+    Assertions.assertEquals(GzipRedisSerializer.DEFLATED, deflated[0]);
+    Assertions.assertTrue(deflated.length < this.jsonSerializer.serialize(large).length);
+    Assertions.assertEquals(small, this.gzipSerializer.deserialize(raw));
+    Assertions.assertEquals(large, this.gzipSerializer.deserialize(deflated));
+    Assertions.assertNull(this.gzipSerializer.deserialize(new byte[0]));
+  }
+
+  @Test
+  void test_legacy_gzip_values_are_read() throws IOException {
+    // given
+    SampleValue value = SampleValue.of("legacy", 2);
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    try (GZIPOutputStream gzip = new GZIPOutputStream(bos)) {
+      gzip.write(this.jsonSerializer.serialize(value));
+    }
+
+    // when
+    SampleValue deserialized = this.gzipSerializer.deserialize(bos.toByteArray());
+
+    // then
+    Assertions.assertEquals(value, deserialized);
+  }
+
+  @Test
+  void test_truncated_values_are_rejected() throws IOException {
+    // given
+    byte[] deflated = this.gzipSerializer.serialize(SampleValue.of("large", 15));
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    try (GZIPOutputStream gzip = new GZIPOutputStream(bos)) {
+      gzip.write(this.jsonSerializer.serialize(SampleValue.of("legacy", 15)));
+    }
+    byte[] gzipped = bos.toByteArray();
+
+    // when / then
+    Assertions.assertThrows(
+        SerializationException.class,
+        () -> this.gzipSerializer.deserialize(Arrays.copyOf(deflated, 3)));
+    Assertions.assertThrows(
+        SerializationException.class,
+        () -> this.gzipSerializer.deserialize(Arrays.copyOf(deflated, deflated.length / 2)));
+    Assertions.assertThrows(
+        SerializationException.class,
+        () -> this.gzipSerializer.deserialize(Arrays.copyOf(gzipped, gzipped.length / 2)));
+  }
+
+  @Test
+  void test_corrupt_values_are_rejected_and_inflaters_are_reused() {
+    // given
+    SampleValue value = SampleValue.of("large", 15);
+    byte[] deflated = this.gzipSerializer.serialize(value);
+    byte[] corrupt = deflated.clone();
+    Arrays.fill(corrupt, 5, corrupt.length, (byte) 0xFF);
+
+    // when
+    SerializationException e =
+        Assertions.assertThrows(
+            SerializationException.class, () -> this.gzipSerializer.deserialize(corrupt));
+    SampleValue afterError = this.gzipSerializer.deserialize(deflated);
+
+    // then
+    Assertions.assertInstanceOf(DataFormatException.class, e.getCause());
+    Assertions.assertEquals(value, afterError);
+    Assertions.assertThrows(
+        SerializationException.class,
+        () -> this.gzipSerializer.deserialize(new byte[] {0x7B, 0x7D}));
+  }
+}
@@ -0,0 +1,143 @@
+/**********
+ This project is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the
+ Free Software Foundation; either version 3.0 of the License, or (at your
+ option) any later version. (See <https://www.gnu.org/licenses/gpl-3.0.html>.)
+
+ This project is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this project; if not, write to the Free Software Foundation, Inc.,
+ 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301  USA
+ **********/
+// Copyright (c) 2024-2025 Sergio Exposito.  All rights reserved.              
+
+package io.oigres.ecomm.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class HotKeySamplerTests {
+
+  private static List<String> keysOf(List<HotKeySampler.HotKey> hotKeys) {
+    return hotKeys.stream().map(HotKeySampler.HotKey::getKey).toList();
+  }
+
+  @Test
+  void test_keys_are_listed_by_weight() {
+    // given
+    HotKeySampler sampler = new HotKeySampler(10, 1);
+
+    // when
+    sampler.record("a", 5);
+    sampler.record("b", 30);
+    sampler.record("c", 10);
+    sampler.record("a", 20);
+
+    // then
+    List<HotKeySampler.HotKey> top = sampler.top(2);
+    Assertions.assertEquals(List.of("b", "a"), keysOf(top));
+    Assertions.assertEquals(2, top.get(1).getSamples());
+    Assertions.assertEquals(25, top.get(1).getWeight());
+    Assertions.assertEquals(List.of("b", "a", "c"), keysOf(sampler.top(10)));
+  }
+
+  @Test
+  void test_new_keys_replace_the_lowest_key_from_its_weight() {
+    // given
+    HotKeySampler sampler = new HotKeySampler(2, 1);
+    sampler.record("a", 50);
+    sampler.record("b", 10);
+
+    // when
+    sampler.record("c", 1);
+
+    // then
+    List<HotKeySampler.HotKey> top = sampler.top(10);
+    Assertions.assertEquals(List.of("a", "c"), keysOf(top));
+    Assertions.assertEquals(2, top.get(1).getSamples());
+    Assertions.assertEquals(11, top.get(1).getWeight());
+  }
+
+  @Test
+  void test_nothing_is_sampled_without_rate_or_capacity() {
+    // given
+    HotKeySampler unsampled = new HotKeySampler(10, 0);
+    HotKeySampler empty = new HotKeySampler(0, 1);
+
+    // when
+    for (int i = 0; i < 100; i++) {
+      unsampled.record("a", 1);
+      empty.record("a", 1);
+    }
+
+    // then
+    Assertions.assertEquals(List.of(), unsampled.top(10));
+    Assertions.assertEquals(List.of(), empty.top(10));
+  }
+
+  @Test
+  void test_reset_forgets_every_key() {
+    // given
+    HotKeySampler sampler = new HotKeySampler(10, 1);
+    sampler.record("a", 1);
+
+    // when
+    sampler.reset();
+
+    // then
+    Assertions.assertEquals(List.of(), sampler.top(10));
+  }
+
+  @Test
+  void test_listener_records_timers_by_cache_and_samples_waits() {
+    // given
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    HotKeySampler sampler = new HotKeySampler(10, 1);
+    MicrometerCacheLockListener listener = new MicrometerCacheLockListener(registry, sampler);
+
+    // when
+    listener.lockAcquired("requests", "a", TimeUnit.MILLISECONDS.toNanos(3));
+    listener.lockTimedOut("requests", "b", TimeUnit.MILLISECONDS.toNanos(50));
+    listener.lockReleased("requests", "a", TimeUnit.MILLISECONDS.toNanos(7));
+    listener.lockAcquired(null, "c", 1);
+
+    // then
+    Assertions.assertEquals(
+        1,
+        registry
+            .get("cache.lock.wait")
+            .tags("cache", "requests", "outcome", "acquired")
+            .timer()
+            .count());
+    Assertions.assertEquals(
+        50,
+        registry
+            .get("cache.lock.wait")
+            .tags("cache", "requests", "outcome", "timeout")
+            .timer()
+            .totalTime(TimeUnit.MILLISECONDS));
+    Assertions.assertEquals(
+        7,
+        registry
+            .get("cache.lock.hold")
+            .tags("cache", "requests")
+            .timer()
+            .totalTime(TimeUnit.MILLISECONDS));
+    Assertions.assertEquals(
+        1,
+        registry
+            .get("cache.lock.wait")
+            .tags("cache", "unknown", "outcome", "acquired")
+            .timer()
+            .count());
+    // keys are sampled, not tagged
+    Assertions.assertEquals(List.of("b", "a", "c"), keysOf(sampler.top(10)));
+  }
+}
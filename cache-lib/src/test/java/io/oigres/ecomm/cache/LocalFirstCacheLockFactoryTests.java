@@ -0,0 +1,205 @@
+/**********
+ This project is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the
+ Free Software Foundation; either version 3.0 of the License, or (at your
+ option) any later version. (See <https://www.gnu.org/licenses/gpl-3.0.html>.)
+
+ This project is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this project; if not, write to the Free Software Foundation, Inc.,
+ 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301  USA
+ **********/
+// Copyright (c) 2024-2025 Sergio Exposito.  All rights reserved.              
+
+package io.oigres.ecomm.cache;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class LocalFirstCacheLockFactoryTests {
+  private static final Duration SHORT_WAIT = Duration.ofMillis(50);
+
+  /** Acquire a lock on another thread, hold it until released counts down, and release it. */
+  private static CompletableFuture<Boolean> holdOnOtherThread(
+      LocalFirstCacheLockFactory factory, Lock lock, CountDownLatch held, CountDownLatch release) {
+    CompletableFuture<Boolean> result = new CompletableFuture<>();
+    Thread.ofPlatform()
+        .start(
+            () -> {
+              try {
+                boolean acquired = factory.tryLock(lock, null, null);
+                held.countDown();
+                release.await();
+                lock.unlock();
+                result.complete(acquired);
+              } catch (Throwable t) {
+                result.completeExceptionally(t);
+              }
+            });
+    return result;
+  }
+
+  @Test
+  void test_same_name_waits_locally_before_the_delegate() throws Exception {
+    // given
+    RecordingCacheLockFactory delegate = new RecordingCacheLockFactory();
+    LocalFirstCacheLockFactory factory = new LocalFirstCacheLockFactory(delegate);
+    CountDownLatch held = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    CompletableFuture<Boolean> holder =
+        holdOnOtherThread(factory, factory.create("a"), held, release);
+    held.await();
+
+    // when
+    boolean sameName = factory.tryLock(factory.create("a"), SHORT_WAIT, null);
+    Lock other = factory.create("b");
+    boolean otherName = factory.tryLock(other, Duration.ZERO, null);
+    other.unlock();
+    release.countDown();
+
+    // then
+    Assertions.assertTrue(holder.get(5, TimeUnit.SECONDS));
+    Assertions.assertFalse(sameName);
+    Assertions.assertTrue(otherName);
+    // the caller which timed out locally never reached the delegate
+    Assertions.assertEquals(List.of("a", "b"), delegate.attempted);
+    Assertions.assertEquals(0, factory.getLocalLockCount());
+  }
+
+  @Test
+  void test_wait_timeout_bounds_local_and_delegate_waits() throws Exception {
+    // given
+    RecordingCacheLockFactory delegate = new RecordingCacheLockFactory();
+    LocalFirstCacheLockFactory factory = new LocalFirstCacheLockFactory(delegate);
+
+    // when
+    long start = System.nanoTime();
+    boolean acquired;
+    try (RecordingCacheLockFactory.Hold hold = delegate.hold("a")) {
+      acquired = factory.tryLock(factory.create("a"), SHORT_WAIT, null);
+    }
+    long elapsed = System.nanoTime() - start;
+    Lock lock = factory.create("a");
+    boolean released = factory.tryLock(lock, Duration.ZERO, null);
+    lock.unlock();
+
+    // then
+    Assertions.assertFalse(acquired);
+    Assertions.assertTrue(elapsed < TimeUnit.SECONDS.toNanos(5));
+    // the local lock of the caller which timed out on the delegate was released
+    Assertions.assertTrue(released);
+    Assertions.assertEquals(0, factory.getLocalLockCount());
+  }
+
+  @Test
+  void test_locks_of_the_same_thread_are_reentrant() throws Exception {
+    // given
+    RecordingCacheLockFactory delegate = new RecordingCacheLockFactory();
+    LocalFirstCacheLockFactory factory = new LocalFirstCacheLockFactory(delegate);
+    Lock outer = factory.create("a");
+    Lock inner = factory.create(List.of("a", "b"));
+
+    // when
+    boolean outerAcquired = factory.tryLock(outer, SHORT_WAIT, null);
+    boolean innerAcquired = factory.tryLock(inner, SHORT_WAIT, null);
+    int heldNames = factory.getLocalLockCount();
+    inner.unlock();
+    boolean stillHeld = delegate.lockOf("a").isHeldByCurrentThread();
+    outer.unlock();
+
+    // then
+    Assertions.assertTrue(outerAcquired);
+    Assertions.assertTrue(innerAcquired);
+    Assertions.assertEquals(2, heldNames);
+    Assertions.assertTrue(stillHeld);
+    Assertions.assertFalse(delegate.lockOf("a").isLocked());
+    Assertions.assertFalse(delegate.lockOf("b").isLocked());
+    Assertions.assertEquals(0, factory.getLocalLockCount());
+  }
+
+  @Test
+  void test_shared_locks_are_held_together_and_exclude_writers() throws Exception {
+    // given
+    LocalFirstCacheLockFactory factory =
+        new LocalFirstCacheLockFactory(
+            new CacheLockFactory() {
+              @Override
+              public Lock create(String name) {
+                return new ReentrantLock();
+              }
+            });
+    CountDownLatch held = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    CompletableFuture<Boolean> reader =
+        holdOnOtherThread(factory, factory.createShared("a"), held, release);
+    held.await();
+
+    // when
+    Lock shared = factory.createShared("a");
+    boolean sharedAcquired = factory.tryLock(shared, SHORT_WAIT, null);
+    shared.unlock();
+    boolean exclusiveAcquired = factory.tryLock(factory.create("a"), SHORT_WAIT, null);
+    release.countDown();
+
+    // then
+    Assertions.assertTrue(reader.get(5, TimeUnit.SECONDS));
+    Assertions.assertTrue(sharedAcquired);
+    Assertions.assertFalse(exclusiveAcquired);
+    Assertions.assertEquals(0, factory.getLocalLockCount());
+  }
+
+  @Test
+  void test_contended_names_are_serialized() throws Exception {
+    // given
+    RecordingCacheLockFactory delegate = new RecordingCacheLockFactory();
+    LocalFirstCacheLockFactory factory = new LocalFirstCacheLockFactory(delegate);
+    int threads = 16;
+    int[] counter = new int[1];
+    CountDownLatch start = new CountDownLatch(1);
+    List<Thread> workers =
+        IntStream.range(0, threads)
+            .mapToObj(
+                i ->
+                    Thread.ofVirtual()
+                        .start(
+                            () -> {
+                              try {
+                                start.await();
+                                for (int n = 0; n < 100; n++) {
+                                  Lock lock = factory.create("a");
+                                  factory.tryLock(lock, null, null);
+                                  try {
+                                    counter[0]++;
+                                  } finally {
+                                    lock.unlock();
+                                  }
+                                }
+                              } catch (InterruptedException e) {
+                                Thread.currentThread().interrupt();
+                              }
+                            }))
+            .toList();
+
+    // when
+    start.countDown();
+    for (Thread worker : workers) {
+      worker.join();
+    }
+
+    // then
+    Assertions.assertEquals(threads * 100, counter[0]);
+    Assertions.assertEquals(0, factory.getLocalLockCount());
+  }
+}
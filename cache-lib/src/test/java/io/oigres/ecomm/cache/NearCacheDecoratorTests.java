@@ -0,0 +1,186 @@
+/**********
+ This project is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the
+ Free Software Foundation; either version 3.0 of the License, or (at your
+ option) any later version. (See <https://www.gnu.org/licenses/gpl-3.0.html>.)
+
+ This project is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this project; if not, write to the Free Software Foundation, Inc.,
+ 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301  USA
+ **********/
+// Copyright (c) 2024-2025 Sergio Exposito.  All rights reserved.              
+
+package io.oigres.ecomm.cache;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BiConsumer;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.redisson.api.RedissonClient;
+import org.springframework.cache.Cache;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+
+public class NearCacheDecoratorTests {
+  private static final NearCacheSettings SETTINGS =
+      NearCacheSettings.builder().maximumSize(100).timeToLive(Duration.ofMinutes(1)).build();
+
+  /** Invalidator which records the invalidations which are sent. */
+  private static class RecordingInvalidator implements NearCacheInvalidator {
+    private final List<String> sent = new ArrayList<>();
+
+    @Override
+    public void invalidate(String cacheName, String key) {
+      this.sent.add(cacheName + ":" + key);
+    }
+
+    @Override
+    public void subscribe(BiConsumer<String, String> listener) {}
+  }
+
+  private static Object valueOf(Cache cache, String key) {
+    Cache.ValueWrapper value = cache.get(key);
+    return value != null ? value.get() : null;
+  }
+
+  @Test
+  void test_values_are_read_from_memory_until_they_are_invalidated() {
+    // given
+    ConcurrentMapCache remote = new ConcurrentMapCache("test");
+    NearCacheDecorator nearCache =
+        new NearCacheDecorator(remote, SETTINGS, new RecordingInvalidator());
+    remote.put("a", "1");
+    Assertions.assertEquals("1", valueOf(nearCache, "a"));
+
+    // when
+    remote.put("a", "2");
+    Object stale = valueOf(nearCache, "a");
+    nearCache.evictLocal("a");
+    Object evicted = valueOf(nearCache, "a");
+    remote.put("a", "3");
+    nearCache.evictLocal(null);
+    Object cleared = valueOf(nearCache, "a");
+
+    // then
+    Assertions.assertEquals("1", stale);
+    Assertions.assertEquals("2", evicted);
+    Assertions.assertEquals("3", cleared);
+  }
+
+  @Test
+  void test_writes_are_kept_and_sent_to_other_nodes() {
+    // given
+    ConcurrentMapCache remote = new ConcurrentMapCache("test");
+    RecordingInvalidator invalidator = new RecordingInvalidator();
+    NearCacheDecorator nearCache = new NearCacheDecorator(remote, SETTINGS, invalidator);
+
+    // when
+    nearCache.put("a", "1");
+    nearCache.putAll(Map.of("b", "2"));
+    remote.put("a", "remote");
+    Object kept = valueOf(nearCache, "a");
+    nearCache.evict("b");
+    nearCache.clear();
+
+    // then
+    Assertions.assertEquals("1", kept);
+    Assertions.assertEquals(List.of("test:a", "test:b", "test:b", "test:null"), invalidator.sent);
+    Assertions.assertNull(nearCache.get("a"));
+  }
+
+  @Test
+  void test_get_all_reads_only_missing_keys_and_keeps_order() {
+    // given
+    ConcurrentMapCache remote = new ConcurrentMapCache("test");
+    NearCacheDecorator nearCache =
+        new NearCacheDecorator(remote, SETTINGS, new RecordingInvalidator());
+    nearCache.put("b", "near");
+    remote.put("b", "remote");
+    remote.put("c", "3");
+
+    // when
+    Map<Object, Cache.ValueWrapper> values = nearCache.getAll(List.of("c", "missing", "b"));
+
+    // then
+    Assertions.assertEquals(List.of("c", "b"), new ArrayList<>(values.keySet()));
+    Assertions.assertEquals("near", values.get("b").get());
+    Assertions.assertEquals("3", values.get("c").get());
+  }
+
+  @Test
+  void test_writes_of_a_node_evict_near_caches_of_other_nodes() throws InterruptedException {
+    // given
+    RedissonClient redissonClient = RedisTestSupport.redissonClient();
+    try {
+      String topic = RedisTestSupport.keyPrefix() + "invalidation";
+      ConcurrentMapCache remote = new ConcurrentMapCache("test");
+      NearCacheDecorator writer =
+          new NearCacheDecorator(
+              remote, SETTINGS, new RedissonNearCacheInvalidator(redissonClient, topic));
+      RedissonNearCacheInvalidator readerInvalidator =
+          new RedissonNearCacheInvalidator(redissonClient, topic);
+      NearCacheDecorator reader = new NearCacheDecorator(remote, SETTINGS, readerInvalidator);
+      List<String> received = new CopyOnWriteArrayList<>();
+      readerInvalidator.subscribe(
+          (cacheName, key) -> {
+            received.add(cacheName + ":" + key);
+            if (cacheName == null || cacheName.equals(reader.getName())) {
+              reader.evictLocal(key);
+            }
+          });
+      remote.put("a", "1");
+      Assertions.assertEquals("1", valueOf(reader, "a"));
+
+      // when
+      writer.put("a", "2");
+      reader.put("b", "1");
+      long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+      while (!"2".equals(valueOf(reader, "a")) && System.nanoTime() < deadline) {
+        Thread.sleep(10);
+      }
+
+      // then
+      Assertions.assertEquals("2", valueOf(reader, "a"));
+      // messages of the node itself are skipped
+      Assertions.assertFalse(received.contains("test:b"));
+      Assertions.assertTrue(received.contains("test:a"));
+    } finally {
+      redissonClient.shutdown();
+    }
+  }
+
+  @Test
+  void test_keys_with_line_breaks_are_sent_whole() throws InterruptedException {
+    // given
+    RedissonClient redissonClient = RedisTestSupport.redissonClient();
+    try {
+      String topic = RedisTestSupport.keyPrefix() + "invalidation";
+      RedissonNearCacheInvalidator sender = new RedissonNearCacheInvalidator(redissonClient, topic);
+      RedissonNearCacheInvalidator receiver =
+          new RedissonNearCacheInvalidator(redissonClient, topic);
+      List<String> received = new CopyOnWriteArrayList<>();
+      receiver.subscribe((cacheName, key) -> received.add(cacheName + ":" + key));
+
+      // when
+      sender.invalidate("test", "a\nb");
+      sender.invalidate("test", null);
+      long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+      while (received.size() < 2 && System.nanoTime() < deadline) {
+        Thread.sleep(10);
+      }
+
+      // then
+      Assertions.assertEquals(List.of("test:a\nb", "test:null"), List.copyOf(received));
+    } finally {
+      redissonClient.shutdown();
+    }
+  }
+}
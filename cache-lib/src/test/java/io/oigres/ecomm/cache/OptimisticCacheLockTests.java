@@ -0,0 +1,172 @@
+/**********
+ This project is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the
+ Free Software Foundation; either version 3.0 of the License, or (at your
+ option) any later version. (See <https://www.gnu.org/licenses/gpl-3.0.html>.)
+
+ This project is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this project; if not, write to the Free Software Foundation, Inc.,
+ 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301  USA
+ **********/
+// Copyright (c) 2024-2025 Sergio Exposito.  All rights reserved.              
+
+package io.oigres.ecomm.cache;
+
+import io.oigres.ecomm.cache.annotations.CacheLock;
+import io.oigres.ecomm.cache.annotations.LockMode;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+
+public class OptimisticCacheLockTests {
+
+  /** Version store which rejects the first writes, and keeps the ones which are committed. */
+  private static class ConflictingVersionStore implements CacheVersionStore {
+    private int conflicts;
+    private final List<List<VersionedWrite>> attempts = new ArrayList<>();
+    private final List<VersionedWrite> committed = new ArrayList<>();
+
+    ConflictingVersionStore(int conflicts) {
+      this.conflicts = conflicts;
+    }
+
+    @Override
+    public boolean compareAndSet(Collection<VersionedWrite> writes) {
+      this.attempts.add(List.copyOf(writes));
+      if (this.conflicts-- > 0) {
+        return false;
+      }
+      this.committed.addAll(writes);
+      return true;
+    }
+  }
+
+  /** Counter which writes its value and sends a message on each call, as cache services do. */
+  public static class Counter {
+    private final List<String> stored = new ArrayList<>();
+    private final List<String> sent = new ArrayList<>();
+    private int runs;
+
+    @CacheLock(mode = LockMode.OPTIMISTIC, keys = "#p0")
+    public int count(String key) {
+      this.runs++;
+      byte[] value = String.valueOf(this.runs).getBytes(StandardCharsets.UTF_8);
+      if (CacheLockManager.isOptimistic()) {
+        CacheLockManager.recordVersion("counter::" + key, null);
+        CacheLockManager.addPendingWrite("counter::" + key, key, value, Duration.ofMinutes(1));
+      } else {
+        this.stored.add(key + "=" + this.runs);
+      }
+      int run = this.runs;
+      CacheLockManager.runAfterCommit(() -> this.sent.add(key + "=" + run));
+      return run;
+    }
+
+    @CacheLock(mode = LockMode.OPTIMISTIC)
+    public void fail(String key) {
+      this.runs++;
+      CacheLockManager.runAfterCommit(() -> this.sent.add(key));
+      throw new IllegalStateException("failed");
+    }
+  }
+
+  private static Counter counter(
+      Counter target, RecordingCacheLockFactory cacheLockFactory, CacheVersionStore versionStore) {
+    AspectJProxyFactory proxyFactory = new AspectJProxyFactory(target);
+    proxyFactory.setProxyTargetClass(true);
+    proxyFactory.addAspect(
+        new CacheLockAspect(
+            cacheLockFactory, versionStore, LockMode.PESSIMISTIC, 3, CacheLockOptions.UNBOUNDED));
+    return proxyFactory.getProxy();
+  }
+
+  @Test
+  void test_conflicting_writes_are_retried() {
+    // given
+    Counter target = new Counter();
+    RecordingCacheLockFactory cacheLockFactory = new RecordingCacheLockFactory();
+    ConflictingVersionStore versionStore = new ConflictingVersionStore(2);
+
+    // when
+    int result = counter(target, cacheLockFactory, versionStore).count("a");
+
+    // then
+    Assertions.assertEquals(3, result);
+    Assertions.assertEquals(3, versionStore.attempts.size());
+    Assertions.assertEquals(1, versionStore.committed.size());
+    VersionedWrite write = versionStore.committed.getFirst();
+    Assertions.assertEquals("counter::a", write.getKey());
+    Assertions.assertEquals("a", write.getLockName());
+    Assertions.assertEquals(VersionedWrite.ABSENT, write.getExpectedVersion());
+    Assertions.assertEquals("3", new String(write.getValue(), StandardCharsets.UTF_8));
+    // side effects of the attempts which conflicted are dropped
+    Assertions.assertEquals(List.of("a=3"), target.sent);
+    Assertions.assertEquals(List.of(), cacheLockFactory.acquired);
+    Assertions.assertFalse(CacheLockManager.isSynchronizationActive());
+  }
+
+  @Test
+  void test_every_conflict_falls_back_to_locks() {
+    // given
+    Counter target = new Counter();
+    RecordingCacheLockFactory cacheLockFactory = new RecordingCacheLockFactory();
+    ConflictingVersionStore versionStore = new ConflictingVersionStore(Integer.MAX_VALUE);
+
+    // when
+    int result = counter(target, cacheLockFactory, versionStore).count("a");
+
+    // then
+    Assertions.assertEquals(4, result);
+    Assertions.assertEquals(3, versionStore.attempts.size());
+    Assertions.assertEquals(List.of("a=4"), target.stored);
+    Assertions.assertEquals(List.of("a=4"), target.sent);
+    Assertions.assertEquals(List.of("a"), cacheLockFactory.acquired);
+    Assertions.assertEquals(List.of("a"), cacheLockFactory.released);
+    Assertions.assertFalse(CacheLockManager.isSynchronizationActive());
+  }
+
+  @Test
+  void test_failures_are_not_retried_nor_committed() {
+    // given
+    Counter target = new Counter();
+    ConflictingVersionStore versionStore = new ConflictingVersionStore(0);
+    Counter counter = counter(target, new RecordingCacheLockFactory(), versionStore);
+
+    // when
+    Assertions.assertThrows(IllegalStateException.class, () -> counter.fail("a"));
+
+    // then
+    Assertions.assertEquals(1, target.runs);
+    Assertions.assertEquals(List.of(), versionStore.attempts);
+    Assertions.assertEquals(List.of(), target.sent);
+    Assertions.assertFalse(CacheLockManager.isSynchronizationActive());
+  }
+
+  @Test
+  void test_after_commit_runs_at_once_without_optimistic_synchronization() {
+    // given
+    List<String> sent = new ArrayList<>();
+
+    // when
+    CacheLockManager.runAfterCommit(() -> sent.add("unsynchronized"));
+    CacheLockManager.initSynchronization(false);
+    try {
+      CacheLockManager.runAfterCommit(() -> sent.add("pessimistic"));
+    } finally {
+      CacheLockManager.clearLocks();
+    }
+
+    // then
+    Assertions.assertEquals(List.of("unsynchronized", "pessimistic"), sent);
+  }
+}
@@ -0,0 +1,124 @@
+/**********
+ This project is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the
+ Free Software Foundation; either version 3.0 of the License, or (at your
+ option) any later version. (See <https://www.gnu.org/licenses/gpl-3.0.html>.)
+
+ This project is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this project; if not, write to the Free Software Foundation, Inc.,
+ 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301  USA
+ **********/
+// Copyright (c) 2024-2025 Sergio Exposito.  All rights reserved.              
+
+package io.oigres.ecomm.cache;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.data.redis.cache.RedisCacheWriter;
+
+public class OptimisticRedisCacheWriterTests {
+  private static final Duration TTL = Duration.ofMinutes(1);
+
+  private static byte[] bytes(String value) {
+    return value.getBytes(StandardCharsets.UTF_8);
+  }
+
+  @Test
+  void test_optimistic_reads_record_versions_and_writes_are_kept() {
+    // given
+    RedisCacheWriter delegate = Mockito.mock(RedisCacheWriter.class);
+    Mockito.when(delegate.get("cache", bytes("cache::a"))).thenReturn(bytes("1"));
+    OptimisticRedisCacheWriter writer = new OptimisticRedisCacheWriter(delegate);
+
+    // when
+    CacheLockManager.initSynchronization(true);
+    List<VersionedWrite> writes;
+    byte[] pending;
+    try {
+      writer.get("cache", bytes("cache::a"));
+      writer.put("cache", bytes("cache::a"), bytes("2"), TTL);
+      writer.put("cache", bytes("cache::b"), bytes("3"), TTL);
+      pending = writer.get("cache", bytes("cache::a"));
+      writes = CacheLockManager.getPendingWrites();
+    } finally {
+      CacheLockManager.clearLocks();
+    }
+
+    // then
+    Assertions.assertArrayEquals(bytes("2"), pending);
+    Assertions.assertEquals(2, writes.size());
+    Assertions.assertEquals("cache::a", writes.get(0).getKey());
+    Assertions.assertEquals("a", writes.get(0).getLockName());
+    Assertions.assertEquals(
+        VersionedWrite.versionOf(bytes("1")), writes.get(0).getExpectedVersion());
+    // keys which were not read are written without checking their version
+    Assertions.assertEquals("b", writes.get(1).getLockName());
+    Assertions.assertNull(writes.get(1).getExpectedVersion());
+    Mockito.verify(delegate, Mockito.times(1)).get("cache", bytes("cache::a"));
+    Mockito.verify(delegate, Mockito.never())
+        .put(Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any());
+  }
+
+  @Test
+  void test_optimistic_multi_key_reads_skip_pending_writes() {
+    // given
+    MultiKeyRedisCacheWriter delegate = Mockito.mock(MultiKeyRedisCacheWriter.class);
+    Mockito.when(delegate.getAll(Mockito.eq("cache"), Mockito.anyList()))
+        .thenAnswer(
+            invocation -> {
+              List<byte[]> keys = invocation.getArgument(1);
+              Assertions.assertEquals(1, keys.size());
+              Assertions.assertArrayEquals(bytes("cache::b"), keys.get(0));
+              return Collections.singletonList(null);
+            });
+    OptimisticRedisCacheWriter writer = new OptimisticRedisCacheWriter(delegate);
+
+    // when
+    CacheLockManager.initSynchronization(true);
+    List<byte[]> values;
+    List<VersionedWrite> writes;
+    try {
+      writer.put("cache", bytes("cache::a"), bytes("1"), TTL);
+      values = writer.getAll("cache", List.of(bytes("cache::a"), bytes("cache::b")));
+      writer.put("cache", bytes("cache::b"), bytes("2"), TTL);
+      writes = CacheLockManager.getPendingWrites();
+    } finally {
+      CacheLockManager.clearLocks();
+    }
+
+    // then
+    Assertions.assertArrayEquals(bytes("1"), values.get(0));
+    Assertions.assertNull(values.get(1));
+    Assertions.assertEquals(VersionedWrite.ABSENT, writes.get(1).getExpectedVersion());
+  }
+
+  @Test
+  void test_other_calls_go_to_the_delegate() {
+    // given
+    RedisCacheWriter delegate = Mockito.mock(RedisCacheWriter.class);
+    OptimisticRedisCacheWriter writer = new OptimisticRedisCacheWriter(delegate);
+
+    // when
+    writer.put("cache", bytes("cache::a"), bytes("1"), TTL);
+    CacheLockManager.initSynchronization(false);
+    try {
+      writer.put("cache", bytes("cache::b"), bytes("2"), TTL);
+    } finally {
+      CacheLockManager.clearLocks();
+    }
+
+    // then
+    Mockito.verify(delegate).put("cache", bytes("cache::a"), bytes("1"), TTL);
+    Mockito.verify(delegate).put("cache", bytes("cache::b"), bytes("2"), TTL);
+  }
+}
@@ -0,0 +1,178 @@
+/**********
+ This project is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the
+ Free Software Foundation; either version 3.0 of the License, or (at your
+ option) any later version. (See <https://www.gnu.org/licenses/gpl-3.0.html>.)
+
+ This project is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this project; if not, write to the Free Software Foundation, Inc.,
+ 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301  USA
+ **********/
+// Copyright (c) 2024-2025 Sergio Exposito.  All rights reserved.              
+
+package io.oigres.ecomm.cache;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mockito;
+import org.springframework.cache.Cache;
+import org.springframework.data.redis.cache.CacheStatistics;
+import org.springframework.data.redis.cache.CacheStatisticsCollector;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+import org.springframework.data.redis.cache.RedisCacheWriter;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.connection.RedisStringCommands.SetOption;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.data.redis.serializer.RedisSerializationContext;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+
+public class PipelinedRedisCacheWriterTests {
+  private final RedisConnectionFactory connectionFactory =
+      Mockito.mock(RedisConnectionFactory.class);
+  private final RedisConnection connection = Mockito.mock(RedisConnection.class);
+  private final RedisStringCommands stringCommands = Mockito.mock(RedisStringCommands.class);
+  private final RedisCacheWriter delegate = Mockito.mock(RedisCacheWriter.class);
+
+  PipelinedRedisCacheWriterTests() {
+    Mockito.when(this.connectionFactory.getConnection()).thenReturn(this.connection);
+    Mockito.when(this.connection.stringCommands()).thenReturn(this.stringCommands);
+    Mockito.when(this.delegate.withStatisticsCollector(Mockito.any())).thenReturn(this.delegate);
+  }
+
+  private static byte[] bytes(String value) {
+    return value.getBytes(StandardCharsets.UTF_8);
+  }
+
+  @Test
+  void test_keys_are_read_with_one_mget() {
+    // given
+    CacheStatisticsCollector statistics = CacheStatisticsCollector.create();
+    MultiKeyRedisCacheWriter writer =
+        (MultiKeyRedisCacheWriter)
+            new PipelinedRedisCacheWriter(this.connectionFactory, this.delegate)
+                .withStatisticsCollector(statistics);
+    Mockito.when(this.stringCommands.mGet(Mockito.any(byte[][].class)))
+        .thenReturn(Arrays.asList(bytes("1"), null));
+
+    // when
+    List<byte[]> values = writer.getAll("cache", List.of(bytes("a"), bytes("b")));
+    List<byte[]> empty = writer.getAll("cache", List.of());
+
+    // then
+    Assertions.assertArrayEquals(bytes("1"), values.get(0));
+    Assertions.assertNull(values.get(1));
+    Assertions.assertEquals(List.of(), empty);
+    Mockito.verify(this.stringCommands).mGet(bytes("a"), bytes("b"));
+    Mockito.verify(this.connectionFactory, Mockito.times(1)).getConnection();
+    Mockito.verify(this.connection).close();
+    CacheStatistics cacheStatistics = statistics.getCacheStatistics("cache");
+    Assertions.assertEquals(2, cacheStatistics.getGets());
+    Assertions.assertEquals(1, cacheStatistics.getHits());
+    Assertions.assertEquals(1, cacheStatistics.getMisses());
+  }
+
+  @Test
+  void test_keys_are_written_on_one_pipeline_with_their_own_ttl() {
+    // given
+    PipelinedRedisCacheWriter writer =
+        new PipelinedRedisCacheWriter(this.connectionFactory, this.delegate);
+    List<CacheWrite> writes =
+        List.of(
+            CacheWrite.builder()
+                .key(bytes("a"))
+                .value(bytes("1"))
+                .ttl(Duration.ofSeconds(5))
+                .build(),
+            CacheWrite.builder().key(bytes("b")).value(bytes("2")).ttl(Duration.ZERO).build(),
+            CacheWrite.builder().key(bytes("c")).value(bytes("3")).build());
+
+    // when
+    writer.putAll("cache", writes);
+    writer.putAll("cache", List.of());
+
+    // then
+    InOrder inOrder = Mockito.inOrder(this.connection, this.stringCommands);
+    inOrder.verify(this.connection).openPipeline();
+    inOrder
+        .verify(this.stringCommands)
+        .set(bytes("a"), bytes("1"), Expiration.from(Duration.ofSeconds(5)), SetOption.upsert());
+    inOrder
+        .verify(this.stringCommands)
+        .set(bytes("b"), bytes("2"), Expiration.persistent(), SetOption.upsert());
+    inOrder
+        .verify(this.stringCommands)
+        .set(bytes("c"), bytes("3"), Expiration.persistent(), SetOption.upsert());
+    inOrder.verify(this.connection).closePipeline();
+    inOrder.verify(this.connection).close();
+    Mockito.verify(this.connectionFactory, Mockito.times(1)).getConnection();
+  }
+
+  @Test
+  void test_single_key_calls_go_to_the_delegate() {
+    // given
+    PipelinedRedisCacheWriter writer =
+        new PipelinedRedisCacheWriter(this.connectionFactory, this.delegate);
+    Mockito.when(this.delegate.get("cache", bytes("a"))).thenReturn(bytes("1"));
+
+    // when
+    byte[] value = writer.get("cache", bytes("a"));
+    writer.put("cache", bytes("a"), bytes("2"), Duration.ofSeconds(5));
+    writer.remove("cache", bytes("a"));
+
+    // then
+    Assertions.assertArrayEquals(bytes("1"), value);
+    Mockito.verify(this.delegate).put("cache", bytes("a"), bytes("2"), Duration.ofSeconds(5));
+    Mockito.verify(this.delegate).remove("cache", bytes("a"));
+    Mockito.verifyNoInteractions(this.connectionFactory);
+  }
+
+  @Test
+  void test_cache_reads_and_writes_many_keys_with_one_call() {
+    // given
+    MultiKeyRedisCacheWriter writer = Mockito.mock(MultiKeyRedisCacheWriter.class);
+    RedisCacheConfiguration configuration =
+        RedisCacheConfiguration.defaultCacheConfig()
+            .entryTtl((key, value) -> Duration.ofSeconds(key.toString().length()))
+            .serializeValuesWith(
+                RedisSerializationContext.SerializationPair.fromSerializer(
+                    StringRedisSerializer.UTF_8));
+    MultiKeyRedisCache cache = new MultiKeyRedisCache("cache", writer, configuration);
+    Mockito.when(writer.getAll(Mockito.eq("cache"), Mockito.anyList()))
+        .thenReturn(Arrays.asList(null, bytes("2"), bytes("1")));
+    Map<String, String> values = new LinkedHashMap<>();
+    values.put("a", "1");
+    values.put("bb", "2");
+
+    // when
+    cache.putAll(values);
+    Map<Object, Cache.ValueWrapper> found = cache.getAll(List.of("missing", "bb", "a"));
+
+    // then
+    @SuppressWarnings("unchecked")
+    ArgumentCaptor<List<CacheWrite>> written = ArgumentCaptor.forClass(List.class);
+    Mockito.verify(writer).putAll(Mockito.eq("cache"), written.capture());
+    Assertions.assertEquals(2, written.getValue().size());
+    Assertions.assertArrayEquals(bytes("cache::a"), written.getValue().get(0).getKey());
+    Assertions.assertEquals(Duration.ofSeconds(1), written.getValue().get(0).getTtl());
+    Assertions.assertEquals(Duration.ofSeconds(2), written.getValue().get(1).getTtl());
+    Assertions.assertEquals(List.of("bb", "a"), new ArrayList<>(found.keySet()));
+    Assertions.assertEquals("2", found.get("bb").get());
+    Assertions.assertEquals("1", found.get("a").get());
+  }
+}
@@ -0,0 +1,184 @@
+/**********
+ This project is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the
+ Free Software Foundation; either version 3.0 of the License, or (at your
+ option) any later version. (See <https://www.gnu.org/licenses/gpl-3.0.html>.)
+
+ This project is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this project; if not, write to the Free Software Foundation, Inc.,
+ 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301  USA
+ **********/
+// Copyright (c) 2024-2025 Sergio Exposito.  All rights reserved.              
+
+package io.oigres.ecomm.cache;
+
+import io.oigres.ecomm.cache.annotations.CacheLock;
+import io.oigres.ecomm.cache.annotations.LockMode;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.redisson.api.RedissonClient;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.cache.Cache;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+
+public class ReadOnlyCacheLockTests {
+
+  /** Lock factory of local read-write locks. */
+  private static class ReadWriteCacheLockFactory implements CacheLockFactory {
+    private final Map<String, ReentrantReadWriteLock> locks = new ConcurrentHashMap<>();
+
+    private ReentrantReadWriteLock lockOf(String name) {
+      return this.locks.computeIfAbsent(name, key -> new ReentrantReadWriteLock());
+    }
+
+    @Override
+    public Lock create(String name) {
+      return lockOf(name).writeLock();
+    }
+
+    @Override
+    public Lock createShared(String name) {
+      return lockOf(name).readLock();
+    }
+  }
+
+  /** Service which reads and writes a cache while the key of its argument is locked. */
+  public static class Service {
+    private final Cache cache;
+
+    public Service(Cache cache) {
+      this.cache = cache;
+    }
+
+    @CacheLock(keys = "#p0", readOnly = true)
+    public Object read(String key, CountDownLatch entered, CountDownLatch leave)
+        throws InterruptedException {
+      entered.countDown();
+      leave.await();
+      return this.cache.get(key);
+    }
+
+    @CacheLock(keys = "#p0", readOnly = true, waitTimeout = 50)
+    public void writeWhileReading(String key) {
+      this.cache.put(key, "value");
+    }
+
+    @CacheLock(keys = "#p0", waitTimeout = 50)
+    public void write(String key) {
+      this.cache.put(key, "value");
+    }
+  }
+
+  private static Service service(CacheLockFactory cacheLockFactory) {
+    Cache cache = new LockAwareCacheDecorator(cacheLockFactory, new ConcurrentMapCache("test"));
+    AspectJProxyFactory proxyFactory = new AspectJProxyFactory(new Service(cache));
+    proxyFactory.setProxyTargetClass(true);
+    proxyFactory.addAspect(
+        new CacheLockAspect(
+            cacheLockFactory, null, LockMode.PESSIMISTIC, 1, CacheLockOptions.UNBOUNDED));
+    return proxyFactory.getProxy();
+  }
+
+  private static CompletableFuture<Object> readOnOtherThread(
+      Service service, String key, CountDownLatch entered, CountDownLatch leave) {
+    CompletableFuture<Object> result = new CompletableFuture<>();
+    Thread.ofPlatform()
+        .start(
+            () -> {
+              try {
+                result.complete(service.read(key, entered, leave));
+              } catch (Throwable t) {
+                result.completeExceptionally(t);
+              }
+            });
+    return result;
+  }
+
+  @Test
+  void test_readers_hold_shared_locks_together_and_exclude_writers() throws Exception {
+    // given
+    Service service = service(new ReadWriteCacheLockFactory());
+    CountDownLatch entered = new CountDownLatch(2);
+    CountDownLatch leave = new CountDownLatch(1);
+
+    // when
+    CompletableFuture<Object> first = readOnOtherThread(service, "a", entered, leave);
+    CompletableFuture<Object> second = readOnOtherThread(service, "a", entered, leave);
+    boolean together = entered.await(5, TimeUnit.SECONDS);
+    Assertions.assertThrows(CacheLockTimeoutException.class, () -> service.write("a"));
+    leave.countDown();
+    first.get(5, TimeUnit.SECONDS);
+    second.get(5, TimeUnit.SECONDS);
+    service.write("a");
+
+    // then
+    Assertions.assertTrue(together);
+  }
+
+  @Test
+  void test_read_only_methods_cannot_write() {
+    // given
+    Service service = service(new ReadWriteCacheLockFactory());
+
+    // when
+    IllegalStateException e =
+        Assertions.assertThrows(IllegalStateException.class, () -> service.writeWhileReading("a"));
+
+    // then
+    Assertions.assertTrue(e.getMessage().contains("read only"));
+    Assertions.assertFalse(CacheLockManager.isSynchronizationActive());
+  }
+
+  @Test
+  void test_redisson_read_locks_are_shared_and_write_locks_exclusive() throws Exception {
+    // given
+    RedissonClient redissonClient = RedisTestSupport.redissonClient();
+    try {
+      RedissonCacheLockFactory cacheLockFactory =
+          new RedissonCacheLockFactory(redissonClient, true);
+      String name = RedisTestSupport.keyPrefix() + "a";
+      Lock held = cacheLockFactory.createShared(name);
+      held.lock();
+      try {
+        // when
+        CompletableFuture<Boolean> shared =
+            CompletableFuture.supplyAsync(() -> tryAndRelease(cacheLockFactory.createShared(name)));
+        CompletableFuture<Boolean> exclusive =
+            CompletableFuture.supplyAsync(() -> tryAndRelease(cacheLockFactory.create(name)));
+
+        // then
+        Assertions.assertTrue(shared.get(5, TimeUnit.SECONDS));
+        Assertions.assertFalse(exclusive.get(5, TimeUnit.SECONDS));
+      } finally {
+        held.unlock();
+      }
+    } finally {
+      redissonClient.shutdown();
+    }
+  }
+
+  private static boolean tryAndRelease(Lock lock) {
+    try {
+      if (!lock.tryLock(50, TimeUnit.MILLISECONDS)) {
+        return false;
+      }
+      lock.unlock();
+      return true;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    }
+  }
+}
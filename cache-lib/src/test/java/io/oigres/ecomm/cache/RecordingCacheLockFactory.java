@@ -0,0 +1,142 @@
+/**********
+ This project is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the
+ Free Software Foundation; either version 3.0 of the License, or (at your
+ option) any later version. (See <https://www.gnu.org/licenses/gpl-3.0.html>.)
+
+ This project is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this project; if not, write to the Free Software Foundation, Inc.,
+ 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301  USA
+ **********/
+// Copyright (c) 2024-2025 Sergio Exposito.  All rights reserved.              
+
+package io.oigres.ecomm.cache;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/** Lock factory of local locks, which records the names of the locks which are acquired. */
+class RecordingCacheLockFactory implements CacheLockFactory {
+  final Map<String, ReentrantLock> locks = new ConcurrentHashMap<>();
+  final List<String> attempted = new CopyOnWriteArrayList<>();
+  final List<String> acquired = new CopyOnWriteArrayList<>();
+  final List<String> released = new CopyOnWriteArrayList<>();
+
+  @Override
+  public Lock create(String name) {
+    return new RecordingLock(name, this.locks.computeIfAbsent(name, key -> new ReentrantLock()));
+  }
+
+  /** Local lock of a name, or null when it was never created. */
+  ReentrantLock lockOf(String name) {
+    return this.locks.get(name);
+  }
+
+  /** Lock of a name which is held by another thread until it is closed. */
+  interface Hold extends AutoCloseable {
+    @Override
+    void close();
+  }
+
+  /** Hold the lock of a name on another thread, until the returned hold is closed. */
+  Hold hold(String name) throws InterruptedException {
+    ReentrantLock lock = this.locks.computeIfAbsent(name, key -> new ReentrantLock());
+    CountDownLatch held = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    Thread holder =
+        Thread.ofPlatform()
+            .start(
+                () -> {
+                  lock.lock();
+                  try {
+                    held.countDown();
+                    release.await();
+                  } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                  } finally {
+                    lock.unlock();
+                  }
+                });
+    held.await();
+    return () -> {
+      release.countDown();
+      try {
+        holder.join();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    };
+  }
+
+  private class RecordingLock implements Lock {
+    private final String name;
+    private final ReentrantLock lock;
+
+    RecordingLock(String name, ReentrantLock lock) {
+      this.name = name;
+      this.lock = lock;
+    }
+
+    @Override
+    public void lock() {
+      attempted.add(this.name);
+      this.lock.lock();
+      acquired.add(this.name);
+    }
+
+    @Override
+    public void lockInterruptibly() throws InterruptedException {
+      attempted.add(this.name);
+      this.lock.lockInterruptibly();
+      acquired.add(this.name);
+    }
+
+    @Override
+    public boolean tryLock() {
+      attempted.add(this.name);
+      boolean locked = this.lock.tryLock();
+      if (locked) {
+        acquired.add(this.name);
+      }
+      return locked;
+    }
+
+    @Override
+    public boolean tryLock(long time, TimeUnit unit) throws InterruptedException {
+      attempted.add(this.name);
+      boolean locked = this.lock.tryLock(time, unit);
+      if (locked) {
+        acquired.add(this.name);
+      }
+      return locked;
+    }
+
+    @Override
+    public void unlock() {
+      this.lock.unlock();
+      released.add(this.name);
+    }
+
+    @Override
+    public Condition newCondition() {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public String toString() {
+      return this.name;
+    }
+  }
+}
@@ -0,0 +1,153 @@
+/**********
+ This project is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the
+ Free Software Foundation; either version 3.0 of the License, or (at your
+ option) any later version. (See <https://www.gnu.org/licenses/gpl-3.0.html>.)
+
+ This project is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this project; if not, write to the Free Software Foundation, Inc.,
+ 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301  USA
+ **********/
+// Copyright (c) 2024-2025 Sergio Exposito.  All rights reserved.              
+
+package io.oigres.ecomm.cache;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.redisson.api.RBucket;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.ByteArrayCodec;
+
+public class RedissonCacheVersionStoreTests {
+  private static RedissonClient redissonClient;
+  private static String prefix;
+
+  @BeforeAll
+  static void connect() {
+    redissonClient = RedisTestSupport.redissonClient();
+    prefix = RedisTestSupport.keyPrefix();
+  }
+
+  @AfterAll
+  static void disconnect() {
+    if (redissonClient != null) {
+      redissonClient.getKeys().deleteByPattern(prefix + "*");
+      redissonClient.shutdown();
+    }
+  }
+
+  private static byte[] bytes(String value) {
+    return value.getBytes(StandardCharsets.UTF_8);
+  }
+
+  private static RBucket<byte[]> bucket(String key) {
+    return redissonClient.getBucket(prefix + key, ByteArrayCodec.INSTANCE);
+  }
+
+  private static VersionedWrite write(String key, String value, String expectedVersion) {
+    return VersionedWrite.builder()
+        .key(prefix + key)
+        .lockName(prefix + "lock:" + key)
+        .value(bytes(value))
+        .ttl(Duration.ofMinutes(1))
+        .expectedVersion(expectedVersion)
+        .build();
+  }
+
+  @Test
+  void test_values_with_their_read_version_are_written() {
+    // given
+    CacheVersionStore store = new RedissonCacheVersionStore(redissonClient);
+    bucket("same").set(bytes("1"));
+
+    // when
+    boolean written =
+        store.compareAndSet(
+            List.of(
+                write("same", "2", VersionedWrite.versionOf(bytes("1"))),
+                write("absent", "3", VersionedWrite.ABSENT),
+                write("unread", "4", null)));
+
+    // then
+    Assertions.assertTrue(written);
+    Assertions.assertArrayEquals(bytes("2"), bucket("same").get());
+    Assertions.assertArrayEquals(bytes("3"), bucket("absent").get());
+    Assertions.assertArrayEquals(bytes("4"), bucket("unread").get());
+    Assertions.assertTrue(bucket("same").remainTimeToLive() > 0);
+  }
+
+  @Test
+  void test_changed_values_reject_every_write() {
+    // given
+    CacheVersionStore store = new RedissonCacheVersionStore(redissonClient);
+    bucket("changed").set(bytes("changed"));
+    bucket("created").set(bytes("created"));
+
+    // when
+    boolean changed =
+        store.compareAndSet(
+            List.of(
+                write("first", "1", VersionedWrite.ABSENT),
+                write("changed", "2", VersionedWrite.versionOf(bytes("read")))));
+    boolean created =
+        store.compareAndSet(
+            List.of(
+                write("first", "1", VersionedWrite.ABSENT),
+                write("created", "2", VersionedWrite.ABSENT)));
+    boolean removed =
+        store.compareAndSet(
+            List.of(write("removed", "1", VersionedWrite.versionOf(bytes("read")))));
+
+    // then
+    Assertions.assertFalse(changed);
+    Assertions.assertFalse(created);
+    Assertions.assertFalse(removed);
+    Assertions.assertNull(bucket("first").get());
+    Assertions.assertArrayEquals(bytes("changed"), bucket("changed").get());
+    Assertions.assertNull(bucket("removed").get());
+  }
+
+  @Test
+  void test_locked_values_are_not_written() {
+    // given
+    CacheVersionStore store = new RedissonCacheVersionStore(redissonClient);
+    redissonClient.getLock(prefix + "lock:locked").lock();
+
+    // when
+    boolean written;
+    try {
+      written = store.compareAndSet(List.of(write("locked", "1", null)));
+    } finally {
+      redissonClient.getLock(prefix + "lock:locked").unlock();
+    }
+    boolean unlocked = store.compareAndSet(List.of(write("locked", "1", null)));
+
+    // then
+    Assertions.assertFalse(written);
+    Assertions.assertTrue(unlocked);
+  }
+
+  @Test
+  void test_script_is_loaded_again_when_it_was_flushed() {
+    // given
+    CacheVersionStore store = new RedissonCacheVersionStore(redissonClient);
+    redissonClient.getScript().scriptFlush();
+
+    // when
+    boolean written = store.compareAndSet(List.of(write("flushed", "1", null)));
+
+    // then
+    Assertions.assertTrue(written);
+    Assertions.assertArrayEquals(bytes("1"), bucket("flushed").get());
+  }
+}
@@ -0,0 +1,74 @@
+/**********
+ This project is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the
+ Free Software Foundation; either version 3.0 of the License, or (at your
+ option) any later version. (See <https://www.gnu.org/licenses/gpl-3.0.html>.)
+
+ This project is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this project; if not, write to the Free Software Foundation, Inc.,
+ 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301  USA
+ **********/
+// Copyright (c) 2024-2025 Sergio Exposito.  All rights reserved.              
+
+package io.oigres.ecomm.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/** Value of the serializer tests, with a binary codec and json serializers. */
+record SampleValue(String id, String path, List<String> headers, long count) {
+
+  /** Binary codec of sample values. */
+  static final BinaryCodec<SampleValue> CODEC =
+      new BinaryCodec<>() {
+        @Override
+        public void write(SampleValue value, BinaryWriter writer) {
+          writer.writeString(value.id());
+          writer.writeDictionaryString(value.path());
+          writer.writeVarInt(value.headers().size());
+          value.headers().forEach(writer::writeString);
+          writer.writeSignedVarLong(value.count());
+        }
+
+        @Override
+        public SampleValue read(BinaryReader reader) {
+          String id = reader.readString();
+          String path = reader.readDictionaryString();
+          int size = reader.readVarInt();
+          List<String> headers = new ArrayList<>(size);
+          for (int i = 0; i < size; i++) {
+            headers.add(reader.readString());
+          }
+          return new SampleValue(id, path, headers, reader.readSignedVarLong());
+        }
+      };
+
+  /** Value of an id with the given number of headers, which repeat like headers of requests. */
+  static SampleValue of(String id, int headers) {
+    return new SampleValue(
+        id,
+        "/api/v1/products",
+        IntStream.range(0, headers)
+            .mapToObj(
+                i ->
+                    "user-agent: Mozilla/5.0 (X11; Linux x86_64); accept: application/json; page: "
+                        + i)
+            .toList(),
+        -headers);
+  }
+
+  static BinaryRedisSerializer<SampleValue> binarySerializer() {
+    return new BinaryRedisSerializer<>(CODEC);
+  }
+
+  static JacksonRedisSerializer<SampleValue> jsonSerializer() {
+    return new JacksonRedisSerializer<>(new ObjectMapper(), SampleValue.class);
+  }
+}
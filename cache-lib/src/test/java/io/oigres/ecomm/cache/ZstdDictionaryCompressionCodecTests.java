@@ -0,0 +1,152 @@
+/**********
+ This project is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the
+ Free Software Foundation; either version 3.0 of the License, or (at your
+ option) any later version. (See <https://www.gnu.org/licenses/gpl-3.0.html>.)
+
+ This project is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this project; if not, write to the Free Software Foundation, Inc.,
+ 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301  USA
+ **********/
+// Copyright (c) 2024-2025 Sergio Exposito.  All rights reserved.              
+
+package io.oigres.ecomm.cache;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntFunction;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.serializer.SerializationException;
+
+public class ZstdDictionaryCompressionCodecTests {
+  private static final BinaryRedisSerializer<SampleValue> BINARY_SERIALIZER =
+      SampleValue.binarySerializer();
+  private static byte[] productsDictionary;
+  private static byte[] ordersDictionary;
+
+  @BeforeAll
+  static void setup() {
+    productsDictionary = train(i -> SampleValue.of("user-" + i, 1 + i % 4));
+    ordersDictionary =
+        train(
+            i ->
+                new SampleValue(
+                    "order-" + i,
+                    "/api/v2/orders/" + i,
+                    List.of("content-type: text/html; charset=utf-8", "x-order: " + i * 7),
+                    i));
+  }
+
+  private static byte[] train(IntFunction<SampleValue> samples) {
+    ZstdDictionaryTrainer trainer = new ZstdDictionaryTrainer(1024 * 1024, 4096);
+    for (int i = 0; i < 500; i++) {
+      trainer.addSample(BINARY_SERIALIZER.serialize(samples.apply(i)));
+    }
+    return trainer.train();
+  }
+
+  private static FramedRedisSerializer<SampleValue> serializer(byte[]... dictionaries) {
+    return new FramedRedisSerializer<>(
+        BINARY_SERIALIZER,
+        CompressionType.ZSTD_DICTIONARY,
+        FramedRedisSerializer.DEFAULT_MIN_SIZE,
+        BINARY_SERIALIZER,
+        Map.of(
+            CompressionType.ZSTD_DICTIONARY,
+            new ZstdDictionaryCompressionCodec(List.of(dictionaries))));
+  }
+
+  @Test
+  void test_small_values_are_compressed_better_with_a_dictionary() {
+    // given
+    FramedRedisSerializer<SampleValue> serializer = serializer(productsDictionary);
+    FramedRedisSerializer<SampleValue> zstd =
+        new FramedRedisSerializer<>(BINARY_SERIALIZER, CompressionType.ZSTD);
+    SampleValue value = SampleValue.of("other", 2);
+
+    // when
+    byte[] serialized = serializer.serialize(value);
+    SampleValue deserialized = serializer.deserialize(serialized);
+
+    // then
+    int withoutDictionary = zstd.serialize(value).length;
+    Assertions.assertEquals(CompressionType.ZSTD_DICTIONARY.getId(), serialized[1]);
+    Assertions.assertTrue(
+        serialized.length < withoutDictionary,
+        String.format("dictionary %d, zstd %d", serialized.length, withoutDictionary));
+    Assertions.assertEquals(value, deserialized);
+  }
+
+  @Test
+  void test_values_of_previous_dictionaries_are_read() {
+    // given
+    FramedRedisSerializer<SampleValue> previous = serializer(productsDictionary);
+    FramedRedisSerializer<SampleValue> rolledOut = serializer(ordersDictionary, productsDictionary);
+    SampleValue value = SampleValue.of("other", 2);
+
+    // when
+    SampleValue deserialized = rolledOut.deserialize(previous.serialize(value));
+
+    // then
+    Assertions.assertEquals(value, deserialized);
+    Assertions.assertEquals(value, rolledOut.deserialize(rolledOut.serialize(value)));
+  }
+
+  @Test
+  void test_values_of_unknown_dictionaries_are_rejected() {
+    // given
+    Assertions.assertNotEquals(
+        ZstdDictionaryCompressionCodec.dictionaryId(productsDictionary),
+        ZstdDictionaryCompressionCodec.dictionaryId(ordersDictionary));
+    byte[] serialized = serializer(productsDictionary).serialize(SampleValue.of("other", 2));
+
+    // when
+    SerializationException mismatch =
+        Assertions.assertThrows(
+            SerializationException.class,
+            () -> serializer(ordersDictionary).deserialize(serialized));
+    SerializationException withoutDictionaries =
+        Assertions.assertThrows(
+            SerializationException.class,
+            () ->
+                new FramedRedisSerializer<>(BINARY_SERIALIZER, CompressionType.ZSTD)
+                    .deserialize(serialized));
+
+    // then
+    Assertions.assertTrue(mismatch.getCause().getMessage().contains("is unknown"));
+    Assertions.assertInstanceOf(IllegalStateException.class, withoutDictionaries.getCause());
+  }
+
+  @Test
+  void test_corrupt_dictionary_values_are_rejected() {
+    // given
+    FramedRedisSerializer<SampleValue> serializer = serializer(productsDictionary);
+    byte[] serialized = serializer.serialize(SampleValue.of("other", 2));
+    byte[] corrupt = serialized.clone();
+    for (int i = 10; i < corrupt.length; i++) {
+      corrupt[i] = (byte) ~corrupt[i];
+    }
+
+    // when / then
+    Assertions.assertThrows(SerializationException.class, () -> serializer.deserialize(corrupt));
+    Assertions.assertThrows(
+        SerializationException.class, () -> serializer.deserialize(Arrays.copyOf(serialized, 8)));
+  }
+
+  @Test
+  void test_codec_needs_dictionaries_with_id() {
+    Assertions.assertThrows(
+        IllegalArgumentException.class, () -> new ZstdDictionaryCompressionCodec(List.of()));
+    Assertions.assertThrows(
+        IllegalArgumentException.class,
+        () -> ZstdDictionaryCompressionCodec.dictionaryId(new byte[] {1, 2, 3, 4, 5, 6, 7, 8}));
+  }
+}
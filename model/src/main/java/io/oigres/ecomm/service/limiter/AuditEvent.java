@@ -0,0 +1,52 @@
+/**********
+ This project is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the
+ Free Software Foundation; either version 3.0 of the License, or (at your
+ option) any later version. (See <https://www.gnu.org/licenses/gpl-3.0.html>.)
+
+ This project is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this project; if not, write to the Free Software Foundation, Inc.,
+ 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301  USA
+ **********/
+// Copyright (c) 2024-2025 Sergio Exposito.  All rights reserved.              
+
+package io.oigres.ecomm.service.limiter;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+/** Item of a batch of audits, which carries either a request or a response. */
+@Builder
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class AuditEvent {
+  private RequestAudit request;
+  private ResponseAudit response;
+
+  public static AuditEvent of(RequestAudit request) {
+    return AuditEvent.builder().request(request).build();
+  }
+
+  public static AuditEvent of(ResponseAudit response) {
+    return AuditEvent.builder().response(response).build();
+  }
+
+  @JsonIgnore
+  public String getUserId() {
+    if (this.request != null) {
+      return this.request.getUserId();
+    }
+    return this.response != null ? this.response.getUserId() : null;
+  }
+}
@@ -0,0 +1,58 @@
+/**********
+ This project is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the
+ Free Software Foundation; either version 3.0 of the License, or (at your
+ option) any later version. (See <https://www.gnu.org/licenses/gpl-3.0.html>.)
+
+ This project is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this project; if not, write to the Free Software Foundation, Inc.,
+ 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301  USA
+ **********/
+// Copyright (c) 2024-2025 Sergio Exposito.  All rights reserved.              
+
+package io.oigres.ecomm.service.limiter;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.List;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+public class AuditBatchResultTest {
+  private static ObjectMapper mapper;
+
+  @BeforeAll
+  static void setup() {
+    mapper = new ObjectMapper();
+  }
+
+  @Test
+  void test_serialize_deserialize() throws JsonProcessingException {
+    // given
+    AuditBatchResult result =
+        AuditBatchResult.builder()
+            .processed(9)
+            .failures(
+                List.of(AuditBatchResult.Failure.builder().index(3).error("error test").build()))
+            .build();
+
+    // when
+    String json = mapper.writeValueAsString(result);
+    // then
+    Assertions.assertNotNull(json);
+
+    // when
+    AuditBatchResult deserialized = mapper.readValue(json, AuditBatchResult.class);
+    // then
+    Assertions.assertEquals(9, deserialized.getProcessed());
+    Assertions.assertEquals(1, deserialized.getFailures().size());
+    Assertions.assertEquals(3, deserialized.getFailures().getFirst().getIndex());
+    Assertions.assertEquals("error test", deserialized.getFailures().getFirst().getError());
+  }
+}
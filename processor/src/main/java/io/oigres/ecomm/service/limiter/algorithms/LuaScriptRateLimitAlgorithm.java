@@ -0,0 +1,66 @@
+/**********
+ This project is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the
+ Free Software Foundation; either version 3.0 of the License, or (at your
+ option) any later version. (See <https://www.gnu.org/licenses/gpl-3.0.html>.)
+
+ This project is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this project; if not, write to the Free Software Foundation, Inc.,
+ 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301  USA
+ **********/
+// Copyright (c) 2024-2025 Sergio Exposito.  All rights reserved.              
+
+package io.oigres.ecomm.service.limiter.algorithms;
+
+import io.oigres.ecomm.service.limiter.repositories.LuaScript;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import org.redisson.api.RScript;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
+
+/**
+ * Base class for algorithms which keep their state on redis and run the whole decision as one
+ * lua script, so no lock is needed.
+ */
+public abstract class LuaScriptRateLimitAlgorithm implements RateLimitAlgorithm {
+  private static final String KEY_PREFIX = "LIMITER::";
+
+  private final RateLimitAlgorithmType type;
+  private final RScript script;
+  private final LuaScript luaScript;
+  private final String keyPrefix;
+
+  protected LuaScriptRateLimitAlgorithm(
+      RedissonClient redissonClient, RateLimitAlgorithmType type, String scriptPath) {
+    this.type = type;
+    this.script = redissonClient.getScript(StringCodec.INSTANCE);
+    this.luaScript = LuaScript.fromClasspath(scriptPath);
+    this.keyPrefix = KEY_PREFIX + type.name() + "::";
+  }
+
+  @Override
+  public RateLimitAlgorithmType getType() {
+    return this.type;
+  }
+
+  @Override
+  public boolean tryAcquire(String key, String requestId, LocalDateTime time, RateLimit rateLimit) {
+    long now = time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    Long allowed =
+        this.luaScript.execute(
+            this.script,
+            RScript.ReturnType.INTEGER,
+            this.keyPrefix + key,
+            now,
+            rateLimit.getLimit(),
+            rateLimit.getWindow().toMillis(),
+            requestId);
+    return allowed != null && allowed == 1;
+  }
+}
@@ -0,0 +1,55 @@
+/**********
+ This project is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the
+ Free Software Foundation; either version 3.0 of the License, or (at your
+ option) any later version. (See <https://www.gnu.org/licenses/gpl-3.0.html>.)
+
+ This project is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this project; if not, write to the Free Software Foundation, Inc.,
+ 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301  USA
+ **********/
+// Copyright (c) 2024-2025 Sergio Exposito.  All rights reserved.              
+
+package io.oigres.ecomm.service.limiter.algorithms;
+
+import io.oigres.ecomm.service.limiter.config.LimiterEngineProperties;
+import org.springframework.boot.autoconfigure.condition.ConditionOutcome;
+import org.springframework.boot.autoconfigure.condition.SpringBootCondition;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.ConditionContext;
+import org.springframework.core.type.AnnotatedTypeMetadata;
+
+/**
+ * Matches when the engine properties select script mode and the algorithm of {@link
+ * ConditionalOnRateLimitAlgorithm}. Properties are bound like the engine does, so defaults and
+ * relaxed names are the same.
+ */
+class OnRateLimitAlgorithmCondition extends SpringBootCondition {
+  private static final String PREFIX = "ecomm.service.limiter.engine";
+
+  @Override
+  public ConditionOutcome getMatchOutcome(
+      ConditionContext context, AnnotatedTypeMetadata metadata) {
+    RateLimitAlgorithmType type =
+        metadata
+            .getAnnotations()
+            .get(ConditionalOnRateLimitAlgorithm.class)
+            .getEnum("value", RateLimitAlgorithmType.class);
+    LimiterEngineProperties properties =
+        Binder.get(context.getEnvironment())
+            .bind(PREFIX, LimiterEngineProperties.class)
+            .orElseGet(LimiterEngineProperties::new);
+    if (properties.getMode() != LimiterEngineProperties.Mode.SCRIPT) {
+      return ConditionOutcome.noMatch("Engine mode is " + properties.getMode());
+    }
+    if (properties.getAlgorithm() != type) {
+      return ConditionOutcome.noMatch("Rate limit algorithm is " + properties.getAlgorithm());
+    }
+    return ConditionOutcome.match("Rate limit algorithm is " + type);
+  }
+}
@@ -0,0 +1,37 @@
+/**********
+ This project is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the
+ Free Software Foundation; either version 3.0 of the License, or (at your
+ option) any later version. (See <https://www.gnu.org/licenses/gpl-3.0.html>.)
+
+ This project is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this project; if not, write to the Free Software Foundation, Inc.,
+ 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301  USA
+ **********/
+// Copyright (c) 2024-2025 Sergio Exposito.  All rights reserved.              
+
+package io.oigres.ecomm.service.limiter.algorithms;
+
+import java.time.LocalDateTime;
+
+/** Decides whether a request is allowed according to a rate limit. */
+public interface RateLimitAlgorithm {
+
+  RateLimitAlgorithmType getType();
+
+  /**
+   * Registers a request and checks it against the rate limit. The check and the state update are
+   * atomic.
+   * @param key identifies whose requests are limited, usually the user id
+   * @param requestId request identifier, it must be unique for the key
+   * @param time time when the request arrived
+   * @param rateLimit limit to apply
+   * @return true if the request is allowed, false if the rate limit has been reached
+   */
+  boolean tryAcquire(String key, String requestId, LocalDateTime time, RateLimit rateLimit);
+}
@@ -17,7 +17,13 @@
 
 package io.oigres.ecomm.service.limiter.config;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import io.oigres.ecomm.cache.CacheLockAspect;
+import io.oigres.ecomm.cache.CacheLockFactory;
+import io.oigres.ecomm.cache.CacheLockOptions;
+import io.oigres.ecomm.cache.CacheVersionStore;
+import io.oigres.ecomm.cache.HotKeySampler;
+import io.oigres.ecomm.cache.MicrometerCacheLockListener;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.EnableAspectJAutoProxy;
@@ -27,7 +33,30 @@ import org.springframework.context.annotation.EnableAspectJAutoProxy;
 public class AspectConfiguration {
 
   @Bean
-  public CacheLockAspect cacheLockAspect() {
-    return new CacheLockAspect();
+  public MicrometerCacheLockListener cacheLockListener(
+      MeterRegistry meterRegistry, CacheLockProperties cacheLockProperties) {
+    return new MicrometerCacheLockListener(
+        meterRegistry,
+        new HotKeySampler(
+            cacheLockProperties.getHotKeysCapacity(), cacheLockProperties.getHotKeysSampleRate()));
+  }
+
+  @Bean
+  public CacheLockAspect cacheLockAspect(
+      CacheLockFactory cacheLockFactory,
+      CacheVersionStore cacheVersionStore,
+      CacheLockProperties cacheLockProperties,
+      MicrometerCacheLockListener cacheLockListener) {
+    return new CacheLockAspect(
+        cacheLockFactory,
+        cacheVersionStore,
+        cacheLockProperties.getMode(),
+        cacheLockProperties.getOptimisticAttempts(),
+        CacheLockOptions.builder()
+            .waitTimeout(cacheLockProperties.getWaitTimeout())
+            .leaseTime(cacheLockProperties.getLeaseTime())
+            .onTimeout(cacheLockProperties.getOnTimeout())
+            .listener(cacheLockListener)
+            .build());
   }
 }
@@ -0,0 +1,54 @@
+/**********
+ This project is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the
+ Free Software Foundation; either version 3.0 of the License, or (at your
+ option) any later version. (See <https://www.gnu.org/licenses/gpl-3.0.html>.)
+
+ This project is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this project; if not, write to the Free Software Foundation, Inc.,
+ 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301  USA
+ **********/
+// Copyright (c) 2024-2025 Sergio Exposito.  All rights reserved.              
+
+package io.oigres.ecomm.service.limiter.config;
+
+import io.oigres.ecomm.cache.CompressionType;
+import io.oigres.ecomm.cache.FramedRedisSerializer;
+import io.oigres.ecomm.cache.ZstdDictionaryTrainer;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.core.io.Resource;
+
+@Data
+@ConfigurationProperties(prefix = "ecomm.service.limiter.cache-compression")
+public class CacheCompressionProperties {
+  /** codec of the values of each cache, by cache name. Other caches are not compressed */
+  private Map<String, CompressionType> codecs = new HashMap<>();
+
+  /** values under this size in bytes are not compressed */
+  private int minSize = FramedRedisSerializer.DEFAULT_MIN_SIZE;
+
+  /**
+   * zstd dictionaries of caches with zstd-dictionary codec, by cache name. Values are written
+   * with the first dictionary, and read with any of them
+   */
+  private Map<String, List<Resource>> dictionaries = new HashMap<>();
+
+  /** size in bytes of the dictionaries which are trained by /actuator/cachedictionary */
+  private int dictionarySize = ZstdDictionaryTrainer.DEFAULT_DICTIONARY_SIZE;
+
+  /** how many values are sampled to train a dictionary */
+  private int dictionarySamples = 2000;
+
+  public CompressionType getCodec(String cacheName) {
+    return this.codecs.getOrDefault(cacheName, CompressionType.NONE);
+  }
+}
@@ -17,18 +17,36 @@
 
 package io.oigres.ecomm.service.limiter.config;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.SerializationFeature;
-import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.oigres.ecomm.cache.BinaryRedisSerializer;
 import io.oigres.ecomm.cache.CacheLockFactory;
+import io.oigres.ecomm.cache.CacheVersionStore;
+import io.oigres.ecomm.cache.CompressionCodec;
+import io.oigres.ecomm.cache.CompressionType;
+import io.oigres.ecomm.cache.FramedRedisSerializer;
 import io.oigres.ecomm.cache.GzipRedisSerializer;
+import io.oigres.ecomm.cache.LocalFirstCacheLockFactory;
+import io.oigres.ecomm.cache.MeteredRedisSerializer;
+import io.oigres.ecomm.cache.NearCacheInvalidator;
+import io.oigres.ecomm.cache.NearCacheSettings;
+import io.oigres.ecomm.cache.OptimisticRedisCacheWriter;
+import io.oigres.ecomm.cache.PipelinedRedisCacheWriter;
+import io.oigres.ecomm.cache.RedisCacheMeterBinder;
 import io.oigres.ecomm.cache.RedisLockAwareCacheManager;
 import io.oigres.ecomm.cache.RedissonCacheLockFactory;
+import io.oigres.ecomm.cache.RedissonCacheVersionStore;
+import io.oigres.ecomm.cache.RedissonNearCacheInvalidator;
+import io.oigres.ecomm.cache.ZstdDictionaryCompressionCodec;
 import io.oigres.ecomm.service.limiter.BlackedInfo;
 import io.oigres.ecomm.service.limiter.model.StorageBucket;
+import io.oigres.ecomm.service.limiter.model.StorageBucketCodec;
 import io.oigres.ecomm.service.limiter.repositories.CacheNames;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import org.redisson.api.RedissonClient;
 import org.redisson.spring.data.connection.RedissonConnectionFactory;
@@ -39,12 +57,13 @@ import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.context.annotation.AdviceMode;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.Resource;
 import org.springframework.data.redis.cache.CacheStatisticsCollector;
 import org.springframework.data.redis.cache.RedisCacheConfiguration;
 import org.springframework.data.redis.cache.RedisCacheManager;
 import org.springframework.data.redis.cache.RedisCacheWriter;
-import org.springframework.data.redis.serializer.Jackson2JsonRedisSerializer;
 import org.springframework.data.redis.serializer.RedisSerializationContext;
+import org.springframework.data.redis.serializer.RedisSerializer;
 
 @Configuration
 @EnableConfigurationProperties(RedisProperties.class)
@@ -57,43 +76,155 @@ public class CacheConfiguration {
   }
 
   @Bean
-  public CacheLockFactory cacheLockFactory(RedissonClient redissonClient) {
-    return new RedissonCacheLockFactory(redissonClient);
+  public CacheLockFactory cacheLockFactory(
+      RedissonClient redissonClient, CacheLockProperties cacheLockProperties) {
+    CacheLockFactory cacheLockFactory =
+        new RedissonCacheLockFactory(redissonClient, cacheLockProperties.isReadWrite());
+    if (cacheLockProperties.isLocalFirst()) {
+      // threads of this node wait on a local lock, so only one of them waits on redis
+      cacheLockFactory = new LocalFirstCacheLockFactory(cacheLockFactory);
+    }
+    return cacheLockFactory;
+  }
+
+  @Bean
+  public CacheVersionStore cacheVersionStore(RedissonClient redissonClient) {
+    return new RedissonCacheVersionStore(redissonClient);
+  }
+
+  @Bean
+  public NearCacheInvalidator nearCacheInvalidator(
+      RedissonClient redissonClient, NearCacheProperties nearCacheProperties) {
+    return new RedissonNearCacheInvalidator(
+        redissonClient, nearCacheProperties.getInvalidationTopic());
+  }
+
+  /** Codecs of a cache which need settings, like its zstd dictionaries. */
+  private static Map<CompressionType, CompressionCodec> compressionCodecs(
+      String cacheName, CacheCompressionProperties cacheCompressionProperties) {
+    List<Resource> locations =
+        cacheCompressionProperties.getDictionaries().getOrDefault(cacheName, List.of());
+    if (locations.isEmpty()) {
+      return Map.of();
+    }
+    List<byte[]> dictionaries = new ArrayList<>();
+    for (Resource location : locations) {
+      try {
+        dictionaries.add(location.getContentAsByteArray());
+      } catch (IOException e) {
+        throw new UncheckedIOException(
+            String.format("Zstd dictionary cannot be read from '%s'", location.getDescription()),
+            e);
+      }
+    }
+    return Map.of(
+        CompressionType.ZSTD_DICTIONARY, new ZstdDictionaryCompressionCodec(dictionaries));
+  }
+
+  @Bean
+  public RedisSerializer<StorageBucket> storageBucketSerializer(
+      StorageBucketProperties storageBucketProperties,
+      CacheCompressionProperties cacheCompressionProperties,
+      ModelJson modelJson,
+      MeterRegistry meterRegistry) {
+    RedisSerializer<StorageBucket> binarySerializer =
+        new BinaryRedisSerializer<>(
+            new StorageBucketCodec(storageBucketProperties.isStorePayload()),
+            // buckets which were stored as gzip json are read until they expire
+            new GzipRedisSerializer<>(modelJson.redisSerializer(StorageBucket.class)));
+    return new MeteredRedisSerializer<>(
+        CacheNames.REQUEST_CACHE_NAME,
+        new FramedRedisSerializer<>(
+            binarySerializer,
+            cacheCompressionProperties.getCodec(CacheNames.REQUEST_CACHE_NAME),
+            cacheCompressionProperties.getMinSize(),
+            binarySerializer,
+            compressionCodecs(CacheNames.REQUEST_CACHE_NAME, cacheCompressionProperties)),
+        meterRegistry);
+  }
+
+  @Bean
+  public CacheStatisticsCollector cacheStatisticsCollector() {
+    return CacheStatisticsCollector.create();
+  }
+
+  @Bean
+  public RedisCacheWriter redisCacheWriter(
+      RedissonConnectionFactory connectionFactory,
+      CacheStatisticsCollector cacheStatisticsCollector) {
+    // writes of optimistic cache locks are kept until the lock is committed, and many keys are
+    // read with one MGET and written with one pipeline
+    return new OptimisticRedisCacheWriter(
+        new PipelinedRedisCacheWriter(
+                connectionFactory, RedisCacheWriter.nonLockingRedisCacheWriter(connectionFactory))
+            .withStatisticsCollector(cacheStatisticsCollector));
+  }
+
+  @Bean
+  public RedisCacheMeterBinder redisCacheMeterBinder(RedisCacheWriter redisCacheWriter) {
+    return new RedisCacheMeterBinder(
+        redisCacheWriter,
+        List.of(CacheNames.REQUEST_CACHE_NAME, CacheNames.BLACKED_INFO_CACHE_NAME));
   }
 
   @Bean
   public CacheManager cacheManager(
-      RedissonConnectionFactory connectionFactory, CacheLockFactory cacheLockFactory) {
-    ObjectMapper objectMapper = new ObjectMapper();
-    objectMapper.registerModule(new JavaTimeModule());
-    objectMapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+      RedisCacheWriter redisCacheWriter,
+      CacheLockFactory cacheLockFactory,
+      StorageBucketProperties storageBucketProperties,
+      RedisSerializer<StorageBucket> storageBucketSerializer,
+      MeterRegistry meterRegistry,
+      NearCacheProperties nearCacheProperties,
+      NearCacheInvalidator nearCacheInvalidator,
+      CacheCompressionProperties cacheCompressionProperties,
+      ModelJson modelJson) {
+    RedisSerializer<BlackedInfo> blackedInfoSerializer =
+        modelJson.redisSerializer(BlackedInfo.class);
     Map<String, RedisCacheConfiguration> cacheConfigurations = new HashMap<>();
     cacheConfigurations.put(
         CacheNames.REQUEST_CACHE_NAME,
         RedisCacheConfiguration.defaultCacheConfig()
             .serializeValuesWith(
-                RedisSerializationContext.SerializationPair.fromSerializer(
-                    new GzipRedisSerializer<>(
-                        new Jackson2JsonRedisSerializer<>(objectMapper, StorageBucket.class))))
-            .entryTtl(Duration.ofMinutes(2)));
+                RedisSerializationContext.SerializationPair.fromSerializer(storageBucketSerializer))
+            .entryTtl(storageBucketProperties.getTtl()));
     cacheConfigurations.put(
         CacheNames.BLACKED_INFO_CACHE_NAME,
         RedisCacheConfiguration.defaultCacheConfig()
             .serializeValuesWith(
                 RedisSerializationContext.SerializationPair.fromSerializer(
-                    new GzipRedisSerializer<>(
-                        new Jackson2JsonRedisSerializer<>(objectMapper, BlackedInfo.class))))
+                    new MeteredRedisSerializer<>(
+                        CacheNames.BLACKED_INFO_CACHE_NAME,
+                        new FramedRedisSerializer<>(
+                            blackedInfoSerializer,
+                            cacheCompressionProperties.getCodec(CacheNames.BLACKED_INFO_CACHE_NAME),
+                            cacheCompressionProperties.getMinSize(),
+                            // blacked info which was stored as gzip json is read until it expires
+                            new GzipRedisSerializer<>(blackedInfoSerializer),
+                            compressionCodecs(
+                                CacheNames.BLACKED_INFO_CACHE_NAME, cacheCompressionProperties)),
+                        meterRegistry)))
             .entryTtl(Duration.ofHours(12)));
 
-    RedisCacheWriter cacheWriter = RedisCacheWriter.nonLockingRedisCacheWriter(connectionFactory);
-    cacheWriter.withStatisticsCollector(CacheStatisticsCollector.create());
+    Map<String, NearCacheSettings> nearCaches = new HashMap<>();
+    nearCacheProperties
+        .getCaches()
+        .forEach(
+            (cacheName, nearCache) ->
+                nearCaches.put(
+                    cacheName,
+                    NearCacheSettings.builder()
+                        .maximumSize(nearCache.getMaxSize())
+                        .timeToLive(nearCache.getTtl())
+                        .build()));
     RedisCacheManager cacheManager =
         new RedisLockAwareCacheManager(
-            cacheWriter,
+            redisCacheWriter,
             RedisCacheConfiguration.defaultCacheConfig(),
             true,
             cacheConfigurations,
-            cacheLockFactory);
+            cacheLockFactory,
+            nearCaches,
+            nearCacheInvalidator);
     cacheManager.setTransactionAware(false);
     return cacheManager;
   }
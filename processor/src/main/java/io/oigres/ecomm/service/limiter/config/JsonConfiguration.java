@@ -0,0 +1,67 @@
+/**********
+ This project is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the
+ Free Software Foundation; either version 3.0 of the License, or (at your
+ option) any later version. (See <https://www.gnu.org/licenses/gpl-3.0.html>.)
+
+ This project is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this project; if not, write to the Free Software Foundation, Inc.,
+ 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301  USA
+ **********/
+// Copyright (c) 2024-2025 Sergio Exposito.  All rights reserved.              
+
+package io.oigres.ecomm.service.limiter.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.oigres.ecomm.service.limiter.BlackedInfo;
+import org.springframework.boot.autoconfigure.jackson.Jackson2ObjectMapperBuilderCustomizer;
+import org.springframework.boot.autoconfigure.kafka.DefaultKafkaConsumerFactoryCustomizer;
+import org.springframework.boot.autoconfigure.kafka.DefaultKafkaProducerFactoryCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.support.serializer.ErrorHandlingDeserializer;
+
+/** One object mapper, the one of http, is used to write the model on redis and kafka too. */
+@Configuration
+public class JsonConfiguration {
+
+  @Bean
+  public Jackson2ObjectMapperBuilderCustomizer modelObjectMapperCustomizer() {
+    // modules on the classpath, like blackbird, which generates accessors instead of using
+    // reflection, are registered when they are deployed
+    return builder ->
+        builder
+            .findModulesViaServiceLoader(true)
+            .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+  }
+
+  @Bean
+  public ModelJson modelJson(ObjectMapper objectMapper) {
+    return new ModelJson(objectMapper);
+  }
+
+  @Bean
+  @SuppressWarnings("unchecked")
+  public DefaultKafkaProducerFactoryCustomizer modelProducerFactoryCustomizer(ModelJson modelJson) {
+    return producerFactory ->
+        ((DefaultKafkaProducerFactory<String, Object>) producerFactory)
+            .setValueSerializer(modelJson.kafkaSerializer());
+  }
+
+  @Bean
+  @SuppressWarnings("unchecked")
+  public DefaultKafkaConsumerFactoryCustomizer modelConsumerFactoryCustomizer(ModelJson modelJson) {
+    return consumerFactory ->
+        ((DefaultKafkaConsumerFactory<String, BlackedInfo>) consumerFactory)
+            .setValueDeserializer(
+                new ErrorHandlingDeserializer<>(modelJson.kafkaDeserializer(BlackedInfo.class)));
+  }
+}
@@ -0,0 +1,84 @@
+/**********
+ This project is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the
+ Free Software Foundation; either version 3.0 of the License, or (at your
+ option) any later version. (See <https://www.gnu.org/licenses/gpl-3.0.html>.)
+
+ This project is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this project; if not, write to the Free Software Foundation, Inc.,
+ 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301  USA
+ **********/
+// Copyright (c) 2024-2025 Sergio Exposito.  All rights reserved.              
+
+package io.oigres.ecomm.service.limiter.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import io.oigres.ecomm.cache.JacksonRedisSerializer;
+import io.oigres.ecomm.service.limiter.AuditEvent;
+import io.oigres.ecomm.service.limiter.BlackedInfo;
+import io.oigres.ecomm.service.limiter.RequestAudit;
+import io.oigres.ecomm.service.limiter.ResponseAudit;
+import io.oigres.ecomm.service.limiter.model.StorageBucket;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+
+/**
+ * Json readers and writers of the model classes, which are resolved once from the object mapper
+ * of the application, so redis, kafka and http write the same json and share the serializers
+ * which jackson builds for each class.
+ */
+public class ModelJson {
+  private static final List<Class<?>> MODEL_CLASSES =
+      List.of(
+          RequestAudit.class,
+          ResponseAudit.class,
+          AuditEvent.class,
+          BlackedInfo.class,
+          StorageBucket.class);
+
+  private final ObjectMapper objectMapper;
+  private final Map<Class<?>, ObjectReader> readers = new ConcurrentHashMap<>();
+  private final Map<Class<?>, ObjectWriter> writers = new ConcurrentHashMap<>();
+
+  public ModelJson(ObjectMapper objectMapper) {
+    this.objectMapper = objectMapper;
+    MODEL_CLASSES.forEach(
+        type -> {
+          this.readers.put(type, objectMapper.readerFor(type));
+          this.writers.put(type, objectMapper.writerFor(type));
+        });
+  }
+
+  public ObjectReader reader(Class<?> type) {
+    return this.readers.computeIfAbsent(type, this.objectMapper::readerFor);
+  }
+
+  public ObjectWriter writer(Class<?> type) {
+    return this.writers.computeIfAbsent(type, this.objectMapper::writerFor);
+  }
+
+  public <T> JacksonRedisSerializer<T> redisSerializer(Class<T> type) {
+    return new JacksonRedisSerializer<>(reader(type), writer(type));
+  }
+
+  public <T> JsonSerializer<T> kafkaSerializer() {
+    return new JsonSerializer<>(this.objectMapper);
+  }
+
+  /** Deserializer of values of the given type, or of the type on their headers. */
+  public <T> JsonDeserializer<T> kafkaDeserializer(Class<T> type) {
+    JsonDeserializer<T> deserializer = new JsonDeserializer<>(type, this.objectMapper);
+    deserializer.addTrustedPackages(BlackedInfo.class.getPackageName());
+    return deserializer;
+  }
+}
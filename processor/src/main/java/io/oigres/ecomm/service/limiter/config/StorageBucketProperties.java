@@ -0,0 +1,50 @@
+/**********
+ This project is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the
+ Free Software Foundation; either version 3.0 of the License, or (at your
+ option) any later version. (See <https://www.gnu.org/licenses/gpl-3.0.html>.)
+
+ This project is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this project; if not, write to the Free Software Foundation, Inc.,
+ 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301  USA
+ **********/
+// Copyright (c) 2024-2025 Sergio Exposito.  All rights reserved.              
+
+package io.oigres.ecomm.service.limiter.config;
+
+import java.time.Duration;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "ecomm.service.limiter.bucket")
+public class StorageBucketProperties {
+  /** How long buckets are kept. */
+  private Duration ttl = Duration.ofMinutes(2);
+
+  /** Whether buckets are read and written with pipelined redis commands instead of the cache. */
+  private boolean pipelined = true;
+
+  /** Whether query, headers, cookies and body of requests and responses are stored. */
+  private boolean storePayload = true;
+
+  /** Which request and response audits are kept on buckets besides request ids and times. */
+  private Retention retention = Retention.FULL;
+
+  /** Ratio of requests whose audits are kept when retention is sampled, from 0 to 1. */
+  private double sampleRate = 0.1;
+
+  public enum Retention {
+    /** every audit is kept */
+    FULL,
+    /** a sample of audits, chosen by request id, is kept */
+    SAMPLED,
+    /** only request ids and times are kept */
+    NONE
+  }
+}
@@ -0,0 +1,53 @@
+/**********
+ This project is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the
+ Free Software Foundation; either version 3.0 of the License, or (at your
+ option) any later version. (See <https://www.gnu.org/licenses/gpl-3.0.html>.)
+
+ This project is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this project; if not, write to the Free Software Foundation, Inc.,
+ 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301  USA
+ **********/
+// Copyright (c) 2024-2025 Sergio Exposito.  All rights reserved.              
+
+package io.oigres.ecomm.service.limiter.listeners;
+
+import io.oigres.ecomm.service.limiter.BlackedInfo;
+import io.oigres.ecomm.service.limiter.repositories.BlackedInfoNearCacheRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Consumes the blocks which are broadcast by every processor instance to keep the near cache up to
+ * date. Each instance uses its own consumer group, so all of them receive every block. The group
+ * is named after the host, so a restarted instance joins the group it had instead of leaving one
+ * behind on every start.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(
+    prefix = "ecomm.service.limiter.near-cache.blacked-info",
+    name = "enabled",
+    havingValue = "true",
+    matchIfMissing = true)
+@RequiredArgsConstructor
+public class BlacklistedUserListener {
+  private final BlackedInfoNearCacheRepository blackedInfoNearCacheRepository;
+
+  @KafkaListener(
+      topics = "${ecomm.service.limiter.topics.blacklisted-users.name}",
+      groupId = "${ecomm.service.limiter.near-cache.blacked-info.group-id}")
+  public void consumeMessage(ConsumerRecord<String, BlackedInfo> record) {
+    log.debug("User '{}' was blocked, updating near cache", record.key());
+    this.blackedInfoNearCacheRepository.blackedInfoBroadcast(record.value());
+  }
+}
@@ -31,8 +31,17 @@ import lombok.NoArgsConstructor;
 @AllArgsConstructor
 public class RequestData {
 
+  private String requestId;
   private LocalDateTime requestArrived;
   private RequestAudit request;
   private LocalDateTime responseArrived;
   private ResponseAudit response;
+
+  /** Request id, which is kept even when the request audit is not retained. */
+  public String getRequestId() {
+    if (this.requestId == null && this.request != null) {
+      return this.request.getId();
+    }
+    return this.requestId;
+  }
 }
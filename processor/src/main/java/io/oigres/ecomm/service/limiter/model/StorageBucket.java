@@ -18,8 +18,9 @@
 package io.oigres.ecomm.service.limiter.model;
 
 import java.time.LocalDateTime;
-import java.util.LinkedList;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Getter;
@@ -32,9 +33,38 @@ import lombok.NoArgsConstructor;
 public class StorageBucket {
   private final String userId;
   private final LocalDateTime minute;
-  private final List<RequestData> requests = new LinkedList<>();
+  private final List<RequestData> requests = new ArrayList<>();
 
   public List<RequestData> getRequests() {
     return List.copyOf(requests);
   }
+
+  public int size() {
+    return requests.size();
+  }
+
+  /** Finds a request by its id, starting from the latest one. */
+  public Optional<RequestData> findRequest(String requestId) {
+    for (int i = requests.size() - 1; i >= 0; i--) {
+      if (requestId.equals(requests.get(i).getRequestId())) {
+        return Optional.of(requests.get(i));
+      }
+    }
+    return Optional.empty();
+  }
+
+  /** Adds a request keeping the list sorted by the time when requests arrived. */
+  public void addRequest(RequestData data) {
+    int index = requests.size();
+    if (data.getRequestArrived() != null) {
+      while (index > 0) {
+        LocalDateTime arrived = requests.get(index - 1).getRequestArrived();
+        if (arrived == null || !arrived.isAfter(data.getRequestArrived())) {
+          break;
+        }
+        index--;
+      }
+    }
+    requests.add(index, data);
+  }
 }
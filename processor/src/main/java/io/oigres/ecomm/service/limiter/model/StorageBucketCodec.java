@@ -0,0 +1,279 @@
+/**********
+ This project is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the
+ Free Software Foundation; either version 3.0 of the License, or (at your
+ option) any later version. (See <https://www.gnu.org/licenses/gpl-3.0.html>.)
+
+ This project is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this project; if not, write to the Free Software Foundation, Inc.,
+ 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301  USA
+ **********/
+// Copyright (c) 2024-2025 Sergio Exposito.  All rights reserved.              
+
+package io.oigres.ecomm.service.limiter.model;
+
+import io.oigres.ecomm.cache.BinaryCodec;
+import io.oigres.ecomm.cache.BinaryReader;
+import io.oigres.ecomm.cache.BinaryWriter;
+import io.oigres.ecomm.service.limiter.RequestAudit;
+import io.oigres.ecomm.service.limiter.ResponseAudit;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Binary codec for storage buckets. Times are written relative to the bucket minute, and repeated
+ * strings (user, method, path, header and cookie names and values) are written once per bucket.
+ * When payloads are not stored, query, headers, cookies and body are omitted. Requests whose audits
+ * were not retained only take their id and times.
+ */
+public class StorageBucketCodec implements BinaryCodec<StorageBucket> {
+  private static final int PAYLOAD = 0x01;
+  private static final int REQUEST_IDS = 0x02;
+
+  private final boolean storePayload;
+
+  public StorageBucketCodec(boolean storePayload) {
+    this.storePayload = storePayload;
+  }
+
+  @Override
+  public void write(StorageBucket bucket, BinaryWriter writer) {
+    writer.writeByte((this.storePayload ? PAYLOAD : 0) | REQUEST_IDS);
+    writer.writeDictionaryString(bucket.getUserId());
+    LocalDateTime minute = bucket.getMinute();
+    writer.writeBoolean(minute != null);
+    if (minute != null) {
+      writer.writeSignedVarLong(minute.toEpochSecond(ZoneOffset.UTC));
+      writer.writeVarInt(minute.getNano());
+    }
+    List<RequestData> requests = bucket.getRequests();
+    writer.writeVarInt(requests.size());
+    for (RequestData data : requests) {
+      writer.writeDictionaryString(data.getRequestId());
+      writeTime(writer, minute, data.getRequestArrived());
+      writeRequest(writer, minute, data.getRequest());
+      writeTime(writer, minute, data.getResponseArrived());
+      writeResponse(writer, minute, data.getResponse());
+    }
+  }
+
+  @Override
+  public StorageBucket read(BinaryReader reader) {
+    int flags = reader.readByte();
+    boolean payload = (flags & PAYLOAD) != 0;
+    // buckets written before request ids were stored on their own
+    boolean requestIds = (flags & REQUEST_IDS) != 0;
+    String userId = reader.readDictionaryString();
+    LocalDateTime minute = null;
+    if (reader.readBoolean()) {
+      minute =
+          LocalDateTime.ofEpochSecond(
+              reader.readSignedVarLong(), reader.readVarInt(), ZoneOffset.UTC);
+    }
+    StorageBucket bucket = StorageBucket.builder().userId(userId).minute(minute).build();
+    int count = reader.readVarInt();
+    for (int i = 0; i < count; i++) {
+      RequestData data = new RequestData();
+      if (requestIds) {
+        data.setRequestId(reader.readDictionaryString());
+      }
+      data.setRequestArrived(readTime(reader, minute));
+      data.setRequest(readRequest(reader, minute, payload));
+      data.setResponseArrived(readTime(reader, minute));
+      data.setResponse(readResponse(reader, minute, payload));
+      bucket.addRequest(data);
+    }
+    return bucket;
+  }
+
+  private static void writeTime(BinaryWriter writer, LocalDateTime base, LocalDateTime time) {
+    writer.writeBoolean(time != null);
+    if (time != null) {
+      long baseSeconds = base != null ? base.toEpochSecond(ZoneOffset.UTC) : 0;
+      writer.writeSignedVarLong(time.toEpochSecond(ZoneOffset.UTC) - baseSeconds);
+      writer.writeVarInt(time.getNano());
+    }
+  }
+
+  private static LocalDateTime readTime(BinaryReader reader, LocalDateTime base) {
+    if (!reader.readBoolean()) {
+      return null;
+    }
+    long baseSeconds = base != null ? base.toEpochSecond(ZoneOffset.UTC) : 0;
+    return LocalDateTime.ofEpochSecond(
+        baseSeconds + reader.readSignedVarLong(), reader.readVarInt(), ZoneOffset.UTC);
+  }
+
+  private static <V> void writeMap(
+      BinaryWriter writer, Map<String, List<V>> map, BiConsumer<BinaryWriter, V> valueWriter) {
+    if (map == null) {
+      writer.writeVarInt(0);
+      return;
+    }
+    writer.writeVarInt(map.size() + 1);
+    for (Map.Entry<String, List<V>> entry : map.entrySet()) {
+      writer.writeDictionaryString(entry.getKey());
+      List<V> values = entry.getValue();
+      writer.writeVarInt(values != null ? values.size() + 1 : 0);
+      if (values != null) {
+        values.forEach(value -> valueWriter.accept(writer, value));
+      }
+    }
+  }
+
+  private static <V> Map<String, List<V>> readMap(
+      BinaryReader reader, Function<BinaryReader, V> valueReader) {
+    int size = reader.readVarInt();
+    if (size == 0) {
+      return null;
+    }
+    Map<String, List<V>> map = new HashMap<>();
+    for (int i = 1; i < size; i++) {
+      String key = reader.readDictionaryString();
+      int count = reader.readVarInt();
+      List<V> values = null;
+      if (count > 0) {
+        values = new ArrayList<>(count - 1);
+        for (int j = 1; j < count; j++) {
+          values.add(valueReader.apply(reader));
+        }
+      }
+      map.put(key, values);
+    }
+    return map;
+  }
+
+  private void writeRequest(BinaryWriter writer, LocalDateTime base, RequestAudit request) {
+    writer.writeBoolean(request != null);
+    if (request == null) {
+      return;
+    }
+    writer.writeDictionaryString(request.getId());
+    writer.writeDictionaryString(request.getUserId());
+    writer.writeDictionaryString(request.getRemoteAddr());
+    writer.writeDictionaryString(request.getMethod());
+    writer.writeDictionaryString(request.getPath());
+    writeTime(writer, base, request.getArrived());
+    if (this.storePayload) {
+      writeMap(writer, request.getQuery(), BinaryWriter::writeDictionaryString);
+      writeMap(writer, request.getHeaders(), BinaryWriter::writeDictionaryString);
+      writeMap(
+          writer,
+          request.getCookies(),
+          (w, cookie) -> {
+            w.writeDictionaryString(cookie.getName());
+            w.writeDictionaryString(cookie.getValue());
+          });
+      writer.writeString(request.getBody());
+    }
+  }
+
+  private static RequestAudit readRequest(
+      BinaryReader reader, LocalDateTime base, boolean payload) {
+    if (!reader.readBoolean()) {
+      return null;
+    }
+    RequestAudit.RequestAuditBuilder builder =
+        RequestAudit.builder()
+            .id(reader.readDictionaryString())
+            .userId(reader.readDictionaryString())
+            .remoteAddr(reader.readDictionaryString())
+            .method(reader.readDictionaryString())
+            .path(reader.readDictionaryString())
+            .arrived(readTime(reader, base));
+    if (payload) {
+      builder
+          .query(readMap(reader, BinaryReader::readDictionaryString))
+          .headers(readMap(reader, BinaryReader::readDictionaryString))
+          .cookies(
+              readMap(
+                  reader,
+                  r ->
+                      RequestAudit.HttpCookie.builder()
+                          .name(r.readDictionaryString())
+                          .value(r.readDictionaryString())
+                          .build()))
+          .body(reader.readString());
+    }
+    return builder.build();
+  }
+
+  private void writeResponse(BinaryWriter writer, LocalDateTime base, ResponseAudit response) {
+    writer.writeBoolean(response != null);
+    if (response == null) {
+      return;
+    }
+    writer.writeDictionaryString(response.getId());
+    writer.writeDictionaryString(response.getUserId());
+    writer.writeVarInt(response.getStatus());
+    writeTime(writer, base, response.getArrived());
+    if (this.storePayload) {
+      writeMap(writer, response.getHeaders(), BinaryWriter::writeDictionaryString);
+      writeMap(
+          writer,
+          response.getCookies(),
+          (w, cookie) -> {
+            w.writeDictionaryString(cookie.getName());
+            w.writeDictionaryString(cookie.getValue());
+            w.writeBoolean(cookie.getMaxAge() != null);
+            if (cookie.getMaxAge() != null) {
+              w.writeSignedVarLong(cookie.getMaxAge().getSeconds());
+              w.writeVarInt(cookie.getMaxAge().getNano());
+            }
+            w.writeDictionaryString(cookie.getDomain());
+            w.writeDictionaryString(cookie.getPath());
+            w.writeByte((cookie.isSecure() ? 1 : 0) | (cookie.isHttpOnly() ? 2 : 0));
+            w.writeDictionaryString(cookie.getSameSite());
+          });
+    }
+  }
+
+  private static ResponseAudit readResponse(
+      BinaryReader reader, LocalDateTime base, boolean payload) {
+    if (!reader.readBoolean()) {
+      return null;
+    }
+    ResponseAudit.ResponseAuditBuilder builder =
+        ResponseAudit.builder()
+            .id(reader.readDictionaryString())
+            .userId(reader.readDictionaryString())
+            .status(reader.readVarInt())
+            .arrived(readTime(reader, base));
+    if (payload) {
+      builder
+          .headers(readMap(reader, BinaryReader::readDictionaryString))
+          .cookies(
+              readMap(
+                  reader,
+                  r -> {
+                    ResponseAudit.HttpCookie.HttpCookieBuilder cookie =
+                        ResponseAudit.HttpCookie.builder()
+                            .name(r.readDictionaryString())
+                            .value(r.readDictionaryString());
+                    if (r.readBoolean()) {
+                      cookie.maxAge(Duration.ofSeconds(r.readSignedVarLong(), r.readVarInt()));
+                    }
+                    cookie.domain(r.readDictionaryString()).path(r.readDictionaryString());
+                    int flags = r.readByte();
+                    return cookie
+                        .secure((flags & 1) != 0)
+                        .httpOnly((flags & 2) != 0)
+                        .sameSite(r.readDictionaryString())
+                        .build();
+                  }));
+    }
+    return builder.build();
+  }
+}
@@ -0,0 +1,113 @@
+/**********
+ This project is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the
+ Free Software Foundation; either version 3.0 of the License, or (at your
+ option) any later version. (See <https://www.gnu.org/licenses/gpl-3.0.html>.)
+
+ This project is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this project; if not, write to the Free Software Foundation, Inc.,
+ 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301  USA
+ **********/
+// Copyright (c) 2024-2025 Sergio Exposito.  All rights reserved.              
+
+package io.oigres.ecomm.service.limiter.repositories;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.oigres.ecomm.service.limiter.BlackedInfo;
+import io.oigres.ecomm.service.limiter.config.BlackedInfoNearCacheProperties;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Keeps blacked users in memory in front of the redis cache. Entries expire when the user block
+ * ends, and new blocks are added from the blacklisted users topic, so every processor instance
+ * sees the blocks which are decided by other instances.
+ */
+@Primary
+@Repository
+@ConditionalOnProperty(
+    prefix = "ecomm.service.limiter.near-cache.blacked-info",
+    name = "enabled",
+    havingValue = "true",
+    matchIfMissing = true)
+public class BlackedInfoNearCacheRepository implements BlackedInfoRepository {
+  private final BlackedInfoCacheRepository delegate;
+  private final Cache<String, BlackedInfo> nearCache;
+
+  public BlackedInfoNearCacheRepository(
+      BlackedInfoCacheRepository delegate, BlackedInfoNearCacheProperties properties) {
+    this.delegate = delegate;
+    this.nearCache =
+        Caffeine.newBuilder()
+            .maximumSize(properties.getMaxSize())
+            .expireAfter(new BlockEndExpiry())
+            .build();
+  }
+
+  /** Expires each entry when its block ends. */
+  private static class BlockEndExpiry implements Expiry<String, BlackedInfo> {
+
+    private long remaining(BlackedInfo blackedInfo) {
+      return Math.max(0, Duration.between(LocalDateTime.now(), blackedInfo.getTo()).toNanos());
+    }
+
+    @Override
+    public long expireAfterCreate(String userId, BlackedInfo blackedInfo, long currentTime) {
+      return remaining(blackedInfo);
+    }
+
+    @Override
+    public long expireAfterUpdate(
+        String userId, BlackedInfo blackedInfo, long currentTime, long currentDuration) {
+      return remaining(blackedInfo);
+    }
+
+    @Override
+    public long expireAfterRead(
+        String userId, BlackedInfo blackedInfo, long currentTime, long currentDuration) {
+      return currentDuration;
+    }
+  }
+
+  private void cache(String userId, BlackedInfo blackedInfo) {
+    if (blackedInfo != null
+        && blackedInfo.getTo() != null
+        && blackedInfo.getTo().isAfter(LocalDateTime.now())) {
+      this.nearCache.put(userId, blackedInfo);
+    }
+  }
+
+  @Override
+  public BlackedInfo getBlackedInfo(String userId) {
+    BlackedInfo blackedInfo = this.nearCache.getIfPresent(userId);
+    if (blackedInfo == null) {
+      blackedInfo = this.delegate.getBlackedInfo(userId);
+      cache(userId, blackedInfo);
+    }
+    return blackedInfo;
+  }
+
+  @Override
+  public BlackedInfo storeBlackedInfo(String userId, BlackedInfo blackedInfo) {
+    BlackedInfo stored = this.delegate.storeBlackedInfo(userId, blackedInfo);
+    cache(userId, stored);
+    return stored;
+  }
+
+  /** Adds a block which was broadcast by any processor instance. */
+  public void blackedInfoBroadcast(BlackedInfo blackedInfo) {
+    if (blackedInfo != null && blackedInfo.getUserId() != null) {
+      cache(blackedInfo.getUserId(), blackedInfo);
+    }
+  }
+}
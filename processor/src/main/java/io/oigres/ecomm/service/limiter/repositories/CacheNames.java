@@ -21,6 +21,7 @@ public final class CacheNames {
 
   public static final String REQUEST_CACHE_NAME = "REQUEST";
   public static final String BLACKED_INFO_CACHE_NAME = "BLACKED_INFO";
+  public static final String REQUEST_INDEX_CACHE_NAME = "REQUEST_INDEX";
 
   private CacheNames() {}
 }
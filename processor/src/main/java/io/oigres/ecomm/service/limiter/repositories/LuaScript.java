@@ -0,0 +1,87 @@
+/**********
+ This project is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the
+ Free Software Foundation; either version 3.0 of the License, or (at your
+ option) any later version. (See <https://www.gnu.org/licenses/gpl-3.0.html>.)
+
+ This project is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this project; if not, write to the Free Software Foundation, Inc.,
+ 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301  USA
+ **********/
+// Copyright (c) 2024-2025 Sergio Exposito.  All rights reserved.              
+
+package io.oigres.ecomm.service.limiter.repositories;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RScript;
+import org.redisson.client.RedisException;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.util.StreamUtils;
+
+/**
+ * Lua script which is run on redis server using EVALSHA. The script digest is calculated locally,
+ * so the script source is only sent to redis when the server answers NOSCRIPT.
+ */
+@Slf4j
+@Getter
+public class LuaScript {
+  private final String name;
+  private final String source;
+  private final String sha;
+
+  public LuaScript(String name, String source) {
+    this.name = name;
+    this.source = source;
+    this.sha = sha1(source);
+  }
+
+  public static LuaScript fromClasspath(String path) {
+    try {
+      return new LuaScript(
+          path,
+          StreamUtils.copyToString(
+              new ClassPathResource(path).getInputStream(), StandardCharsets.UTF_8));
+    } catch (IOException e) {
+      throw new UncheckedIOException(String.format("Lua script '%s' cannot be read", path), e);
+    }
+  }
+
+  private static String sha1(String source) {
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-1");
+      return HexFormat.of().formatHex(digest.digest(source.getBytes(StandardCharsets.UTF_8)));
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-1 is not available", e);
+    }
+  }
+
+  /**
+   * Runs the script for the given key. The key is also used to route the command on redis cluster.
+   */
+  public <R> R execute(RScript script, RScript.ReturnType returnType, String key, Object... args) {
+    List<Object> keys = List.of(key);
+    try {
+      return script.evalSha(key, RScript.Mode.READ_WRITE, this.sha, returnType, keys, args);
+    } catch (RedisException e) {
+      if (e.getMessage() == null || !e.getMessage().startsWith("NOSCRIPT")) {
+        throw e;
+      }
+      log.debug("Loading lua script '{}' on redis", this.name);
+      script.scriptLoad(this.source);
+      return script.evalSha(key, RScript.Mode.READ_WRITE, this.sha, returnType, keys, args);
+    }
+  }
+}
@@ -17,24 +17,36 @@
 
 package io.oigres.ecomm.service.limiter.repositories;
 
+import io.oigres.ecomm.cache.MultiKeyCache;
 import io.oigres.ecomm.service.limiter.model.StorageBucket;
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.CachePut;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Repository;
 
 @Repository
 public class RequestCacheRepository implements RequestRepository {
+  private final CacheManager cacheManager;
+
+  public RequestCacheRepository(CacheManager cacheManager) {
+    this.cacheManager = cacheManager;
+  }
+
+  private static StorageBucket emptyBucket(String userId, LocalDateTime minute) {
+    return StorageBucket.builder().userId(userId).minute(minute).build();
+  }
 
   @Cacheable(
       value = CacheNames.REQUEST_CACHE_NAME,
       key = "#userId+'_'+#time.truncatedTo(T(java.time.temporal.ChronoUnit).MINUTES)")
   public StorageBucket getUserRequestsByTime(String userId, LocalDateTime time) {
-    return StorageBucket.builder()
-        .userId(userId)
-        .minute(time.truncatedTo(ChronoUnit.MINUTES))
-        .build();
+    return emptyBucket(userId, time.truncatedTo(ChronoUnit.MINUTES));
   }
 
   @CachePut(
@@ -43,4 +55,38 @@ public class RequestCacheRepository implements RequestRepository {
   public StorageBucket storeUserRequests(String userId, LocalDateTime time, StorageBucket data) {
     return data;
   }
+
+  // annotated methods can not be called from here, so the cache is used directly with the same keys
+
+  private MultiKeyCache requestCache() {
+    return (MultiKeyCache) this.cacheManager.getCache(CacheNames.REQUEST_CACHE_NAME);
+  }
+
+  private static String cacheKey(String userId, LocalDateTime time) {
+    return userId + "_" + time.truncatedTo(ChronoUnit.MINUTES);
+  }
+
+  @Override
+  public Map<LocalDateTime, StorageBucket> getUserRequestsByTimes(
+      String userId, Collection<LocalDateTime> times) {
+    Map<String, LocalDateTime> minutes = new HashMap<>();
+    times.forEach(
+        time -> minutes.put(cacheKey(userId, time), time.truncatedTo(ChronoUnit.MINUTES)));
+    Map<Object, Cache.ValueWrapper> found = requestCache().getAll(minutes.keySet());
+    Map<LocalDateTime, StorageBucket> buckets = new HashMap<>();
+    minutes.forEach(
+        (key, minute) -> {
+          Cache.ValueWrapper value = found.get(key);
+          StorageBucket bucket = value != null ? (StorageBucket) value.get() : null;
+          buckets.put(minute, bucket != null ? bucket : emptyBucket(userId, minute));
+        });
+    return buckets;
+  }
+
+  @Override
+  public void storeUserRequests(String userId, Map<LocalDateTime, StorageBucket> buckets) {
+    Map<String, StorageBucket> values = new HashMap<>();
+    buckets.forEach((time, bucket) -> values.put(cacheKey(userId, time), bucket));
+    requestCache().putAll(values);
+  }
 }
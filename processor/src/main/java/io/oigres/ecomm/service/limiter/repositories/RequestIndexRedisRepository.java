@@ -0,0 +1,96 @@
+/**********
+ This project is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the
+ Free Software Foundation; either version 3.0 of the License, or (at your
+ option) any later version. (See <https://www.gnu.org/licenses/gpl-3.0.html>.)
+
+ This project is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this project; if not, write to the Free Software Foundation, Inc.,
+ 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301  USA
+ **********/
+// Copyright (c) 2024-2025 Sergio Exposito.  All rights reserved.              
+
+package io.oigres.ecomm.service.limiter.repositories;
+
+import io.oigres.ecomm.service.limiter.config.StorageBucketProperties;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RBucket;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Keeps the request index as plain redis strings. Entries are written without waiting for redis
+ * and without cache locks, since each one is written once and lives as long as request buckets.
+ */
+@Slf4j
+@Repository
+public class RequestIndexRedisRepository implements RequestIndexRepository {
+  private static final String KEY_PREFIX = CacheNames.REQUEST_INDEX_CACHE_NAME + "::";
+
+  private final RedissonClient redissonClient;
+  private final Duration ttl;
+
+  public RequestIndexRedisRepository(
+      RedissonClient redissonClient, StorageBucketProperties storageBucketProperties) {
+    this.redissonClient = redissonClient;
+    // entries live as long as request buckets
+    this.ttl = storageBucketProperties.getTtl();
+  }
+
+  private static String key(String userId, String requestId) {
+    return KEY_PREFIX + userId + "_" + requestId;
+  }
+
+  private RBucket<String> getBucket(String userId, String requestId) {
+    return this.redissonClient.getBucket(key(userId, requestId), StringCodec.INSTANCE);
+  }
+
+  @Override
+  public LocalDateTime getRequestMinute(String userId, String requestId) {
+    String minute = getBucket(userId, requestId).get();
+    return minute != null ? LocalDateTime.parse(minute) : null;
+  }
+
+  @Override
+  public Map<String, LocalDateTime> getRequestMinutes(
+      String userId, Collection<String> requestIds) {
+    Map<String, LocalDateTime> minutes = new HashMap<>();
+    if (requestIds.isEmpty()) {
+      return minutes;
+    }
+    Map<String, String> found =
+        this.redissonClient
+            .getBuckets(StringCodec.INSTANCE)
+            .get(requestIds.stream().map(id -> key(userId, id)).toArray(String[]::new));
+    for (String requestId : requestIds) {
+      String minute = found.get(key(userId, requestId));
+      if (minute != null) {
+        minutes.put(requestId, LocalDateTime.parse(minute));
+      }
+    }
+    return minutes;
+  }
+
+  @Override
+  public void storeRequestMinute(String userId, String requestId, LocalDateTime minute) {
+    getBucket(userId, requestId)
+        .setAsync(minute.toString(), this.ttl)
+        .whenComplete(
+            (result, error) -> {
+              if (error != null) {
+                log.warn("Request {} of user {} could not be indexed", requestId, userId, error);
+              }
+            });
+  }
+}
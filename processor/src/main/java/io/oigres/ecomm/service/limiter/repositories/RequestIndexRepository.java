@@ -0,0 +1,33 @@
+/**********
+ This project is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the
+ Free Software Foundation; either version 3.0 of the License, or (at your
+ option) any later version. (See <https://www.gnu.org/licenses/gpl-3.0.html>.)
+
+ This project is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this project; if not, write to the Free Software Foundation, Inc.,
+ 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301  USA
+ **********/
+// Copyright (c) 2024-2025 Sergio Exposito.  All rights reserved.              
+
+package io.oigres.ecomm.service.limiter.repositories;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Map;
+
+/** Index from request ids to the minute of the bucket where they were stored. */
+public interface RequestIndexRepository {
+
+  LocalDateTime getRequestMinute(String userId, String requestId);
+
+  /** Reads the minutes of many requests at once. Requests which are not indexed are left out. */
+  Map<String, LocalDateTime> getRequestMinutes(String userId, Collection<String> requestIds);
+
+  void storeRequestMinute(String userId, String requestId, LocalDateTime minute);
+}
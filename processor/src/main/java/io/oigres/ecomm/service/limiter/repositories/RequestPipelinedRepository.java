@@ -0,0 +1,170 @@
+/**********
+ This project is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the
+ Free Software Foundation; either version 3.0 of the License, or (at your
+ option) any later version. (See <https://www.gnu.org/licenses/gpl-3.0.html>.)
+
+ This project is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this project; if not, write to the Free Software Foundation, Inc.,
+ 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301  USA
+ **********/
+// Copyright (c) 2024-2025 Sergio Exposito.  All rights reserved.              
+
+package io.oigres.ecomm.service.limiter.repositories;
+
+import io.oigres.ecomm.cache.CacheLockFactory;
+import io.oigres.ecomm.cache.CacheLockManager;
+import io.oigres.ecomm.service.limiter.config.StorageBucketProperties;
+import io.oigres.ecomm.service.limiter.model.StorageBucket;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import org.redisson.api.RBatch;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.ByteArrayCodec;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.data.redis.cache.CacheStatisticsCollector;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Request repository which reads many buckets with one MGET and writes them with one pipelined
+ * batch. Keys, serialization and locks are the same as on the request cache, so both repositories
+ * can be used at the same time by different processors. On optimistic cache locks, versions of
+ * read buckets are recorded and writes are kept until the lock is committed. Reads and writes are
+ * counted on the statistics of the request cache.
+ */
+@Primary
+@Repository
+@ConditionalOnProperty(
+    prefix = "ecomm.service.limiter.bucket",
+    name = "pipelined",
+    havingValue = "true",
+    matchIfMissing = true)
+public class RequestPipelinedRepository implements RequestRepository {
+  private static final String KEY_PREFIX = CacheNames.REQUEST_CACHE_NAME + "::";
+
+  private final RedissonClient redissonClient;
+  private final CacheLockFactory cacheLockFactory;
+  private final RedisSerializer<StorageBucket> serializer;
+  private final Duration ttl;
+  private final CacheStatisticsCollector statistics;
+
+  public RequestPipelinedRepository(
+      RedissonClient redissonClient,
+      CacheLockFactory cacheLockFactory,
+      RedisSerializer<StorageBucket> storageBucketSerializer,
+      StorageBucketProperties storageBucketProperties,
+      CacheStatisticsCollector cacheStatisticsCollector) {
+    this.redissonClient = redissonClient;
+    this.cacheLockFactory = cacheLockFactory;
+    this.serializer = storageBucketSerializer;
+    this.ttl = storageBucketProperties.getTtl();
+    this.statistics = cacheStatisticsCollector;
+  }
+
+  /** Cache key of a bucket, which is also the name of its lock. */
+  private static String cacheKey(String userId, LocalDateTime minute) {
+    return userId + "_" + minute;
+  }
+
+  /** Takes the locks of the buckets, sorted so every processor takes them in the same order. */
+  private TreeSet<LocalDateTime> lockMinutes(
+      String userId, Collection<LocalDateTime> times, boolean write) {
+    TreeSet<LocalDateTime> minutes = new TreeSet<>();
+    times.forEach(time -> minutes.add(time.truncatedTo(ChronoUnit.MINUTES)));
+    for (LocalDateTime minute : minutes) {
+      if (write) {
+        CacheLockManager.lockForWriteIfNeeded(
+            CacheNames.REQUEST_CACHE_NAME, cacheKey(userId, minute), this.cacheLockFactory);
+      } else {
+        CacheLockManager.lockIfNeeded(
+            CacheNames.REQUEST_CACHE_NAME, cacheKey(userId, minute), this.cacheLockFactory);
+      }
+    }
+    return minutes;
+  }
+
+  @Override
+  public StorageBucket getUserRequestsByTime(String userId, LocalDateTime time) {
+    LocalDateTime minute = time.truncatedTo(ChronoUnit.MINUTES);
+    return getUserRequestsByTimes(userId, List.of(minute)).get(minute);
+  }
+
+  @Override
+  public StorageBucket storeUserRequests(String userId, LocalDateTime time, StorageBucket data) {
+    storeUserRequests(userId, Map.of(time, data));
+    return data;
+  }
+
+  @Override
+  public Map<LocalDateTime, StorageBucket> getUserRequestsByTimes(
+      String userId, Collection<LocalDateTime> times) {
+    TreeSet<LocalDateTime> minutes = lockMinutes(userId, times, false);
+    Map<String, byte[]> found =
+        this.redissonClient
+            .getBuckets(ByteArrayCodec.INSTANCE)
+            .get(
+                minutes.stream()
+                    .map(minute -> KEY_PREFIX + cacheKey(userId, minute))
+                    .toArray(String[]::new));
+    Map<LocalDateTime, StorageBucket> buckets = new HashMap<>();
+    for (LocalDateTime minute : minutes) {
+      String key = KEY_PREFIX + cacheKey(userId, minute);
+      byte[] value = CacheLockManager.getPendingWrite(key);
+      if (value == null) {
+        value = found.get(key);
+        CacheLockManager.recordVersion(key, value);
+        this.statistics.incGets(CacheNames.REQUEST_CACHE_NAME);
+        if (value != null) {
+          this.statistics.incHits(CacheNames.REQUEST_CACHE_NAME);
+        } else {
+          this.statistics.incMisses(CacheNames.REQUEST_CACHE_NAME);
+        }
+      }
+      StorageBucket bucket = value != null ? this.serializer.deserialize(value) : null;
+      buckets.put(
+          minute,
+          bucket != null ? bucket : StorageBucket.builder().userId(userId).minute(minute).build());
+    }
+    return buckets;
+  }
+
+  @Override
+  public void storeUserRequests(String userId, Map<LocalDateTime, StorageBucket> buckets) {
+    if (buckets.isEmpty()) {
+      return;
+    }
+    if (CacheLockManager.isOptimistic()) {
+      buckets.forEach(
+          (time, bucket) -> {
+            String cacheKey = cacheKey(userId, time.truncatedTo(ChronoUnit.MINUTES));
+            CacheLockManager.addPendingWrite(
+                KEY_PREFIX + cacheKey, cacheKey, this.serializer.serialize(bucket), this.ttl);
+          });
+      return;
+    }
+    lockMinutes(userId, buckets.keySet(), true);
+    RBatch batch = this.redissonClient.createBatch();
+    buckets.forEach(
+        (time, bucket) ->
+            batch
+                .<byte[]>getBucket(
+                    KEY_PREFIX + cacheKey(userId, time.truncatedTo(ChronoUnit.MINUTES)),
+                    ByteArrayCodec.INSTANCE)
+                .setAsync(this.serializer.serialize(bucket), this.ttl));
+    batch.execute();
+    buckets.keySet().forEach(time -> this.statistics.incPuts(CacheNames.REQUEST_CACHE_NAME));
+  }
+}
@@ -19,10 +19,19 @@ package io.oigres.ecomm.service.limiter.repositories;
 
 import io.oigres.ecomm.service.limiter.model.StorageBucket;
 import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Map;
 
 public interface RequestRepository {
 
   StorageBucket getUserRequestsByTime(String userId, LocalDateTime time);
 
   StorageBucket storeUserRequests(String userId, LocalDateTime time, StorageBucket data);
+
+  /** Reads buckets of many minutes at once, by minute. Missing buckets are returned empty. */
+  Map<LocalDateTime, StorageBucket> getUserRequestsByTimes(
+      String userId, Collection<LocalDateTime> times);
+
+  /** Writes buckets of many minutes at once. */
+  void storeUserRequests(String userId, Map<LocalDateTime, StorageBucket> buckets);
 }
@@ -0,0 +1,101 @@
+/**********
+ This project is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the
+ Free Software Foundation; either version 3.0 of the License, or (at your
+ option) any later version. (See <https://www.gnu.org/licenses/gpl-3.0.html>.)
+
+ This project is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this project; if not, write to the Free Software Foundation, Inc.,
+ 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301  USA
+ **********/
+// Copyright (c) 2024-2025 Sergio Exposito.  All rights reserved.              
+
+package io.oigres.ecomm.service.limiter.rest;
+
+import io.oigres.ecomm.cache.BinaryRedisSerializer;
+import io.oigres.ecomm.cache.ZstdDictionaryTrainer;
+import io.oigres.ecomm.service.limiter.config.CacheCompressionProperties;
+import io.oigres.ecomm.service.limiter.config.StorageBucketProperties;
+import io.oigres.ecomm.service.limiter.model.StorageBucket;
+import io.oigres.ecomm.service.limiter.model.StorageBucketCodec;
+import io.oigres.ecomm.service.limiter.repositories.CacheNames;
+import java.util.Iterator;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.ByteArrayCodec;
+import org.springframework.boot.actuate.endpoint.InvalidEndpointRequestException;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+/**
+ * Trains a zstd dictionary from a sample of the stored buckets, which is downloaded to be set on
+ * cache-compression.dictionaries.
+ */
+@Slf4j
+@Component
+@Endpoint(id = "cachedictionary")
+public class CacheDictionaryEndpoint {
+  private static final String KEY_PATTERN = CacheNames.REQUEST_CACHE_NAME + "::*";
+
+  private final RedissonClient redissonClient;
+  private final RedisSerializer<StorageBucket> storageBucketSerializer;
+  private final RedisSerializer<StorageBucket> binarySerializer;
+  private final CacheCompressionProperties cacheCompressionProperties;
+
+  public CacheDictionaryEndpoint(
+      RedissonClient redissonClient,
+      RedisSerializer<StorageBucket> storageBucketSerializer,
+      StorageBucketProperties storageBucketProperties,
+      CacheCompressionProperties cacheCompressionProperties) {
+    this.redissonClient = redissonClient;
+    this.storageBucketSerializer = storageBucketSerializer;
+    // samples are buckets as they are given to the codec
+    this.binarySerializer =
+        new BinaryRedisSerializer<>(
+            new StorageBucketCodec(storageBucketProperties.isStorePayload()));
+    this.cacheCompressionProperties = cacheCompressionProperties;
+  }
+
+  @ReadOperation(produces = "application/octet-stream")
+  public Resource train(@Nullable Integer samples) {
+    int count = samples != null ? samples : this.cacheCompressionProperties.getDictionarySamples();
+    int dictionarySize = this.cacheCompressionProperties.getDictionarySize();
+    ZstdDictionaryTrainer trainer = new ZstdDictionaryTrainer(dictionarySize * 100, dictionarySize);
+    Iterator<String> keys =
+        this.redissonClient.getKeys().getKeysByPattern(KEY_PATTERN, count).iterator();
+    while (trainer.getSamples() < count && keys.hasNext()) {
+      byte[] value =
+          this.redissonClient.<byte[]>getBucket(keys.next(), ByteArrayCodec.INSTANCE).get();
+      StorageBucket bucket;
+      try {
+        bucket = this.storageBucketSerializer.deserialize(value);
+      } catch (SerializationException e) {
+        continue;
+      }
+      if (bucket != null && !trainer.addSample(this.binarySerializer.serialize(bucket))) {
+        break;
+      }
+    }
+    try {
+      byte[] dictionary = trainer.train();
+      log.info(
+          "Zstd dictionary of {} bytes was trained from {} buckets",
+          dictionary.length,
+          trainer.getSamples());
+      return new ByteArrayResource(dictionary);
+    } catch (IllegalStateException e) {
+      throw new InvalidEndpointRequestException(e.getMessage(), e.getMessage());
+    }
+  }
+}
@@ -0,0 +1,54 @@
+/**********
+ This project is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the
+ Free Software Foundation; either version 3.0 of the License, or (at your
+ option) any later version. (See <https://www.gnu.org/licenses/gpl-3.0.html>.)
+
+ This project is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this project; if not, write to the Free Software Foundation, Inc.,
+ 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301  USA
+ **********/
+// Copyright (c) 2024-2025 Sergio Exposito.  All rights reserved.              
+
+package io.oigres.ecomm.service.limiter.rest;
+
+import io.oigres.ecomm.cache.HotKeySampler;
+import io.oigres.ecomm.cache.MicrometerCacheLockListener;
+import io.oigres.ecomm.service.limiter.config.CacheLockProperties;
+import java.util.List;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+/** Lists the cache lock keys which were waited for the most. */
+@Component
+@Endpoint(id = "cachelocks")
+public class CacheLockEndpoint {
+  private final MicrometerCacheLockListener cacheLockListener;
+  private final CacheLockProperties cacheLockProperties;
+
+  public CacheLockEndpoint(
+      MicrometerCacheLockListener cacheLockListener, CacheLockProperties cacheLockProperties) {
+    this.cacheLockListener = cacheLockListener;
+    this.cacheLockProperties = cacheLockProperties;
+  }
+
+  @ReadOperation
+  public List<HotKeySampler.HotKey> hotKeys(@Nullable Integer count) {
+    return this.cacheLockListener
+        .getHotKeys()
+        .top(count != null ? count : this.cacheLockProperties.getHotKeysCapacity());
+  }
+
+  @DeleteOperation
+  public void reset() {
+    this.cacheLockListener.getHotKeys().reset();
+  }
+}
@@ -0,0 +1,40 @@
+/**********
+ This project is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the
+ Free Software Foundation; either version 3.0 of the License, or (at your
+ option) any later version. (See <https://www.gnu.org/licenses/gpl-3.0.html>.)
+
+ This project is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this project; if not, write to the Free Software Foundation, Inc.,
+ 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301  USA
+ **********/
+// Copyright (c) 2024-2025 Sergio Exposito.  All rights reserved.              
+
+package io.oigres.ecomm.service.limiter.rest;
+
+import io.oigres.ecomm.cache.RedisCacheMeterBinder;
+import java.util.List;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+/** Lists hits, misses, puts, lock waits and serialization of each redis cache. */
+@Component
+@Endpoint(id = "cachestats")
+public class CacheStatisticsEndpoint {
+  private final RedisCacheMeterBinder redisCacheMeterBinder;
+
+  public CacheStatisticsEndpoint(RedisCacheMeterBinder redisCacheMeterBinder) {
+    this.redisCacheMeterBinder = redisCacheMeterBinder;
+  }
+
+  @ReadOperation
+  public List<RedisCacheMeterBinder.CacheMetrics> statistics() {
+    return this.redisCacheMeterBinder.statistics();
+  }
+}
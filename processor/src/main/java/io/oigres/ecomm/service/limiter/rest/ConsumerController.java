@@ -17,12 +17,17 @@
 
 package io.oigres.ecomm.service.limiter.rest;
 
+import io.oigres.ecomm.cache.CacheLockTimeoutException;
+import io.oigres.ecomm.service.limiter.AuditBatchResult;
+import io.oigres.ecomm.service.limiter.AuditEvent;
 import io.oigres.ecomm.service.limiter.RequestAudit;
 import io.oigres.ecomm.service.limiter.ResponseAudit;
+import io.oigres.ecomm.service.limiter.services.AuditBatchService;
 import io.oigres.ecomm.service.limiter.services.RequestService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
+import java.util.List;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
@@ -39,6 +44,7 @@ import org.springframework.web.bind.annotation.*;
 @RequiredArgsConstructor
 public class ConsumerController {
   private final RequestService requestService;
+  private final AuditBatchService auditBatchService;
 
   @Operation(
       summary = "Consume RequestAudit",
@@ -59,4 +65,22 @@ public class ConsumerController {
     this.requestService.responseArrive(responseAudit);
     return ResponseEntity.ok("DONE");
   }
+
+  @Operation(
+      summary = "Consume a batch of RequestAudit and ResponseAudit",
+      description =
+          "This endpoint is called to process many user requests and responses at once. Each item"
+              + " carries either a request or a response, and only failed items are returned")
+  @PostMapping(value = "/batch", produces = MimeTypeUtils.APPLICATION_JSON_VALUE)
+  @ResponseStatus(HttpStatus.OK)
+  public ResponseEntity<AuditBatchResult> consumeBatch(
+      @RequestBody @Valid List<AuditEvent> events) {
+    return ResponseEntity.ok(this.auditBatchService.eventsArrive(events));
+  }
+
+  @ExceptionHandler(CacheLockTimeoutException.class)
+  public ResponseEntity<String> lockTimeout(CacheLockTimeoutException e) {
+    log.warn(e.getMessage());
+    return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(e.getMessage());
+  }
 }
@@ -0,0 +1,114 @@
+/**********
+ This project is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the
+ Free Software Foundation; either version 3.0 of the License, or (at your
+ option) any later version. (See <https://www.gnu.org/licenses/gpl-3.0.html>.)
+
+ This project is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this project; if not, write to the Free Software Foundation, Inc.,
+ 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301  USA
+ **********/
+// Copyright (c) 2024-2025 Sergio Exposito.  All rights reserved.              
+
+package io.oigres.ecomm.service.limiter.rules;
+
+import io.oigres.ecomm.service.limiter.algorithms.RateLimit;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Prefix tree over path segments. Lookups walk the request path without allocating, and the
+ * deepest node which has a rule for the request method wins.
+ */
+final class PathTrie {
+
+  private static final class Node {
+    private String[] segments = new String[0];
+    private Node[] children = new Node[0];
+    private RateLimit anyMethod;
+    private final Map<String, RateLimit> methods = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+
+    private Node child(String path, int offset, int length) {
+      for (int i = 0; i < segments.length; i++) {
+        String segment = segments[i];
+        if (segment.length() == length && path.regionMatches(offset, segment, 0, length)) {
+          return children[i];
+        }
+      }
+      return null;
+    }
+
+    private Node addChild(String segment) {
+      Node child = child(segment, 0, segment.length());
+      if (child == null) {
+        child = new Node();
+        segments = Arrays.copyOf(segments, segments.length + 1);
+        children = Arrays.copyOf(children, children.length + 1);
+        segments[segments.length - 1] = segment;
+        children[children.length - 1] = child;
+      }
+      return child;
+    }
+
+    private RateLimit match(String method) {
+      if (method != null && !methods.isEmpty()) {
+        RateLimit limit = methods.get(method);
+        if (limit != null) {
+          return limit;
+        }
+      }
+      return anyMethod;
+    }
+  }
+
+  private final Node root = new Node();
+
+  void add(String pathPrefix, String method, RateLimit limit) {
+    Node node = root;
+    if (pathPrefix != null) {
+      for (String segment : pathPrefix.split("/")) {
+        if (!segment.isEmpty()) {
+          node = node.addChild(segment);
+        }
+      }
+    }
+    if (method == null || method.isBlank()) {
+      node.anyMethod = limit;
+    } else {
+      node.methods.put(method.trim(), limit);
+    }
+  }
+
+  RateLimit find(String path, String method) {
+    Node node = root;
+    RateLimit found = node.match(method);
+    int length = path != null ? path.length() : 0;
+    int start = 0;
+    while (start < length) {
+      if (path.charAt(start) == '/') {
+        start++;
+        continue;
+      }
+      int end = path.indexOf('/', start);
+      if (end < 0) {
+        end = length;
+      }
+      node = node.child(path, start, end - start);
+      if (node == null) {
+        break;
+      }
+      RateLimit limit = node.match(method);
+      if (limit != null) {
+        found = limit;
+      }
+      start = end + 1;
+    }
+    return found;
+  }
+}
@@ -0,0 +1,111 @@
+/**********
+ This project is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the
+ Free Software Foundation; either version 3.0 of the License, or (at your
+ option) any later version. (See <https://www.gnu.org/licenses/gpl-3.0.html>.)
+
+ This project is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this project; if not, write to the Free Software Foundation, Inc.,
+ 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301  USA
+ **********/
+// Copyright (c) 2024-2025 Sergio Exposito.  All rights reserved.              
+
+package io.oigres.ecomm.service.limiter.rules;
+
+import io.oigres.ecomm.service.limiter.algorithms.RateLimit;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import org.springframework.util.StringUtils;
+
+/**
+ * Compiled and immutable view of the rate limit rules. Rules are resolved first by user, then by
+ * user tier, then by rules which apply to everyone, and finally the default limit is used.
+ */
+public final class RuleTable {
+  private final Map<String, PathTrie> users;
+  private final Map<String, PathTrie> tiers;
+  private final PathTrie everyone;
+  private final RateLimit defaultLimit;
+
+  private RuleTable(
+      Map<String, PathTrie> users,
+      Map<String, PathTrie> tiers,
+      PathTrie everyone,
+      RateLimit defaultLimit) {
+    this.users = users;
+    this.tiers = tiers;
+    this.everyone = everyone;
+    this.defaultLimit = defaultLimit;
+  }
+
+  /**
+   * Compiles the rules. When two rules have the same user or tier, method and path prefix, the
+   * last one wins.
+   * @param rules rules to compile
+   * @param defaultLimit limit used when no rule matches, its window is also used for rules without
+   *     window
+   * @throws IllegalArgumentException if a rule does not have a positive limit
+   */
+  public static RuleTable compile(Collection<LimitRule> rules, RateLimit defaultLimit) {
+    Map<String, PathTrie> users = new HashMap<>();
+    Map<String, PathTrie> tiers = new HashMap<>();
+    PathTrie everyone = new PathTrie();
+    for (LimitRule rule : rules) {
+      if (rule.getLimit() == null || rule.getLimit() <= 0) {
+        throw new IllegalArgumentException(
+            String.format("Rule '%s' must have a positive limit", scope(rule)));
+      }
+      Duration window = rule.getWindow() != null ? rule.getWindow() : defaultLimit.getWindow();
+      RateLimit limit =
+          RateLimit.builder().scope(scope(rule)).limit(rule.getLimit()).window(window).build();
+      PathTrie trie = everyone;
+      if (StringUtils.hasText(rule.getUser())) {
+        trie = users.computeIfAbsent(rule.getUser(), user -> new PathTrie());
+      } else if (StringUtils.hasText(rule.getTier())) {
+        trie = tiers.computeIfAbsent(rule.getTier(), tier -> new PathTrie());
+      }
+      trie.add(rule.getPathPrefix(), rule.getMethod(), limit);
+    }
+    return new RuleTable(Map.copyOf(users), Map.copyOf(tiers), everyone, defaultLimit);
+  }
+
+  private static String scope(LimitRule rule) {
+    if (StringUtils.hasText(rule.getName())) {
+      return rule.getName();
+    }
+    String who =
+        StringUtils.hasText(rule.getUser())
+            ? "user=" + rule.getUser()
+            : StringUtils.hasText(rule.getTier()) ? "tier=" + rule.getTier() : "*";
+    return String.join(
+        ":",
+        who,
+        StringUtils.hasText(rule.getMethod()) ? rule.getMethod().trim().toUpperCase() : "*",
+        StringUtils.hasText(rule.getPathPrefix()) ? rule.getPathPrefix() : "/");
+  }
+
+  public RateLimit resolve(String userId, String tier, String method, String path) {
+    RateLimit limit = null;
+    PathTrie trie = userId != null ? users.get(userId) : null;
+    if (trie != null) {
+      limit = trie.find(path, method);
+    }
+    if (limit == null && tier != null) {
+      trie = tiers.get(tier);
+      if (trie != null) {
+        limit = trie.find(path, method);
+      }
+    }
+    if (limit == null) {
+      limit = everyone.find(path, method);
+    }
+    return limit != null ? limit : defaultLimit;
+  }
+}
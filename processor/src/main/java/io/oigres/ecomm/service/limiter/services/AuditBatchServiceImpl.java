@@ -0,0 +1,75 @@
+/**********
+ This project is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the
+ Free Software Foundation; either version 3.0 of the License, or (at your
+ option) any later version. (See <https://www.gnu.org/licenses/gpl-3.0.html>.)
+
+ This project is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this project; if not, write to the Free Software Foundation, Inc.,
+ 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301  USA
+ **********/
+// Copyright (c) 2024-2025 Sergio Exposito.  All rights reserved.              
+
+package io.oigres.ecomm.service.limiter.services;
+
+import io.oigres.ecomm.service.limiter.AuditBatchResult;
+import io.oigres.ecomm.service.limiter.AuditEvent;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+/**
+ * Splits a batch of audits by user, so the state of each user is read and written once per batch.
+ * Audits of each user keep the order they have on the batch.
+ */
+@Slf4j
+@Service
+public class AuditBatchServiceImpl implements AuditBatchService {
+  private final RequestService requestService;
+
+  public AuditBatchServiceImpl(RequestService requestService) {
+    this.requestService = requestService;
+  }
+
+  @Override
+  public AuditBatchResult eventsArrive(List<AuditEvent> events) {
+    List<AuditBatchResult.Failure> failures = new ArrayList<>();
+    Map<String, List<Integer>> indexesByUser = new LinkedHashMap<>();
+    for (int index = 0; index < events.size(); index++) {
+      AuditEvent event = events.get(index);
+      if (event == null || (event.getRequest() == null) == (event.getResponse() == null)) {
+        failures.add(failure(index, "Item must have either a request or a response"));
+      } else if (StringUtils.hasText(event.getUserId())) {
+        indexesByUser.computeIfAbsent(event.getUserId(), userId -> new ArrayList<>()).add(index);
+      }
+    }
+    indexesByUser.forEach(
+        (userId, indexes) -> {
+          try {
+            this.requestService.eventsArrive(userId, indexes.stream().map(events::get).toList());
+          } catch (RuntimeException e) {
+            log.warn("Events of user {} could not be processed", userId, e);
+            indexes.forEach(index -> failures.add(failure(index, e.getMessage())));
+          }
+        });
+    failures.sort(Comparator.comparingInt(AuditBatchResult.Failure::getIndex));
+    return AuditBatchResult.builder()
+        .processed(events.size() - failures.size())
+        .failures(failures)
+        .build();
+  }
+
+  private static AuditBatchResult.Failure failure(int index, String error) {
+    return AuditBatchResult.Failure.builder().index(index).error(error).build();
+  }
+}
@@ -0,0 +1,63 @@
+/**********
+ This project is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the
+ Free Software Foundation; either version 3.0 of the License, or (at your
+ option) any later version. (See <https://www.gnu.org/licenses/gpl-3.0.html>.)
+
+ This project is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this project; if not, write to the Free Software Foundation, Inc.,
+ 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301  USA
+ **********/
+// Copyright (c) 2024-2025 Sergio Exposito.  All rights reserved.              
+
+package io.oigres.ecomm.service.limiter.services;
+
+import io.oigres.ecomm.cache.CacheLockManager;
+import io.oigres.ecomm.service.limiter.BlackedInfo;
+import io.oigres.ecomm.service.limiter.repositories.BlackedInfoRepository;
+import java.time.LocalDateTime;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Service;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class BlacklistServiceImpl implements BlacklistService {
+  private final BlackedInfoRepository blackedInfoRepository;
+  private final KafkaTemplate<String, BlackedInfo> kafkaTemplate;
+
+  private BlackedInfo broadcastBlacklistedUser(String userId) {
+    LocalDateTime blockedFrom = LocalDateTime.now();
+    LocalDateTime blockedTo = blockedFrom.plusMinutes(1);
+    BlackedInfo blackedInfo =
+        BlackedInfo.builder().userId(userId).from(blockedFrom).to(blockedTo).build();
+    // optimistic cache locks may run this again when their writes conflict, so the block is only
+    // sent once the block which is stored with it is committed
+    CacheLockManager.runAfterCommit(
+        () -> {
+          log.info(
+              "User '{}' will be blocked from {} to {}",
+              blackedInfo.getUserId(),
+              blackedInfo.getFrom(),
+              blackedInfo.getTo());
+          this.kafkaTemplate.sendDefault(userId, blackedInfo);
+        });
+    return blackedInfo;
+  }
+
+  public void blacklistUser(String userId) {
+    BlackedInfo blackedInfo = this.blackedInfoRepository.getBlackedInfo(userId);
+    if (blackedInfo != null && blackedInfo.isIncluded(LocalDateTime.now())) {
+      return;
+    }
+    blackedInfo = broadcastBlacklistedUser(userId);
+    this.blackedInfoRepository.storeBlackedInfo(userId, blackedInfo);
+  }
+}
@@ -0,0 +1,131 @@
+/**********
+ This project is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the
+ Free Software Foundation; either version 3.0 of the License, or (at your
+ option) any later version. (See <https://www.gnu.org/licenses/gpl-3.0.html>.)
+
+ This project is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this project; if not, write to the Free Software Foundation, Inc.,
+ 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301  USA
+ **********/
+// Copyright (c) 2024-2025 Sergio Exposito.  All rights reserved.              
+
+package io.oigres.ecomm.service.limiter.services;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.oigres.ecomm.service.limiter.RequestAudit;
+import io.oigres.ecomm.service.limiter.algorithms.RateLimit;
+import io.oigres.ecomm.service.limiter.config.LimitRulesProperties;
+import io.oigres.ecomm.service.limiter.config.LimiterEngineProperties;
+import io.oigres.ecomm.service.limiter.rules.LimitRule;
+import io.oigres.ecomm.service.limiter.rules.RuleTable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Resolves the rate limit of each request from a compiled rule table, so no remote call is done.
+ * Rules come from the application configuration plus an optional json file, which is reloaded
+ * when it changes.
+ */
+@Slf4j
+@Service
+public class LimitRuleServiceImpl implements LimitRuleService {
+  private static final TypeReference<List<LimitRule>> RULES_TYPE = new TypeReference<>() {};
+
+  private final LimitRulesProperties properties;
+  private final RateLimit defaultLimit;
+  private final ObjectMapper objectMapper;
+  private volatile RuleTable ruleTable;
+  private volatile long lastModified;
+
+  public LimitRuleServiceImpl(
+      LimitRulesProperties properties,
+      LimiterEngineProperties engineProperties,
+      @Value("${ecomm.service.limiter.rate-limit}") int rateLimit) {
+    this.properties = properties;
+    this.defaultLimit =
+        RateLimit.builder().limit(rateLimit).window(engineProperties.getWindow()).build();
+    this.objectMapper = new ObjectMapper();
+    this.objectMapper.registerModule(new JavaTimeModule());
+    this.lastModified = lastModified(properties.getLocation());
+    this.ruleTable = RuleTable.compile(loadRules(), this.defaultLimit);
+  }
+
+  private static long lastModified(Resource location) {
+    if (location == null || !location.exists()) {
+      return 0;
+    }
+    try {
+      return location.lastModified();
+    } catch (IOException e) {
+      return 0;
+    }
+  }
+
+  private List<LimitRule> loadRules() {
+    List<LimitRule> rules = new ArrayList<>(this.properties.getDefinitions());
+    Resource location = this.properties.getLocation();
+    if (location != null && location.exists()) {
+      try (InputStream input = location.getInputStream()) {
+        rules.addAll(this.objectMapper.readValue(input, RULES_TYPE));
+      } catch (IOException e) {
+        throw new IllegalStateException(
+            String.format("Rules cannot be read from '%s'", location.getDescription()), e);
+      }
+    }
+    log.info("{} rate limit rules loaded", rules.size());
+    return rules;
+  }
+
+  @Scheduled(
+      fixedDelayString = "${ecomm.service.limiter.rules.reload-interval:PT10S}",
+      initialDelayString = "${ecomm.service.limiter.rules.reload-interval:PT10S}")
+  public void reloadIfModified() {
+    long modified = lastModified(this.properties.getLocation());
+    if (modified == this.lastModified) {
+      return;
+    }
+    try {
+      this.ruleTable = RuleTable.compile(loadRules(), this.defaultLimit);
+      this.lastModified = modified;
+    } catch (RuntimeException e) {
+      log.error("Rate limit rules were not reloaded, previous rules are kept: {}", e.getMessage());
+    }
+  }
+
+  private String tier(RequestAudit request) {
+    Map<String, List<String>> headers = request.getHeaders();
+    if (headers == null) {
+      return null;
+    }
+    for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+      if (this.properties.getTierHeader().equalsIgnoreCase(header.getKey())
+          && header.getValue() != null
+          && !header.getValue().isEmpty()) {
+        return header.getValue().getFirst();
+      }
+    }
+    return null;
+  }
+
+  @Override
+  public RateLimit resolve(RequestAudit request) {
+    return this.ruleTable.resolve(
+        request.getUserId(), tier(request), request.getMethod(), request.getPath());
+  }
+}
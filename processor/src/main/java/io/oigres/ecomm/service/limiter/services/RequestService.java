@@ -17,12 +17,17 @@
 
 package io.oigres.ecomm.service.limiter.services;
 
+import io.oigres.ecomm.service.limiter.AuditEvent;
 import io.oigres.ecomm.service.limiter.RequestAudit;
 import io.oigres.ecomm.service.limiter.ResponseAudit;
+import java.util.List;
 
 public interface RequestService {
 
   void requestArrive(RequestAudit request);
 
   void responseArrive(ResponseAudit response);
+
+  /** Processes requests and responses of one user, in the given order. */
+  void eventsArrive(String userId, List<AuditEvent> events);
 }
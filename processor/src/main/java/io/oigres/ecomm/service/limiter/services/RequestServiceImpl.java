@@ -18,124 +18,271 @@
 package io.oigres.ecomm.service.limiter.services;
 
 import io.oigres.ecomm.cache.annotations.CacheLock;
-import io.oigres.ecomm.service.limiter.BlackedInfo;
+import io.oigres.ecomm.service.limiter.AuditEvent;
 import io.oigres.ecomm.service.limiter.RequestAudit;
 import io.oigres.ecomm.service.limiter.ResponseAudit;
+import io.oigres.ecomm.service.limiter.config.StorageBucketProperties;
 import io.oigres.ecomm.service.limiter.model.RequestData;
 import io.oigres.ecomm.service.limiter.model.StorageBucket;
-import io.oigres.ecomm.service.limiter.repositories.BlackedInfoRepository;
+import io.oigres.ecomm.service.limiter.repositories.CacheNames;
+import io.oigres.ecomm.service.limiter.repositories.RequestIndexRepository;
 import io.oigres.ecomm.service.limiter.repositories.RequestRepository;
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 
 @Slf4j
 @Service
+@ConditionalOnProperty(
+    prefix = "ecomm.service.limiter.engine",
+    name = "mode",
+    havingValue = "bucket",
+    matchIfMissing = true)
 public class RequestServiceImpl implements RequestService {
-
-  private final int
-      rateLimit; // TODO - this rate limit should be different per user according to some rule. It's
-  // just a demo!
   private final RequestRepository requestRepository;
-  private final BlackedInfoRepository blackedInfoRepository;
-  private final KafkaTemplate<String, BlackedInfo> kafkaTemplate;
+  private final BlacklistService blacklistService;
+  private final LimitRuleService limitRuleService;
+  private final StorageBucketProperties storageBucketProperties;
+  private final RequestIndexRepository requestIndexRepository;
+  private final int scannedBuckets;
 
   public RequestServiceImpl(
       RequestRepository requestRepository,
-      BlackedInfoRepository blackedInfoRepository,
-      KafkaTemplate<String, BlackedInfo> kafkaTemplate,
-      @Value("${ecomm.service.limiter.rate-limit}") int rateLimit) {
+      BlacklistService blacklistService,
+      LimitRuleService limitRuleService,
+      StorageBucketProperties storageBucketProperties,
+      RequestIndexRepository requestIndexRepository) {
     this.requestRepository = requestRepository;
-    this.blackedInfoRepository = blackedInfoRepository;
-    this.kafkaTemplate = kafkaTemplate;
-    this.rateLimit = rateLimit;
+    this.requestIndexRepository = requestIndexRepository;
+    this.blacklistService = blacklistService;
+    this.limitRuleService = limitRuleService;
+    this.storageBucketProperties = storageBucketProperties;
+    // requests can only be found on buckets which have not expired
+    this.scannedBuckets = Math.max(1, (int) storageBucketProperties.getTtl().toMinutes());
   }
 
-  private List<RequestData> addSorted(List<RequestData> requests, RequestData data) {
-    if (requests.isEmpty()) {
-      requests.add(data);
-      return requests;
-    }
-    int index = requests.size() - 1;
-    for (; index >= 0; index--) {
-      if (requests.get(index).getRequestArrived().isBefore(data.getRequestArrived())) {
-        break;
+  /**
+   * Whether the audit of a request is kept on its bucket. Sampling is done by request id, so the
+   * response of a sampled request is kept too.
+   */
+  private boolean retainAudit(String requestId) {
+    return switch (this.storageBucketProperties.getRetention()) {
+      case FULL -> true;
+      case NONE -> false;
+      case SAMPLED -> {
+        int hash = (requestId != null ? requestId.hashCode() : 0) * 0x9E3779B9;
+        yield (hash >>> 8) < this.storageBucketProperties.getSampleRate() * (1 << 24);
       }
-    }
-    requests.add(index, data);
-    return requests;
-  }
-
-  private BlackedInfo broadcastBlacklistedUser(String userId) {
-    LocalDateTime blockedFrom = LocalDateTime.now();
-    LocalDateTime blockedTo = blockedFrom.plusMinutes(1);
-    BlackedInfo blackedInfo =
-        BlackedInfo.builder().userId(userId).from(blockedFrom).to(blockedTo).build();
-    log.info(
-        "User '{}' will be blocked from {} to {}",
-        blackedInfo.getUserId(),
-        blackedInfo.getFrom(),
-        blackedInfo.getTo());
-    this.kafkaTemplate.sendDefault(userId, blackedInfo);
-    return blackedInfo;
-  }
-
-  private void blacklistUser(String userId) {
-    BlackedInfo blackedInfo = this.blackedInfoRepository.getBlackedInfo(userId);
-    if (blackedInfo != null && blackedInfo.isIncluded(LocalDateTime.now())) {
-      return;
-    }
-    blackedInfo = broadcastBlacklistedUser(userId);
-    this.blackedInfoRepository.storeBlackedInfo(userId, blackedInfo);
+    };
   }
 
-  @CacheLock
+  // the key of the user, which is the key of its blacked info, is locked before any bucket of the
+  // user by every method, so buckets are never locked in different orders. Requests without user
+  // do not lock anything.
+  @CacheLock(
+      keys = {
+        "#request.userId",
+        "T(org.springframework.util.StringUtils).hasText(#request.userId) ? #request.userId + '_' +"
+            + " #request.arrived.truncatedTo(T(java.time.temporal.ChronoUnit).MINUTES) : null"
+      },
+      cacheName = CacheNames.REQUEST_CACHE_NAME)
   public void requestArrive(RequestAudit request) {
     log.info("Processing request for user {}", request.getUserId());
     if (!StringUtils.hasText(request.getUserId())) {
       return;
     }
-    StorageBucket bucket =
-        this.requestRepository.getUserRequestsByTime(request.getUserId(), request.getArrived());
-    addSorted(
-        bucket.getRequests(),
-        RequestData.builder().request(request).requestArrived(LocalDateTime.now()).build());
-    this.requestRepository.storeUserRequests(request.getUserId(), request.getArrived(), bucket);
-    if (bucket.getRequests().size() > this.rateLimit) {
-      blacklistUser(request.getUserId());
+    UserBuckets buckets = new UserBuckets(request.getUserId());
+    boolean exceeded = addRequest(buckets, request);
+    buckets.store();
+    if (exceeded) {
+      this.blacklistService.blacklistUser(request.getUserId());
     }
   }
 
-  @CacheLock
+  @CacheLock(keys = "#response.userId", cacheName = CacheNames.REQUEST_CACHE_NAME)
   public void responseArrive(ResponseAudit response) {
     log.info("Processing response for user {}", response.getUserId());
     if (!StringUtils.hasText(response.getUserId())) {
       return;
     }
-    Optional<RequestData> data = Optional.empty();
-    StorageBucket bucket = null;
-    LocalDateTime time = response.getArrived();
-    while (!data.isPresent()) {
-      bucket = this.requestRepository.getUserRequestsByTime(response.getUserId(), time);
-      if (bucket == null || bucket.getRequests().isEmpty()) {
-        break;
+    UserBuckets buckets = new UserBuckets(response.getUserId());
+    addResponse(buckets, response);
+    buckets.store();
+  }
+
+  @CacheLock(keys = "#userId", cacheName = CacheNames.REQUEST_CACHE_NAME)
+  public void eventsArrive(String userId, List<AuditEvent> events) {
+    log.info("Processing {} events for user {}", events.size(), userId);
+    if (!StringUtils.hasText(userId)) {
+      return;
+    }
+    UserBuckets buckets = new UserBuckets(userId);
+    buckets.preload(events);
+    boolean exceeded = false;
+    for (AuditEvent event : events) {
+      if (event.getRequest() != null) {
+        exceeded |= addRequest(buckets, event.getRequest());
+      } else if (event.getResponse() != null) {
+        addResponse(buckets, event.getResponse());
+      }
+    }
+    buckets.store();
+    if (exceeded) {
+      this.blacklistService.blacklistUser(userId);
+    }
+  }
+
+  /** Adds a request to its bucket, and returns whether the user went over the limit. */
+  private boolean addRequest(UserBuckets buckets, RequestAudit request) {
+    LocalDateTime minute = request.getArrived().truncatedTo(ChronoUnit.MINUTES);
+    StorageBucket bucket = buckets.get(minute);
+    bucket.addRequest(
+        RequestData.builder()
+            .requestId(request.getId())
+            .requestArrived(LocalDateTime.now())
+            .request(retainAudit(request.getId()) ? request : null)
+            .build());
+    buckets.changed(minute, request.getId());
+    // buckets always hold one minute, so the rule window is not used by this engine
+    return bucket.size() > this.limitRuleService.resolve(request).getLimit();
+  }
+
+  private void addResponse(UserBuckets buckets, ResponseAudit response) {
+    if (response.getId() == null) {
+      return;
+    }
+    LocalDateTime minute = buckets.findLoaded(response.getId());
+    if (minute == null && !buckets.preloaded) {
+      minute = this.requestIndexRepository.getRequestMinute(buckets.userId, response.getId());
+    }
+    if (minute != null) {
+      storeResponse(buckets, response, minute);
+      return;
+    }
+    // requests which are not indexed yet can only be on buckets which have not expired
+    LocalDateTime time = response.getArrived().truncatedTo(ChronoUnit.MINUTES);
+    for (int i = 0; i < this.scannedBuckets; i++) {
+      if (storeResponse(buckets, response, time)) {
+        return;
       }
-      data =
-          bucket.getRequests().reversed().stream()
-              .filter(request -> request.getRequest().getId().equals(response.getId()))
-              .findAny();
       time = time.minusMinutes(1);
     }
-    if (data.isPresent()) {
-      RequestData requestData = data.orElseThrow();
-      requestData.setResponse(response);
-      requestData.setResponseArrived(time);
-      this.requestRepository.storeUserRequests(response.getUserId(), time, bucket);
+    log.debug("Request {} of user {} was not found", response.getId(), response.getUserId());
+  }
+
+  private boolean storeResponse(UserBuckets buckets, ResponseAudit response, LocalDateTime minute) {
+    StorageBucket bucket = buckets.get(minute);
+    if (bucket == null) {
+      return false;
+    }
+    Optional<RequestData> data = bucket.findRequest(response.getId());
+    if (data.isEmpty()) {
+      return false;
+    }
+    RequestData requestData = data.orElseThrow();
+    // responses are kept along with their requests
+    requestData.setResponse(requestData.getRequest() != null ? response : null);
+    requestData.setResponseArrived(LocalDateTime.now());
+    buckets.changed(minute, null);
+    return true;
+  }
+
+  /**
+   * Buckets of one user which are read while processing requests and responses, so each bucket is
+   * read and written once. When many events are processed, every bucket they need is read up front
+   * and changed buckets are written together.
+   */
+  private class UserBuckets {
+    private final String userId;
+    private final Map<LocalDateTime, StorageBucket> buckets = new HashMap<>();
+    private final Set<LocalDateTime> changed = new HashSet<>();
+    private final Map<String, LocalDateTime> indexed = new LinkedHashMap<>();
+    private final Map<String, LocalDateTime> located = new HashMap<>();
+    private boolean preloaded;
+
+    UserBuckets(String userId) {
+      this.userId = userId;
+    }
+
+    /** Reads the index entries and the buckets which are needed by the given events. */
+    void preload(List<AuditEvent> events) {
+      Set<LocalDateTime> minutes = new HashSet<>();
+      Set<String> requestIds = new HashSet<>();
+      List<ResponseAudit> responses = new ArrayList<>();
+      for (AuditEvent event : events) {
+        if (event.getRequest() != null) {
+          minutes.add(event.getRequest().getArrived().truncatedTo(ChronoUnit.MINUTES));
+          requestIds.add(event.getRequest().getId());
+        } else if (event.getResponse() != null && event.getResponse().getId() != null) {
+          if (!requestIds.contains(event.getResponse().getId())) {
+            responses.add(event.getResponse());
+          }
+        }
+      }
+      this.located.putAll(
+          requestIndexRepository.getRequestMinutes(
+              this.userId, responses.stream().map(ResponseAudit::getId).toList()));
+      for (ResponseAudit response : responses) {
+        LocalDateTime minute = this.located.get(response.getId());
+        if (minute != null) {
+          minutes.add(minute);
+        } else {
+          LocalDateTime time = response.getArrived().truncatedTo(ChronoUnit.MINUTES);
+          for (int i = 0; i < scannedBuckets; i++) {
+            minutes.add(time.minusMinutes(i));
+          }
+        }
+      }
+      minutes.removeAll(this.buckets.keySet());
+      this.buckets.putAll(requestRepository.getUserRequestsByTimes(this.userId, minutes));
+      this.preloaded = true;
+    }
+
+    StorageBucket get(LocalDateTime minute) {
+      return this.buckets.computeIfAbsent(
+          minute, m -> requestRepository.getUserRequestsByTime(this.userId, m));
+    }
+
+    LocalDateTime findLoaded(String requestId) {
+      if (this.indexed.containsKey(requestId)) {
+        return this.indexed.get(requestId);
+      }
+      if (this.located.containsKey(requestId)) {
+        return this.located.get(requestId);
+      }
+      return this.buckets.entrySet().stream()
+          .filter(entry -> entry.getValue() != null)
+          .filter(entry -> entry.getValue().findRequest(requestId).isPresent())
+          .map(Map.Entry::getKey)
+          .findFirst()
+          .orElse(null);
+    }
+
+    void changed(LocalDateTime minute, String requestId) {
+      this.changed.add(minute);
+      if (requestId != null) {
+        this.indexed.put(requestId, minute);
+      }
+    }
+
+    void store() {
+      Map<LocalDateTime, StorageBucket> changedBuckets = new HashMap<>();
+      this.changed.forEach(minute -> changedBuckets.put(minute, this.buckets.get(minute)));
+      requestRepository.storeUserRequests(this.userId, changedBuckets);
+      this.indexed.forEach(
+          (requestId, minute) ->
+              requestIndexRepository.storeRequestMinute(this.userId, requestId, minute));
     }
   }
 }
@@ -0,0 +1,113 @@
+/**********
+ This project is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the
+ Free Software Foundation; either version 3.0 of the License, or (at your
+ option) any later version. (See <https://www.gnu.org/licenses/gpl-3.0.html>.)
+
+ This project is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this project; if not, write to the Free Software Foundation, Inc.,
+ 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301  USA
+ **********/
+// Copyright (c) 2024-2025 Sergio Exposito.  All rights reserved.              
+
+package io.oigres.ecomm.service.limiter.services;
+
+import io.oigres.ecomm.service.limiter.AuditEvent;
+import io.oigres.ecomm.service.limiter.RequestAudit;
+import io.oigres.ecomm.service.limiter.ResponseAudit;
+import io.oigres.ecomm.service.limiter.algorithms.RateLimit;
+import io.oigres.ecomm.service.limiter.algorithms.RateLimitAlgorithm;
+import io.oigres.ecomm.service.limiter.config.LimiterEngineProperties;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+/**
+ * Request service which decides the rate limit with one atomic redis script per request, using
+ * the configured algorithm. Each matching rule has its own counter per user. It does not take any
+ * lock and it does not keep request data, so responses are not correlated. Only the algorithm
+ * which is configured is registered.
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(
+    prefix = "ecomm.service.limiter.engine",
+    name = "mode",
+    havingValue = "script")
+public class ScriptRequestServiceImpl implements RequestService {
+  private final RateLimitAlgorithm algorithm;
+  private final BlacklistService blacklistService;
+  private final LimitRuleService limitRuleService;
+
+  public ScriptRequestServiceImpl(
+      List<RateLimitAlgorithm> algorithms,
+      BlacklistService blacklistService,
+      LimitRuleService limitRuleService,
+      LimiterEngineProperties properties) {
+    this.algorithm =
+        algorithms.stream()
+            .filter(algorithm -> algorithm.getType() == properties.getAlgorithm())
+            .findFirst()
+            .orElseThrow(
+                () ->
+                    new IllegalStateException(
+                        String.format(
+                            "Rate limit algorithm '%s' is not available",
+                            properties.getAlgorithm())));
+    this.blacklistService = blacklistService;
+    this.limitRuleService = limitRuleService;
+    log.info("Using rate limit algorithm {}", this.algorithm.getType());
+  }
+
+  public void requestArrive(RequestAudit request) {
+    log.info("Processing request for user {}", request.getUserId());
+    if (!StringUtils.hasText(request.getUserId())) {
+      return;
+    }
+    if (!tryAcquire(request)) {
+      this.blacklistService.blacklistUser(request.getUserId());
+    }
+  }
+
+  public void responseArrive(ResponseAudit response) {
+    log.debug("Response for user {} is not needed by script engine", response.getUserId());
+  }
+
+  public void eventsArrive(String userId, List<AuditEvent> events) {
+    log.info("Processing {} events for user {}", events.size(), userId);
+    if (!StringUtils.hasText(userId)) {
+      return;
+    }
+    boolean allowed = true;
+    for (AuditEvent event : events) {
+      if (event.getRequest() != null) {
+        allowed &= tryAcquire(event.getRequest());
+      }
+    }
+    if (!allowed) {
+      this.blacklistService.blacklistUser(userId);
+    }
+  }
+
+  private boolean tryAcquire(RequestAudit request) {
+    LocalDateTime time = request.getArrived() != null ? request.getArrived() : LocalDateTime.now();
+    RateLimit rateLimit = this.limitRuleService.resolve(request);
+    String key =
+        rateLimit.getScope() != null
+            ? request.getUserId() + "::" + rateLimit.getScope()
+            : request.getUserId();
+    // requests without id are still counted, under an id of their own
+    String requestId =
+        StringUtils.hasText(request.getId()) ? request.getId() : UUID.randomUUID().toString();
+    return this.algorithm.tryAcquire(key, requestId, time, rateLimit);
+  }
+}
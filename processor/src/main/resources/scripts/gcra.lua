@@ -0,0 +1,25 @@
+-- Generic cell rate algorithm.
+-- Only the theoretical arrival time (TAT) of the next request is stored. Requests are emitted
+-- every window/limit milliseconds, and a burst of 'limit' requests is tolerated.
+--
+-- KEYS[1] - theoretical arrival time in milliseconds
+-- ARGV[1] - request time in milliseconds
+-- ARGV[2] - max requests allowed on the window
+-- ARGV[3] - window size in milliseconds
+--
+-- Returns 1 when the request is allowed, otherwise 0.
+local now = tonumber(ARGV[1])
+local limit = tonumber(ARGV[2])
+local window = tonumber(ARGV[3])
+local interval = window / limit
+
+local tat = tonumber(redis.call('GET', KEYS[1])) or now
+if tat < now then
+  tat = now
+end
+local nextTat = tat + interval
+if nextTat - window > now then
+  return 0
+end
+redis.call('SET', KEYS[1], nextTat, 'PX', math.ceil(nextTat - now))
+return 1
@@ -0,0 +1,26 @@
+-- Sliding window counter.
+-- Requests are counted on fixed windows, and the previous window count is weighted by the
+-- portion of it which still overlaps the sliding window. Only allowed requests are counted.
+--
+-- KEYS[1] - hash which holds one counter per fixed window
+-- ARGV[1] - request time in milliseconds
+-- ARGV[2] - max requests allowed on the window
+-- ARGV[3] - window size in milliseconds
+--
+-- Returns 1 when the request is allowed, otherwise 0.
+local now = tonumber(ARGV[1])
+local limit = tonumber(ARGV[2])
+local window = tonumber(ARGV[3])
+local current = math.floor(now / window)
+
+local count = tonumber(redis.call('HGET', KEYS[1], current) or '0')
+local previous = tonumber(redis.call('HGET', KEYS[1], current - 1) or '0')
+redis.call('HDEL', KEYS[1], current - 2)
+
+local weight = 1 - ((now % window) / window)
+if math.floor(count + 1 + previous * weight) > limit then
+  return 0
+end
+redis.call('HINCRBY', KEYS[1], current, 1)
+redis.call('PEXPIRE', KEYS[1], window * 2)
+return 1
@@ -0,0 +1,21 @@
+-- Sliding window log.
+-- Every allowed request is kept on a sorted set scored by its time, so the window is exact.
+--
+-- KEYS[1] - sorted set which holds the allowed requests
+-- ARGV[1] - request time in milliseconds
+-- ARGV[2] - max requests allowed on the window
+-- ARGV[3] - window size in milliseconds
+-- ARGV[4] - request id
+--
+-- Returns 1 when the request is allowed, otherwise 0.
+local now = tonumber(ARGV[1])
+local limit = tonumber(ARGV[2])
+local window = tonumber(ARGV[3])
+
+redis.call('ZREMRANGEBYSCORE', KEYS[1], '-inf', now - window)
+if redis.call('ZCARD', KEYS[1]) >= limit then
+  return 0
+end
+redis.call('ZADD', KEYS[1], now, ARGV[4])
+redis.call('PEXPIRE', KEYS[1], window)
+return 1
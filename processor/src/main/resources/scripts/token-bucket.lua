@@ -0,0 +1,29 @@
+-- Token bucket.
+-- The bucket holds up to 'limit' tokens and it is refilled at 'limit' tokens per window.
+--
+-- KEYS[1] - hash which holds the available tokens and the last refill time
+-- ARGV[1] - request time in milliseconds
+-- ARGV[2] - bucket capacity
+-- ARGV[3] - time to refill the whole bucket in milliseconds
+--
+-- Returns 1 when the request is allowed, otherwise 0.
+local now = tonumber(ARGV[1])
+local capacity = tonumber(ARGV[2])
+local window = tonumber(ARGV[3])
+
+local state = redis.call('HMGET', KEYS[1], 'tokens', 'time')
+local tokens = tonumber(state[1]) or capacity
+local time = tonumber(state[2]) or now
+if now > time then
+  tokens = math.min(capacity, tokens + (now - time) * capacity / window)
+  time = now
+end
+
+local allowed = 0
+if tokens >= 1 then
+  tokens = tokens - 1
+  allowed = 1
+end
+redis.call('HSET', KEYS[1], 'tokens', tokens, 'time', time)
+redis.call('PEXPIRE', KEYS[1], window)
+return allowed
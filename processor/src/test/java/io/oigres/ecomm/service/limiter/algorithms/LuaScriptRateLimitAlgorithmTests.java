@@ -0,0 +1,139 @@
+/**********
+ This project is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the
+ Free Software Foundation; either version 3.0 of the License, or (at your
+ option) any later version. (See <https://www.gnu.org/licenses/gpl-3.0.html>.)
+
+ This project is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this project; if not, write to the Free Software Foundation, Inc.,
+ 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301  USA
+ **********/
+// Copyright (c) 2024-2025 Sergio Exposito.  All rights reserved.              
+
+package io.oigres.ecomm.service.limiter.algorithms;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Function;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.redisson.api.RedissonClient;
+
+public class LuaScriptRateLimitAlgorithmTests {
+  private static final LocalDateTime ARRIVED = LocalDateTime.of(2024, 5, 1, 10, 0, 0);
+  private static final RateLimit LIMIT =
+      RateLimit.builder().limit(3).window(Duration.ofSeconds(10)).build();
+
+  private static RedissonClient redissonClient;
+
+  @BeforeAll
+  static void connect() {
+    redissonClient = RedisTestSupport.redissonClient();
+  }
+
+  @AfterAll
+  static void disconnect() {
+    if (redissonClient != null) {
+      redissonClient.shutdown();
+    }
+  }
+
+  private static List<LuaScriptRateLimitAlgorithm> algorithms() {
+    return List.<Function<RedissonClient, LuaScriptRateLimitAlgorithm>>of(
+            SlidingWindowCounterAlgorithm::new,
+            SlidingWindowLogAlgorithm::new,
+            TokenBucketAlgorithm::new,
+            GcraAlgorithm::new)
+        .stream()
+        .map(algorithm -> algorithm.apply(redissonClient))
+        .toList();
+  }
+
+  private static boolean tryAcquire(RateLimitAlgorithm algorithm, String key, LocalDateTime time) {
+    return algorithm.tryAcquire(key, UUID.randomUUID().toString(), time, LIMIT);
+  }
+
+  @Test
+  void test_every_algorithm_allows_limit_requests_per_window() {
+    for (LuaScriptRateLimitAlgorithm algorithm : algorithms()) {
+      // given
+      String key = UUID.randomUUID().toString();
+
+      // when
+      for (int i = 0; i < LIMIT.getLimit(); i++) {
+        Assertions.assertTrue(tryAcquire(algorithm, key, ARRIVED), algorithm.getType().name());
+      }
+      boolean exceeded = tryAcquire(algorithm, key, ARRIVED.plusSeconds(1));
+      boolean later = tryAcquire(algorithm, key, ARRIVED.plusSeconds(20));
+
+      // then
+      Assertions.assertFalse(exceeded, algorithm.getType().name());
+      Assertions.assertTrue(later, algorithm.getType().name());
+    }
+  }
+
+  @Test
+  void test_every_algorithm_counts_each_key_apart() {
+    for (LuaScriptRateLimitAlgorithm algorithm : algorithms()) {
+      // given
+      String key = UUID.randomUUID().toString();
+      for (int i = 0; i < LIMIT.getLimit(); i++) {
+        tryAcquire(algorithm, key, ARRIVED);
+      }
+
+      // when
+      boolean allowed = tryAcquire(algorithm, UUID.randomUUID().toString(), ARRIVED);
+
+      // then
+      Assertions.assertTrue(allowed, algorithm.getType().name());
+    }
+  }
+
+  @Test
+  void test_sliding_window_counter_does_not_count_rejected_requests() {
+    // given
+    SlidingWindowCounterAlgorithm algorithm = new SlidingWindowCounterAlgorithm(redissonClient);
+    String key = UUID.randomUUID().toString();
+    for (int i = 0; i < LIMIT.getLimit(); i++) {
+      tryAcquire(algorithm, key, ARRIVED);
+    }
+    for (int i = 0; i < 10; i++) {
+      Assertions.assertFalse(tryAcquire(algorithm, key, ARRIVED.plusSeconds(1)));
+    }
+
+    // when
+    // half of the previous window overlaps, so its 3 allowed requests weigh 1.5
+    boolean allowed = tryAcquire(algorithm, key, ARRIVED.plusSeconds(15));
+
+    // then
+    Assertions.assertTrue(allowed);
+  }
+
+  @Test
+  void test_sliding_window_log_does_not_log_rejected_requests() {
+    // given
+    SlidingWindowLogAlgorithm algorithm = new SlidingWindowLogAlgorithm(redissonClient);
+    String key = UUID.randomUUID().toString();
+    for (int i = 0; i < LIMIT.getLimit(); i++) {
+      tryAcquire(algorithm, key, ARRIVED);
+    }
+    for (int i = 0; i < 10; i++) {
+      Assertions.assertFalse(tryAcquire(algorithm, key, ARRIVED.plusSeconds(5)));
+    }
+
+    // when
+    boolean allowed = tryAcquire(algorithm, key, ARRIVED.plusSeconds(11));
+
+    // then
+    Assertions.assertTrue(allowed);
+  }
+}
@@ -0,0 +1,66 @@
+/**********
+ This project is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the
+ Free Software Foundation; either version 3.0 of the License, or (at your
+ option) any later version. (See <https://www.gnu.org/licenses/gpl-3.0.html>.)
+
+ This project is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this project; if not, write to the Free Software Foundation, Inc.,
+ 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301  USA
+ **********/
+// Copyright (c) 2024-2025 Sergio Exposito.  All rights reserved.              
+
+package io.oigres.ecomm.service.limiter.algorithms;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.redisson.api.RedissonClient;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+
+public class OnRateLimitAlgorithmConditionTests {
+  private final ApplicationContextRunner contextRunner =
+      new ApplicationContextRunner()
+          .withBean(RedissonClient.class, () -> Mockito.mock(RedissonClient.class))
+          .withUserConfiguration(
+              SlidingWindowCounterAlgorithm.class,
+              SlidingWindowLogAlgorithm.class,
+              TokenBucketAlgorithm.class,
+              GcraAlgorithm.class);
+
+  @Test
+  void test_no_algorithm_is_registered_on_bucket_mode() {
+    this.contextRunner
+        .withPropertyValues("ecomm.service.limiter.engine.algorithm=gcra")
+        .run(context -> Assertions.assertThat(context).doesNotHaveBean(RateLimitAlgorithm.class));
+  }
+
+  @Test
+  void test_default_algorithm_is_registered_on_script_mode() {
+    this.contextRunner
+        .withPropertyValues("ecomm.service.limiter.engine.mode=script")
+        .run(
+            context ->
+                Assertions.assertThat(context)
+                    .getBean(RateLimitAlgorithm.class)
+                    .isInstanceOf(SlidingWindowCounterAlgorithm.class));
+  }
+
+  @Test
+  void test_only_configured_algorithm_is_registered() {
+    this.contextRunner
+        .withPropertyValues(
+            "ecomm.service.limiter.engine.mode=script",
+            "ecomm.service.limiter.engine.algorithm=token-bucket")
+        .run(
+            context ->
+                Assertions.assertThat(context)
+                    .getBean(RateLimitAlgorithm.class)
+                    .isInstanceOf(TokenBucketAlgorithm.class));
+  }
+}
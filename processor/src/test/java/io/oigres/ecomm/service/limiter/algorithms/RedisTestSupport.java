@@ -0,0 +1,46 @@
+/**********
+ This project is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the
+ Free Software Foundation; either version 3.0 of the License, or (at your
+ option) any later version. (See <https://www.gnu.org/licenses/gpl-3.0.html>.)
+
+ This project is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this project; if not, write to the Free Software Foundation, Inc.,
+ 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301  USA
+ **********/
+// Copyright (c) 2024-2025 Sergio Exposito.  All rights reserved.              
+
+package io.oigres.ecomm.service.limiter.algorithms;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import org.junit.jupiter.api.Assumptions;
+import org.redisson.Redisson;
+import org.redisson.api.RedissonClient;
+import org.redisson.config.Config;
+
+/** Redis of the tests which need one, which are skipped when it is not running. */
+final class RedisTestSupport {
+  private static final String HOST = System.getProperty("redis.host", "localhost");
+  private static final int PORT = Integer.getInteger("redis.port", 6379);
+
+  private RedisTestSupport() {}
+
+  /** Create a redisson client, or skip the test when redis is not running. */
+  static RedissonClient redissonClient() {
+    try (Socket socket = new Socket()) {
+      socket.connect(new InetSocketAddress(HOST, PORT), 500);
+    } catch (IOException e) {
+      Assumptions.abort("Redis is not running on " + HOST + ":" + PORT);
+    }
+    Config config = new Config();
+    config.useSingleServer().setAddress("redis://" + HOST + ":" + PORT);
+    return Redisson.create(config);
+  }
+}
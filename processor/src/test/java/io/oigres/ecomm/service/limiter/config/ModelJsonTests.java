@@ -0,0 +1,81 @@
+/**********
+ This project is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the
+ Free Software Foundation; either version 3.0 of the License, or (at your
+ option) any later version. (See <https://www.gnu.org/licenses/gpl-3.0.html>.)
+
+ This project is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this project; if not, write to the Free Software Foundation, Inc.,
+ 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301  USA
+ **********/
+// Copyright (c) 2024-2025 Sergio Exposito.  All rights reserved.              
+
+package io.oigres.ecomm.service.limiter.config;
+
+import io.oigres.ecomm.service.limiter.BlackedInfo;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Map;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.kafka.support.serializer.ErrorHandlingDeserializer;
+
+public class ModelJsonTests {
+
+  private static ModelJson modelJson() {
+    Jackson2ObjectMapperBuilder builder = new Jackson2ObjectMapperBuilder();
+    new JsonConfiguration().modelObjectMapperCustomizer().customize(builder);
+    return new ModelJson(builder.build());
+  }
+
+  private static BlackedInfo blackedInfo() {
+    LocalDateTime from = LocalDateTime.of(2024, 5, 1, 10, 0, 0);
+    return BlackedInfo.builder().userId("user-1").from(from).to(from.plusMinutes(5)).build();
+  }
+
+  @Test
+  void test_redis_and_kafka_write_same_json() {
+    ModelJson modelJson = modelJson();
+    BlackedInfo info = blackedInfo();
+
+    byte[] redis = modelJson.redisSerializer(BlackedInfo.class).serialize(info);
+    byte[] kafka = modelJson.<BlackedInfo>kafkaSerializer().serialize("topic", info);
+
+    Assertions.assertArrayEquals(redis, kafka);
+    Assertions.assertTrue(
+        new String(redis, StandardCharsets.UTF_8).contains("\"from\":\"2024-05-01T10:00:00\""));
+  }
+
+  @Test
+  void test_kafka_deserializer_reads_redis_json() {
+    ModelJson modelJson = modelJson();
+    BlackedInfo info = blackedInfo();
+    byte[] json = modelJson.redisSerializer(BlackedInfo.class).serialize(info);
+
+    try (Deserializer<BlackedInfo> deserializer =
+        new ErrorHandlingDeserializer<>(modelJson.kafkaDeserializer(BlackedInfo.class))) {
+      // the consumer factory configures the deserializer with the properties of the consumer
+      deserializer.configure(Map.of(), false);
+      BlackedInfo result = deserializer.deserialize("topic", json);
+
+      Assertions.assertEquals(info.getUserId(), result.getUserId());
+      Assertions.assertEquals(info.getFrom(), result.getFrom());
+      Assertions.assertEquals(info.getTo(), result.getTo());
+    }
+  }
+
+  @Test
+  void test_readers_and_writers_are_resolved_once() {
+    ModelJson modelJson = modelJson();
+
+    Assertions.assertSame(modelJson.reader(BlackedInfo.class), modelJson.reader(BlackedInfo.class));
+    Assertions.assertSame(modelJson.writer(BlackedInfo.class), modelJson.writer(BlackedInfo.class));
+  }
+}
@@ -0,0 +1,268 @@
+/**********
+ This project is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the
+ Free Software Foundation; either version 3.0 of the License, or (at your
+ option) any later version. (See <https://www.gnu.org/licenses/gpl-3.0.html>.)
+
+ This project is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this project; if not, write to the Free Software Foundation, Inc.,
+ 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301  USA
+ **********/
+// Copyright (c) 2024-2025 Sergio Exposito.  All rights reserved.              
+
+package io.oigres.ecomm.service.limiter.model;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.oigres.ecomm.cache.BinaryRedisSerializer;
+import io.oigres.ecomm.cache.GzipRedisSerializer;
+import io.oigres.ecomm.service.limiter.RequestAudit;
+import io.oigres.ecomm.service.limiter.ResponseAudit;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.serializer.Jackson2JsonRedisSerializer;
+
+public class StorageBucketCodecTests {
+  private static final LocalDateTime MINUTE = LocalDateTime.of(2024, 3, 10, 12, 15, 0, 0);
+  private static Jackson2JsonRedisSerializer<StorageBucket> jsonSerializer;
+  private static GzipRedisSerializer<StorageBucket> gzipSerializer;
+
+  @BeforeAll
+  static void setup() {
+    ObjectMapper mapper = new ObjectMapper();
+    mapper.registerModule(new JavaTimeModule());
+    mapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    jsonSerializer = new Jackson2JsonRedisSerializer<>(mapper, StorageBucket.class);
+    gzipSerializer = new GzipRedisSerializer<>(jsonSerializer);
+  }
+
+  private static StorageBucket bucket(int requests) {
+    return bucket("123", requests);
+  }
+
+  private static StorageBucket bucket(String userId, int requests) {
+    StorageBucket bucket = StorageBucket.builder().userId(userId).minute(MINUTE).build();
+    for (int i = 0; i < requests; i++) {
+      LocalDateTime arrived = MINUTE.plusSeconds(i).plusNanos(123456789);
+      bucket.addRequest(
+          RequestData.builder()
+              .requestArrived(arrived.plusNanos(1000))
+              .request(
+                  RequestAudit.builder()
+                      .id("request-" + i)
+                      .userId("123")
+                      .remoteAddr("10.0.0.1")
+                      .method("GET")
+                      .path("/api/v1/products")
+                      .query(Map.of("page", List.of(String.valueOf(i))))
+                      .headers(
+                          Map.of(
+                              "accept", List.of("application/json"),
+                              "user-agent", List.of("Mozilla/5.0 (X11; Linux x86_64)")))
+                      .cookies(
+                          Map.of(
+                              "session",
+                              List.of(
+                                  RequestAudit.HttpCookie.builder()
+                                      .name("session")
+                                      .value("abc")
+                                      .build())))
+                      .arrived(arrived)
+                      .build())
+              .responseArrived(arrived.plusSeconds(1))
+              .response(
+                  ResponseAudit.builder()
+                      .id("request-" + i)
+                      .userId("123")
+                      .status(200)
+                      .headers(Map.of("content-type", List.of("application/json")))
+                      .cookies(
+                          Map.of(
+                              "session",
+                              List.of(
+                                  ResponseAudit.HttpCookie.builder()
+                                      .name("session")
+                                      .value("abc")
+                                      .maxAge(Duration.ofMinutes(30))
+                                      .path("/")
+                                      .secure(true)
+                                      .httpOnly(true)
+                                      .sameSite("Strict")
+                                      .build())))
+                      .arrived(arrived.plusSeconds(1))
+                      .build())
+              .build());
+    }
+    return bucket;
+  }
+
+  @Test
+  void test_serialize_deserialize() {
+    // given
+    BinaryRedisSerializer<StorageBucket> serializer =
+        new BinaryRedisSerializer<>(new StorageBucketCodec(true));
+    StorageBucket bucket = bucket(3);
+
+    // when
+    StorageBucket deserialized = serializer.deserialize(serializer.serialize(bucket));
+
+    // then
+    Assertions.assertEquals(bucket.getUserId(), deserialized.getUserId());
+    Assertions.assertEquals(bucket.getMinute(), deserialized.getMinute());
+    Assertions.assertEquals(3, deserialized.getRequests().size());
+    for (int i = 0; i < 3; i++) {
+      RequestData expected = bucket.getRequests().get(i);
+      RequestData actual = deserialized.getRequests().get(i);
+      Assertions.assertEquals(expected.getRequestArrived(), actual.getRequestArrived());
+      Assertions.assertEquals(expected.getResponseArrived(), actual.getResponseArrived());
+      Assertions.assertEquals(expected.getRequest().getId(), actual.getRequest().getId());
+      Assertions.assertEquals(expected.getRequest().getPath(), actual.getRequest().getPath());
+      Assertions.assertEquals(expected.getRequest().getArrived(), actual.getRequest().getArrived());
+      Assertions.assertEquals(expected.getRequest().getQuery(), actual.getRequest().getQuery());
+      Assertions.assertEquals(expected.getRequest().getHeaders(), actual.getRequest().getHeaders());
+      Assertions.assertEquals(
+          "abc", actual.getRequest().getCookies().get("session").getFirst().getValue());
+      Assertions.assertEquals(200, actual.getResponse().getStatus());
+      ResponseAudit.HttpCookie cookie = actual.getResponse().getCookies().get("session").getFirst();
+      Assertions.assertEquals(Duration.ofMinutes(30), cookie.getMaxAge());
+      Assertions.assertNull(cookie.getDomain());
+      Assertions.assertTrue(cookie.isSecure());
+      Assertions.assertTrue(cookie.isHttpOnly());
+      Assertions.assertEquals("Strict", cookie.getSameSite());
+    }
+  }
+
+  @Test
+  void test_serialize_without_payload() {
+    // given
+    BinaryRedisSerializer<StorageBucket> serializer =
+        new BinaryRedisSerializer<>(new StorageBucketCodec(false));
+    StorageBucket bucket = bucket(3);
+
+    // when
+    StorageBucket deserialized = serializer.deserialize(serializer.serialize(bucket));
+
+    // then
+    RequestData actual = deserialized.getRequests().getLast();
+    Assertions.assertEquals("request-2", actual.getRequest().getId());
+    Assertions.assertEquals("GET", actual.getRequest().getMethod());
+    Assertions.assertNull(actual.getRequest().getHeaders());
+    Assertions.assertNull(actual.getRequest().getBody());
+    Assertions.assertNull(actual.getResponse().getCookies());
+    Assertions.assertEquals(200, actual.getResponse().getStatus());
+  }
+
+  @Test
+  void test_binary_size() {
+    // given
+    BinaryRedisSerializer<StorageBucket> serializer =
+        new BinaryRedisSerializer<>(new StorageBucketCodec(true));
+    BinaryRedisSerializer<StorageBucket> withoutPayload =
+        new BinaryRedisSerializer<>(new StorageBucketCodec(false));
+    StorageBucket bucket = bucket(15);
+
+    // when
+    int binary = serializer.serialize(bucket).length;
+    int binaryWithoutPayload = withoutPayload.serialize(bucket).length;
+    int json = jsonSerializer.serialize(bucket).length;
+    int gzip = gzipSerializer.serialize(bucket).length;
+
+    // then
+    Assertions.assertTrue(binary < json, String.format("binary %d, json %d", binary, json));
+    Assertions.assertTrue(
+        binaryWithoutPayload < gzip,
+        String.format("binary without payload %d, gzip %d", binaryWithoutPayload, gzip));
+  }
+
+  @Test
+  void test_deserialize_legacy_gzip_json() {
+    // given
+    BinaryRedisSerializer<StorageBucket> serializer =
+        new BinaryRedisSerializer<>(new StorageBucketCodec(true), gzipSerializer);
+    StorageBucket bucket = bucket(2);
+
+    // when
+    StorageBucket deserialized = serializer.deserialize(gzipSerializer.serialize(bucket));
+
+    // then
+    Assertions.assertEquals(2, deserialized.getRequests().size());
+    Assertions.assertEquals(MINUTE.truncatedTo(ChronoUnit.MINUTES), deserialized.getMinute());
+  }
+
+  @Test
+  void test_serialize_request_ids_only() {
+    // given
+    BinaryRedisSerializer<StorageBucket> serializer =
+        new BinaryRedisSerializer<>(new StorageBucketCodec(true));
+    StorageBucket bucket = StorageBucket.builder().userId("123").minute(MINUTE).build();
+    for (int i = 0; i < 15; i++) {
+      bucket.addRequest(
+          RequestData.builder()
+              .requestId("request-" + i)
+              .requestArrived(MINUTE.plusSeconds(i).plusNanos(123456789))
+              .responseArrived(i % 2 == 0 ? MINUTE.plusSeconds(i + 1) : null)
+              .build());
+    }
+
+    // when
+    byte[] serialized = serializer.serialize(bucket);
+    StorageBucket deserialized = serializer.deserialize(serialized);
+
+    // then
+    int json = jsonSerializer.serialize(bucket(15)).length;
+    Assertions.assertTrue(
+        serialized.length * 10 < json,
+        String.format("request ids only %d, json %d", serialized.length, json));
+    Assertions.assertEquals(15, deserialized.getRequests().size());
+    RequestData actual = deserialized.getRequests().get(4);
+    Assertions.assertEquals("request-4", actual.getRequestId());
+    Assertions.assertEquals(MINUTE.plusSeconds(4).plusNanos(123456789), actual.getRequestArrived());
+    Assertions.assertEquals(MINUTE.plusSeconds(5), actual.getResponseArrived());
+    Assertions.assertNull(actual.getRequest());
+    Assertions.assertNull(actual.getResponse());
+  }
+
+  @Test
+  void test_legacy_request_id() {
+    // given
+    BinaryRedisSerializer<StorageBucket> serializer =
+        new BinaryRedisSerializer<>(new StorageBucketCodec(true), gzipSerializer);
+    StorageBucket bucket = bucket(1);
+    bucket.getRequests().getFirst().setRequestId(null);
+
+    // when
+    StorageBucket deserialized = serializer.deserialize(gzipSerializer.serialize(bucket));
+
+    // then
+    Assertions.assertEquals("request-0", deserialized.getRequests().getFirst().getRequestId());
+  }
+
+  @Test
+  void test_add_request_keeps_order() {
+    // given
+    StorageBucket bucket = StorageBucket.builder().userId("123").minute(MINUTE).build();
+
+    // when
+    bucket.addRequest(RequestData.builder().requestArrived(MINUTE.plusSeconds(2)).build());
+    bucket.addRequest(RequestData.builder().requestArrived(MINUTE.plusSeconds(5)).build());
+    bucket.addRequest(RequestData.builder().requestArrived(MINUTE.plusSeconds(1)).build());
+    bucket.addRequest(RequestData.builder().requestArrived(MINUTE.plusSeconds(3)).build());
+
+    // then
+    Assertions.assertEquals(
+        List.of(1, 2, 3, 5),
+        bucket.getRequests().stream().map(data -> data.getRequestArrived().getSecond()).toList());
+  }
+}
@@ -0,0 +1,111 @@
+/**********
+ This project is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the
+ Free Software Foundation; either version 3.0 of the License, or (at your
+ option) any later version. (See <https://www.gnu.org/licenses/gpl-3.0.html>.)
+
+ This project is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this project; if not, write to the Free Software Foundation, Inc.,
+ 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301  USA
+ **********/
+// Copyright (c) 2024-2025 Sergio Exposito.  All rights reserved.              
+
+package io.oigres.ecomm.service.limiter.rules;
+
+import io.oigres.ecomm.service.limiter.algorithms.RateLimit;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+public class RuleTableTests {
+  private static final RateLimit DEFAULT_LIMIT =
+      RateLimit.builder().limit(15).window(Duration.ofMinutes(1)).build();
+  private static RuleTable ruleTable;
+
+  @BeforeAll
+  static void setup() {
+    ruleTable =
+        RuleTable.compile(
+            List.of(
+                LimitRule.builder().pathPrefix("/api/v1/products").limit(100).build(),
+                LimitRule.builder().method("post").pathPrefix("/api/v1/orders").limit(5).build(),
+                LimitRule.builder().pathPrefix("/api/v1/orders/export").limit(1).build(),
+                LimitRule.builder().tier("premium").limit(60).build(),
+                LimitRule.builder()
+                    .tier("premium")
+                    .method("POST")
+                    .pathPrefix("/api/v1/orders")
+                    .limit(20)
+                    .build(),
+                LimitRule.builder()
+                    .name("vip")
+                    .user("42")
+                    .limit(1000)
+                    .window(Duration.ofSeconds(10))
+                    .build()),
+            DEFAULT_LIMIT);
+  }
+
+  private static Stream<Arguments> provideParameters() {
+    return Stream.of(
+        Arguments.of("1", null, "GET", "/api/v1/users", 15),
+        Arguments.of("1", null, "GET", "/api/v1/products", 100),
+        Arguments.of("1", null, "GET", "/api/v1/products/10/images", 100),
+        Arguments.of("1", null, "GET", "/api/v1/productsX", 15),
+        Arguments.of("1", null, "GET", "/api/v1/orders", 15),
+        Arguments.of("1", null, "POST", "/api/v1/orders", 5),
+        Arguments.of("1", null, "post", "/api/v1/orders/", 5),
+        Arguments.of("1", null, "POST", "/api/v1/orders/export", 1),
+        Arguments.of("1", "premium", "GET", "/api/v1/users", 60),
+        Arguments.of("1", "premium", "POST", "/api/v1/orders/10", 20),
+        Arguments.of("1", "basic", "POST", "/api/v1/orders/10", 5),
+        Arguments.of("42", "premium", "POST", "/api/v1/orders", 1000),
+        Arguments.of("1", null, null, null, 15));
+  }
+
+  @ParameterizedTest
+  @MethodSource("provideParameters")
+  void test_resolve(String userId, String tier, String method, String path, int limit) {
+    // when
+    RateLimit rateLimit = ruleTable.resolve(userId, tier, method, path);
+
+    // then
+    Assertions.assertEquals(limit, rateLimit.getLimit());
+  }
+
+  @Test
+  void test_resolve_scope_and_window() {
+    // when
+    RateLimit fallback = ruleTable.resolve("1", null, "GET", "/");
+    RateLimit rule = ruleTable.resolve("1", "premium", "POST", "/api/v1/orders");
+    RateLimit named = ruleTable.resolve("42", null, "GET", "/");
+
+    // then
+    Assertions.assertNull(fallback.getScope());
+    Assertions.assertEquals("tier=premium:POST:/api/v1/orders", rule.getScope());
+    Assertions.assertEquals(Duration.ofMinutes(1), rule.getWindow());
+    Assertions.assertEquals("vip", named.getScope());
+    Assertions.assertEquals(Duration.ofSeconds(10), named.getWindow());
+  }
+
+  @Test
+  void test_compile_invalid_rule() {
+    // given
+    List<LimitRule> rules = List.of(LimitRule.builder().pathPrefix("/api").build());
+
+    // when / then
+    Assertions.assertThrows(
+        IllegalArgumentException.class, () -> RuleTable.compile(rules, DEFAULT_LIMIT));
+  }
+}
@@ -0,0 +1,118 @@
+/**********
+ This project is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the
+ Free Software Foundation; either version 3.0 of the License, or (at your
+ option) any later version. (See <https://www.gnu.org/licenses/gpl-3.0.html>.)
+
+ This project is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this project; if not, write to the Free Software Foundation, Inc.,
+ 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301  USA
+ **********/
+// Copyright (c) 2024-2025 Sergio Exposito.  All rights reserved.              
+
+package io.oigres.ecomm.service.limiter.services;
+
+import io.oigres.ecomm.service.limiter.AuditBatchResult;
+import io.oigres.ecomm.service.limiter.AuditEvent;
+import io.oigres.ecomm.service.limiter.RequestAudit;
+import io.oigres.ecomm.service.limiter.ResponseAudit;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class AuditBatchServiceImplTests {
+
+  private static class RecordingRequestService implements RequestService {
+    private final Map<String, List<String>> calls = new LinkedHashMap<>();
+
+    @Override
+    public void requestArrive(RequestAudit request) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void responseArrive(ResponseAudit response) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void eventsArrive(String userId, List<AuditEvent> events) {
+      if ("failing".equals(userId)) {
+        throw new IllegalStateException("redis is down");
+      }
+      List<String> ids = this.calls.computeIfAbsent(userId, u -> new ArrayList<>());
+      events.forEach(
+          event ->
+              ids.add(
+                  event.getRequest() != null
+                      ? "request:" + event.getRequest().getId()
+                      : "response:" + event.getResponse().getId()));
+    }
+  }
+
+  private static AuditEvent request(String userId, String id) {
+    return AuditEvent.of(RequestAudit.builder().id(id).userId(userId).build());
+  }
+
+  private static AuditEvent response(String userId, String id) {
+    return AuditEvent.of(ResponseAudit.builder().id(id).userId(userId).build());
+  }
+
+  @Test
+  void test_events_are_grouped_by_user() {
+    // given
+    RecordingRequestService requestService = new RecordingRequestService();
+    AuditBatchService service = new AuditBatchServiceImpl(requestService);
+
+    // when
+    AuditBatchResult result =
+        service.eventsArrive(
+            List.of(
+                request("u1", "1"),
+                request("u2", "2"),
+                response("u1", "1"),
+                request("u1", "3"),
+                response("u2", "2")));
+
+    // then
+    Assertions.assertEquals(5, result.getProcessed());
+    Assertions.assertTrue(result.getFailures().isEmpty());
+    Assertions.assertEquals(
+        Map.of(
+            "u1", List.of("request:1", "response:1", "request:3"),
+            "u2", List.of("request:2", "response:2")),
+        requestService.calls);
+  }
+
+  @Test
+  void test_failures_are_reported_by_index() {
+    // given
+    RecordingRequestService requestService = new RecordingRequestService();
+    AuditBatchService service = new AuditBatchServiceImpl(requestService);
+    List<AuditEvent> events = new ArrayList<>();
+    events.add(request("failing", "1"));
+    events.add(request("u1", "2"));
+    events.add(new AuditEvent());
+    events.add(request(null, "3"));
+    events.add(response("failing", "1"));
+
+    // when
+    AuditBatchResult result = service.eventsArrive(events);
+
+    // then
+    Assertions.assertEquals(2, result.getProcessed());
+    Assertions.assertEquals(
+        List.of(0, 2, 4),
+        result.getFailures().stream().map(AuditBatchResult.Failure::getIndex).toList());
+    Assertions.assertEquals("redis is down", result.getFailures().getFirst().getError());
+    Assertions.assertEquals(List.of("request:2"), requestService.calls.get("u1"));
+  }
+}
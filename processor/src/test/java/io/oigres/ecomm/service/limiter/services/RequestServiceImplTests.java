@@ -0,0 +1,230 @@
+/**********
+ This project is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the
+ Free Software Foundation; either version 3.0 of the License, or (at your
+ option) any later version. (See <https://www.gnu.org/licenses/gpl-3.0.html>.)
+
+ This project is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this project; if not, write to the Free Software Foundation, Inc.,
+ 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301  USA
+ **********/
+// Copyright (c) 2024-2025 Sergio Exposito.  All rights reserved.              
+
+package io.oigres.ecomm.service.limiter.services;
+
+import io.oigres.ecomm.cache.CacheLockAspect;
+import io.oigres.ecomm.cache.CacheLockFactory;
+import io.oigres.ecomm.cache.CacheLockManager;
+import io.oigres.ecomm.cache.CacheLockOptions;
+import io.oigres.ecomm.cache.annotations.LockMode;
+import io.oigres.ecomm.service.limiter.AuditEvent;
+import io.oigres.ecomm.service.limiter.RequestAudit;
+import io.oigres.ecomm.service.limiter.ResponseAudit;
+import io.oigres.ecomm.service.limiter.algorithms.RateLimit;
+import io.oigres.ecomm.service.limiter.config.StorageBucketProperties;
+import io.oigres.ecomm.service.limiter.model.StorageBucket;
+import io.oigres.ecomm.service.limiter.repositories.CacheNames;
+import io.oigres.ecomm.service.limiter.repositories.RequestIndexRepository;
+import io.oigres.ecomm.service.limiter.repositories.RequestRepository;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+
+public class RequestServiceImplTests {
+  private static final LocalDateTime ARRIVED = LocalDateTime.of(2024, 5, 1, 10, 0, 30);
+
+  /** Lock factory which records the names of the locks which are acquired, in order. */
+  private static class RecordingCacheLockFactory implements CacheLockFactory {
+    private final List<String> acquired = new ArrayList<>();
+
+    @Override
+    public Lock create(String name) {
+      return new Lock() {
+        @Override
+        public void lock() {
+          acquired.add(name);
+        }
+
+        @Override
+        public void lockInterruptibly() {
+          lock();
+        }
+
+        @Override
+        public boolean tryLock() {
+          lock();
+          return true;
+        }
+
+        @Override
+        public boolean tryLock(long time, TimeUnit unit) {
+          return tryLock();
+        }
+
+        @Override
+        public void unlock() {}
+
+        @Override
+        public Condition newCondition() {
+          throw new UnsupportedOperationException();
+        }
+      };
+    }
+  }
+
+  /** Request repository which locks buckets as the redis repositories do. */
+  private static class LockingRequestRepository implements RequestRepository {
+    private final CacheLockFactory cacheLockFactory;
+    private final Map<LocalDateTime, StorageBucket> buckets = new HashMap<>();
+
+    LockingRequestRepository(CacheLockFactory cacheLockFactory) {
+      this.cacheLockFactory = cacheLockFactory;
+    }
+
+    private void lock(String userId, Collection<LocalDateTime> times) {
+      TreeSet<LocalDateTime> minutes = new TreeSet<>();
+      times.forEach(time -> minutes.add(time.truncatedTo(ChronoUnit.MINUTES)));
+      minutes.forEach(
+          minute ->
+              CacheLockManager.lockIfNeeded(
+                  CacheNames.REQUEST_CACHE_NAME, userId + "_" + minute, this.cacheLockFactory));
+    }
+
+    @Override
+    public StorageBucket getUserRequestsByTime(String userId, LocalDateTime time) {
+      return getUserRequestsByTimes(userId, List.of(time)).get(time);
+    }
+
+    @Override
+    public StorageBucket storeUserRequests(String userId, LocalDateTime time, StorageBucket data) {
+      storeUserRequests(userId, Map.of(time, data));
+      return data;
+    }
+
+    @Override
+    public Map<LocalDateTime, StorageBucket> getUserRequestsByTimes(
+        String userId, Collection<LocalDateTime> times) {
+      lock(userId, times);
+      Map<LocalDateTime, StorageBucket> found = new HashMap<>();
+      times.forEach(
+          time ->
+              found.put(
+                  time,
+                  this.buckets.getOrDefault(
+                      time, StorageBucket.builder().userId(userId).minute(time).build())));
+      return found;
+    }
+
+    @Override
+    public void storeUserRequests(String userId, Map<LocalDateTime, StorageBucket> buckets) {
+      lock(userId, buckets.keySet());
+      this.buckets.putAll(buckets);
+    }
+  }
+
+  private static class EmptyRequestIndexRepository implements RequestIndexRepository {
+    @Override
+    public LocalDateTime getRequestMinute(String userId, String requestId) {
+      return null;
+    }
+
+    @Override
+    public Map<String, LocalDateTime> getRequestMinutes(
+        String userId, Collection<String> requestIds) {
+      return Map.of();
+    }
+
+    @Override
+    public void storeRequestMinute(String userId, String requestId, LocalDateTime minute) {}
+  }
+
+  private static RequestService requestService(RecordingCacheLockFactory cacheLockFactory) {
+    // the blacked info of the user is locked by its key, as the blacked info cache does
+    BlacklistService blacklistService =
+        userId ->
+            CacheLockManager.lockIfNeeded(
+                CacheNames.BLACKED_INFO_CACHE_NAME, userId, cacheLockFactory);
+    LimitRuleService limitRuleService = request -> RateLimit.builder().limit(1).build();
+    AspectJProxyFactory proxyFactory =
+        new AspectJProxyFactory(
+            new RequestServiceImpl(
+                new LockingRequestRepository(cacheLockFactory),
+                blacklistService,
+                limitRuleService,
+                new StorageBucketProperties(),
+                new EmptyRequestIndexRepository()));
+    proxyFactory.addAspect(
+        new CacheLockAspect(
+            cacheLockFactory, null, LockMode.PESSIMISTIC, 0, CacheLockOptions.UNBOUNDED));
+    return proxyFactory.getProxy();
+  }
+
+  private static RequestAudit request(String userId, String id, LocalDateTime arrived) {
+    return RequestAudit.builder().id(id).userId(userId).arrived(arrived).build();
+  }
+
+  @Test
+  void test_requests_without_user_take_no_locks() {
+    // given
+    RecordingCacheLockFactory cacheLockFactory = new RecordingCacheLockFactory();
+    RequestService service = requestService(cacheLockFactory);
+
+    // when
+    service.requestArrive(request(null, "1", ARRIVED));
+    service.requestArrive(request(" ", "2", ARRIVED));
+    service.responseArrive(ResponseAudit.builder().id("1").arrived(ARRIVED).build());
+    service.eventsArrive("", List.of(AuditEvent.of(request("", "3", ARRIVED))));
+
+    // then
+    Assertions.assertEquals(List.of(), cacheLockFactory.acquired);
+  }
+
+  @Test
+  void test_user_is_locked_before_its_buckets() {
+    // given
+    RecordingCacheLockFactory cacheLockFactory = new RecordingCacheLockFactory();
+    RequestService service = requestService(cacheLockFactory);
+    String minute = ARRIVED.truncatedTo(ChronoUnit.MINUTES).toString();
+    String previousMinute = ARRIVED.truncatedTo(ChronoUnit.MINUTES).minusMinutes(1).toString();
+
+    // when
+    service.requestArrive(request("alice", "1", ARRIVED));
+    List<String> requestLocks = List.copyOf(cacheLockFactory.acquired);
+    cacheLockFactory.acquired.clear();
+    service.responseArrive(
+        ResponseAudit.builder().id("0").userId("alice").arrived(ARRIVED).build());
+    List<String> responseLocks = List.copyOf(cacheLockFactory.acquired);
+    cacheLockFactory.acquired.clear();
+    // two requests go over the limit, so the user is blacklisted after its buckets are locked
+    service.eventsArrive(
+        "alice",
+        List.of(
+            AuditEvent.of(request("alice", "2", ARRIVED.minusMinutes(1))),
+            AuditEvent.of(request("alice", "3", ARRIVED)),
+            AuditEvent.of(request("alice", "4", ARRIVED))));
+    List<String> eventLocks = List.copyOf(cacheLockFactory.acquired);
+
+    // then
+    Assertions.assertEquals(List.of("alice", "alice_" + minute), requestLocks);
+    Assertions.assertEquals(
+        List.of("alice", "alice_" + minute, "alice_" + previousMinute), responseLocks);
+    Assertions.assertEquals(
+        List.of("alice", "alice_" + previousMinute, "alice_" + minute), eventLocks);
+  }
+}
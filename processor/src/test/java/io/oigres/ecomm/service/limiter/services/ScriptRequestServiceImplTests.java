@@ -0,0 +1,114 @@
+/**********
+ This project is free software; you can redistribute it and/or modify it under
+ the terms of the GNU General Public License as published by the
+ Free Software Foundation; either version 3.0 of the License, or (at your
+ option) any later version. (See <https://www.gnu.org/licenses/gpl-3.0.html>.)
+
+ This project is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this project; if not, write to the Free Software Foundation, Inc.,
+ 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301  USA
+ **********/
+// Copyright (c) 2024-2025 Sergio Exposito.  All rights reserved.              
+
+package io.oigres.ecomm.service.limiter.services;
+
+import io.oigres.ecomm.service.limiter.RequestAudit;
+import io.oigres.ecomm.service.limiter.algorithms.RateLimit;
+import io.oigres.ecomm.service.limiter.algorithms.RateLimitAlgorithm;
+import io.oigres.ecomm.service.limiter.algorithms.RateLimitAlgorithmType;
+import io.oigres.ecomm.service.limiter.config.LimiterEngineProperties;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
+
+public class ScriptRequestServiceImplTests {
+  private static final LocalDateTime ARRIVED = LocalDateTime.of(2024, 5, 1, 10, 0, 30);
+  private static final RateLimit LIMIT =
+      RateLimit.builder().limit(3).window(Duration.ofMinutes(1)).build();
+
+  private final RateLimitAlgorithm algorithm = Mockito.mock(RateLimitAlgorithm.class);
+  private final BlacklistService blacklistService = Mockito.mock(BlacklistService.class);
+  private final ScriptRequestServiceImpl service;
+
+  public ScriptRequestServiceImplTests() {
+    Mockito.when(this.algorithm.getType()).thenReturn(RateLimitAlgorithmType.SLIDING_WINDOW_LOG);
+    LimiterEngineProperties properties = new LimiterEngineProperties();
+    properties.setAlgorithm(RateLimitAlgorithmType.SLIDING_WINDOW_LOG);
+    this.service =
+        new ScriptRequestServiceImpl(
+            List.of(this.algorithm), this.blacklistService, request -> LIMIT, properties);
+  }
+
+  private static RequestAudit request(String id) {
+    return RequestAudit.builder().id(id).userId("user-1").arrived(ARRIVED).build();
+  }
+
+  @Test
+  void test_requests_without_id_are_counted_with_generated_ids() {
+    // given
+    Mockito.when(
+            this.algorithm.tryAcquire(
+                ArgumentMatchers.anyString(),
+                ArgumentMatchers.anyString(),
+                ArgumentMatchers.any(),
+                ArgumentMatchers.any()))
+        .thenReturn(true);
+
+    // when
+    this.service.requestArrive(request(null));
+    this.service.requestArrive(request(""));
+
+    // then
+    ArgumentCaptor<String> ids = ArgumentCaptor.forClass(String.class);
+    Mockito.verify(this.algorithm, Mockito.times(2))
+        .tryAcquire(
+            ArgumentMatchers.eq("user-1"),
+            ids.capture(),
+            ArgumentMatchers.eq(ARRIVED),
+            ArgumentMatchers.eq(LIMIT));
+    Assertions.assertEquals(2, ids.getAllValues().stream().distinct().count());
+    Assertions.assertTrue(ids.getAllValues().stream().noneMatch(String::isBlank));
+  }
+
+  @Test
+  void test_rejected_requests_blacklist_user() {
+    // given
+    Mockito.when(
+            this.algorithm.tryAcquire(
+                ArgumentMatchers.anyString(),
+                ArgumentMatchers.eq("r1"),
+                ArgumentMatchers.any(),
+                ArgumentMatchers.any()))
+        .thenReturn(false);
+
+    // when
+    this.service.requestArrive(request("r1"));
+
+    // then
+    Mockito.verify(this.blacklistService).blacklistUser("user-1");
+  }
+
+  @Test
+  void test_missing_algorithm_fails() {
+    // given
+    LimiterEngineProperties properties = new LimiterEngineProperties();
+    properties.setAlgorithm(RateLimitAlgorithmType.GCRA);
+
+    // when / then
+    Assertions.assertThrows(
+        IllegalStateException.class,
+        () ->
+            new ScriptRequestServiceImpl(
+                List.of(this.algorithm), this.blacklistService, request -> LIMIT, properties));
+  }
+}